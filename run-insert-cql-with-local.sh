@@ -0,0 +1,3 @@
+#!/bin/sh
+
+java -cp target/DataApiInsertManyTest-*.jar cmd.InsertManyCQLWrapper  -e LOCAL $*
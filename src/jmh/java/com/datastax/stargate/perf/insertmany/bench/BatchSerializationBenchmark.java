@@ -0,0 +1,70 @@
+package com.datastax.stargate.perf.insertmany.bench;
+
+import com.datastax.astra.client.collections.definition.documents.Document;
+import com.datastax.astra.client.core.options.DataAPIClientOptions;
+import com.datastax.astra.client.tables.definition.rows.Row;
+import com.datastax.astra.internal.serdes.DataAPISerializer;
+import com.datastax.astra.internal.serdes.collections.DocumentSerializer;
+import com.datastax.astra.internal.serdes.tables.RowSerializer;
+import com.datastax.stargate.perf.insertmany.entity.ContainerItem;
+import com.datastax.stargate.perf.insertmany.entity.ContainerItemGenerator;
+import com.datastax.stargate.perf.insertmany.entity.ContainerItemIdGenerator;
+import com.datastax.stargate.perf.insertmany.entity.ItemContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for full client-side preparation of insertMany request body from a
+ * batch of {@link ContainerItem}s: mapping to Documents/Rows and JSON serialization
+ * of the command using serializers Data API client uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BatchSerializationBenchmark
+{
+    @Param({ "1", "10", "100", "1000" })
+    public int batchSize;
+
+    @Param({ "0", "256", "1500", "4096" })
+    public int vectorLength;
+
+    @Param({ "true", "false" })
+    public boolean binaryVectors;
+
+    private List<ContainerItem> batch;
+
+    private DataAPISerializer documentSerializer;
+    private DataAPISerializer rowSerializer;
+
+    @Setup
+    public void setup() {
+        // Same global setting as set by test classes ("--binary-vectors")
+        DataAPIClientOptions.getSerdesOptions().encodeDataApiVectorsAsBase64(binaryVectors);
+        batch = new ContainerItemGenerator(ContainerItemIdGenerator.increasingCycleGenerator(0),
+                vectorLength).generate(batchSize);
+        documentSerializer = new DocumentSerializer();
+        rowSerializer = new RowSerializer();
+    }
+
+    @Benchmark
+    public String collectionInsertMany() {
+        List<Document> docs = batch.stream().map(ContainerItem::toDocument).toList();
+        return documentSerializer.marshall(ItemContainer.insertManyCommand(docs, false));
+    }
+
+    @Benchmark
+    public String tableInsertMany() {
+        List<Row> rows = batch.stream().map(ContainerItem::toTableRow).toList();
+        return rowSerializer.marshall(ItemContainer.insertManyCommand(rows, false));
+    }
+}
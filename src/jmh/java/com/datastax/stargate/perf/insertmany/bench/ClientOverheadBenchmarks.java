@@ -0,0 +1,48 @@
+package com.datastax.stargate.perf.insertmany.bench;
+
+import com.datastax.astra.client.DataAPIClient;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Main class for running client-side overhead benchmarks (item generation, mapping,
+ * serialization) with GC/allocation profiler; results are written as JSON into
+ * file named after the version of Data API client used, so that results can be
+ * compared across client versions.
+ *<p>
+ * Usage:
+ *<pre>
+ *  java -cp target/DataApiInsertManyTest-*.jar com.datastax.stargate.perf.insertmany.bench.ClientOverheadBenchmarks \
+ *      [include-regexp] [result-file]
+ *</pre>
+ */
+public class ClientOverheadBenchmarks {
+    public static void main(String[] args) throws Exception {
+        final String include = (args.length > 0) ? args[0]
+                : ClientOverheadBenchmarks.class.getPackageName() + ".*Benchmark";
+        final String resultFile = (args.length > 1) ? args[1]
+                : "jmh-client-overhead-astra-db-java-" + clientVersion() + ".json";
+
+        ChainedOptionsBuilder opts = new OptionsBuilder()
+                .include(include)
+                .forks(1)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(2))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(2))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile);
+        new Runner(opts.build()).run();
+        System.out.printf("Results written to '%s'\n", resultFile);
+    }
+
+    private static String clientVersion() {
+        String version = DataAPIClient.class.getPackage().getImplementationVersion();
+        return (version == null) ? "unknown" : version;
+    }
+}
@@ -0,0 +1,45 @@
+package com.datastax.stargate.perf.insertmany.bench;
+
+import com.datastax.stargate.perf.insertmany.entity.DocumentShape;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for generating additional fields of a Document with {@link DocumentShape},
+ * as done for every item created with {@code --doc-shape}. Options of shapes are
+ * separated by semicolons, since JMH uses commas to separate parameter values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DocumentShapeBenchmark
+{
+    @Param({ "fields=10",
+            "fields=50;depth=2;arrays=10",
+            "fields=200;depth=3;arrays=10;strLen=exp40;numbers=30;dates=10;uuids=10" })
+    public String shapeSpec;
+
+    private DocumentShape shape;
+
+    private long seed;
+
+    @Setup
+    public void setup() throws IOException {
+        shape = DocumentShape.parse(shapeSpec);
+    }
+
+    @Benchmark
+    public Map<String, Object> generate() {
+        return shape.generate(++seed);
+    }
+}
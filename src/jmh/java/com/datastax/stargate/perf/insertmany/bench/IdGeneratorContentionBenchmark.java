@@ -0,0 +1,114 @@
+package com.datastax.stargate.perf.insertmany.bench;
+
+import com.datastax.stargate.perf.insertmany.entity.ContainerItemId;
+import com.datastax.stargate.perf.insertmany.entity.ContainerItemIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Benchmark for measuring contention of id allocation with {@link ContainerItemIdGenerator}
+ * shared by varying number of threads (one benchmark method per thread count: 1, 16,
+ * 256 and 4096, the last one as with virtual thread agents);
+ * compared to the earlier, {@code synchronized} implementation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IdGeneratorContentionBenchmark
+{
+    @Param({ "atomic", "synchronized" })
+    public String generator;
+
+    @Param({ "20" })
+    public int batchSize;
+
+    private ContainerItemIdGenerator atomicGen;
+
+    private SynchronizedIdGenerator syncGen;
+
+    // Allocation of one batch of ids with the generator benchmarked
+    private IntSupplier allocator;
+
+    @Setup
+    public void setup() {
+        atomicGen = ContainerItemIdGenerator.increasingCycleGenerator(0);
+        syncGen = new SynchronizedIdGenerator();
+        allocator = switch (generator) {
+            case "atomic" -> this::allocateAtomic;
+            case "synchronized" -> this::allocateSynchronized;
+            default -> throw new IllegalArgumentException("Unknown generator '"+generator+"'");
+        };
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int threads1() {
+        return allocate();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public int threads16() {
+        return allocate();
+    }
+
+    @Benchmark
+    @Threads(256)
+    public int threads256() {
+        return allocate();
+    }
+
+    @Benchmark
+    @Threads(4096)
+    public int threads4096() {
+        return allocate();
+    }
+
+    private int allocate() {
+        return allocator.getAsInt();
+    }
+
+    private int allocateAtomic() {
+        int sum = 0;
+        final int cycle = atomicGen.nextCycle();
+        for (int i = 0; i < batchSize; ++i) {
+            sum += new ContainerItemId(cycle, i).step();
+        }
+        return sum;
+    }
+
+    private int allocateSynchronized() {
+        int sum = 0;
+        for (ContainerItemId id : syncGen.nextIds(batchSize)) {
+            sum += id.step();
+        }
+        return sum;
+    }
+
+    /**
+     * Earlier implementation of id generation: single monitor, allocates an array
+     * of ids per call.
+     */
+    static class SynchronizedIdGenerator {
+        private int cycle;
+
+        public synchronized ContainerItemId[] nextIds(int count) {
+            ++cycle;
+            ContainerItemId[] ids = new ContainerItemId[count];
+            for (int i = 0; i < count; ++i) {
+                ids[i] = new ContainerItemId(cycle, i);
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.datastax.stargate.perf.insertmany.bench;
+
+import com.datastax.stargate.perf.insertmany.entity.ContainerItem;
+import com.datastax.stargate.perf.insertmany.entity.ContainerItemGenerator;
+import com.datastax.stargate.perf.insertmany.entity.ContainerItemIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for generating batches of {@link ContainerItem}s, as done by agents
+ * (or pre-generation threads) before each insertMany call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ItemGenerationBenchmark
+{
+    @Param({ "1", "10", "100", "1000" })
+    public int batchSize;
+
+    @Param({ "0", "256", "1500", "4096" })
+    public int vectorLength;
+
+    private ContainerItemGenerator generator;
+
+    @Setup
+    public void setup() {
+        generator = new ContainerItemGenerator(ContainerItemIdGenerator.increasingCycleGenerator(0),
+                vectorLength);
+    }
+
+    @Benchmark
+    public List<ContainerItem> generate() {
+        return generator.generate(batchSize);
+    }
+}
@@ -0,0 +1,52 @@
+package com.datastax.stargate.perf.insertmany.bench;
+
+import com.datastax.astra.client.collections.definition.documents.Document;
+import com.datastax.astra.client.tables.definition.rows.Row;
+import com.datastax.stargate.perf.insertmany.entity.ContainerItem;
+import com.datastax.stargate.perf.insertmany.entity.ContainerItemGenerator;
+import com.datastax.stargate.perf.insertmany.entity.ContainerItemIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for mapping batches of {@link ContainerItem}s into Documents (for
+ * Collections) and Rows (for API Tables), as done for every insertMany call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ItemMappingBenchmark
+{
+    @Param({ "1", "10", "100", "1000" })
+    public int batchSize;
+
+    @Param({ "0", "256", "1500", "4096" })
+    public int vectorLength;
+
+    private List<ContainerItem> batch;
+
+    @Setup
+    public void setup() {
+        batch = new ContainerItemGenerator(ContainerItemIdGenerator.increasingCycleGenerator(0),
+                vectorLength).generate(batchSize);
+    }
+
+    @Benchmark
+    public List<Document> toDocuments() {
+        return batch.stream().map(ContainerItem::toDocument).toList();
+    }
+
+    @Benchmark
+    public List<Row> toTableRows() {
+        return batch.stream().map(ContainerItem::toTableRow).toList();
+    }
+}
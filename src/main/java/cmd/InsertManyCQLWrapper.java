@@ -0,0 +1,9 @@
+package cmd;
+
+import com.datastax.stargate.perf.insertmany.InsertManyCQLTest;
+
+public class InsertManyCQLWrapper {
+    public static void main(String[] args) {
+        InsertManyCQLTest.main(args);
+    }
+}
@@ -0,0 +1,9 @@
+package cmd;
+
+import com.datastax.stargate.perf.insertmany.InsertManyCompare;
+
+public class InsertManyCompareWrapper {
+    public static void main(String[] args) {
+        InsertManyCompare.main(args);
+    }
+}
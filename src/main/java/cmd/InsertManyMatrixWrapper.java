@@ -0,0 +1,9 @@
+package cmd;
+
+import com.datastax.stargate.perf.insertmany.InsertManyMatrixTest;
+
+public class InsertManyMatrixWrapper {
+    public static void main(String[] args) {
+        InsertManyMatrixTest.main(args);
+    }
+}
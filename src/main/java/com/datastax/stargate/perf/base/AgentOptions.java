@@ -0,0 +1,59 @@
+package com.datastax.stargate.perf.base;
+
+/**
+ * Settings for how test agents generate load; constructed from command-line
+ * options and passed down to test phase runners.
+ *
+ * @param loadModel Whether load is generated in closed or open loop
+ * @param agentThreading Kind of threads agents are run on
+ * @param asyncInFlight Maximum number of calls each agent keeps in flight using
+ *    asynchronous calls; 0 for synchronous (blocking) agents
+ * @param pregenBatches Number of batches to generate ahead of time (by dedicated
+ *    producer threads); 0 to have agents generate batches themselves
+ * @param pregenThreads Number of producer threads for pre-generating batches
+ * @param traceEvery Trace every Nth batch (time spent in stages of sending it);
+ *    0 for no tracing
+ * @param adaptive Whether number of active agents and batch size are adjusted during
+ *    phases by feedback controller (agent count and batch size used as maximum and
+ *    initial value, respectively)
+ * @param adaptiveMaxBatch Maximum batch size for adaptive mode
+ */
+public record AgentOptions(LoadModel loadModel,
+                           AgentThreading agentThreading,
+                           int asyncInFlight,
+                           int pregenBatches, int pregenThreads,
+                           int traceEvery,
+                           boolean adaptive, int adaptiveMaxBatch)
+{
+    public boolean asyncAgents() {
+        return asyncInFlight > 0;
+    }
+
+    public boolean preGenerateBatches() {
+        return pregenBatches > 0;
+    }
+
+    public boolean traceBatches() {
+        return traceEvery > 0;
+    }
+
+    public String desc() {
+        StringBuilder sb = new StringBuilder()
+                .append("load: ").append(loadModel)
+                .append(", threads: ").append(agentThreading);
+        if (asyncAgents()) {
+            sb.append(", async in-flight: ").append(asyncInFlight);
+        }
+        if (preGenerateBatches()) {
+            sb.append(", pre-gen: ").append(pregenBatches).append(" batches/")
+                    .append(pregenThreads).append(" threads");
+        }
+        if (traceBatches()) {
+            sb.append(", trace every: ").append(traceEvery);
+        }
+        if (adaptive) {
+            sb.append(", adaptive (max batch: ").append(adaptiveMaxBatch).append(')');
+        }
+        return sb.toString();
+    }
+}
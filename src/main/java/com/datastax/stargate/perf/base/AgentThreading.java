@@ -0,0 +1,18 @@
+package com.datastax.stargate.perf.base;
+
+/**
+ * Enumeration of kinds of threads used for running test agents.
+ */
+public enum AgentThreading {
+    /**
+     * One platform thread per agent (fixed-size thread pool)
+     */
+    PLATFORM,
+
+    /**
+     * One virtual thread per agent: requires build with "java21" profile and
+     * Java 21 runtime.
+     */
+    VIRTUAL
+    ;
+}
@@ -0,0 +1,22 @@
+package com.datastax.stargate.perf.base;
+
+/**
+ * Settings for vector ANN search phases (workload {@code SEARCH}): search agents
+ * run vector-sorted {@code find}s and results are compared to exact nearest
+ * neighbors computed locally, to measure recall.
+ *
+ * @param k Number of nearest neighbors to fetch per query (recall@k); 0 for no searches
+ * @param queryCount Number of distinct query vectors (ground truth computed for each)
+ * @param phaseSecs Duration of default "ANN Search" phase run after main test phase
+ * @param searchRPS Rate limit of searches of default "ANN Search" phase
+ */
+public record AnnOptions(int k, int queryCount, int phaseSecs, int searchRPS)
+{
+    public boolean enabled() {
+        return k > 0;
+    }
+
+    public String desc() {
+        return String.format("recall@%d, %d queries", k, queryCount);
+    }
+}
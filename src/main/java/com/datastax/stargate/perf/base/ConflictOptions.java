@@ -0,0 +1,23 @@
+package com.datastax.stargate.perf.base;
+
+/**
+ * Settings for injecting duplicate-key conflicts into insert batches: ids of items
+ * inserted earlier are reused for some of the items, to measure cost of partial
+ * failures of inserts (with ordered and unordered inserts).
+ *
+ * @param duplicateFraction Fraction (0.0 - 1.0) of items of batches to replace with
+ *    items with ids already used; 0.0 for none
+ * @param resubmitFailed Whether documents of failed calls not inserted (other than
+ *    ones failed due to duplicate key) are resubmitted
+ */
+public record ConflictOptions(double duplicateFraction, boolean resubmitFailed)
+{
+    public boolean enabled() {
+        return duplicateFraction > 0.0;
+    }
+
+    public String desc() {
+        return String.format("%.1f%% duplicate ids, resubmit failed: %s",
+                duplicateFraction * 100.0, resubmitFailed);
+    }
+}
@@ -0,0 +1,63 @@
+package com.datastax.stargate.perf.base;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.CqlSessionBuilder;
+import picocli.CommandLine;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+
+/**
+ * Command-line options for CQL access (to CQL Tables), included as mixin by tests
+ * that may need it.
+ */
+public class CqlOptions
+{
+    @CommandLine.Option(names = {"--cql-bundle"},
+            description = "Path to Secure Connect Bundle for CQL access (required for Astra envs)")
+    protected String cqlBundle = "";
+
+    @CommandLine.Option(names = {"--cql-contact-point"},
+            description = "CQL contact point (host:port) for LOCAL env (default: 'localhost:9042')")
+    protected String cqlContactPoint = "localhost:9042";
+
+    @CommandLine.Option(names = {"--cql-datacenter"},
+            description = "Local datacenter for LOCAL env (default: 'datacenter1')")
+    protected String cqlDatacenter = "datacenter1";
+
+    @CommandLine.Option(names = {"--cql-write-mode"},
+            description = "How batches are written: CONCURRENT (single-row INSERTs) or BATCH (unlogged BATCH) (default: CONCURRENT)")
+    protected CqlWriteMode cqlWriteMode = CqlWriteMode.CONCURRENT;
+
+    public CqlWriteMode writeMode() {
+        return cqlWriteMode;
+    }
+
+    CqlSession createSession(DataApiTestBase.DataApiEnv env, String astraToken, String keyspace) {
+        CqlSessionBuilder builder = CqlSession.builder()
+                .withKeyspace(keyspace);
+        if (env == DataApiTestBase.DataApiEnv.EMBEDDED) {
+            throw new IllegalArgumentException("CQL Tables not supported with env "+env);
+        }
+        if (env == DataApiTestBase.DataApiEnv.LOCAL) {
+            System.out.printf("Connecting CQL session to '%s' (datacenter '%s')...",
+                    cqlContactPoint, cqlDatacenter);
+            int ix = cqlContactPoint.lastIndexOf(':');
+            String host = (ix < 0) ? cqlContactPoint : cqlContactPoint.substring(0, ix);
+            int port = (ix < 0) ? 9042 : Integer.parseInt(cqlContactPoint.substring(ix+1));
+            builder = builder.addContactPoint(new InetSocketAddress(host, port))
+                    .withLocalDatacenter(cqlDatacenter)
+                    .withAuthCredentials("cassandra", "cassandra");
+        } else {
+            if (cqlBundle.isEmpty()) {
+                throw new IllegalArgumentException("Secure Connect Bundle ('--cql-bundle') required for env "+env);
+            }
+            System.out.printf("Connecting CQL session using bundle '%s'...", cqlBundle);
+            builder = builder.withCloudSecureConnectBundle(Paths.get(cqlBundle))
+                    .withAuthCredentials("token", astraToken);
+        }
+        CqlSession session = builder.build();
+        System.out.println(" connected.");
+        return session;
+    }
+}
@@ -0,0 +1,21 @@
+package com.datastax.stargate.perf.base;
+
+/**
+ * Enumeration of ways in which a batch of rows is written to a CQL Table
+ * using CQL driver.
+ */
+public enum CqlWriteMode {
+    /**
+     * Each row written with its own (prepared) INSERT statement, all rows of
+     * a batch concurrently (or sequentially, for ordered inserts).
+     */
+    CONCURRENT,
+
+    /**
+     * All rows of a batch written with a single unlogged BATCH statement.
+     * Note: large batches (like ones with long vectors) may exceed server-side
+     * batch size limits.
+     */
+    BATCH
+    ;
+}
@@ -1,15 +1,26 @@
 package com.datastax.stargate.perf.base;
 
+import com.datastax.astra.client.databases.Database;
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
 import picocli.CommandLine;
 
-public abstract class DataApiCQLTestBase extends DataApiTestBase {
+import java.util.List;
+
+public abstract class DataApiCQLTestBase extends DataApiContainerTestBase {
     @CommandLine.Option(names = {"-T", "--table-name"},
             defaultValue = "insert_many_test_cql_table",
             description = "Table name (default: 'insert_many_test_cql_table')")
     protected String tableName;
 
+    @CommandLine.Mixin
+    protected CqlOptions cqlOptions = new CqlOptions();
+
+    // Session shared by listing of Tables and test client; closed after test
+    private CqlSession cqlSession;
+
     protected DataApiCQLTestBase() {
-        super(ContainerType.API_TABLE);
+        super(ContainerType.CQL_TABLE);
     }
 
     @Override
@@ -21,5 +32,35 @@ public abstract class DataApiCQLTestBase extends DataApiTestBase {
     protected boolean createIndexes() {
         return true;
     }
-}
 
+    /**
+     * @return Session for given keyspace: created on first call, closed once
+     *    test has completed
+     */
+    protected CqlSession cqlSession(String keyspace) {
+        if (cqlSession == null) {
+            cqlSession = createCqlSession(cqlOptions, keyspace);
+        }
+        return cqlSession;
+    }
+
+    // CQL Tables are accessed using native driver, so list them using it as well
+    @Override
+    protected List<String> listContainerNames(Database db) {
+        final CqlSession session = cqlSession(db.getKeyspace());
+        return session.getMetadata().getKeyspace(CqlIdentifier.fromInternal(db.getKeyspace()))
+                .map(ks -> ks.getTables().keySet().stream()
+                        .map(CqlIdentifier::asInternal)
+                        .sorted()
+                        .toList())
+                .orElse(List.of());
+    }
+
+    @Override
+    protected void closeResources() {
+        if (cqlSession != null) {
+            cqlSession.close();
+            cqlSession = null;
+        }
+    }
+}
@@ -2,7 +2,7 @@ package com.datastax.stargate.perf.base;
 
 import picocli.CommandLine;
 
-public abstract class DataApiCollectionTestBase extends DataApiTestBase
+public abstract class DataApiCollectionTestBase extends DataApiContainerTestBase
 {
     @CommandLine.Option(names = {"-c", "--collection-name"},
             defaultValue = "insert_many_test_collection",
@@ -0,0 +1,141 @@
+package com.datastax.stargate.perf.base;
+
+import com.datastax.astra.client.databases.Database;
+
+import java.util.List;
+
+/**
+ * Base class for tests run against a single container (Collection or Table),
+ * using a single {@link DataApiTestClient}.
+ */
+public abstract class DataApiContainerTestBase extends DataApiTestBase
+{
+    protected DataApiContainerTestBase(ContainerType containerType) {
+        super(containerType);
+    }
+
+    /**
+     * Method for running the test (from checking existing containers to warm-up and
+     * test phases) once database connection has been established.
+     *
+     * @return Exit code for the process
+     */
+    @Override
+    protected int runTest(Database db)
+    {
+        try {
+            return runTestWith(db);
+        } finally {
+            closeResources();
+        }
+    }
+
+    private int runTestWith(Database db)
+    {
+        // Check out existing Collections/Tables:
+        System.out.printf("Fetch names of existing %ss in the database: ", containerType.toString());
+        List<String> containerNames;
+
+        try {
+            containerNames = listContainerNames(db);
+            System.out.println(containerNames);
+        } catch (Exception e) {
+            System.err.printf("\n  FAIL/base1: (%s) %s\n", e.getClass().getSimpleName(),
+                    e);
+            return 1;
+        }
+
+        // Create the test client
+        DataApiTestClient testClient;
+        try {
+            testClient = createTestClient(db);
+        } catch (Exception e) {
+            System.err.printf("\n  FAIL/base2: (%s) %s\n", e.getClass().getSimpleName(),
+                    e);
+            return 2;
+        }
+
+        // Workers skip initialization, validation: coordinator does those
+        if (!workerOf.isEmpty()) {
+            System.out.printf("Run as worker of coordinator at '%s' against %s.\n",
+                    workerOf, containerDesc());
+            try {
+                testClient.runAsWorker(workerOf, runConfig());
+            } catch (Exception e) {
+                System.err.printf("\n  FAIL/base6: (%s) %s\n", e.getClass().getName(),
+                        e);
+                return 6;
+            }
+            System.out.println();
+            System.out.println("DONE!");
+            return 0;
+        }
+
+        // Initialize...
+        System.out.printf("Initialize test client (%s; skipInit? %s):\n",
+                containerDesc(), skipInit);
+        try {
+            testClient.initialize(skipInit, createIndexes());
+        } catch (Exception e) {
+            System.err.printf("\n  FAIL/base3: (%s) %s\n", e.getClass().getName(),
+                    e);
+            return 3;
+        }
+        System.out.printf("Ok: Initialization of %s successful.\n", containerDesc());
+
+        // Validate functioning of test operations
+        System.out.printf("Validate that test operations on %s work.\n", containerDesc());
+        try {
+            testClient.validate();
+        } catch (Exception e) {
+            System.err.printf("\n  FAIL/base4: (%s) %s\n", e.getClass().getSimpleName(),
+                    e);
+            return 4;
+        }
+        System.out.printf("Ok: Validation of %s successful.\n", containerDesc());
+
+        // And then warm-up, run test
+        System.out.printf("Start warm-up, run test against %s.\n", containerDesc());
+        LocalWorkers localWorkers = null;
+        try {
+            if (spawnWorkers && workers > 0) {
+                localWorkers = LocalWorkers.start(workers, getClass().getName(), workerArgs());
+                System.out.printf("Started %d local worker processes (logs in '%s')\n",
+                        workers, localWorkers.logDir());
+            }
+            testClient.runWarmupAndTest(agentCount, rateLimitRPS, runConfig());
+        } catch (Exception e) {
+            System.err.printf("\n  FAIL/base5: (%s) %s\n", e.getClass().getName(),
+                    e);
+            return 5;
+        } finally {
+            if (localWorkers != null) {
+                try {
+                    localWorkers.close();
+                } catch (InterruptedException e) { }
+            }
+        }
+
+        System.out.println();
+        System.out.println("DONE!");
+        return 0;
+    }
+
+    /**
+     * Method for fetching names of existing containers: by default using Data API.
+     */
+    protected List<String> listContainerNames(Database db) {
+        return (containerType == ContainerType.COLLECTION)
+                ? db.listCollectionNames() : db.listTableNames();
+    }
+
+    /**
+     * Method called after the test has completed, successfully or not, to close
+     * resources test may have opened.
+     */
+    protected void closeResources() { }
+
+    protected abstract boolean createIndexes();
+
+    protected abstract DataApiTestClient createTestClient(Database db) throws Exception;
+}
@@ -2,7 +2,7 @@ package com.datastax.stargate.perf.base;
 
 import picocli.CommandLine;
 
-public abstract class DataApiTableTestBase extends DataApiTestBase
+public abstract class DataApiTableTestBase extends DataApiContainerTestBase
 {
     @CommandLine.Option(names = {"-T", "--table-name"},
             defaultValue = "insert_many_test_api_table",
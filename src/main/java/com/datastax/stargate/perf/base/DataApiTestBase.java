@@ -9,10 +9,19 @@ import com.datastax.astra.client.core.options.DataAPIClientOptions;
 import com.datastax.astra.client.core.options.TimeoutOptions;
 import com.datastax.astra.client.databases.Database;
 import com.datastax.astra.client.databases.DatabaseOptions;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.stargate.perf.embedded.EmbeddedDataApiServer;
+import com.datastax.stargate.perf.embedded.LatencyModel;
+import com.datastax.stargate.perf.metrics.CallTimings;
+import com.datastax.stargate.perf.metrics.LiveMetrics;
 import com.dtsx.astra.sdk.db.exception.DatabaseNotFoundException;
 import picocli.CommandLine;
 
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.Callable;
@@ -29,7 +38,9 @@ public abstract class DataApiTestBase
         DEV(DataAPIDestination.ASTRA_DEV),
         TEST(DataAPIDestination.ASTRA_TEST),
         // Hmmmh. Should we allow DSE or CASSANDRA here?
-        LOCAL(DataAPIDestination.HCD)
+        LOCAL(DataAPIDestination.HCD),
+        // In-process Data API stand-in (see EmbeddedDataApiServer)
+        EMBEDDED(DataAPIDestination.HCD)
         ;
 
         private final DataAPIDestination destination;
@@ -60,9 +71,17 @@ public abstract class DataApiTestBase
     protected String dbIdAsString = "";
 
     @CommandLine.Option(names = {"-e", "--env"},
-            description = "Astra env (PROD [default], DEV, TEST, LOCAL)")
+            description = "Astra env (PROD [default], DEV, TEST, LOCAL, EMBEDDED)")
     protected DataApiEnv env = DataApiEnv.PROD;
 
+    @CommandLine.Option(names = {"--local-endpoint"},
+            description = "Data API endpoint for LOCAL env (default: 'http://localhost:8181')")
+    protected String localEndpoint = "http://localhost:8181";
+
+    @CommandLine.Option(names = {"--embedded-latency"},
+            description = "Service time model for EMBEDDED env: none, fixed:MS, lognormal:MEDIAN_MS:SIGMA, bimodal:FAST_MS:SLOW_MS:SLOW_RATIO, stalls:MS:EVERY_MS:STALL_MS (default: none)")
+    protected String embeddedLatency = "none";
+
     @CommandLine.Option(names = {"-k", "--keyspace", "--namespace"},
             description = "Keyspace (default 'default_keyspace')")
     protected String ns = "default_keyspace";
@@ -89,6 +108,152 @@ public abstract class DataApiTestBase
             description = "Rate limit as RPS (default: 100)")
     protected int rateLimitRPS = 100;
 
+    @CommandLine.Option(names = {"-l", "--load-model"},
+            description = "Load model: CLOSED (agents throttled by rate limit) or OPEN (fixed arrival schedule at rate limit; latency from intended start) (default: CLOSED)")
+    protected LoadModel loadModel = LoadModel.CLOSED;
+
+    @CommandLine.Option(names = {"--agent-threads"},
+            description = "Threads to run agents with: PLATFORM or VIRTUAL (needs Java 21 build/runtime) (default: PLATFORM)")
+    protected AgentThreading agentThreading = AgentThreading.PLATFORM;
+
+    @CommandLine.Option(names = {"--async-in-flight"},
+            description = "Maximum calls in flight per agent, using async agents; 0 for synchronous agents (default: 0)")
+    protected int asyncInFlight = 0;
+
+    @CommandLine.Option(names = {"--pregen-batches"},
+            description = "Number of batches to generate ahead of time by producer threads; 0 to generate by agents (default: 0)")
+    protected int pregenBatches = 0;
+
+    @CommandLine.Option(names = {"--pregen-threads"},
+            description = "Number of producer threads for pre-generating batches (default: 2)")
+    protected int pregenThreads = 2;
+
+    @CommandLine.Option(names = {"--trace-every"},
+            description = "Trace every Nth batch: time spent generating, queueing, mapping, encoding and sending it; written as Chrome trace file per phase; 0 for no tracing (default: 0)")
+    protected int traceEvery = 0;
+
+    @CommandLine.Option(names = {"--adaptive"}, arity="0",
+            description = "Adjust active agents (up to '--agent-count') and batch size during phases with AIMD feedback controller, to find throughput knee; needs CLOSED load model (default: false)")
+    protected boolean adaptive = false;
+
+    @CommandLine.Option(names = {"--adaptive-max-batch"},
+            description = "Maximum batch size for '--adaptive' mode (default: 100)")
+    protected int adaptiveMaxBatch = 100;
+
+    @CommandLine.Option(names = {"--scenario"},
+            description = "Phases to run instead of default warm-up + main test: 'NAME:DURATION@RPS[->RPS][,agents=N][,batch=N][,workload=TYPE][,truncate]' separated by ';' (or '@FILE' with one phase per line)")
+    protected String scenario = "";
+
+    @CommandLine.Option(names = {"--search-p99"},
+            description = "Capacity search: instead of main test, probe rates to find highest rate with p99 latency (msecs) of successful calls at most this; 0 for no search (default: 0)")
+    protected double searchP99Msecs = 0.0;
+
+    @CommandLine.Option(names = {"--search-max-errors"},
+            description = "Capacity search: maximum percentage of failed calls for rate to pass (default: 1.0)")
+    protected double searchMaxErrorPct = 1.0;
+
+    @CommandLine.Option(names = {"--search-phase-secs"},
+            description = "Capacity search: duration of each probe phase in seconds (default: 20)")
+    protected int searchPhaseSecs = 20;
+
+    @CommandLine.Option(names = {"--search-max-rps"},
+            description = "Capacity search: highest rate to probe; probing starts at '--rate-limit' (default: 100000)")
+    protected int searchMaxRPS = 100_000;
+
+    @CommandLine.Option(names = {"--search-precision"},
+            description = "Capacity search: stop refining when highest passing and lowest failing rates within this percentage (default: 5.0)")
+    protected double searchPrecisionPct = 5.0;
+
+    @CommandLine.Option(names = {"--read-rate"},
+            description = "Rate limit (RPS) of read agents run alongside insert agents in main test phase (and phases with 'workload=MIXED'); 0 for no reads (default: 0)")
+    protected int readRPS = 0;
+
+    @CommandLine.Option(names = {"--read-agents"},
+            description = "Number of read agents, if '--read-rate' given (default: 4)")
+    protected int readAgents = 4;
+
+    @CommandLine.Option(names = {"--point-read-pct"},
+            description = "Percentage of reads that are point lookups of inserted ids; rest are range reads on 'value' (default: 80)")
+    protected int pointReadPct = 80;
+
+    @CommandLine.Option(names = {"--range-read-limit"},
+            description = "Maximum number of items fetched by a range read (default: 20)")
+    protected int rangeReadLimit = 20;
+
+    @CommandLine.Option(names = {"--upsert-rate"},
+            description = "Rate limit (RPS) of agents overwriting (upserting) items inserted earlier in phases with 'workload=MUTATE' (default phases then include 'Mutations' phase); 0 for none (default: 0)")
+    protected int upsertRPS = 0;
+
+    @CommandLine.Option(names = {"--delete-rate"},
+            description = "Rate limit (RPS) of agents deleting items inserted earlier in phases with 'workload=MUTATE' (default phases then include 'Mutations' phase); 0 for none (default: 0)")
+    protected int deleteRPS = 0;
+
+    @CommandLine.Option(names = {"--mutation-agents"},
+            description = "Number of agents for each type of mutation (upsert, delete), if enabled (default: 4)")
+    protected int mutationAgents = 4;
+
+    @CommandLine.Option(names = {"--delete-batch"},
+            description = "Number of items deleted per call: 1 for deleteOne, more for deleteMany (default: 1)")
+    protected int deleteBatch = 1;
+
+    @CommandLine.Option(names = {"--key-skew"},
+            description = "Exponent of Zipfian distribution of items chosen for mutations, most recently inserted ones being hottest; 0 for uniform (default: 0.99)")
+    protected double keySkew = 0.99;
+
+    @CommandLine.Option(names = {"--duplicate-fraction"},
+            description = "Fraction (0.0 - 1.0) of inserted items to give ids of items inserted earlier, to cause duplicate-key failures (Collections; Tables overwrite); 0.0 for none (default: 0.0)")
+    protected double duplicateFraction = 0.0;
+
+    @CommandLine.Option(names = {"--resubmit-failed"}, arity="0",
+            description = "Whether documents not inserted by failed calls are resubmitted (excluding ones failed due to duplicate key) (default: false)")
+    protected boolean resubmitFailed = false;
+
+    @CommandLine.Option(names = {"--doc-shape"},
+            description = "Shape of additional fields of generated Documents (Collections only; rejected for Tables), like 'fields=50,depth=2,arrays=10,strLen=exp40'; or '@' and name of file with shape options; empty for none (default: none)")
+    protected String docShape = "";
+
+    @CommandLine.Option(names = {"--ann-k"},
+            description = "Number of nearest neighbors fetched by vector searches of 'ANN Search' phase (run after main test; and phases with 'workload=SEARCH'), to measure recall@k against exact kNN computed locally; 0 for no searches (default: 0)")
+    protected int annK = 0;
+
+    @CommandLine.Option(names = {"--ann-queries"},
+            description = "Number of distinct query vectors for vector searches (default: 100)")
+    protected int annQueries = 100;
+
+    @CommandLine.Option(names = {"--ann-secs"},
+            description = "Duration of 'ANN Search' phase in seconds (default: 30)")
+    protected int annPhaseSecs = 30;
+
+    @CommandLine.Option(names = {"--ann-rate"},
+            description = "Rate limit (RPS) of vector searches of 'ANN Search' phase (default: 50)")
+    protected int annRPS = 50;
+
+    @CommandLine.Option(names = {"--results-dir"},
+            description = "Directory to write results (JSON, CSV, HdrHistogram log) of each test phase into; none if not specified")
+    protected String resultsDir = "";
+
+    @CommandLine.Option(names = {"--metrics-port"},
+            description = "Port for HTTP endpoint ('/metrics') exposing live metrics in Prometheus format; 0 for none (default: 0)")
+    protected int metricsPort = 0;
+
+    // // // Distributed runs (coordinator + worker processes)
+
+    @CommandLine.Option(names = {"--workers"},
+            description = "Number of worker processes to distribute agents and rate limit across (this process coordinating); 0 to run agents in this process (default: 0)")
+    protected int workers = 0;
+
+    @CommandLine.Option(names = {"--coordinator-port"},
+            description = "Port coordinator listens on for workers to connect (default: 7077)")
+    protected int coordinatorPort = 7077;
+
+    @CommandLine.Option(names = {"--spawn-workers"}, arity="0",
+            description = "Start '--workers' worker processes on this machine (default: false, workers started separately with '--worker-of')")
+    protected boolean spawnWorkers = false;
+
+    @CommandLine.Option(names = {"--worker-of"},
+            description = "Run as a worker of coordinator at given address ('host:port')")
+    protected String workerOf = "";
+
     // // // Content limits/settings
 
     // Maximum allowed wrt Base64-encoded Blog  -> 8000 bytes
@@ -96,6 +261,16 @@ public abstract class DataApiTestBase
             description = "Vector size; 0 to disable (default: 1500)")
     protected int vectorLength = 1500;
 
+    @CommandLine.Option(names = {"--binary-vectors"}, arity="1",
+            description = "Whether vectors are sent in binary (\"$binary\" Base64 packed-float) form instead of as JSON float arrays (default: true)")
+    protected boolean binaryVectors = true;
+
+    @CommandLine.Spec
+    protected CommandLine.Model.CommandSpec commandSpec;
+
+    // Endpoint of embedded Data API server, if one started
+    protected String embeddedEndpoint;
+
     protected DataApiTestBase(ContainerType containerType) {
         this.containerType = containerType;
     }
@@ -105,6 +280,7 @@ public abstract class DataApiTestBase
     @Override
     public final Integer call()
     {
+        validateOptions();
         final AtomicInteger exitCodeWrapper = new AtomicInteger(-1);
         Database db = initializeDB(exitCodeWrapper);
 
@@ -112,69 +288,88 @@ public abstract class DataApiTestBase
             return exitCodeWrapper.get();
         }
 
-        // Check out existing Collections/Tables:
-        System.out.printf("Fetch names of existing %ss in the database: ", containerType.toString());
-        List<String> containerNames;
-
-        try {
-            containerNames = switch (containerType) {
-                case COLLECTION -> db.listCollectionNames();
-                // We use Data API access for both API Table and CQL Table for now
-                case API_TABLE, CQL_TABLE -> db.listTableNames();
-            };
-            System.out.println(containerNames);
-        } catch (Exception e) {
-            System.err.printf("\n  FAIL/base1: (%s) %s\n", e.getClass().getSimpleName(),
-                    e);
-            return 1;
+        if (metricsPort > 0) {
+            try {
+                LiveMetrics metrics = LiveMetrics.start(metricsPort, containerType.name());
+                System.out.printf("Live metrics available at '%s'\n", metrics.endpoint());
+            } catch (Exception e) {
+                System.err.printf("\n  FAIL/base0: (%s) %s\n", e.getClass().getSimpleName(),
+                        e);
+                return 1;
+            }
         }
+        return runTest(db);
+    }
 
-        // Create the test client
-        DataApiTestClient testClient;
-        try {
-            testClient = createTestClient(db);
-        } catch (Exception e) {
-            System.err.printf("\n  FAIL/base2: (%s) %s\n", e.getClass().getSimpleName(),
-                    e);
-            return 2;
+    /**
+     * Method for checking combinations of options not valid for the container type;
+     * reported by picocli same as invalid option values.
+     */
+    protected void validateOptions() throws CommandLine.ParameterException {
+        if (!docShape.isEmpty() && containerType != ContainerType.COLLECTION) {
+            throw new CommandLine.ParameterException(commandSpec.commandLine(),
+                    "Option '--doc-shape' only supported for "+ContainerType.COLLECTION.name()
+                    +", not "+containerType.name());
         }
+    }
+
+    /**
+     * Method for running the test once database connection has been established.
+     *
+     * @return Exit code for the process
+     */
+    protected abstract int runTest(Database db);
+
+    protected AgentOptions agentOptions() {
+        return new AgentOptions(loadModel, agentThreading, asyncInFlight,
+                pregenBatches, pregenThreads, traceEvery, adaptive, adaptiveMaxBatch);
+    }
 
-        // Initialize...
-        System.out.printf("Initialize test client (%s; skipInit? %s):\n",
-                containerDesc(), skipInit);
-        try {
-            testClient.initialize(skipInit, createIndexes());
-        } catch (Exception e) {
-            System.err.printf("\n  FAIL/base3: (%s) %s\n", e.getClass().getName(),
-                    e);
-            return 3;
+    protected RunConfig runConfig() {
+        String runId = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        // Workers do not write results: coordinator writes merged results
+        return new RunConfig(runId, workerOf.isEmpty() ? resultsDir : "",
+                env.name(), containerType, containerName(),
+                vectorLength, batchSize, agentCount, rateLimitRPS, orderedInserts,
+                binaryVectors, agentOptions(), workers, coordinatorPort, scenario,
+                new SearchOptions(searchP99Msecs, searchMaxErrorPct, searchPhaseSecs,
+                        searchMaxRPS, searchPrecisionPct),
+                new ReadOptions(readAgents, readRPS, pointReadPct, rangeReadLimit),
+                new AnnOptions(annK, annQueries, annPhaseSecs, annRPS),
+                new MutationOptions(mutationAgents, upsertRPS, deleteRPS, deleteBatch, keySkew),
+                new ConflictOptions(duplicateFraction, resubmitFailed), docShape);
+    }
+
+    /**
+     * Arguments for worker processes started by this process: same as for this
+     * process, minus distribution and results options, plus coordinator address.
+     * With EMBEDDED env workers use the embedded server of this process.
+     */
+    protected List<String> workerArgs() {
+        List<String> skipped = new ArrayList<>(List.of("--workers", "--coordinator-port",
+                "--spawn-workers", "--results-dir", "--metrics-port"));
+        if (env == DataApiEnv.EMBEDDED) {
+            skipped.addAll(List.of("-e", "--env", "--embedded-latency", "--local-endpoint"));
         }
-        System.out.printf("Ok: Initialization of %s successful.\n", containerDesc());
-
-        // Validate functioning of test operations
-        System.out.printf("Validate that test operations on %s work.\n", containerDesc());
-        try {
-            testClient.validate();
-        } catch (Exception e) {
-            System.err.printf("\n  FAIL/base4: (%s) %s\n", e.getClass().getSimpleName(),
-                    e);
-            return 4;
+        List<String> args = new ArrayList<>();
+        final Iterator<String> it = commandSpec.commandLine().getParseResult().originalArgs().iterator();
+        while (it.hasNext()) {
+            final String arg = it.next();
+            final String name = arg.contains("=") ? arg.substring(0, arg.indexOf('=')) : arg;
+            if (skipped.contains(name)) {
+                // Skip value too, unless included in the same arg (or flag)
+                if (!arg.contains("=") && !"--spawn-workers".equals(name) && it.hasNext()) {
+                    it.next();
+                }
+                continue;
+            }
+            args.add(arg);
         }
-        System.out.printf("Ok: Validation of %s successful.\n", containerDesc());
-
-        // And then warm-up, run test
-        System.out.printf("Start warm-up, run test against %s.\n", containerDesc());
-        try {
-            testClient.runWarmupAndTest(agentCount, rateLimitRPS);
-        } catch (Exception e) {
-            System.err.printf("\n  FAIL/base5: (%s) %s\n", e.getClass().getName(),
-                    e);
-            return 5;
+        if (env == DataApiEnv.EMBEDDED) {
+            args.addAll(List.of("-e", DataApiEnv.LOCAL.name(), "--local-endpoint", embeddedEndpoint));
         }
-
-        System.out.println();
-        System.out.println("DONE!");
-        return 0;
+        args.addAll(List.of("--worker-of", "localhost:" + coordinatorPort));
+        return args;
     }
 
     protected abstract String containerName();
@@ -182,16 +377,12 @@ public abstract class DataApiTestBase
         return containerType.desc(containerName());
     }
 
-    protected abstract boolean createIndexes();
-
-    protected abstract DataApiTestClient createTestClient(Database db) throws Exception;
-
     protected Database initializeDB(AtomicInteger exitCode)
     {
         Database db;
 
         // Astra differs from local:
-        if (env != DataApiEnv.LOCAL) {
+        if (env != DataApiEnv.LOCAL && env != DataApiEnv.EMBEDDED) {
             // Some validation only matters for Astra (non-local)
             if (!astraToken.startsWith(TOKEN_PREFIX)) {
                 System.err.printf("Token does not start with prefix (has to, in %s) '%s': %s\n",
@@ -214,8 +405,8 @@ public abstract class DataApiTestBase
             try {
                 DatabaseOptions dbOpts = new DatabaseOptions()
                         .token(astraToken)
-                        .dataAPIClientOptions(new DataAPIClientOptions()
-                                .destination(env.destination()));
+                        .dataAPIClientOptions(observed(new DataAPIClientOptions()
+                                .destination(env.destination())));
 
                 if (ns != null && !ns.isEmpty()) {
                     dbOpts = dbOpts.keyspace(ns);
@@ -229,14 +420,27 @@ public abstract class DataApiTestBase
                 return null;
             }
             System.out.printf(" connected: keyspace '%s'\n", db.getKeyspace());
-        } else { // LOCAL env
+        } else { // LOCAL or EMBEDDED env
+            final String endpoint;
+            if (env == DataApiEnv.EMBEDDED) {
+                try {
+                    endpoint = startEmbeddedServer();
+                } catch (Exception e) {
+                    System.err.printf("\n  FAIL/b1: (%s) %s\n", e.getClass().getSimpleName(),
+                            e.getMessage());
+                    exitCode.set(4);
+                    return null;
+                }
+            } else {
+                endpoint = localEndpoint;
+            }
             String token = new UsernamePasswordTokenProvider("cassandra", "cassandra").getToken();
             final DataAPIClient client = createClient(token);
-            System.out.print("Connecting to LOCAL database...");
-            db = client.getDatabase("http://localhost:8181");
-                new DatabaseOptions().keyspace("default_keyspace")
-                                .dataAPIClientOptions(new DataAPIClientOptions()
-                                        .destination(env.destination()));
+            System.out.printf("Connecting to %s database at '%s'...", env.name(), endpoint);
+            db = client.getDatabase(endpoint,
+                new DatabaseOptions().keyspace(ns)
+                                .dataAPIClientOptions(observed(new DataAPIClientOptions()
+                                        .destination(env.destination()))));
             System.out.printf(" connected: keyspace '%s'\n", db.getKeyspace());
         }
 
@@ -254,8 +458,26 @@ public abstract class DataApiTestBase
         return db;
     }
 
+    protected String startEmbeddedServer() throws Exception {
+        LatencyModel latency = LatencyModel.parse(embeddedLatency);
+        System.out.printf("Starting embedded Data API server (latency: %s)...", latency.desc());
+        // Runs until JVM exits; uses daemon threads
+        EmbeddedDataApiServer server = EmbeddedDataApiServer.start(0, latency,
+                CallTimings.instance());
+        System.out.printf(" started at '%s'\n", server.endpoint());
+        embeddedEndpoint = server.endpoint();
+        return embeddedEndpoint;
+    }
+
+    protected CqlSession createCqlSession(CqlOptions cqlOptions, String keyspace) {
+        return cqlOptions.createSession(env, astraToken, keyspace);
+    }
+
     protected  DataAPIClient createClient(String token) {
-        System.out.print("Creating DataAPIClient...");
+        System.out.printf("Creating DataAPIClient (vectors as %s)...",
+                binaryVectors ? "binary" : "float arrays");
+        // Vector encoding is a global setting of the client, not per-client option
+        DataAPIClientOptions.getSerdesOptions().encodeDataApiVectorsAsBase64(binaryVectors);
         DataAPIClientOptions opts = new DataAPIClientOptions()
                 .destination(env.destination());
         // Retry defaults would be 3/100 msec; change to 3/50 msec
@@ -265,11 +487,22 @@ public abstract class DataApiTestBase
         opts = opts.timeoutOptions(new TimeoutOptions()
                         .connectTimeoutMillis(15_000L)
                         .requestTimeoutMillis(20_000L));
-        DataAPIClient client = new DataAPIClient(token, dataApiOptions(opts));
+        DataAPIClient client = new DataAPIClient(token, dataApiOptions(observed(opts)));
         System.out.println(" created.");
         return client;
     }
 
+    /**
+     * Method for registering observer of commands for timing traced calls, if
+     * tracing is enabled.
+     */
+    protected DataAPIClientOptions observed(DataAPIClientOptions opts) {
+        if (traceEvery > 0) {
+            opts = opts.addObserver(CallTimings.OBSERVER_NAME, CallTimings.instance());
+        }
+        return opts;
+    }
+
     protected abstract DataAPIClientOptions dataApiOptions(
             DataAPIClientOptions builder);
 }
@@ -28,7 +28,16 @@ public abstract class DataApiTestClient {
 
     public abstract void validate() throws Exception;
 
-    public abstract void runWarmupAndTest(int threadCount, int testMaxRPS)
+    public abstract void runWarmupAndTest(int threadCount, int testMaxRPS,
+                                          RunConfig runConfig)
+        throws Exception;
+
+    /**
+     * Method called instead of other life-cycle methods when running as a worker
+     * of a distributed test: container is expected to exist, and phases are run
+     * as instructed by coordinator at given address ("host:port").
+     */
+    public abstract void runAsWorker(String coordinatorAddress, RunConfig runConfig)
         throws Exception;
 
     // // // Helper methods for subclasses; simple accessors
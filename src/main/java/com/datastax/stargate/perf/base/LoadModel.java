@@ -0,0 +1,20 @@
+package com.datastax.stargate.perf.base;
+
+/**
+ * Enumeration of ways in which load is generated by test agents.
+ */
+public enum LoadModel {
+    /**
+     * Closed loop: agents send next call when previous one completes, throttled
+     * by a rate limiter. Latency measured from actual start of a call.
+     */
+    CLOSED,
+
+    /**
+     * Open loop: calls are sent on a fixed arrival schedule regardless of how
+     * busy agents are; latency measured from intended start of a call
+     * (to avoid coordinated omission).
+     */
+    OPEN
+    ;
+}
@@ -0,0 +1,68 @@
+package com.datastax.stargate.perf.base;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Helper for starting worker processes of a distributed test on the local machine,
+ * using the same JVM, JVM options and classpath as the current (coordinator)
+ * process. Output of each worker is written into a log file.
+ */
+public class LocalWorkers implements AutoCloseable
+{
+    /**
+     * How long to wait for workers to exit after coordinator is done, before
+     * killing them
+     */
+    private final static long EXIT_TIMEOUT_SECS = 30L;
+
+    private final List<Process> processes;
+
+    private final File logDir;
+
+    private LocalWorkers(List<Process> processes, File logDir) {
+        this.processes = processes;
+        this.logDir = logDir;
+    }
+
+    public static LocalWorkers start(int count, String mainClass, List<String> args)
+        throws IOException
+    {
+        final File logDir = Files.createTempDirectory("insertmany-workers").toFile();
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass);
+        command.addAll(args);
+
+        List<Process> processes = new ArrayList<>(count);
+        for (int i = 1; i <= count; ++i) {
+            processes.add(new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(new File(logDir, "worker-"+i+".log"))
+                    .start());
+        }
+        return new LocalWorkers(processes, logDir);
+    }
+
+    public File logDir() {
+        return logDir;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        for (Process p : processes) {
+            if (!p.waitFor(EXIT_TIMEOUT_SECS, TimeUnit.SECONDS)) {
+                System.err.printf("WARN: worker process %d did not exit; killing it\n", p.pid());
+                p.destroyForcibly();
+            }
+        }
+    }
+}
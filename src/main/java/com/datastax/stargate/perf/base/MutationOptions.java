@@ -0,0 +1,47 @@
+package com.datastax.stargate.perf.base;
+
+/**
+ * Settings for mutation agents run alongside insert agents in phases with
+ * {@code MUTATE} workload: overwrites (upserts) and deletes of items inserted
+ * earlier, to measure their cost and effect on later inserts and reads.
+ *
+ * @param agentCount Number of agents for each type of mutation (upsert, delete)
+ * @param upsertRPS Rate limit of upserts; 0 for none
+ * @param deleteRPS Rate limit of deletes; 0 for none
+ * @param deleteBatch Number of items deleted per call: 1 for {@code deleteOne},
+ *    more for {@code deleteMany}
+ * @param keySkew Exponent of Zipfian distribution of items chosen (by recency);
+ *    0 for uniform
+ */
+public record MutationOptions(int agentCount, int upsertRPS, int deleteRPS,
+                              int deleteBatch, double keySkew)
+{
+    public boolean enabled() {
+        return (upsertRPS > 0 || deleteRPS > 0) && agentCount > 0;
+    }
+
+    public int upsertAgentCount() {
+        return (upsertRPS > 0) ? agentCount : 0;
+    }
+
+    public int deleteAgentCount() {
+        return (deleteRPS > 0) ? agentCount : 0;
+    }
+
+    /**
+     * Method for getting options for one of given number of workers: rates are
+     * split evenly between workers, same as insert rate.
+     */
+    public MutationOptions forWorker(int workerCount) {
+        final int n = Math.max(1, workerCount);
+        return new MutationOptions(agentCount,
+                (upsertRPS > 0) ? Math.max(1, upsertRPS / n) : 0,
+                (deleteRPS > 0) ? Math.max(1, deleteRPS / n) : 0,
+                deleteBatch, keySkew);
+    }
+
+    public String desc() {
+        return String.format("%d agents/type, upsert %d RPS, delete %d RPS (%d/call), key skew %.2f",
+                agentCount, upsertRPS, deleteRPS, deleteBatch, keySkew);
+    }
+}
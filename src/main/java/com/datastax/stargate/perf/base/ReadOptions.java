@@ -0,0 +1,33 @@
+package com.datastax.stargate.perf.base;
+
+/**
+ * Settings for read agents run alongside insert agents in phases with
+ * {@code MIXED} workload, to measure how inserts affect read latencies.
+ *
+ * @param agentCount Number of read agents
+ * @param readRPS Rate limit of reads (separate from that of inserts); 0 for no reads
+ * @param pointReadPct Percentage of reads that are point lookups by id; rest are
+ *    range reads on {@code value}
+ * @param rangeReadLimit Maximum number of items fetched by a range read
+ */
+public record ReadOptions(int agentCount, int readRPS,
+                          int pointReadPct, int rangeReadLimit)
+{
+    public boolean enabled() {
+        return readRPS > 0 && agentCount > 0;
+    }
+
+    /**
+     * Method for getting options for one of given number of workers: read rate is
+     * split evenly between workers, same as insert rate.
+     */
+    public ReadOptions forWorker(int workerCount) {
+        return new ReadOptions(agentCount, Math.max(1, readRPS / Math.max(1, workerCount)),
+                pointReadPct, rangeReadLimit);
+    }
+
+    public String desc() {
+        return String.format("%d agents, %d RPS, %d%% point/%d%% range (limit %d)",
+                agentCount, readRPS, pointReadPct, 100 - pointReadPct, rangeReadLimit);
+    }
+}
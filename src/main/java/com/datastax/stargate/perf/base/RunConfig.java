@@ -0,0 +1,50 @@
+package com.datastax.stargate.perf.base;
+
+/**
+ * Configuration of a test run, as specified on command line; included in
+ * results files for identifying and comparing runs.
+ *
+ * @param runId Id of the run (timestamp of run start), used as prefix for result files
+ * @param resultsDir Directory to write results files to; empty for no results files
+ * @param workers Number of worker processes load is distributed across; 0 if run locally
+ * @param coordinatorPort Port coordinator listens on for workers (if {@code workers > 0})
+ * @param scenario Phases to run (definitions, or '@' and name of file with definitions);
+ *    empty for default warm-up and main test phases
+ * @param search Settings for capacity search (used instead of main test phase, if enabled)
+ * @param reads Settings for read agents of phases with mixed workload
+ * @param ann Settings for vector search phases
+ * @param mutations Settings for mutation agents of phases with mutation workload
+ * @param conflicts Settings for duplicate-key conflicts injected into insert batches
+ * @param docShape Shape of additional fields of Documents (options, or '@' and name of
+ *    file with them); empty for none
+ */
+public record RunConfig(String runId, String resultsDir,
+                        String env, ContainerType containerType, String containerName,
+                        int vectorLength, int batchSize, int agentCount,
+                        int rateLimitRPS, boolean orderedInserts,
+                        boolean binaryVectors, AgentOptions agentOptions,
+                        int workers, int coordinatorPort, String scenario,
+                        SearchOptions search, ReadOptions reads, AnnOptions ann,
+                        MutationOptions mutations, ConflictOptions conflicts,
+                        String docShape)
+{
+    public boolean exportResults() {
+        return !resultsDir.isEmpty();
+    }
+
+    public boolean distributed() {
+        return workers > 0;
+    }
+
+    /**
+     * Method for getting config for one of given number of workers: rates of reads
+     * and mutations split evenly between workers.
+     */
+    public RunConfig forWorker(int workerCount) {
+        return new RunConfig(runId, resultsDir, env, containerType, containerName,
+                vectorLength, batchSize, agentCount, rateLimitRPS, orderedInserts,
+                binaryVectors, agentOptions, workers, coordinatorPort, scenario,
+                search, reads.forWorker(workerCount), ann, mutations.forWorker(workerCount),
+                conflicts, docShape);
+    }
+}
@@ -0,0 +1,21 @@
+package com.datastax.stargate.perf.base;
+
+/**
+ * Settings for capacity search mode, in which test runs short phases at different
+ * rates to find the highest rate that meets latency and error rate targets.
+ *
+ * @param p99TargetMsecs Maximum p99 latency (msecs) of successful calls; 0 to
+ *    disable capacity search
+ * @param maxErrorRatePct Maximum percentage of failed calls
+ * @param phaseSecs Duration of each probe phase
+ * @param maxRPS Highest rate to probe
+ * @param precisionPct Search ends when passing and failing rates are within this
+ *    percentage of each other
+ */
+public record SearchOptions(double p99TargetMsecs, double maxErrorRatePct,
+                            int phaseSecs, int maxRPS, double precisionPct)
+{
+    public boolean enabled() {
+        return p99TargetMsecs > 0.0;
+    }
+}
@@ -0,0 +1,17 @@
+package com.datastax.stargate.perf.embedded;
+
+/**
+ * Exception for failures reported back to client as Data API errors.
+ */
+class CommandException extends RuntimeException {
+    private final String errorCode;
+
+    CommandException(String errorCode, String message) {
+        super(message);
+        this.errorCode = errorCode;
+    }
+
+    String errorCode() {
+        return errorCode;
+    }
+}
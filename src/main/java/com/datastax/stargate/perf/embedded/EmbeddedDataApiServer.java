@@ -0,0 +1,556 @@
+package com.datastax.stargate.perf.embedded;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process HTTP server that implements subset of Data API needed by tests
+ * (keyspace, Collection and Table management; inserts, lookups, filtered finds,
+ * vector searches, replaces, counts and deletes)
+ * on top of an in-memory store, adding service time as per given {@link LatencyModel}.
+ * Allows measuring maximum throughput of the test client itself, as well as
+ * reproducing effects of server-side latency distributions without external services.
+ *<p>
+ * Delayed responses are sent from a scheduler thread so that delays do not
+ * limit concurrency of the server.
+ */
+@CommandLine.Command(name = "EmbeddedDataApiServer", mixinStandardHelpOptions=true)
+public class EmbeddedDataApiServer
+    implements Callable<Integer>, AutoCloseable
+{
+    private final static String API_PATH = "/api/json/v1";
+
+    private final static ObjectMapper MAPPER = new ObjectMapper();
+
+    private final static JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    /**
+     * Maximum number of documents returned by "find" (same as Data API page size)
+     */
+    private final static int FIND_PAGE_SIZE = 20;
+
+    /**
+     * Maximum number of documents returned by "find" sorted by vector (same as Data API)
+     */
+    private final static int FIND_VECTOR_SORT_LIMIT = 1000;
+
+    private final InMemoryStore store = new InMemoryStore();
+
+    private final LongAdder commandCount = new LongAdder();
+    private final LongAdder insertedCount = new LongAdder();
+
+    @CommandLine.Option(names = {"-p", "--port"},
+            description = "Port to listen to; 0 for any free port (default: 8181)")
+    private int port = 8181;
+
+    @CommandLine.Option(names = {"-L", "--latency"},
+            description = "Latency model: none, fixed:MS, lognormal:MEDIAN_MS:SIGMA, bimodal:FAST_MS:SLOW_MS:SLOW_RATIO, stalls:MS:EVERY_MS:STALL_MS (default: none)")
+    private String latencySpec = "none";
+
+    private LatencyModel latencyModel;
+
+    // Listener for timings of requests, if any
+    private RequestTimingListener timingListener;
+
+    private HttpServer server;
+    private ExecutorService requestExecutor;
+    private ScheduledExecutorService responseScheduler;
+
+    // Needed for command-line use
+    EmbeddedDataApiServer() { }
+
+    /**
+     * Factory method for creating and starting server on given port (0 for any
+     * free port) on localhost.
+     *
+     * @param timingListener Listener for timings of requests; null if none
+     */
+    public static EmbeddedDataApiServer start(int port, LatencyModel latencyModel,
+                                              RequestTimingListener timingListener)
+            throws IOException {
+        EmbeddedDataApiServer server = new EmbeddedDataApiServer();
+        server.latencyModel = latencyModel;
+        server.timingListener = timingListener;
+        server.startServer(port);
+        return server;
+    }
+
+    private void startServer(int port) throws IOException {
+        final int cpus = Runtime.getRuntime().availableProcessors();
+        // Without TCP_NODELAY small responses get delayed by Nagle's algorithm (by up to
+        // 40 msec); setting only takes effect if set before first server is created
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        requestExecutor = Executors.newFixedThreadPool(Math.max(4, cpus * 2), r -> {
+            Thread t = new Thread(r, "embedded-data-api");
+            t.setDaemon(true);
+            return t;
+        });
+        responseScheduler = Executors.newScheduledThreadPool(Math.max(2, cpus / 2), r -> {
+            Thread t = new Thread(r, "embedded-data-api-delayed");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(requestExecutor);
+        server.createContext(API_PATH, this::handle);
+        server.start();
+    }
+
+    public String endpoint() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public LatencyModel latencyModel() {
+        return latencyModel;
+    }
+
+    public String statusDesc() {
+        return String.format("[Embedded Data API: %d commands, %d documents inserted]",
+                commandCount.sum(), insertedCount.sum());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        requestExecutor.shutdownNow();
+        responseScheduler.shutdownNow();
+    }
+
+    // // // Command-line use
+
+    @Override
+    public Integer call() throws Exception {
+        latencyModel = LatencyModel.parse(latencySpec);
+        startServer(port);
+        System.out.printf("Embedded Data API server listening at '%s' (latency: %s); Ctrl-C to stop\n",
+                endpoint(), latencyModel.desc());
+        Thread.currentThread().join();
+        return 0;
+    }
+
+    public static void main(String[] args) {
+        System.exit(new CommandLine(new EmbeddedDataApiServer()).execute(args));
+    }
+
+    // // // Request handling
+
+    private void handle(HttpExchange exchange) {
+        final long receivedNanos = System.nanoTime();
+        commandCount.increment();
+        ObjectNode response;
+        String timingKey = null;
+        try (InputStream in = exchange.getRequestBody()) {
+            JsonNode request = MAPPER.readTree(in);
+            final String[] path = pathSegments(exchange);
+            if (timingListener != null && timingListener.expectingRequests()) {
+                timingKey = timingKey(path, request);
+            }
+            response = dispatch(path, request);
+        } catch (CommandException e) {
+            response = errorResponse(e.errorCode(), e.getMessage());
+        } catch (Exception e) {
+            response = errorResponse("SERVER_UNHANDLED_ERROR",
+                    e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+        final ObjectNode finalResponse = response;
+        final String finalTimingKey = timingKey;
+        final long delayNanos = latencyModel.delayNanos(receivedNanos)
+                - (System.nanoTime() - receivedNanos);
+        if (delayNanos <= 0L) {
+            sendResponse(exchange, finalResponse, finalTimingKey, receivedNanos);
+        } else {
+            responseScheduler.schedule(() -> sendResponse(exchange, finalResponse,
+                            finalTimingKey, receivedNanos),
+                    delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Key of first document of an insert command, if client expects timing of it
+    private String timingKey(String[] path, JsonNode request) {
+        if (path.length != 2 || request == null) {
+            return null;
+        }
+        final JsonNode doc = request.has("insertMany")
+                ? request.path("insertMany").path("documents").path(0)
+                : request.path("insertOne").path("document");
+        if (!doc.isObject()) {
+            return null;
+        }
+        final String key;
+        try {
+            key = doc.path(store.container(path[0], path[1]).keyField).asText();
+        } catch (CommandException e) { // no such container; will fail anyway
+            return null;
+        }
+        return timingListener.isExpected(key) ? key : null;
+    }
+
+    private void sendResponse(HttpExchange exchange, ObjectNode response,
+                              String timingKey, long receivedNanos) {
+        if (timingKey != null) {
+            timingListener.requestTimed(timingKey, receivedNanos, System.nanoTime());
+        }
+        try {
+            byte[] bytes = MAPPER.writeValueAsBytes(response);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            // Client went away; nothing much to do
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String[] pathSegments(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath().substring(API_PATH.length());
+        if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length()-1);
+        }
+        return path.isEmpty() ? new String[0] : path.split("/");
+    }
+
+    private ObjectNode dispatch(String[] path, JsonNode request) {
+        if (request == null || !request.isObject() || request.size() != 1) {
+            throw new CommandException("INVALID_REQUEST", "Request must have a single command");
+        }
+        final String command = request.fieldNames().next();
+        final JsonNode args = request.get(command);
+        return switch (path.length) {
+            case 0 -> adminCommand(command, args);
+            case 1 -> keyspaceCommand(path[0], command, args);
+            case 2 -> containerCommand(store.container(path[0], path[1]), command, args);
+            default -> throw new CommandException("INVALID_REQUEST", "Invalid path: "+String.join("/", path));
+        };
+    }
+
+    private ObjectNode adminCommand(String command, JsonNode args) {
+        return switch (command) {
+            case "findKeyspaces", "findNamespaces" -> status(
+                    command.equals("findKeyspaces") ? "keyspaces" : "namespaces",
+                    stringArray(store.keyspaceNames()));
+            case "createKeyspace", "createNamespace" -> {
+                store.createKeyspace(args.path("name").asText());
+                yield ok();
+            }
+            case "dropKeyspace", "dropNamespace" -> {
+                store.dropKeyspace(args.path("name").asText());
+                yield ok();
+            }
+            default -> throw unknownCommand(command);
+        };
+    }
+
+    private ObjectNode keyspaceCommand(String keyspace, String command, JsonNode args) {
+        return switch (command) {
+            case "findCollections", "listCollections" -> {
+                List<String> names = store.containerNames(keyspace, InMemoryStore.Kind.COLLECTION);
+                if (!args.path("options").path("explain").asBoolean()) {
+                    yield status("collections", stringArray(names));
+                }
+                ArrayNode colls = NODES.arrayNode();
+                names.forEach(name -> colls.addObject().put("name", name).putObject("options"));
+                yield status("collections", colls);
+            }
+            case "listTables" -> {
+                List<String> names = store.containerNames(keyspace, InMemoryStore.Kind.TABLE);
+                if (!args.path("options").path("explain").asBoolean()) {
+                    yield status("tables", stringArray(names));
+                }
+                ArrayNode tables = NODES.arrayNode();
+                for (String name : names) {
+                    InMemoryStore.Container table = store.container(keyspace, name);
+                    ObjectNode def = tables.addObject().put("name", name).putObject("definition");
+                    def.set("columns", table.columns);
+                    def.putObject("primaryKey").putArray("partitionBy").add(table.keyField);
+                }
+                yield status("tables", tables);
+            }
+            case "createCollection" -> {
+                store.createContainer(keyspace, new InMemoryStore.Container(args.path("name").asText(),
+                        InMemoryStore.Kind.COLLECTION, "_id", null));
+                yield ok();
+            }
+            case "createTable" -> {
+                JsonNode def = args.path("definition");
+                store.createContainer(keyspace, new InMemoryStore.Container(args.path("name").asText(),
+                        InMemoryStore.Kind.TABLE, partitionKey(def.path("primaryKey")),
+                        (ObjectNode) def.path("columns")));
+                yield ok();
+            }
+            case "deleteCollection", "dropCollection", "dropTable" -> {
+                store.dropContainer(keyspace, args.path("name").asText());
+                yield ok();
+            }
+            // Indexes are accepted but not maintained (no queries use them)
+            case "createIndex", "createVectorIndex", "dropIndex" -> ok();
+            default -> throw unknownCommand(command);
+        };
+    }
+
+    private ObjectNode containerCommand(InMemoryStore.Container container,
+                                        String command, JsonNode args) {
+        return switch (command) {
+            case "insertOne" -> insert(container, List.of(args.path("document")), true);
+            case "insertMany" -> {
+                JsonNode docs = args.path("documents");
+                List<JsonNode> docList = new java.util.ArrayList<>(docs.size());
+                docs.forEach(docList::add);
+                yield insert(container, docList, args.path("options").path("ordered").asBoolean(false));
+            }
+            case "findOne" -> {
+                ObjectNode doc = container.findOne(args.get("filter"));
+                ObjectNode response = NODES.objectNode();
+                response.putObject("data").set("document",
+                        (doc == null) ? NODES.nullNode() : forOutput(container, doc, args.path("projection")));
+                if (container.kind == InMemoryStore.Kind.TABLE) {
+                    response.putObject("status").set("projectionSchema", container.columns);
+                }
+                yield response;
+            }
+            case "find" -> {
+                // No paging: up to limit (or one page) of matching documents returned;
+                // or if sorted by vector, up to limit of the most similar ones
+                final int limit = args.path("options").path("limit").asInt(FIND_PAGE_SIZE);
+                final List<ObjectNode> found;
+                final JsonNode sort = args.path("sort");
+                if (sort.isObject() && !sort.isEmpty()) {
+                    final Map.Entry<String, JsonNode> sortBy = sort.fields().next();
+                    final float[] vector = InMemoryStore.vectorOf(sortBy.getValue());
+                    if (sort.size() > 1 || vector == null) {
+                        throw new CommandException("UNSUPPORTED_SORT",
+                                "Only sorting by single vector supported, not: "+sort);
+                    }
+                    found = container.findNearest(args.get("filter"), sortBy.getKey(), vector,
+                            Math.min(limit, FIND_VECTOR_SORT_LIMIT));
+                } else {
+                    found = container.find(args.get("filter"), Math.min(limit, FIND_PAGE_SIZE));
+                }
+                ArrayNode docs = NODES.arrayNode();
+                for (ObjectNode doc : found) {
+                    docs.add(forOutput(container, doc, args.path("projection")));
+                }
+                ObjectNode response = NODES.objectNode();
+                ObjectNode data = response.putObject("data");
+                data.set("documents", docs);
+                data.putNull("nextPageState");
+                if (container.kind == InMemoryStore.Kind.TABLE) {
+                    response.putObject("status").set("projectionSchema", container.columns);
+                }
+                yield response;
+            }
+            case "countDocuments" -> {
+                // Data API limits counting to 1000 documents
+                long count = container.count(args.get("filter"));
+                ObjectNode response = status("count", NODES.numberNode(Math.min(count, 1000L)));
+                if (count > 1000L) {
+                    ((ObjectNode) response.get("status")).put("moreData", true);
+                }
+                yield response;
+            }
+            case "findOneAndReplace" -> {
+                JsonNode replacement = args.path("replacement");
+                if (!replacement.isObject()) {
+                    throw new CommandException("INVALID_REQUEST", "Replacement must be JSON Object");
+                }
+                ObjectNode doc = ((ObjectNode) replacement).deepCopy();
+                ObjectNode before = container.findOne(args.get("filter"));
+                final boolean upsert = args.path("options").path("upsert").asBoolean(false);
+                ObjectNode response = NODES.objectNode();
+                ObjectNode status = response.putObject("status");
+                if (before == null && !upsert) {
+                    response.putObject("data").putNull("document");
+                    status.put("matchedCount", 0).put("modifiedCount", 0);
+                    yield response;
+                }
+                // Key from replacement; or if missing, from the replaced document or filter
+                if (!doc.has(container.keyField)) {
+                    JsonNode key = (before != null) ? before.get(container.keyField)
+                            : InMemoryStore.Container.eqValue(args.path("filter").get(container.keyField));
+                    if (key != null) {
+                        doc.set(container.keyField, key);
+                    } else {
+                        doc.put(container.keyField, UUID.randomUUID().toString());
+                    }
+                }
+                container.replace(doc);
+                final boolean after = "after".equals(args.path("options").path("returnDocument").asText());
+                final ObjectNode returned = after ? doc : before;
+                response.putObject("data").set("document", (returned == null) ? NODES.nullNode()
+                        : forOutput(container, returned, args.path("projection")));
+                final int matched = (before == null) ? 0 : 1;
+                status.put("matchedCount", matched).put("modifiedCount", matched);
+                if (before == null) {
+                    status.set("upsertedId", doc.get(container.keyField));
+                }
+                yield response;
+            }
+            case "deleteOne" -> status("deletedCount",
+                    NODES.numberNode((container.deleteOne(args.get("filter")) == null) ? 0 : 1));
+            case "deleteMany" -> status("deletedCount",
+                    NODES.numberNode(container.deleteMany(args.get("filter"))));
+            case "createIndex", "createVectorIndex", "dropIndex" -> ok();
+            default -> throw unknownCommand(command);
+        };
+    }
+
+    private ObjectNode insert(InMemoryStore.Container container, List<JsonNode> docs,
+                              boolean ordered) {
+        final boolean table = (container.kind == InMemoryStore.Kind.TABLE);
+        ArrayNode insertedIds = NODES.arrayNode();
+        ArrayNode errors = NODES.arrayNode();
+        for (JsonNode rawDoc : docs) {
+            if (!rawDoc.isObject()) {
+                throw new CommandException("INVALID_REQUEST", "Document must be JSON Object");
+            }
+            ObjectNode doc = (ObjectNode) rawDoc;
+            if (!table && !doc.has("_id")) {
+                doc.put("_id", UUID.randomUUID().toString());
+            }
+            JsonNode id = doc.get(container.keyField);
+            try {
+                if (container.insert(doc)) {
+                    insertedCount.increment();
+                    insertedIds.add(table ? NODES.arrayNode().add(id) : id);
+                    continue;
+                }
+                errors.add(error("DOCUMENT_ALREADY_EXISTS",
+                        "Failed to insert document with _id "+id+": Document already exists with the given _id"));
+            } catch (CommandException e) {
+                // Per-document errors mention the id, same as with Data API
+                errors.add(error(e.errorCode(),
+                        "Failed to insert document with _id "+id+": "+e.getMessage()));
+            }
+            if (ordered) {
+                break;
+            }
+        }
+        ObjectNode response = status("insertedIds", insertedIds);
+        if (table) {
+            ObjectNode pkSchema = ((ObjectNode) response.get("status")).putObject("primaryKeySchema");
+            pkSchema.set(container.keyField, container.columns.path(container.keyField));
+        }
+        if (!errors.isEmpty()) {
+            response.set("errors", errors);
+        }
+        return response;
+    }
+
+    // For Collections, $vector only included if explicitly projected; for Tables
+    // binary-encoded vectors returned as float arrays
+    private static JsonNode forOutput(InMemoryStore.Container container, ObjectNode doc,
+                                      JsonNode projection) {
+        if (container.kind == InMemoryStore.Kind.COLLECTION) {
+            if (doc.has("$vector") && !projection.path("$vector").asBoolean()) {
+                ObjectNode copy = doc.deepCopy();
+                copy.remove("$vector");
+                return copy;
+            }
+            return doc;
+        }
+        ObjectNode copy = null;
+        for (Iterator<Map.Entry<String, JsonNode>> it = doc.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = it.next();
+            JsonNode binary = field.getValue().get("$binary");
+            if (binary != null && binary.isTextual()) {
+                if (copy == null) {
+                    copy = doc.deepCopy();
+                }
+                copy.set(field.getKey(), decodeVector(binary.textValue()));
+            }
+        }
+        return (copy == null) ? doc : copy;
+    }
+
+    private static ArrayNode decodeVector(String base64) {
+        ByteBuffer bytes = ByteBuffer.wrap(Base64.getDecoder().decode(base64))
+                .order(ByteOrder.BIG_ENDIAN);
+        ArrayNode floats = NODES.arrayNode(bytes.remaining() / 4);
+        while (bytes.remaining() >= 4) {
+            floats.add(bytes.getFloat());
+        }
+        return floats;
+    }
+
+    private static String partitionKey(JsonNode primaryKey) {
+        if (primaryKey.isTextual()) {
+            return primaryKey.textValue();
+        }
+        JsonNode partitionBy = primaryKey.path("partitionBy");
+        if (partitionBy.size() != 1) {
+            throw new CommandException("INVALID_REQUEST",
+                    "Only single-column primary keys supported, got: "+primaryKey);
+        }
+        return partitionBy.get(0).asText();
+    }
+
+    // // // Response construction helpers
+
+    private static ObjectNode ok() {
+        return status("ok", NODES.numberNode(1));
+    }
+
+    private static ObjectNode status(String key, JsonNode value) {
+        ObjectNode response = NODES.objectNode();
+        response.putObject("status").set(key, value);
+        return response;
+    }
+
+    private static ArrayNode stringArray(List<String> values) {
+        ArrayNode array = NODES.arrayNode(values.size());
+        values.forEach(array::add);
+        return array;
+    }
+
+    private static ObjectNode errorResponse(String errorCode, String message) {
+        ObjectNode response = NODES.objectNode();
+        response.putArray("errors").add(error(errorCode, message));
+        return response;
+    }
+
+    private static ObjectNode error(String errorCode, String message) {
+        return NODES.objectNode()
+                .put("id", UUID.randomUUID().toString())
+                .put("family", "REQUEST")
+                .put("scope", "EMBEDDED")
+                .put("errorCode", errorCode)
+                .put("title", errorCode)
+                .put("message", message);
+    }
+
+    private static CommandException unknownCommand(String command) {
+        return new CommandException("COMMAND_UNKNOWN",
+                "Command '"+command+"' not supported by embedded Data API server");
+    }
+}
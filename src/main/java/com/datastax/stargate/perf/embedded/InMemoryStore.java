@@ -0,0 +1,365 @@
+package com.datastax.stargate.perf.embedded;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory storage of Collections and Tables for {@link EmbeddedDataApiServer}:
+ * documents (and rows) are stored as-is, keyed by their primary key.
+ */
+class InMemoryStore {
+    enum Kind { COLLECTION, TABLE }
+
+    private final Map<String, Map<String, Container>> keyspaces = new ConcurrentHashMap<>();
+
+    InMemoryStore() {
+        createKeyspace("default_keyspace");
+    }
+
+    List<String> keyspaceNames() {
+        return new ArrayList<>(keyspaces.keySet());
+    }
+
+    void createKeyspace(String name) {
+        keyspaces.putIfAbsent(name, new ConcurrentHashMap<>());
+    }
+
+    boolean dropKeyspace(String name) {
+        return keyspaces.remove(name) != null;
+    }
+
+    Map<String, Container> keyspace(String name) {
+        Map<String, Container> ks = keyspaces.get(name);
+        if (ks == null) {
+            throw new CommandException("KEYSPACE_DOES_NOT_EXIST",
+                    "Unknown keyspace '"+name+"'");
+        }
+        return ks;
+    }
+
+    List<String> containerNames(String keyspace, Kind kind) {
+        return keyspace(keyspace).values().stream()
+                .filter(c -> c.kind == kind)
+                .map(c -> c.name)
+                .toList();
+    }
+
+    void createContainer(String keyspace, Container container) {
+        Container old = keyspace(keyspace).putIfAbsent(container.name, container);
+        if (old != null && old.kind != container.kind) {
+            throw new CommandException("EXISTING_COLLECTION_DIFFERENT_SETTINGS",
+                    "Existing "+old.kind+" with name '"+container.name+"'");
+        }
+    }
+
+    boolean dropContainer(String keyspace, String name) {
+        return keyspace(keyspace).remove(name) != null;
+    }
+
+    Container container(String keyspace, String name) {
+        Container c = keyspace(keyspace).get(name);
+        if (c == null) {
+            throw new CommandException("COLLECTION_NOT_EXIST",
+                    "Collection/Table does not exist, name: "+name);
+        }
+        return c;
+    }
+
+    /**
+     * Helper for reading vector value, either array of numbers or binary-encoded
+     * ({@code {"$binary": BASE64}}, big-endian float32s).
+     *
+     * @return Vector, or null if value is not a vector
+     */
+    static float[] vectorOf(JsonNode value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.isArray()) {
+            float[] result = new float[value.size()];
+            for (int i = 0; i < result.length; ++i) {
+                JsonNode f = value.get(i);
+                if (!f.isNumber()) {
+                    return null;
+                }
+                result[i] = f.floatValue();
+            }
+            return result;
+        }
+        JsonNode binary = value.get("$binary");
+        if (binary == null || !binary.isTextual()) {
+            return null;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(Base64.getDecoder().decode(binary.textValue()))
+                .order(ByteOrder.BIG_ENDIAN);
+        float[] result = new float[bytes.remaining() / 4];
+        bytes.asFloatBuffer().get(result);
+        return result;
+    }
+
+    /**
+     * Single Collection or Table.
+     */
+    static class Container {
+        final String name;
+        final Kind kind;
+
+        /**
+         * Name of the primary key field: "_id" for Collections, partition key
+         * column for Tables
+         */
+        final String keyField;
+
+        /**
+         * For Tables, column definitions ("columns" of table definition)
+         */
+        final ObjectNode columns;
+
+        final Map<String, ObjectNode> docs = new ConcurrentHashMap<>();
+
+        Container(String name, Kind kind, String keyField, ObjectNode columns) {
+            this.name = name;
+            this.kind = kind;
+            this.keyField = keyField;
+            this.columns = columns;
+        }
+
+        String keyOf(JsonNode doc) {
+            JsonNode key = doc.get(keyField);
+            if (key == null || key.isNull()) {
+                throw new CommandException("MISSING_PRIMARY_KEY",
+                        "Missing value for primary key '"+keyField+"'");
+            }
+            return key.isTextual() ? key.textValue() : key.toString();
+        }
+
+        /**
+         * @return True if document was inserted; false if one with same key already
+         *     existed (for Collections; Tables overwrite existing row)
+         */
+        boolean insert(ObjectNode doc) {
+            final String key = keyOf(doc);
+            if (kind == Kind.TABLE) {
+                docs.put(key, doc);
+                return true;
+            }
+            return docs.putIfAbsent(key, doc) == null;
+        }
+
+        /**
+         * Method for replacing existing document (or row) with the same key, or inserting
+         * if none exists.
+         *
+         * @return Document replaced, if any
+         */
+        ObjectNode replace(ObjectNode doc) {
+            return docs.put(keyOf(doc), doc);
+        }
+
+        ObjectNode findOne(JsonNode filter) {
+            if (filter == null || filter.isEmpty()) {
+                Iterator<ObjectNode> it = docs.values().iterator();
+                return it.hasNext() ? it.next() : null;
+            }
+            // Fast path for lookup by key, the main kind test uses
+            JsonNode keyMatch = eqValue(filter.get(keyField));
+            if (filter.size() == 1 && keyMatch != null) {
+                return docs.get(keyMatch.isTextual() ? keyMatch.textValue() : keyMatch.toString());
+            }
+            for (ObjectNode doc : docs.values()) {
+                if (matches(doc, filter)) {
+                    return doc;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return Up to {@code limit} documents matching filter (in no particular order)
+         */
+        List<ObjectNode> find(JsonNode filter, int limit) {
+            List<ObjectNode> result = new ArrayList<>();
+            for (ObjectNode doc : docs.values()) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                if (filter == null || filter.isEmpty() || matches(doc, filter)) {
+                    result.add(doc);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Method for brute-force vector search: ranks documents matching filter by
+         * cosine similarity of vector in given field to given vector.
+         *
+         * @return Up to {@code limit} documents most similar to vector, most similar first
+         */
+        List<ObjectNode> findNearest(JsonNode filter, String field, float[] vector, int limit) {
+            record Scored(ObjectNode doc, double score) { }
+            // Min-heap of best so far: least similar first, to be replaced
+            PriorityQueue<Scored> best = new PriorityQueue<>(limit + 1,
+                    Comparator.comparingDouble(Scored::score));
+            for (ObjectNode doc : docs.values()) {
+                final float[] docVector = vectorOf(doc.get(field));
+                if (docVector == null || docVector.length != vector.length
+                        || !(filter == null || filter.isEmpty() || matches(doc, filter))) {
+                    continue;
+                }
+                best.add(new Scored(doc, cosine(vector, docVector)));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            List<ObjectNode> result = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                result.add(best.poll().doc());
+            }
+            Collections.reverse(result);
+            return result;
+        }
+
+        /**
+         * @return Document deleted (first one matching filter), if any
+         */
+        ObjectNode deleteOne(JsonNode filter) {
+            ObjectNode doc = findOne(filter);
+            return (doc != null && docs.remove(keyOf(doc), doc)) ? doc : null;
+        }
+
+        long deleteMany(JsonNode filter) {
+            if (filter == null || filter.isEmpty()) {
+                long count = docs.size();
+                docs.clear();
+                return count;
+            }
+            // Fast path for deletes by key(s)
+            JsonNode keyMatch = filter.get(keyField);
+            if (filter.size() == 1 && keyMatch != null && keyMatch.isObject()
+                    && keyMatch.size() == 1 && keyMatch.path("$in").isArray()) {
+                long count = 0;
+                for (JsonNode key : keyMatch.get("$in")) {
+                    if (docs.remove(key.isTextual() ? key.textValue() : key.toString()) != null) {
+                        ++count;
+                    }
+                }
+                return count;
+            }
+            long count = 0;
+            for (Iterator<ObjectNode> it = docs.values().iterator(); it.hasNext(); ) {
+                if (matches(it.next(), filter)) {
+                    it.remove();
+                    ++count;
+                }
+            }
+            return count;
+        }
+
+        long count(JsonNode filter) {
+            if (filter == null || filter.isEmpty()) {
+                return docs.size();
+            }
+            return docs.values().stream().filter(doc -> matches(doc, filter)).count();
+        }
+
+        // Only equality filters (`{"field": value}` or `{"field": {"$eq": value}}`),
+        // `$in`, comparisons of numbers ($gt, $gte, $lt, $lte) and `$and` of these supported
+        private static boolean matches(JsonNode doc, JsonNode filter) {
+            for (Iterator<Map.Entry<String, JsonNode>> it = filter.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> entry = it.next();
+                if ("$and".equals(entry.getKey())) {
+                    for (JsonNode clause : entry.getValue()) {
+                        if (!matches(doc, clause)) {
+                            return false;
+                        }
+                    }
+                } else if (!matchesField(doc.get(entry.getKey()), entry.getValue(), filter)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean matchesField(JsonNode actual, JsonNode condition, JsonNode filter) {
+            if (!condition.isObject()) {
+                return condition.equals(actual);
+            }
+            for (Iterator<Map.Entry<String, JsonNode>> it = condition.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> entry = it.next();
+                final String op = entry.getKey();
+                final JsonNode operand = entry.getValue();
+                final boolean match = switch (op) {
+                    case "$eq" -> operand.equals(actual);
+                    case "$in" -> {
+                        if (!operand.isArray()) {
+                            throw new CommandException("INVALID_FILTER_EXPRESSION",
+                                    "'$in' operand must be an array, in: "+filter);
+                        }
+                        boolean found = false;
+                        for (JsonNode value : operand) {
+                            if (value.equals(actual)) {
+                                found = true;
+                                break;
+                            }
+                        }
+                        yield found;
+                    }
+                    case "$gt", "$gte", "$lt", "$lte" -> {
+                        // Non-numbers (including missing values) never match
+                        if (actual == null || !actual.isNumber() || !operand.isNumber()) {
+                            yield false;
+                        }
+                        final int cmp = (actual.isIntegralNumber() && operand.isIntegralNumber())
+                                ? Long.compare(actual.longValue(), operand.longValue())
+                                : Double.compare(actual.doubleValue(), operand.doubleValue());
+                        yield switch (op) {
+                            case "$gt" -> cmp > 0;
+                            case "$gte" -> cmp >= 0;
+                            case "$lt" -> cmp < 0;
+                            default -> cmp <= 0;
+                        };
+                    }
+                    default -> throw new CommandException("UNSUPPORTED_FILTER_OPERATION",
+                            "Unsupported filter operator '"+op+"' in: "+filter);
+                };
+                if (!match) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static double cosine(float[] a, float[] b) {
+            double dot = 0.0, normA = 0.0, normB = 0.0;
+            for (int i = 0; i < a.length; ++i) {
+                dot += a[i] * b[i];
+                normA += a[i] * a[i];
+                normB += b[i] * b[i];
+            }
+            return (normA == 0.0 || normB == 0.0) ? 0.0 : dot / Math.sqrt(normA * normB);
+        }
+
+        static JsonNode eqValue(JsonNode filterValue) {
+            if (filterValue == null) {
+                return null;
+            }
+            if (filterValue.isObject()) {
+                return filterValue.get("$eq");
+            }
+            return filterValue;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.datastax.stargate.perf.embedded;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Model of service time added by {@link EmbeddedDataApiServer} to each response,
+ * to simulate server-side latency distributions.
+ *<p>
+ * Models are specified as Strings like:
+ *<ul>
+ *  <li>{@code fixed:5}: always 5 msecs (and {@code none} for no delay)
+ *  </li>
+ *  <li>{@code lognormal:5:0.5}: log-normal distribution with median of 5 msecs and
+ *    sigma (shape) of 0.5
+ *  </li>
+ *  <li>{@code bimodal:5:80:0.05}: 5 msecs for most calls, 80 msecs for 5% of calls
+ *  </li>
+ *  <li>{@code stalls:5:10000:500}: 5 msecs normally, but every 10 seconds server
+ *    stalls for 500 msecs: calls completing during stall are delayed until its end
+ *  </li>
+ *</ul>
+ */
+public interface LatencyModel {
+    /**
+     * Method called to determine delay to add for a call received at given time.
+     *
+     * @param nowNanos Time call was received (as per {@link System#nanoTime()})
+     *
+     * @return Delay in nanoseconds; 0 for none
+     */
+    long delayNanos(long nowNanos);
+
+    String desc();
+
+    static LatencyModel parse(String spec) {
+        final String[] parts = spec.trim().split(":");
+        try {
+            return switch (parts[0].toLowerCase()) {
+                case "none" -> new Fixed(0L);
+                case "fixed" -> new Fixed(msecs(parts[1]));
+                case "lognormal" -> new LogNormal(msecs(parts[1]), Double.parseDouble(parts[2]));
+                case "bimodal" -> new Bimodal(msecs(parts[1]), msecs(parts[2]),
+                        Double.parseDouble(parts[3]));
+                case "stalls" -> new Stalls(msecs(parts[1]), msecs(parts[2]), msecs(parts[3]));
+                default -> throw new IllegalArgumentException("Unknown latency model '"+parts[0]
+                        +"' (known: none, fixed, lognormal, bimodal, stalls)");
+            };
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid latency model definition '"+spec+"': "+e.getMessage());
+        }
+    }
+
+    private static long msecs(String value) {
+        return (long) (Double.parseDouble(value) * TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static String ms(long nanos) {
+        return "%.1f ms".formatted(nanos / 1_000_000.0);
+    }
+
+    record Fixed(long nanos) implements LatencyModel {
+        @Override
+        public long delayNanos(long nowNanos) {
+            return nanos;
+        }
+
+        @Override
+        public String desc() {
+            return (nanos == 0L) ? "none" : "fixed " + ms(nanos);
+        }
+    }
+
+    record LogNormal(long medianNanos, double sigma) implements LatencyModel {
+        @Override
+        public long delayNanos(long nowNanos) {
+            return (long) (medianNanos * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+        }
+
+        @Override
+        public String desc() {
+            return "lognormal (median " + ms(medianNanos) + ", sigma " + sigma + ")";
+        }
+    }
+
+    record Bimodal(long fastNanos, long slowNanos, double slowRatio) implements LatencyModel {
+        @Override
+        public long delayNanos(long nowNanos) {
+            return (ThreadLocalRandom.current().nextDouble() < slowRatio) ? slowNanos : fastNanos;
+        }
+
+        @Override
+        public String desc() {
+            return "bimodal (" + ms(fastNanos) + "/" + ms(slowNanos) + " for "
+                    + (slowRatio * 100.0) + "% of calls)";
+        }
+    }
+
+    record Stalls(long baseNanos, long intervalNanos, long stallNanos) implements LatencyModel {
+        @Override
+        public long delayNanos(long nowNanos) {
+            final long completion = nowNanos + baseNanos;
+            // Stall at start of every interval (relative to arbitrary nanoTime origin)
+            final long intoInterval = Math.floorMod(completion, intervalNanos);
+            if (intoInterval < stallNanos) {
+                return baseNanos + (stallNanos - intoInterval);
+            }
+            return baseNanos;
+        }
+
+        @Override
+        public String desc() {
+            return "stalls (" + ms(baseNanos) + ", stall of " + ms(stallNanos)
+                    + " every " + ms(intervalNanos) + ")";
+        }
+    }
+}
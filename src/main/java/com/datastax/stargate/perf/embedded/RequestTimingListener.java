@@ -0,0 +1,24 @@
+package com.datastax.stargate.perf.embedded;
+
+/**
+ * Listener given to {@link EmbeddedDataApiServer} for getting server-side timestamps
+ * of insert requests (on the same {@code System.nanoTime()} clock as clients in the
+ * same JVM). Requests are identified by the key of their first document; only
+ * requests the listener expects are timed.
+ */
+public interface RequestTimingListener
+{
+    /**
+     * @return Whether any requests are expected to be timed (checked before
+     *    extracting request keys)
+     */
+    boolean expectingRequests();
+
+    boolean isExpected(String requestKey);
+
+    /**
+     * Method called when server starts writing response to an expected request
+     * (before writing, so timing is available by the time client has the response).
+     */
+    void requestTimed(String requestKey, long receivedNanos, long respondedNanos);
+}
@@ -0,0 +1,36 @@
+package com.datastax.stargate.perf.insertmany;
+
+import com.datastax.stargate.perf.base.AgentThreading;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Factory for {@link ExecutorService}s that run test agents, one task per agent.
+ */
+public interface AgentExecutorFactory {
+    /**
+     * Name of implementation for virtual threads: only included when built with
+     * "java21" profile (from "src/main/java21").
+     */
+    String VIRTUAL_THREAD_FACTORY_CLASS = "com.datastax.stargate.perf.insertmany.VirtualThreadExecutorFactory";
+
+    ExecutorService createExecutor(int agentCount);
+
+    static AgentExecutorFactory forThreading(AgentThreading threading) {
+        return switch (threading) {
+            case PLATFORM -> Executors::newFixedThreadPool;
+            case VIRTUAL -> loadVirtualThreadFactory();
+        };
+    }
+
+    private static AgentExecutorFactory loadVirtualThreadFactory() {
+        try {
+            return (AgentExecutorFactory) Class.forName(VIRTUAL_THREAD_FACTORY_CLASS)
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new IllegalStateException("Virtual thread agents not available (need build with Maven profile 'java21', Java 21 runtime): ("
+                    +e.getClass().getSimpleName()+") "+e.getMessage());
+        }
+    }
+}
@@ -3,8 +3,6 @@ package com.datastax.stargate.perf.insertmany;
 import com.datastax.astra.client.core.options.DataAPIClientOptions;
 import com.datastax.astra.client.databases.Database;
 import com.datastax.stargate.perf.base.DataApiCQLTestBase;
-import com.datastax.stargate.perf.base.ContainerType;
-import com.datastax.stargate.perf.base.DataApiTestClient;
 import picocli.CommandLine;
 
 @CommandLine.Command(name = "InsertManyCQLTest", mixinStandardHelpOptions=true)
@@ -14,7 +12,9 @@ public class InsertManyCQLTest
     @Override
     protected InsertManyTestClient createTestClient(Database db) {
         return new InsertManyTestClient(db, containerType,
-                tableName, vectorLength, orderedInserts, batchSize);
+                tableName, vectorLength, orderedInserts, batchSize,
+                agentOptions(),
+                cqlSession(db.getKeyspace()), cqlOptions.writeMode(), null);
     }
 
     @Override
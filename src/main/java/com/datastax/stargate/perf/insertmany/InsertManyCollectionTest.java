@@ -2,6 +2,7 @@ package com.datastax.stargate.perf.insertmany;
 
 import com.datastax.stargate.perf.base.DataApiCollectionTestBase;
 import com.datastax.stargate.perf.base.DataApiTestClient;
+import com.datastax.stargate.perf.insertmany.entity.DocumentShape;
 import picocli.CommandLine;
 
 import com.datastax.astra.client.core.options.DataAPIClientOptions;
@@ -14,9 +15,10 @@ public class InsertManyCollectionTest
     protected InsertManyCollectionTest() { }
 
     @Override
-    protected DataApiTestClient createTestClient(Database db) {
+    protected DataApiTestClient createTestClient(Database db) throws Exception {
         return new InsertManyTestClient(db, containerType,
-                collectionName, vectorLength, orderedInserts, batchSize);
+                collectionName, vectorLength, orderedInserts, batchSize,
+                agentOptions(), DocumentShape.parse(docShape));
     }
 
     @Override
@@ -28,9 +30,6 @@ public class InsertManyCollectionTest
     }
 
     public static void main(String[] args) {
-        // Should default to true anyway but just in case...
-        // This looks weird tho.
-        DataAPIClientOptions.getSerdesOptions().encodeDataApiVectorsAsBase64(true);
         System.exit(new CommandLine(new InsertManyCollectionTest()).execute(args));
     }
 }
@@ -0,0 +1,167 @@
+package com.datastax.stargate.perf.insertmany;
+
+import com.datastax.stargate.perf.insertmany.compare.BootstrapComparison;
+import com.datastax.stargate.perf.insertmany.compare.PhaseSamples;
+import picocli.CommandLine;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+
+/**
+ * Command for comparing results of a candidate run against a baseline run (JSON
+ * results files of the same phase, as written with "--results-dir"), to detect
+ * performance regressions. Throughput (documents of successful calls) and latency
+ * percentiles (of histograms of all intervals merged) are compared using block
+ * bootstrap confidence intervals over per-interval samples, as is error rate
+ * (as difference in percentage points); exits with code 1 if docs/sec, p99 latency
+ * or error rate regressed (significantly, and more than the allowed threshold).
+ */
+@CommandLine.Command(name = "InsertManyCompare", mixinStandardHelpOptions=true)
+public class InsertManyCompare
+    implements Callable<Integer>
+{
+    private final static double[] PERCENTILES = { 50.0, 90.0, 99.0, 99.9 };
+
+    private final static double P99 = 99.0;
+
+    @CommandLine.Parameters(index = "0", description = "Results file (.json) of the baseline run")
+    protected File baselineFile;
+
+    @CommandLine.Parameters(index = "1", description = "Results file (.json) of the candidate run")
+    protected File candidateFile;
+
+    @CommandLine.Option(names = {"--max-throughput-drop"},
+            description = "Maximum allowed decrease of docs/sec, in percent (default: 5.0)")
+    protected double maxThroughputDropPct = 5.0;
+
+    @CommandLine.Option(names = {"--max-p99-increase"},
+            description = "Maximum allowed increase of p99 latency, in percent (default: 10.0)")
+    protected double maxP99IncreasePct = 10.0;
+
+    @CommandLine.Option(names = {"--max-error-increase"},
+            description = "Maximum allowed increase of error rate (failed calls), in percentage points (default: 0.1)")
+    protected double maxErrorIncreasePp = 0.1;
+
+    @CommandLine.Option(names = {"--confidence"},
+            description = "Confidence level of intervals (default: 0.95)")
+    protected double confidence = 0.95;
+
+    @CommandLine.Option(names = {"--iterations"},
+            description = "Number of bootstrap iterations (default: 10000)")
+    protected int iterations = 10_000;
+
+    @CommandLine.Option(names = {"--block-length"},
+            description = "Number of consecutive intervals resampled together, to account for their autocorrelation; 0 for square root of number of intervals (default: 0)")
+    protected int blockLength = 0;
+
+    @CommandLine.Option(names = {"--skip-intervals"},
+            description = "Number of intervals to skip from start of both runs (ramp-up) (default: 1)")
+    protected int skipIntervals = 1;
+
+    @CommandLine.Option(names = {"--seed"},
+            description = "Random seed for bootstrap, for repeatable results (default: 42)")
+    protected long seed = 42L;
+
+    @Override
+    public Integer call() throws Exception
+    {
+        final PhaseSamples baseline;
+        final PhaseSamples candidate;
+        try {
+            baseline = PhaseSamples.read(baselineFile, skipIntervals);
+            candidate = PhaseSamples.read(candidateFile, skipIntervals);
+        } catch (Exception e) {
+            System.err.printf("FAIL: cannot read results: (%s) %s\n",
+                    e.getClass().getSimpleName(), e.getMessage());
+            return 2;
+        }
+        System.out.printf("Baseline:  '%s' (phase '%s', %d intervals)\n",
+                baseline.source(), baseline.phaseName(), baseline.intervalCount());
+        System.out.printf("Candidate: '%s' (phase '%s', %d intervals)\n",
+                candidate.source(), candidate.phaseName(), candidate.intervalCount());
+        if (!baseline.config().path("batchSize").equals(candidate.config().path("batchSize"))
+                || !baseline.config().path("vectorLength").equals(candidate.config().path("vectorLength"))
+                || !baseline.config().path("containerType").equals(candidate.config().path("containerType"))) {
+            System.out.println("WARN: runs differ in container type, batch size or vector length");
+        }
+        System.out.printf("\n%-12s %12s %12s %9s   %-20s %s\n", "Metric", "Baseline", "Candidate",
+                "Change", String.format("%.0f%% CI", confidence * 100.0), "Verdict");
+
+        final SplittableRandom rnd = new SplittableRandom(seed);
+        int regressions = 0;
+
+        BootstrapComparison cmp = BootstrapComparison.compareMeans(baseline.docsPerSec(),
+                candidate.docsPerSec(), iterations, confidence, blockLength, rnd);
+        String verdict;
+        if (cmp.significantDecrease() && (-cmp.change() * 100.0) > maxThroughputDropPct) {
+            verdict = "REGRESSION";
+            ++regressions;
+        } else {
+            verdict = verdict(cmp, cmp.significantIncrease());
+        }
+        printComparison("docs/sec", cmp, verdict);
+
+        for (double pct : PERCENTILES) {
+            cmp = BootstrapComparison.compare(
+                    baseline.intervalCount(), ix -> baseline.okLatencies().percentileMsecs(ix, pct),
+                    candidate.intervalCount(), ix -> candidate.okLatencies().percentileMsecs(ix, pct),
+                    iterations, confidence, blockLength, rnd);
+            // For latencies, increase is worse; only p99 is gated
+            if (pct == P99
+                    && cmp.significantIncrease() && (cmp.change() * 100.0) > maxP99IncreasePct) {
+                verdict = "REGRESSION";
+                ++regressions;
+            } else {
+                verdict = verdict(cmp, cmp.significantDecrease());
+            }
+            printComparison("p" + BigDecimal.valueOf(pct).stripTrailingZeros().toPlainString() + " ms", cmp, verdict);
+        }
+
+        // Errors are gated too, so that failing fast does not pass for being fast; compared
+        // as difference since baseline often has none
+        cmp = BootstrapComparison.compareDifference(
+                baseline.intervalCount(), baseline::errorPct,
+                candidate.intervalCount(), candidate::errorPct,
+                iterations, confidence, blockLength, rnd);
+        if (cmp.significantIncrease() && cmp.change() > maxErrorIncreasePp) {
+            verdict = "REGRESSION";
+            ++regressions;
+        } else {
+            verdict = verdict(cmp, cmp.significantDecrease());
+        }
+        System.out.printf("%-12s %12.3f %12.3f %+7.3fpp   [%+6.3f, %+6.3f]pp  %s\n",
+                "errors %", cmp.baselineValue(), cmp.candidateValue(), cmp.change(),
+                cmp.ciLow(), cmp.ciHigh(), verdict);
+
+        System.out.println();
+        if (regressions > 0) {
+            System.out.printf("FAIL: %d regression(s) (max docs/sec drop %.1f%%, max p99 increase %.1f%%, max error rate increase %.2f pp)\n",
+                    regressions, maxThroughputDropPct, maxP99IncreasePct, maxErrorIncreasePp);
+            return 1;
+        }
+        System.out.println("OK: no regressions");
+        return 0;
+    }
+
+    private static void printComparison(String metric, BootstrapComparison cmp, String verdict) {
+        System.out.printf("%-12s %12.2f %12.2f %+8.1f%%   [%+6.1f%%, %+6.1f%%]    %s\n",
+                metric, cmp.baselineValue(), cmp.candidateValue(), cmp.change() * 100.0,
+                cmp.ciLow() * 100.0, cmp.ciHigh() * 100.0, verdict);
+    }
+
+    private static String verdict(BootstrapComparison cmp, boolean improved) {
+        if (improved) {
+            return "improved";
+        }
+        if (cmp.significantIncrease() || cmp.significantDecrease()) {
+            return "worse (within threshold)";
+        }
+        return "no significant change";
+    }
+
+    public static void main(String[] args) {
+        System.exit(new CommandLine(new InsertManyCompare()).execute(args));
+    }
+}
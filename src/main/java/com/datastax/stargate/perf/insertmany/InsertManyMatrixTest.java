@@ -0,0 +1,293 @@
+package com.datastax.stargate.perf.insertmany;
+
+import com.datastax.astra.client.core.options.DataAPIClientOptions;
+import com.datastax.astra.client.databases.Database;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.stargate.perf.base.ContainerType;
+import com.datastax.stargate.perf.base.CqlOptions;
+import com.datastax.stargate.perf.base.DataApiTestBase;
+import com.datastax.stargate.perf.base.RunConfig;
+import com.datastax.stargate.perf.insertmany.agent.MetricsCollector;
+import com.datastax.stargate.perf.insertmany.entity.DocumentShape;
+import org.HdrHistogram.Histogram;
+import picocli.CommandLine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test that runs warm-up and test phases for every combination ("cell") of given
+ * container types, vector lengths, indexing settings, batch sizes and ordering,
+ * using the same client (and, for consecutive cells with the same container
+ * definition, the same container, truncated), and outputs comparison table of
+ * results of the main test phase of each cell.
+ */
+@CommandLine.Command(name = "InsertManyMatrixTest", mixinStandardHelpOptions=true)
+public class InsertManyMatrixTest
+    extends DataApiTestBase
+{
+    /**
+     * Settings that vary between cells of the matrix.
+     *
+     * @param addIndexes Whether all fields are indexed (Collections only)
+     */
+    record MatrixCell(ContainerType containerType, int vectorLength, boolean addIndexes,
+                      int batchSize, boolean orderedInserts)
+    {
+        public boolean sameContainer(MatrixCell other) {
+            return (containerType == other.containerType)
+                    && (vectorLength == other.vectorLength)
+                    && (addIndexes == other.addIndexes);
+        }
+
+        public String desc() {
+            return String.format("%s, vector: %d, indexes: %s, batch: %d, ordered: %s",
+                    containerType.name(), vectorLength,
+                    (containerType == ContainerType.COLLECTION) ? addIndexes : "-",
+                    batchSize, orderedInserts);
+        }
+    }
+
+    /**
+     * Results of the last phase run for a cell; {@code error} non-null if cell failed.
+     */
+    record CellResult(MatrixCell cell, long okCalls, long errorCalls,
+                      double callRate, double docRate,
+                      double p50Msecs, double p99Msecs, String error)
+    {
+        public static CellResult of(MatrixCell cell, MetricsCollector metrics) {
+            final Histogram ok = metrics.okLatencies();
+            return new CellResult(cell, metrics.okCalls(), metrics.errorCalls(),
+                    metrics.callRate(), metrics.okDocRate(),
+                    ok.getValueAtPercentile(50.0) / 1_000_000.0,
+                    ok.getValueAtPercentile(99.0) / 1_000_000.0, null);
+        }
+
+        public static CellResult failed(MatrixCell cell, Exception e) {
+            return new CellResult(cell, 0L, 0L, 0.0, 0.0, 0.0, 0.0,
+                    e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
+
+    @CommandLine.Option(names = {"--containers"}, split = ",",
+            description = "Container types to test: COLLECTION, API_TABLE, CQL_TABLE (default: COLLECTION)")
+    protected List<ContainerType> containerTypes = List.of(ContainerType.COLLECTION);
+
+    @CommandLine.Option(names = {"--vector-lengths"}, split = ",",
+            description = "Vector sizes to test; 0 for no vector (default: '-v' value)")
+    protected List<Integer> vectorLengths;
+
+    @CommandLine.Option(names = {"--indexings"}, split = ",", arity = "1",
+            description = "Whether to index all fields of Collections, to test: true, false (default: true)")
+    protected List<Boolean> indexings = List.of(true);
+
+    @CommandLine.Option(names = {"--batch-sizes"}, split = ",",
+            description = "Batch sizes to test (default: '-b' value)")
+    protected List<Integer> batchSizes;
+
+    @CommandLine.Option(names = {"--orderings"}, split = ",", arity = "1",
+            description = "Whether inserts are ordered, to test: true, false (default: '-o' value)")
+    protected List<Boolean> orderings;
+
+    @CommandLine.Option(names = {"-c", "--collection-name"},
+            defaultValue = "insert_many_test_collection",
+            description = "Collection name (default: 'insert_many_test_collection')")
+    protected String collectionName;
+
+    @CommandLine.Option(names = {"--api-table-name"},
+            defaultValue = "insert_many_test_api_table",
+            description = "API Table name (default: 'insert_many_test_api_table')")
+    protected String apiTableName;
+
+    @CommandLine.Option(names = {"--cql-table-name"},
+            defaultValue = "insert_many_test_cql_table",
+            description = "CQL Table name (default: 'insert_many_test_cql_table')")
+    protected String cqlTableName;
+
+    @CommandLine.Mixin
+    protected CqlOptions cqlOptions = new CqlOptions();
+
+    protected InsertManyMatrixTest() {
+        super(ContainerType.COLLECTION);
+    }
+
+    @Override
+    protected int runTest(Database db)
+    {
+        if (workers > 0 || !workerOf.isEmpty()) {
+            System.err.println("\n  FAIL/matrix: distributed runs not supported for matrix test");
+            return 2;
+        }
+        final List<MatrixCell> cells = cells();
+        final String runId = runConfig().runId();
+        System.out.printf("Run matrix of %d cells:\n", cells.size());
+        for (int i = 0; i < cells.size(); ++i) {
+            System.out.printf("  #%d: %s\n", i+1, cells.get(i).desc());
+        }
+
+        List<CellResult> results = new ArrayList<>();
+        CqlSession cqlSession = null;
+        // Cell whose container definition matches existing container, if any
+        MatrixCell prevCell = null;
+        try {
+            for (int i = 0; i < cells.size(); ++i) {
+                final MatrixCell cell = cells.get(i);
+                System.out.printf("\nMatrix cell #%d/%d: %s\n", i+1, cells.size(), cell.desc());
+                final boolean reuseContainer = (prevCell != null) && prevCell.sameContainer(cell);
+                prevCell = null;
+                try {
+                    if (cell.containerType() == ContainerType.CQL_TABLE && cqlSession == null) {
+                        cqlSession = createCqlSession(cqlOptions, db.getKeyspace());
+                    }
+                    InsertManyTestClient testClient = createTestClient(db, cell, cqlSession);
+                    testClient.initialize(reuseContainer, cell.addIndexes());
+                    prevCell = cell;
+                    testClient.validate();
+                    testClient.runWarmupAndTest(agentCount, rateLimitRPS, runConfig(runId, i, cell));
+                    results.add(CellResult.of(cell, testClient.lastPhaseMetrics()));
+                } catch (Exception e) {
+                    System.err.printf("\n  FAIL/matrix: cell #%d: (%s) %s\n", i+1,
+                            e.getClass().getName(), e);
+                    results.add(CellResult.failed(cell, e));
+                }
+            }
+        } finally {
+            if (cqlSession != null) {
+                cqlSession.close();
+            }
+        }
+
+        printResults(results);
+        if (!resultsDir.isEmpty()) {
+            try {
+                writeResults(new File(resultsDir, runId + "-matrix.csv"), results);
+            } catch (IOException e) {
+                System.err.printf("\n  FAIL/matrix: cannot write results: (%s) %s\n",
+                        e.getClass().getName(), e);
+                return 5;
+            }
+        }
+        System.out.println();
+        System.out.println("DONE!");
+        return results.stream().anyMatch(r -> r.error() != null) ? 5 : 0;
+    }
+
+    /**
+     * Cells in order of running: container-defining settings vary slowest so that
+     * consecutive cells can share container.
+     */
+    protected List<MatrixCell> cells() {
+        List<MatrixCell> cells = new ArrayList<>();
+        for (ContainerType type : containerTypes) {
+            for (int vectorLength : (vectorLengths == null) ? List.of(this.vectorLength) : vectorLengths) {
+                // Indexing setting only applies to Collections
+                for (boolean indexing : (type == ContainerType.COLLECTION) ? indexings : List.of(true)) {
+                    for (int batchSize : (batchSizes == null) ? List.of(this.batchSize) : batchSizes) {
+                        for (boolean ordered : (orderings == null) ? List.of(orderedInserts) : orderings) {
+                            cells.add(new MatrixCell(type, vectorLength, indexing, batchSize, ordered));
+                        }
+                    }
+                }
+            }
+        }
+        return cells;
+    }
+
+    protected InsertManyTestClient createTestClient(Database db, MatrixCell cell,
+                                                    CqlSession cqlSession) throws IOException {
+        final String name = containerName(cell.containerType());
+        if (cell.containerType() == ContainerType.CQL_TABLE) {
+            return new InsertManyTestClient(db, cell.containerType(), name,
+                    cell.vectorLength(), cell.orderedInserts(), cell.batchSize(), agentOptions(),
+                    cqlSession, cqlOptions.writeMode(), null);
+        }
+        // Document shape only applies to Collections
+        final DocumentShape shape = (cell.containerType() == ContainerType.COLLECTION)
+                ? DocumentShape.parse(docShape) : null;
+        return new InsertManyTestClient(db, cell.containerType(), name,
+                cell.vectorLength(), cell.orderedInserts(), cell.batchSize(), agentOptions(),
+                shape);
+    }
+
+    protected RunConfig runConfig(String runId, int cellIndex, MatrixCell cell) {
+        final RunConfig base = runConfig();
+        return new RunConfig(runId + "-" + (cellIndex+1), base.resultsDir(),
+                base.env(), cell.containerType(), containerName(cell.containerType()),
+                cell.vectorLength(), cell.batchSize(), base.agentCount(), base.rateLimitRPS(),
+                cell.orderedInserts(), base.binaryVectors(), base.agentOptions(),
+                base.workers(), base.coordinatorPort(), base.scenario(), base.search(),
+                base.reads(), base.ann(), base.mutations(), base.conflicts(),
+                // Document shape only applies to Collections
+                (cell.containerType() == ContainerType.COLLECTION) ? base.docShape() : "");
+    }
+
+    protected String containerName(ContainerType type) {
+        return switch (type) {
+            case COLLECTION -> collectionName;
+            case API_TABLE -> apiTableName;
+            case CQL_TABLE -> cqlTableName;
+        };
+    }
+
+    private static void printResults(List<CellResult> results) {
+        // Relative throughput compared to the first successful cell
+        final double baseDocRate = results.stream().filter(r -> r.error() == null)
+                .mapToDouble(CellResult::docRate).findFirst().orElse(0.0);
+        System.out.printf("\nMatrix results (%d cells; last phase of each):\n", results.size());
+        System.out.println("   #  container   vector  indexes  batch  ordered     docs/sec    rel  calls/sec   p50 ms   p99 ms  errors");
+        for (int i = 0; i < results.size(); ++i) {
+            final CellResult r = results.get(i);
+            final MatrixCell c = r.cell();
+            System.out.printf("  %2d  %-10s  %6d  %7s  %5d  %7s", i+1, c.containerType().name(),
+                    c.vectorLength(),
+                    (c.containerType() == ContainerType.COLLECTION) ? c.addIndexes() : "-",
+                    c.batchSize(), c.orderedInserts());
+            if (r.error() != null) {
+                System.out.printf("  FAILED: %s\n", r.error());
+            } else {
+                System.out.printf("  %11.1f  %4.0f%%  %9.1f  %7.1f  %7.1f  %6d\n",
+                        r.docRate(), (baseDocRate > 0.0) ? (100.0 * r.docRate() / baseDocRate) : 0.0,
+                        r.callRate(), r.p50Msecs(), r.p99Msecs(), r.errorCalls());
+            }
+        }
+    }
+
+    private static void writeResults(File file, List<CellResult> results) throws IOException {
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Failed to create results directory '"+dir.getAbsolutePath()+"'");
+        }
+        try (PrintStream out = new PrintStream(file)) {
+            out.println("cell,containerType,vectorLength,addIndexes,batchSize,orderedInserts,docsPerSec,callsPerSec,p50Ms,p99Ms,okCalls,errorCalls,error");
+            for (int i = 0; i < results.size(); ++i) {
+                final CellResult r = results.get(i);
+                final MatrixCell c = r.cell();
+                out.printf("%d,%s,%d,%s,%d,%s,%.2f,%.2f,%.3f,%.3f,%d,%d,%s\n",
+                        i+1, c.containerType().name(), c.vectorLength(), c.addIndexes(),
+                        c.batchSize(), c.orderedInserts(), r.docRate(), r.callRate(),
+                        r.p50Msecs(), r.p99Msecs(), r.okCalls(), r.errorCalls(),
+                        (r.error() == null) ? "" : "\"" + r.error().replace("\"", "'") + "\"");
+            }
+        }
+        System.out.printf(" -> matrix results written in '%s'\n", file);
+    }
+
+    // Clients are created per cell, so these are not used for container access
+
+    @Override
+    protected String containerName() {
+        return collectionName;
+    }
+
+    @Override
+    protected DataAPIClientOptions dataApiOptions(DataAPIClientOptions opts) {
+        return opts;
+    }
+
+    public static void main(String[] args) {
+        System.exit(new CommandLine(new InsertManyMatrixTest()).execute(args));
+    }
+}
@@ -14,7 +14,8 @@ public class InsertManyTableTest
     @Override
     protected InsertManyTestClient createTestClient(Database db) {
         return new InsertManyTestClient(db, containerType, tableName,
-                vectorLength, orderedInserts, batchSize);
+                vectorLength, orderedInserts, batchSize,
+                agentOptions(), null);
     }
 
     @Override
@@ -25,10 +26,6 @@ public class InsertManyTableTest
     }
 
     public static void main(String[] args) {
-        // Should default to true anyway but just in case...
-        // This looks weird tho.
-        DataAPIClientOptions.getSerdesOptions().encodeDataApiVectorsAsBase64(true);
-
         System.exit(new CommandLine(new InsertManyTableTest()).execute(args));
     }
 }
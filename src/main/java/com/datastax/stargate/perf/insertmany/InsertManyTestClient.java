@@ -1,6 +1,8 @@
 package com.datastax.stargate.perf.insertmany;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import com.datastax.astra.client.collections.Collection;
 import com.datastax.astra.client.collections.definition.CollectionDefinition;
@@ -15,11 +17,25 @@ import com.datastax.astra.client.tables.definition.columns.ColumnTypes;
 import com.datastax.astra.client.tables.definition.indexes.TableVectorIndexDefinition;
 import com.datastax.astra.client.tables.definition.indexes.TableVectorIndexDefinitionOptions;
 import com.datastax.astra.client.tables.definition.rows.Row;
+import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.stargate.perf.base.DataApiTestClient;
+import com.datastax.stargate.perf.insertmany.agent.MetricsCollector;
+import com.datastax.stargate.perf.insertmany.cluster.PhaseCoordinator;
+import com.datastax.stargate.perf.insertmany.cluster.PhaseWorker;
 import com.datastax.stargate.perf.insertmany.entity.ContainerItem;
+import com.datastax.stargate.perf.insertmany.scenario.CapacitySearch;
+import com.datastax.stargate.perf.insertmany.scenario.PhaseExecutor;
+import com.datastax.stargate.perf.insertmany.scenario.PhaseSpec;
+import com.datastax.stargate.perf.insertmany.scenario.Scenario;
+import com.datastax.stargate.perf.insertmany.scenario.Workload;
 import com.datastax.stargate.perf.insertmany.entity.ContainerItemGenerator;
 import com.datastax.stargate.perf.insertmany.entity.ContainerItemIdGenerator;
+import com.datastax.stargate.perf.insertmany.entity.DocumentShape;
+import com.datastax.stargate.perf.base.AgentOptions;
+import com.datastax.stargate.perf.base.AnnOptions;
 import com.datastax.stargate.perf.base.ContainerType;
+import com.datastax.stargate.perf.base.CqlWriteMode;
+import com.datastax.stargate.perf.base.RunConfig;
 import com.datastax.stargate.perf.insertmany.entity.ItemCQLTable;
 import com.datastax.stargate.perf.insertmany.entity.ItemCollection;
 import com.datastax.stargate.perf.insertmany.entity.ItemContainer;
@@ -38,17 +54,69 @@ public class InsertManyTestClient
     private final int vectorSize;
     private final boolean orderedInserts;
     private final int batchSize;
+    private final AgentOptions agentOptions;
+
+    // CQL access for CQL Tables only; null for other container types
+    private final CqlSession cqlSession;
+    private final CqlWriteMode cqlWriteMode;
+
+    // Shape of additional fields of Documents (Collections only); null for none
+    private final DocumentShape docShape;
 
     private ItemContainer itemContainer;
 
+    // Metrics of the latest phase run, if any
+    private MetricsCollector lastPhaseMetrics;
+
     public InsertManyTestClient(Database db, ContainerType containerType,
                                 String containerName,
                                 int vectorSize, boolean orderedInserts,
-                                int batchSize) {
+                                int batchSize, AgentOptions agentOptions,
+                                DocumentShape docShape) {
+        this(db, containerType, containerName, vectorSize, orderedInserts, batchSize,
+                agentOptions, null, null, docShape);
+    }
+
+    public InsertManyTestClient(Database db, ContainerType containerType,
+                                String containerName,
+                                int vectorSize, boolean orderedInserts,
+                                int batchSize, AgentOptions agentOptions,
+                                CqlSession cqlSession, CqlWriteMode cqlWriteMode,
+                                DocumentShape docShape) {
         super(db, containerType, containerName);
         this.vectorSize = vectorSize;
         this.orderedInserts = orderedInserts;
         this.batchSize = batchSize;
+        this.agentOptions = agentOptions;
+        if ((containerType == ContainerType.CQL_TABLE) && (cqlSession == null)) {
+            throw new IllegalArgumentException("CqlSession required for "+containerType.name());
+        }
+        this.cqlSession = cqlSession;
+        this.cqlWriteMode = cqlWriteMode;
+        if ((docShape != null) && (containerType != ContainerType.COLLECTION)) {
+            throw new IllegalArgumentException("Document shape only supported for "
+                    +ContainerType.COLLECTION.name()+", not "+containerType.name());
+        }
+        this.docShape = docShape;
+    }
+
+    // For CQL Tables access container using CQL, not Data API
+
+    @Override
+    protected boolean containerExists() {
+        if (containerType == ContainerType.CQL_TABLE) {
+            return ItemCQLTable.tableExists(cqlSession, containerName);
+        }
+        return super.containerExists();
+    }
+
+    @Override
+    protected void dropContainer() {
+        if (containerType == ContainerType.CQL_TABLE) {
+            ItemCQLTable.dropTable(cqlSession, containerName);
+        } else {
+            super.dropContainer();
+        }
     }
 
     /**
@@ -97,9 +165,8 @@ public class InsertManyTestClient
                     db.getTable(containerName),
                     vectorSize, orderedInserts);
             case CQL_TABLE ->
-                new ItemCQLTable(containerName,
-                        db.getTable(containerName),
-                        vectorSize, orderedInserts);
+                ItemCQLTable.create(containerName, cqlSession,
+                        vectorSize, orderedInserts, cqlWriteMode);
         };
     }
 
@@ -120,14 +187,23 @@ public class InsertManyTestClient
         } else {
             desc = "vector: NONE";
         }
-        if (addIndexes) {
-            desc += ", index: ALL";
-        } else {
+        if (!addIndexes) {
             def = def.indexingDeny("*");
             desc += ", index: NONE";
+        } else if (docShape != null && !docShape.indexAllow().isEmpty()) {
+            def = def.indexingAllow(docShape.indexAllow().toArray(new String[0]));
+            desc += ", index: allow "+docShape.indexAllow();
+        } else if (docShape != null && !docShape.indexDeny().isEmpty()) {
+            def = def.indexingDeny(docShape.indexDeny().toArray(new String[0]));
+            desc += ", index: deny "+docShape.indexDeny();
+        } else {
+            desc += ", index: ALL";
         }
         System.out.printf("Will (re)create %s (%s): ",
                 containerDesc(), desc);
+        if (docShape != null) {
+            System.out.printf("(document shape: %s) ", docShape.desc());
+        }
 
         final long start = System.currentTimeMillis();
         Collection<Document> coll = db.createCollection(containerName, def);
@@ -143,8 +219,26 @@ public class InsertManyTestClient
     }
 
     private ItemCQLTable createCQLTable() {
-        Table<Row> table = createRawTable();
-        return new ItemCQLTable(containerName, table, vectorSize, orderedInserts);
+        boolean hasVector = vectorSize > 0;
+        System.out.printf("Will (re)create %s using CQL (vector: %s, write mode: %s): ",
+                containerDesc(), hasVector ? String.valueOf(vectorSize) : "NONE", cqlWriteMode);
+        long start = System.currentTimeMillis();
+        ItemCQLTable.createTable(cqlSession, containerName, vectorSize);
+        System.out.printf("created (in %s))\n",
+                _secs(System.currentTimeMillis() - start));
+        ItemCQLTable table = ItemCQLTable.create(containerName, cqlSession,
+                vectorSize, orderedInserts, cqlWriteMode);
+        if (hasVector) {
+            final String indexName = "idx_vector_" + containerName;
+            start = System.currentTimeMillis();
+            System.out.printf("  will (re)create Vector index '%s': ", indexName);
+            table.createVectorIndex(indexName);
+            System.out.printf("created (in %s))\n",
+                    _secs(System.currentTimeMillis() - start));
+        } else {
+            System.out.println("  no Vector so will NOT (re)create index for Vector");
+        }
+        return table;
     }
 
     private Table<Row> createRawTable() {
@@ -204,7 +298,7 @@ public class InsertManyTestClient
     @Override
     public void validate() {
         ContainerItemIdGenerator idGenerator = ContainerItemIdGenerator.decreasingCycleGenerator(0);
-        ContainerItemGenerator itemGen = new ContainerItemGenerator(idGenerator, vectorSize);
+        ContainerItemGenerator itemGen = new ContainerItemGenerator(idGenerator, vectorSize, docShape);
 
         System.out.printf("  will insert %d documents, one by one:\n", VALIDATE_SINGLE_ITEMS_TO_INSERT);
         for (int i = 0; i < VALIDATE_SINGLE_ITEMS_TO_INSERT; ++i) {
@@ -265,22 +359,108 @@ public class InsertManyTestClient
         System.out.println("OK, now empty");
     }
 
-    public void runWarmupAndTest(int threadCount, int testMaxRPS)
+    @Override
+    public void runWarmupAndTest(int threadCount, int testMaxRPS,
+                                 RunConfig runConfig)
         throws Exception
     {
+        if (runConfig.search().enabled() && !runConfig.scenario().isEmpty()) {
+            throw new IllegalArgumentException("Cannot use both scenario and capacity search");
+        }
+        if (runConfig.distributed()) {
+            // Exact kNN needs all items inserted, but workers insert them
+            if (runConfig.ann().enabled()) {
+                throw new IllegalArgumentException("Vector searches ('--ann-k') not supported in distributed runs");
+            }
+            try (PhaseCoordinator coordinator = PhaseCoordinator.start(runConfig.coordinatorPort(),
+                    runConfig.workers())) {
+                runPhases(spec -> coordinator.runPhase(spec.withDefaults(threadCount, batchSize),
+                        itemContainer, runConfig), testMaxRPS, runConfig);
+            }
+            return;
+        }
+        // Shared by all phases so ids never collide, even if container not truncated
         final ContainerItemGenerator itemGenerator = new ContainerItemGenerator(
                 ContainerItemIdGenerator.increasingCycleGenerator(0),
-                vectorSize);
+                vectorSize, docShape);
         final TestPhaseRunner testRunner = new TestPhaseRunner(threadCount,
-                itemContainer, itemGenerator, batchSize);
+                itemContainer, itemGenerator, batchSize, agentOptions, runConfig);
+        runPhases(spec -> testRunner.runPhase(spec, PhaseListener.NOP), testMaxRPS, runConfig);
+    }
+
+    private void runPhases(PhaseExecutor phaseExecutor, int testMaxRPS, RunConfig runConfig)
+        throws Exception
+    {
+        final PhaseExecutor executor = spec -> {
+            final MetricsCollector metrics = phaseExecutor.runPhase(spec);
+            if (spec.workload() != Workload.SEARCH) {
+                lastPhaseMetrics = metrics;
+            }
+            return metrics;
+        };
+        if (runConfig.search().enabled()) {
+            executor.runPhase(defaultPhases(testMaxRPS, runConfig).get(0));
+            CapacitySearch search = CapacitySearch.create(runConfig.search(), executor);
+            CapacitySearch.Sample best = search.run(testMaxRPS);
+            search.printResults(best);
+            search.writeResults(runConfig, best);
+            return;
+        }
+        final List<PhaseSpec> phases = runConfig.scenario().isEmpty()
+                ? defaultPhases(testMaxRPS, runConfig)
+                : Scenario.parse(runConfig.scenario());
+        for (PhaseSpec phase : phases) {
+            executor.runPhase(phase);
+        }
+    }
+
+    /**
+     * Accessor for metrics of the latest phase run by {@link #runWarmupAndTest}
+     * (main test phase, unless scenario used), not counting search phases; null if none run.
+     */
+    public MetricsCollector lastPhaseMetrics() {
+        return lastPhaseMetrics;
+    }
 
-        // Warm-up with only 25% of full RPS; for 5 seconds
-        testRunner.runPhase("Warm-up", 5, java.util.concurrent.TimeUnit.SECONDS,
-                testMaxRPS / 4);
+    private static List<PhaseSpec> defaultPhases(int testMaxRPS, RunConfig runConfig) {
+        // Actual test with full RPS; for 1 minute (with reads, if enabled)
+        PhaseSpec mainTest = PhaseSpec.constant("Main Test", TimeUnit.SECONDS.toMillis(60), testMaxRPS);
+        if (runConfig.reads().enabled()) {
+            mainTest = mainTest.withWorkload(Workload.MIXED);
+        }
+        final PhaseSpec warmup =
+                // Warm-up with only 25% of full RPS; for 5 seconds
+                PhaseSpec.constant("Warm-up", TimeUnit.SECONDS.toMillis(5), testMaxRPS / 4);
+        final List<PhaseSpec> phases = new ArrayList<>(List.of(warmup, mainTest));
+        // If enabled, mutations of items inserted by main test, followed by repeat of main
+        // test (without truncation) to see how they affect later inserts (and reads)
+        if (runConfig.mutations().enabled()) {
+            phases.add(new PhaseSpec("Mutations", mainTest.durationMsecs(), testMaxRPS, testMaxRPS,
+                    0, 0, Workload.MUTATE, false));
+            phases.add(new PhaseSpec("After Mutations", mainTest.durationMsecs(), testMaxRPS, testMaxRPS,
+                    0, 0, mainTest.workload(), false));
+        }
+        // and vector searches over items inserted
+        final AnnOptions ann = runConfig.ann();
+        if (ann.enabled() && runConfig.vectorLength() > 0) {
+            phases.add(new PhaseSpec("ANN Search", TimeUnit.SECONDS.toMillis(ann.phaseSecs()),
+                    ann.searchRPS(), ann.searchRPS(), 0, 0, Workload.SEARCH, false));
+        }
+        return phases;
+    }
 
-        // Actual test with full RPS; for 1 minute
-        testRunner.runPhase("Main Test", 60, java.util.concurrent.TimeUnit.SECONDS,
-                testMaxRPS);
+    @Override
+    public void runAsWorker(String coordinatorAddress, RunConfig runConfig)
+        throws Exception
+    {
+        System.out.printf("  checking that %s exists: ", containerDesc());
+        if (!containerExists()) {
+            throw new IllegalStateException(containerDesc()+" does not exist: should be created by coordinator");
+        }
+        System.out.println("it does.");
+        itemContainer = fetchContainer();
+        PhaseWorker.connect(coordinatorAddress)
+                .run(itemContainer, batchSize, agentOptions, runConfig, docShape);
     }
 
     private static void verifyItem(ContainerItem expected, ContainerItem actual) {
@@ -0,0 +1,33 @@
+package com.datastax.stargate.perf.insertmany;
+
+import com.datastax.stargate.perf.insertmany.agent.IntervalMetrics;
+
+import java.io.IOException;
+
+/**
+ * Callbacks through which a test phase run by {@link TestPhaseRunner} can be
+ * coordinated with other processes (used by distributed workers).
+ */
+public interface PhaseListener {
+    PhaseListener NOP = new PhaseListener() { };
+
+    /**
+     * Whether runner should truncate the container before the phase; not done
+     * by workers since coordinator takes care of it.
+     */
+    default boolean truncateContainer() {
+        return true;
+    }
+
+    /**
+     * Called when phase is ready to start (batches pre-generated, if any): phase
+     * clock starts once this method returns.
+     */
+    default void awaitStart() throws InterruptedException, IOException { }
+
+    /**
+     * Called for each interval snapshot taken, including the last one taken
+     * after all agents are done.
+     */
+    default void intervalCompleted(IntervalMetrics interval) throws IOException { }
+}
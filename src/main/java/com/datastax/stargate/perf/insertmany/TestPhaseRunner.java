@@ -1,70 +1,308 @@
 package com.datastax.stargate.perf.insertmany;
 
+import com.datastax.stargate.perf.base.AgentOptions;
+import com.datastax.stargate.perf.base.AnnOptions;
+import com.datastax.stargate.perf.base.AgentThreading;
+import com.datastax.stargate.perf.base.ConflictOptions;
+import com.datastax.stargate.perf.base.LoadModel;
+import com.datastax.stargate.perf.base.MutationOptions;
+import com.datastax.stargate.perf.base.ReadOptions;
+import com.datastax.stargate.perf.base.RunConfig;
+import com.datastax.stargate.perf.insertmany.agent.AdaptiveController;
+import com.datastax.stargate.perf.insertmany.agent.ArrivalSchedule;
+import com.datastax.stargate.perf.insertmany.agent.AsyncInsertManyAgent;
+import com.datastax.stargate.perf.insertmany.agent.DocumentOutcomes;
 import com.datastax.stargate.perf.insertmany.agent.InsertManyAgent;
+import com.datastax.stargate.perf.insertmany.agent.IntervalMetrics;
 import com.datastax.stargate.perf.insertmany.agent.MetricsCollector;
+import com.datastax.stargate.perf.insertmany.agent.MutationAgent;
+import com.datastax.stargate.perf.insertmany.agent.Pacer;
+import com.datastax.stargate.perf.insertmany.agent.PhaseResultsWriter;
+import com.datastax.stargate.perf.insertmany.agent.PinningMonitor;
+import com.datastax.stargate.perf.insertmany.agent.ReadAgent;
+import com.datastax.stargate.perf.insertmany.agent.SearchAgent;
+import com.datastax.stargate.perf.insertmany.agent.ThrottlingPacer;
+import com.datastax.stargate.perf.insertmany.ann.AnnQuerySet;
+import com.datastax.stargate.perf.insertmany.ann.ExactKnn;
+import com.datastax.stargate.perf.insertmany.ann.SimilarityKernel;
+import com.datastax.stargate.perf.insertmany.entity.BatchSource;
 import com.datastax.stargate.perf.insertmany.entity.ContainerItemGenerator;
+import com.datastax.stargate.perf.insertmany.entity.DuplicateIdInjector;
+import com.datastax.stargate.perf.insertmany.entity.InsertedItems;
 import com.datastax.stargate.perf.insertmany.entity.ItemContainer;
-import io.github.bucket4j.Bucket;
+import com.datastax.stargate.perf.insertmany.entity.PayloadSampling;
+import com.datastax.stargate.perf.insertmany.entity.PreGeneratedBatches;
+import com.datastax.stargate.perf.insertmany.entity.SkewedIdSelector;
+import com.datastax.stargate.perf.insertmany.entity.TrackingItemContainer;
+import com.datastax.stargate.perf.insertmany.scenario.PhaseSpec;
+import com.datastax.stargate.perf.insertmany.scenario.Workload;
+import com.datastax.stargate.perf.insertmany.trace.BatchTracer;
+import com.datastax.stargate.perf.metrics.LiveMetrics;
+import com.datastax.stargate.perf.metrics.PhaseMeters;
 
-import java.time.Duration;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Entity that handles running of one test phases (warm up, test).
  */
 public class TestPhaseRunner {
+   /**
+    * Interval between metrics snapshots (written in results files, if any)
+    */
+   private final static long SNAPSHOT_INTERVAL_MSECS = 1000L;
+
+   /**
+    * Types of reads of mixed workload, in order of their metrics
+    */
+   private final static String[] READ_TYPES = { "point reads", "range reads" };
+
    private final int agentCount;
    private final int vectorSize;
    private final ItemContainer items;
    private final ContainerItemGenerator itemGenerator;
    private final int batchSize;
+   private final AgentOptions agentOptions;
+   private final AgentExecutorFactory executorFactory;
+   private final RunConfig runConfig;
+   private final ReadOptions readOptions;
+   private final AnnOptions annOptions;
+   private final MutationOptions mutationOptions;
+   private final ConflictOptions conflictOptions;
+
+   // Items inserted, for read and mutation agents, duplicate ids and exact kNN of
+   // search phases; null if none enabled
+   private final InsertedItems inserted;
+
+   // Vectors of items for exact kNN, kept until items inserted change
+   private ExactKnn knn;
 
    public TestPhaseRunner(int agentCount,
                           ItemContainer items, ContainerItemGenerator itemGenerator,
-                          int batchSize) {
+                          int batchSize, AgentOptions agentOptions, RunConfig runConfig) {
         this.vectorSize = items.vectorSize();
         this.agentCount = agentCount;
+        this.readOptions = runConfig.reads();
+        this.annOptions = runConfig.ann();
+        this.mutationOptions = runConfig.mutations();
+        this.conflictOptions = runConfig.conflicts();
+        // Need to track inserted items (in all phases) to have something to read
+        // (or mutate, or duplicate); and all of them for exact kNN (only needed for searches)
+        if (readOptions.enabled() || annOptions.enabled() || mutationOptions.enabled()
+                || conflictOptions.enabled()) {
+            inserted = InsertedItems.create(annOptions.enabled());
+            items = new TrackingItemContainer(items, inserted);
+        } else {
+            inserted = null;
+        }
         this.items = items;
         this.itemGenerator = itemGenerator;
         this.batchSize = batchSize;
+        this.agentOptions = agentOptions;
+        this.runConfig = runConfig;
+        // Resolve early to fail fast if threading not available
+        this.executorFactory = AgentExecutorFactory.forThreading(agentOptions.agentThreading());
+        // Adaptive mode works by limiting concurrency, so cannot use open-loop load
+        if (agentOptions.adaptive() && agentOptions.loadModel() == LoadModel.OPEN) {
+            throw new IllegalArgumentException("Adaptive mode requires load model "+LoadModel.CLOSED);
+        }
+   }
+
+   public MetricsCollector runPhase(final String phaseName,
+                                    long duration, TimeUnit durationUnit,
+                                    int maxRPS) throws InterruptedException, IOException
+   {
+       return runPhase(phaseName, duration, durationUnit, maxRPS, PhaseListener.NOP);
    }
 
    public MetricsCollector runPhase(final String phaseName,
                                     long duration, TimeUnit durationUnit,
-                                    int maxRPS) throws InterruptedException
+                                    int maxRPS, PhaseListener listener)
+       throws InterruptedException, IOException
+   {
+       return runPhase(PhaseSpec.constant(phaseName, durationUnit.toMillis(duration), maxRPS),
+               listener);
+   }
+
+   /**
+    * Method for running phase as specified: agent count and batch size of the spec
+    * override ones runner was constructed with.
+    */
+   public MetricsCollector runPhase(PhaseSpec spec, PhaseListener listener)
+       throws InterruptedException, IOException
    {
-       System.out.printf("runPhase('%s') for %d %s (vector: %d, %d agents, maxRPS: %d, ordered: %s)\n",
-               phaseName, duration, durationUnit,
-               vectorSize, agentCount, maxRPS, items.orderedInserts());
-       System.out.printf(" first, truncate container: ");
-       // Let things settle a bit before, after truncation
-       Thread.sleep(1000L);
-       items.deleteAll();
-       System.out.printf("ok.\n");
-       Thread.sleep(1000L);
+       spec = spec.withDefaults(this.agentCount, this.batchSize);
+       final String phaseName = spec.name();
+       final int agentCount = spec.agentCount();
+       final int batchSize = spec.batchSize();
+       final long durationMsecs = spec.durationMsecs();
+       final boolean mixed = (spec.workload() == Workload.MIXED);
+       if (mixed && inserted == null) {
+           throw new IllegalArgumentException("Workload "+Workload.MIXED+" of phase '"+phaseName
+                   +"' requires reads to be enabled ('--read-rate')");
+       }
+       final boolean mutate = (spec.workload() == Workload.MUTATE);
+       if (mutate && !mutationOptions.enabled()) {
+           throw new IllegalArgumentException("Workload "+Workload.MUTATE+" of phase '"+phaseName
+                   +"' requires mutations to be enabled ('--upsert-rate', '--delete-rate')");
+       }
+       // Mutation phases also read, if reads enabled: to see effect of mutations on reads
+       final boolean reads = mixed || (mutate && readOptions.enabled());
+       final int readAgentCount = reads ? readOptions.agentCount() : 0;
+       final int upsertAgentCount = mutate ? mutationOptions.upsertAgentCount() : 0;
+       final int deleteAgentCount = mutate ? mutationOptions.deleteAgentCount() : 0;
+       final int sideAgentCount = readAgentCount + upsertAgentCount + deleteAgentCount;
+       final boolean search = (spec.workload() == Workload.SEARCH);
+       if (search && !annOptions.enabled()) {
+           throw new IllegalArgumentException("Workload "+Workload.SEARCH+" of phase '"+phaseName
+                   +"' requires vector searches to be enabled ('--ann-k')");
+       }
+       if (search && vectorSize == 0) {
+           throw new IllegalArgumentException("Workload "+Workload.SEARCH+" of phase '"+phaseName
+                   +"' requires container with vectors ('--vector-length')");
+       }
+       // Search phases have search agents instead of insert agents
+       final int insertAgentCount = search ? 0 : agentCount;
+
+       System.out.printf("runPhase('%s') for %.1f seconds (vector: %d, %d agents, batch: %d, %s RPS: %s, ordered: %s, %s)\n",
+               phaseName, durationMsecs / 1000.0,
+               vectorSize, agentCount, batchSize, spec.workload(), spec.rpsDesc(),
+               items.orderedInserts(), agentOptions.desc());
+       if (reads) {
+           System.out.printf(" reads: %s\n", readOptions.desc());
+       }
+       if (mutate) {
+           System.out.printf(" mutations: %s\n", mutationOptions.desc());
+       }
+       if (search) {
+           System.out.printf(" searches: %s\n", annOptions.desc());
+       }
+       // Search phases do not insert, so nothing to conflict
+       final DocumentOutcomes outcomes = (conflictOptions.enabled() && !search)
+               ? DocumentOutcomes.create(DuplicateIdInjector.create(inserted, itemGenerator,
+                       conflictOptions.duplicateFraction()), conflictOptions.resubmitFailed())
+               : null;
+       if (outcomes != null) {
+           System.out.printf(" conflicts: %s\n", conflictOptions.desc());
+       }
+       if (spec.truncate() && listener.truncateContainer()) {
+           System.out.printf(" first, truncate container: ");
+           // Let things settle a bit before, after truncation
+           Thread.sleep(1000L);
+           items.deleteAll();
+           System.out.printf("ok.\n");
+           Thread.sleep(1000L);
+       }
+
+       // Ground truth for searches computed before the clock too
+       final AnnQuerySet annQueries = search ? prepareSearch() : null;
+
+       // Batch size can only be adapted if batches are not pre-generated
+       final AdaptiveController controller = (agentOptions.adaptive() && !search)
+               ? AdaptiveController.create(phaseName, agentCount, batchSize,
+                       agentOptions.adaptiveMaxBatch(), !agentOptions.preGenerateBatches())
+               : null;
+
+       // Fill pre-generated batches (if any) before starting the clock
+       final BatchSource batches = search ? BatchSource.direct(itemGenerator, batchSize)
+               : PayloadSampling.wrap(agentOptions.preGenerateBatches()
+               ? PreGeneratedBatches.start(itemGenerator, batchSize,
+                       agentOptions.pregenBatches(), agentOptions.pregenThreads())
+               : ((controller == null) ? BatchSource.direct(itemGenerator, batchSize)
+                       : BatchSource.direct(itemGenerator, controller::batchSize)),
+               items);
+       listener.awaitStart();
 
        final long phaseStartMsecs = System.currentTimeMillis();
 
-       final InsertManyAgent[] agents = new InsertManyAgent[agentCount];
-       for (int i = 0; i < agentCount; ++i) {
-           agents[i] = new InsertManyAgent(i, items, itemGenerator, batchSize);
-       }
-       final ExecutorService exec = Executors.newFixedThreadPool(agentCount);
-       final MetricsCollector metrics = MetricsCollector.create(batchSize);
-       final Bucket rateLimiter = Bucket.builder()
-               // Allow +10% burst beyond MaxRPS
-               .addLimit(limit -> limit.capacity(maxRPS + (int) (maxRPS * 0.1))
-                       .refillGreedy(maxRPS, Duration.ofSeconds(1)))
-               .build();
+       final BatchTracer tracer = search ? null : BatchTracer.create(agentOptions.traceEvery());
+       // Async agents need threads for all calls in flight (for blocking Data API calls)
+       final ExecutorService callExecutor = (agentOptions.asyncAgents() && insertAgentCount > 0)
+               ? executorFactory.createExecutor(insertAgentCount * agentOptions.asyncInFlight())
+               : null;
+       final InsertManyAgent[] agents = new InsertManyAgent[insertAgentCount];
+       for (int i = 0; i < insertAgentCount; ++i) {
+           agents[i] = agentOptions.asyncAgents()
+                   ? new AsyncInsertManyAgent(i, items, batches, tracer, controller,
+                           outcomes, agentOptions.asyncInFlight(), callExecutor)
+                   : new InsertManyAgent(i, items, batches, tracer, controller, outcomes);
+       }
+       final ReadAgent[] readAgents = new ReadAgent[readAgentCount];
+       for (int i = 0; i < readAgentCount; ++i) {
+           readAgents[i] = new ReadAgent(i, items, inserted, readOptions);
+       }
+       final SearchAgent[] searchAgents = new SearchAgent[agentCount - insertAgentCount];
+       for (int i = 0; i < searchAgents.length; ++i) {
+           searchAgents[i] = new SearchAgent(i, items, annQueries);
+       }
+       final SkewedIdSelector mutationKeys = mutate
+               ? SkewedIdSelector.create(inserted, mutationOptions.keySkew()) : null;
+       final List<MutationAgent> mutationAgents = new ArrayList<>(upsertAgentCount + deleteAgentCount);
+       for (int i = 0; i < upsertAgentCount; ++i) {
+           mutationAgents.add(new MutationAgent(i, MutationAgent.Operation.UPSERT, items,
+                   itemGenerator, mutationKeys, mutationOptions.deleteBatch()));
+       }
+       for (int i = 0; i < deleteAgentCount; ++i) {
+           mutationAgents.add(new MutationAgent(i, MutationAgent.Operation.DELETE, items,
+                   itemGenerator, mutationKeys, mutationOptions.deleteBatch()));
+       }
+       final ExecutorService exec = executorFactory.createExecutor(agentCount + sideAgentCount);
+       // With virtual threads, need to know if agents get pinned to carrier threads
+       final PinningMonitor pinningMonitor = (agentOptions.agentThreading() == AgentThreading.VIRTUAL)
+               ? PinningMonitor.start() : null;
+       final LiveMetrics liveMetrics = LiveMetrics.instance();
+       final PhaseMeters phaseMeters = (liveMetrics == null) ? null
+               : liveMetrics.phaseMeters(phaseName);
+       final MetricsCollector metrics = MetricsCollector.create(agentCount, phaseMeters);
+       if (phaseMeters != null) {
+           phaseMeters.registerGauges(metrics::lastIntervalRate, metrics::inFlight,
+                   batches::bufferedBatches);
+       }
+       final PhaseResultsWriter resultsWriter = PhaseResultsWriter.create(runConfig, phaseName,
+               phaseStartMsecs);
+       // Reads and mutations have separate metrics (and results files) per type,
+       // and their own rate budgets, not affected by ramps of insert rate
+       final List<SideOperations> sideOps = new ArrayList<>();
+       if (reads) {
+           final Pacer readPacer = createPacer(readOptions.readRPS(), readOptions.readRPS(),
+                   durationMsecs);
+           for (String type : READ_TYPES) {
+               sideOps.add(sideOperations(phaseName, phaseStartMsecs, type, "Items found",
+                       readAgentCount, readPacer, readOptions.readRPS()));
+           }
+       }
+       final SideOperations upserts = (upsertAgentCount == 0) ? null
+               : sideOperations(phaseName, phaseStartMsecs, MutationAgent.Operation.UPSERT.desc(),
+                       "Items written", upsertAgentCount,
+                       createPacer(mutationOptions.upsertRPS(), mutationOptions.upsertRPS(), durationMsecs),
+                       mutationOptions.upsertRPS());
+       final SideOperations deletes = (deleteAgentCount == 0) ? null
+               : sideOperations(phaseName, phaseStartMsecs, MutationAgent.Operation.DELETE.desc(),
+                       "Items deleted", deleteAgentCount,
+                       createPacer(mutationOptions.deleteRPS(), mutationOptions.deleteRPS(), durationMsecs),
+                       mutationOptions.deleteRPS());
+       if (upserts != null) {
+           sideOps.add(upserts);
+       }
+       if (deletes != null) {
+           sideOps.add(deletes);
+       }
+
        // To start need all agents to be ready and parent thread to ack:
-       final CountDownLatch startLatch = new CountDownLatch(agentCount + 1);
+       final CountDownLatch startLatch = new CountDownLatch(agentCount + sideAgentCount + 1);
        // to end just all agents to be done:
-       final CountDownLatch endLatch = new CountDownLatch(agentCount);
+       final CountDownLatch endLatch = new CountDownLatch(agentCount + sideAgentCount);
 
-       final long endTime = System.currentTimeMillis() + durationUnit.toMillis(duration);
+       final long endTime = System.currentTimeMillis() + durationMsecs;
+       final Pacer pacer = createPacer(spec.startRPS(), spec.endRPS(), durationMsecs);
 
        for (InsertManyAgent agent : agents) {
            exec.execute(new Runnable() {
@@ -81,7 +319,7 @@ public class TestPhaseRunner {
                    }
 
                    try {
-                       agent.runPhase(phaseName, endTime, rateLimiter, metrics);
+                       agent.runPhase(phaseName, endTime, pacer, metrics);
                    } catch (Exception e) {
                        System.err.printf("ERROR: failed runPhase on %s: (%s) %s\n",
                                agent, e.getClass().getName(), e.getMessage());
@@ -91,15 +329,65 @@ public class TestPhaseRunner {
                }
            });
        }
+       for (SearchAgent agent : searchAgents) {
+           exec.execute(() -> {
+               try {
+                   startLatch.countDown();
+                   startLatch.await();
+                   agent.runPhase(phaseName, endTime, pacer, metrics);
+               } catch (Exception e) {
+                   System.err.printf("ERROR: failed runPhase on %s: (%s) %s\n",
+                           agent, e.getClass().getName(), e.getMessage());
+               } finally {
+                   endLatch.countDown();
+               }
+           });
+       }
+       for (ReadAgent agent : readAgents) {
+           exec.execute(() -> {
+               try {
+                   startLatch.countDown();
+                   startLatch.await();
+                   agent.runPhase(phaseName, endTime, sideOps.get(0).pacer(),
+                           sideOps.get(0).metrics(), sideOps.get(1).metrics());
+               } catch (Exception e) {
+                   System.err.printf("ERROR: failed runPhase on %s: (%s) %s\n",
+                           agent, e.getClass().getName(), e.getMessage());
+               } finally {
+                   endLatch.countDown();
+               }
+           });
+       }
+       for (MutationAgent agent : mutationAgents) {
+           final SideOperations ops = (agent.operation() == MutationAgent.Operation.UPSERT)
+                   ? upserts : deletes;
+           exec.execute(() -> {
+               try {
+                   startLatch.countDown();
+                   startLatch.await();
+                   agent.runPhase(phaseName, endTime, ops.pacer(), ops.metrics());
+               } catch (Exception e) {
+                   System.err.printf("ERROR: failed runPhase on %s: (%s) %s\n",
+                           agent, e.getClass().getName(), e.getMessage());
+               } finally {
+                   endLatch.countDown();
+               }
+           });
+       }
 
        // And then loop a bit, waiting for the end: delay between prints at least 1 second,
-       // at most 10 seconds; aiming at 30 updates total.
+       // at most 10 seconds; aiming at 30 updates total. Metrics snapshot taken every
+       // second, for results files.
        final long waitBetweenOutputSecs = Math.max(1L, Math.min(10L,
-               durationUnit.toSeconds(duration) / 30));
+               (durationMsecs / 1000L) / 30));
        System.out.printf("  (output state every %d seconds)\n", waitBetweenOutputSecs);
        final long waitBetweenOutputMsecs = waitBetweenOutputSecs * 1000L;
 
        // Ok, start all agents
+       pacer.start();
+       for (SideOperations ops : sideOps) {
+           ops.pacer().start();
+       }
        startLatch.countDown();
        try {
            startLatch.await(3L, TimeUnit.SECONDS);
@@ -108,27 +396,202 @@ public class TestPhaseRunner {
        }
 
        long currTime;
+       long nextOutputTime = System.currentTimeMillis() + waitBetweenOutputMsecs;
+       IntervalMetrics sinceOutput = null;
        while ((endLatch.getCount() > 0) && (currTime = System.currentTimeMillis()) < endTime) {
-           final long waitMsecs = Math.min(endTime - currTime, waitBetweenOutputMsecs);
+           final long waitMsecs = Math.min(endTime - currTime, SNAPSHOT_INTERVAL_MSECS);
            Thread.sleep(waitMsecs);
 
-           System.out.printf(" %s: %.2f secs -> %s\n", phaseName,
+           final IntervalMetrics interval = metrics.takeIntervalSnapshot();
+           if (resultsWriter != null) {
+               resultsWriter.writeInterval(interval);
+           }
+           listener.intervalCompleted(interval);
+           if (controller != null) {
+               controller.intervalCompleted(interval);
+           }
+           snapshotSideOperations(sideOps);
+           sinceOutput = (sinceOutput == null) ? interval : sinceOutput.combine(interval);
+           currTime = System.currentTimeMillis();
+           if (currTime < nextOutputTime && currTime < endTime) {
+               continue;
+           }
+           nextOutputTime += waitBetweenOutputMsecs;
+           System.out.printf(" %s: %.2f secs -> %s%s%s\n    %s%s\n", phaseName,
                    (currTime - phaseStartMsecs) / 1000.0,
-                   metrics.allStatsDesc());
+                   metrics.callCountsDesc(), metrics.rateDesc(), pacer.statusDesc(),
+                   sinceOutput.desc(),
+                   batches.statusDesc());
+           if (annQueries != null) {
+               System.out.printf("    %s\n", annQueries.desc());
+           }
+           if (outcomes != null) {
+               System.out.printf("    %s\n", outcomes.desc(currTime - phaseStartMsecs));
+           }
+           for (SideOperations ops : sideOps) {
+               System.out.printf("    %s: %s%s\n", ops.type(),
+                       ops.metrics().callCountsDesc(), ops.metrics().rateDesc());
+           }
+           sinceOutput = null;
        }
 
+       // Async agents keep draining in-flight calls after end time: wait for those too,
+       // so that late completions are included in the last interval
        try {
-          final long waitMsecs = endTime - System.currentTimeMillis() + 1000L;
-          endLatch.await(waitMsecs + 10L, TimeUnit.MILLISECONDS);
+          long waitMsecs = endTime - System.currentTimeMillis() + 1000L;
+          if (callExecutor != null) {
+              waitMsecs += TimeUnit.SECONDS.toMillis(AsyncInsertManyAgent.DRAIN_TIMEOUT_SECS);
+          }
+          if (!endLatch.await(waitMsecs + 10L, TimeUnit.MILLISECONDS)) {
+              System.err.printf("WARN: %d agents still running at end of phase '%s'\n",
+                      endLatch.getCount(), phaseName);
+          }
        } catch (InterruptedException e) {
           System.err.printf("ERROR: failed to wait for end of phase '%s': (%s) %s",
                  phaseName, e.getClass().getName(), e.getMessage());
        }
+       exec.shutdown();
+       if (callExecutor != null) {
+           callExecutor.shutdown();
+       }
+       batches.close();
+       metrics.markEnded();
+       for (SideOperations ops : sideOps) {
+           ops.metrics().markEnded();
+       }
+       if (phaseMeters != null) {
+           phaseMeters.close();
+       }
+
+       // Drain the rest of metrics (including in-flight calls completed after end)
+       final IntervalMetrics lastInterval = metrics.takeIntervalSnapshot();
+       if (resultsWriter != null) {
+           resultsWriter.writeInterval(lastInterval);
+       }
+       listener.intervalCompleted(lastInterval);
+       snapshotSideOperations(sideOps);
 
        final long phaseMsecs = System.currentTimeMillis() - phaseStartMsecs;
-       System.out.printf("\nCompleted phase ('%s') with %d agents in %.2f seconds\n -> %s\n",
-               phaseName, agentCount, (phaseMsecs / 1000.0), metrics.allStatsDesc());
+       System.out.printf("\nCompleted phase ('%s') with %d agents in %.2f seconds\n -> %s%s\n",
+               phaseName, agentCount, (phaseMsecs / 1000.0), metrics.allStatsDesc(),
+               pacer.statusDesc());
+       if (!batches.statusDesc().isEmpty()) {
+           System.out.printf(" -> %s\n", batches.statusDesc());
+       }
+       if (controller != null) {
+           System.out.printf(" -> %s\n", controller.desc());
+       }
+       if (annQueries != null) {
+           System.out.printf(" -> %s\n", annQueries.desc());
+       }
+       if (outcomes != null) {
+           System.out.printf(" -> %s\n", outcomes.desc(phaseMsecs));
+       }
+       for (SideOperations ops : sideOps) {
+           final MetricsCollector m = ops.metrics();
+           System.out.printf(" -> %s: %s%s[%s: %d]\n", ops.type(),
+                   m.allStatsDesc(), ops.pacer().statusDesc(), ops.docsDesc(), m.okDocs());
+           if (ops.resultsWriter() != null) {
+               try (PhaseResultsWriter w = ops.resultsWriter()) {
+                   w.writeSummary(m, ops.maxRPS());
+               }
+           }
+       }
+       if (resultsWriter != null) {
+           try (resultsWriter) {
+               final Map<String, Object> extra = searchSummary(annQueries);
+               if (outcomes != null) {
+                   extra.put("documents", outcomes.summary(phaseMsecs));
+               }
+               resultsWriter.writeSummary(metrics, spec.maxRPS(), extra);
+           }
+           System.out.printf(" -> results written in '%s'\n", runConfig.resultsDir());
+       }
+       if (tracer != null) {
+           System.out.printf(" -> %s\n", tracer.breakdownDesc());
+           File traceFile = new File(runConfig.exportResults() ? runConfig.resultsDir() : ".",
+                   PhaseResultsWriter.fileBaseName(runConfig, phaseName) + ".trace.json");
+           tracer.writeChromeTrace(traceFile);
+           System.out.printf(" -> batch traces written in '%s'\n", traceFile);
+       }
+       if (pinningMonitor != null) {
+           pinningMonitor.close();
+           System.out.printf(" -> %s\n", pinningMonitor.desc());
+       }
 
        return metrics;
    }
+
+   /**
+    * Method for regenerating vectors of all items inserted (unless same as for
+    * the previous search phase) and computing exact nearest neighbors of queries.
+    */
+   private AnnQuerySet prepareSearch() throws InterruptedException {
+       final long[] seeds = inserted.loggedSeeds();
+       if (seeds.length == 0) {
+           throw new IllegalStateException("No items inserted (since container truncated) to search");
+       }
+       long start = System.currentTimeMillis();
+       if (knn == null || !Arrays.equals(seeds, knn.seeds())) {
+           // Release previous vectors first, may be big
+           knn = null;
+           System.out.printf(" regenerate %d vectors for exact kNN (%.1f MB off-heap): ",
+                   seeds.length, 4.0 * seeds.length * vectorSize / (1024 * 1024));
+           knn = ExactKnn.build(seeds, vectorSize, SimilarityKernel.create());
+           System.out.printf("%d msec.\n", System.currentTimeMillis() - start);
+           start = System.currentTimeMillis();
+       }
+       System.out.printf(" exact %d-NN of %d queries (%s kernel): ",
+               annOptions.k(), annOptions.queryCount(), knn.kernel().desc());
+       final AnnQuerySet queries = AnnQuerySet.create(knn, annOptions.k(),
+               annOptions.queryCount(), vectorSize);
+       System.out.printf("%d msec.\n", System.currentTimeMillis() - start);
+       return queries;
+   }
+
+   private static Map<String, Object> searchSummary(AnnQuerySet annQueries) {
+       final Map<String, Object> summary = new LinkedHashMap<>();
+       if (annQueries != null) {
+           summary.put("k", annQueries.k());
+           summary.put("queries", annQueries.size());
+           summary.put("recall", annQueries.recall());
+           summary.put("perfectPct", annQueries.perfectPct());
+       }
+       return summary;
+   }
+
+   private Pacer createPacer(int startRPS, int endRPS, long durationMsecs) {
+       return switch (agentOptions.loadModel()) {
+           case CLOSED -> ThrottlingPacer.create(startRPS, endRPS, durationMsecs);
+           case OPEN -> ArrivalSchedule.create(startRPS, endRPS, durationMsecs);
+       };
+   }
+
+   private SideOperations sideOperations(String phaseName, long phaseStartMsecs,
+                                         String type, String docsDesc, int agentCount,
+                                         Pacer pacer, int maxRPS)
+       throws IOException
+   {
+       return new SideOperations(type, docsDesc, MetricsCollector.create(agentCount),
+               pacer, maxRPS,
+               PhaseResultsWriter.create(runConfig, phaseName + " " + type, phaseStartMsecs));
+   }
+
+   private static void snapshotSideOperations(List<SideOperations> sideOps) {
+       for (SideOperations ops : sideOps) {
+           final IntervalMetrics interval = ops.metrics().takeIntervalSnapshot();
+           if (ops.resultsWriter() != null) {
+               ops.resultsWriter().writeInterval(interval);
+           }
+       }
+   }
+
+   /**
+    * Metrics (and results files, if written) and pacing of one type of operations
+    * run by agents alongside insert agents: reads, upserts, deletes.
+    *
+    * @param docsDesc Description of "documents" of operations, for output
+    */
+   private record SideOperations(String type, String docsDesc, MetricsCollector metrics,
+                                 Pacer pacer, int maxRPS, PhaseResultsWriter resultsWriter) { }
 }
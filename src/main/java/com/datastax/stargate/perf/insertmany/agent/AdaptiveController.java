@@ -0,0 +1,237 @@
+package com.datastax.stargate.perf.insertmany.agent;
+
+/**
+ * Feedback controller that adjusts number of active agents and batch size during a
+ * phase, looking for the point after which more load only adds latency (throughput
+ * "knee"). Decisions are made every couple of seconds from metrics of latest intervals:
+ *<ul>
+ * <li>Error rate above threshold: multiplicative decrease of active agents (or batch
+ *   size, if only one agent active)
+ *  </li>
+ * <li>Otherwise Vegas-style estimate of calls queued (server side) from inflation of
+ *   mean latency over the lowest seen, {@code agents * (1 - minLatency / latency)}:
+ *   below alpha additive increase; above beta multiplicative decrease; hold in between
+ *  </li>
+ *</ul>
+ * Phase starts with one active agent, doubling agents ("slow start") until first
+ * decision not to increase. After that, increases alternate between agents and
+ * batch size, and larger batch size is also tried while agents are held. Since latency depends on batch
+ * size, lowest latency is rebased after batch size changes by ratio of latencies
+ * before and after the change; and batch size increase that does not improve document
+ * throughput is reverted, after which batch size is held for a while.
+ *<p>
+ * Decisions are made (and logged) by the thread calling {@link #intervalCompleted};
+ * agents only read current limits.
+ */
+public class AdaptiveController
+{
+    private final static long CONTROL_INTERVAL_MSECS = 2000L;
+
+    /**
+     * Minimum number of calls in control interval to make decision; if fewer,
+     * interval is extended
+     */
+    private final static int MIN_CALLS = 10;
+
+    private final static double MAX_ERROR_PCT = 1.0;
+
+    private final static double ERROR_DECREASE = 0.5;
+
+    private final static double LATENCY_DECREASE = 0.8;
+
+    /**
+     * Minimum relative gain in document throughput for batch size increase to be kept
+     */
+    private final static double MIN_BATCH_GAIN = 1.03;
+
+    private final static int BATCH_HOLD_DECISIONS = 10;
+
+    private final String phaseName;
+    private final long startMsecs;
+
+    private final int maxAgents;
+    private final int agentStep;
+    private final int maxBatchSize;
+    private final int batchStep;
+    private final boolean adaptBatchSize;
+
+    private volatile int activeAgents;
+    private volatile int batchSize;
+
+    // Rest only accessed by thread calling "intervalCompleted()"
+
+    private IntervalMetrics window;
+    private double minLatencyMsecs = Double.MAX_VALUE;
+    // Latency before latest batch size change, to rebase lowest latency; 0 if no change
+    private double rebaseFromMsecs;
+    private boolean slowStart = true;
+    private boolean increaseBatchNext;
+    private int batchHold;
+    private int decisions;
+
+    // Batch size and throughput before latest batch size increase; 0 if not evaluating one
+    private int prevBatchSize;
+    private double prevDocRate;
+
+    private double bestDocRate;
+    private int bestAgents, bestBatchSize;
+
+    private AdaptiveController(String phaseName, int maxAgents, int batchSize,
+                               int maxBatchSize, boolean adaptBatchSize) {
+        this.phaseName = phaseName;
+        this.maxAgents = maxAgents;
+        this.agentStep = Math.max(1, maxAgents / 20);
+        this.adaptBatchSize = adaptBatchSize;
+        this.maxBatchSize = adaptBatchSize ? Math.max(1, maxBatchSize) : batchSize;
+        this.batchStep = Math.max(1, this.maxBatchSize / 10);
+        activeAgents = 1;
+        this.batchSize = Math.min(batchSize, this.maxBatchSize);
+        startMsecs = System.currentTimeMillis();
+    }
+
+    /**
+     * @param maxAgents Number of agents phase has (maximum to activate)
+     * @param batchSize Initial batch size
+     * @param maxBatchSize Maximum batch size
+     * @param adaptBatchSize Whether batch size may be changed (not possible with
+     *    pre-generated batches)
+     */
+    public static AdaptiveController create(String phaseName, int maxAgents, int batchSize,
+                                            int maxBatchSize, boolean adaptBatchSize) {
+        return new AdaptiveController(phaseName, maxAgents, batchSize,
+                maxBatchSize, adaptBatchSize);
+    }
+
+    /**
+     * Method agents call to check whether they should be sending calls; if not,
+     * they should idle.
+     */
+    public boolean admits(int agentId) {
+        return agentId < activeAgents;
+    }
+
+    public int activeAgents() {
+        return activeAgents;
+    }
+
+    public int batchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Method called with every interval snapshot of the phase; makes a decision when
+     * enough time has passed since the previous one.
+     */
+    public void intervalCompleted(IntervalMetrics interval) {
+        window = (window == null) ? interval : window.combine(interval);
+        if ((window.endMsecs() - window.startMsecs()) < CONTROL_INTERVAL_MSECS
+                || (window.okCalls() + window.errorCalls()) < MIN_CALLS) {
+            return;
+        }
+        final IntervalMetrics w = window;
+        window = null;
+        decide(w);
+    }
+
+    private void decide(IntervalMetrics w) {
+        final int oldAgents = activeAgents;
+        final int oldBatchSize = batchSize;
+        final long calls = w.okCalls() + w.errorCalls();
+        final double errorPct = 100.0 * w.errorCalls() / calls;
+        final double latencyMsecs = w.okLatencies().getMean() / 1_000_000.0;
+        // Actual documents: calls of the window may have used different batch sizes
+        final double docRate = w.okDocRate();
+        if (rebaseFromMsecs > 0.0 && latencyMsecs > 0.0) {
+            minLatencyMsecs *= latencyMsecs / rebaseFromMsecs;
+        }
+        rebaseFromMsecs = 0.0;
+        if (batchHold > 0) {
+            --batchHold;
+        }
+        if (docRate > bestDocRate) {
+            bestDocRate = docRate;
+            bestAgents = oldAgents;
+            bestBatchSize = oldBatchSize;
+        }
+
+        // Batch size increased by previous decision? If so, need to evaluate it
+        final int evaluatedBatchSize = prevBatchSize;
+        prevBatchSize = 0;
+
+        String reason;
+        if (evaluatedBatchSize > 0 && docRate < prevDocRate * MIN_BATCH_GAIN) {
+            reason = String.format("batch increase gained only %.1f%%, revert",
+                    (docRate / prevDocRate - 1.0) * 100.0);
+            batchSize = evaluatedBatchSize;
+            batchHold = BATCH_HOLD_DECISIONS;
+        } else if (errorPct > MAX_ERROR_PCT) {
+            reason = "errors, decrease";
+            slowStart = false;
+            decrease(ERROR_DECREASE);
+        } else {
+            minLatencyMsecs = Math.min(minLatencyMsecs, latencyMsecs);
+            final double queued = oldAgents * (1.0 - minLatencyMsecs / latencyMsecs);
+            final double log = Math.log10(Math.max(oldAgents, 2));
+            final double alpha = Math.max(1.0, 3.0 * log);
+            final double beta = Math.max(2.0, 6.0 * log);
+            if (queued < alpha) {
+                reason = String.format("queued %.1f < %.1f, increase", queued, alpha);
+                increase(docRate);
+            } else if (queued > beta) {
+                reason = String.format("queued %.1f > %.1f, decrease", queued, beta);
+                slowStart = false;
+                decrease(LATENCY_DECREASE);
+            } else {
+                slowStart = false;
+                reason = increaseBatchSize(docRate)
+                        ? String.format("queued %.1f, hold agents, try larger batch", queued)
+                        : String.format("queued %.1f, hold", queued);
+            }
+        }
+        if (batchSize != oldBatchSize) {
+            rebaseFromMsecs = latencyMsecs;
+        }
+        ++decisions;
+        System.out.printf("  [adaptive] %s %.1fs: mean %.1f ms (min %.1f), errors %.1f%%, %.1f docs/sec -> agents %d->%d, batch %d->%d (%s)\n",
+                phaseName, (System.currentTimeMillis() - startMsecs) / 1000.0,
+                latencyMsecs, Math.min(minLatencyMsecs, latencyMsecs),
+                errorPct, docRate, oldAgents, activeAgents, oldBatchSize, batchSize, reason);
+    }
+
+    private void increase(double docRate) {
+        final boolean batchTurn = (activeAgents >= maxAgents) || (!slowStart && increaseBatchNext);
+        if (!(batchTurn && increaseBatchSize(docRate)) && activeAgents < maxAgents) {
+            activeAgents = Math.min(maxAgents,
+                    slowStart ? (2 * activeAgents) : (activeAgents + agentStep));
+        }
+        increaseBatchNext = !increaseBatchNext;
+    }
+
+    /**
+     * @return True if batch size was increased (to be evaluated by next decision);
+     *    false if not possible
+     */
+    private boolean increaseBatchSize(double docRate) {
+        if (!adaptBatchSize || batchHold > 0 || batchSize >= maxBatchSize) {
+            return false;
+        }
+        prevBatchSize = batchSize;
+        prevDocRate = docRate;
+        batchSize = Math.min(maxBatchSize, batchSize + batchStep);
+        return true;
+    }
+
+    private void decrease(double factor) {
+        if (activeAgents > 1) {
+            activeAgents = Math.max(1, Math.min(activeAgents - 1, (int) (activeAgents * factor)));
+        } else if (adaptBatchSize && batchSize > 1) {
+            batchSize = Math.max(1, Math.min(batchSize - 1, (int) (batchSize * factor)));
+        }
+    }
+
+    public String desc() {
+        return String.format("[Adaptive: %d decisions, final agents %d/%d, batch %d; best %.1f docs/sec with agents %d, batch %d]",
+                decisions, activeAgents, maxAgents, batchSize,
+                bestDocRate, bestAgents, bestBatchSize);
+    }
+}
@@ -0,0 +1,49 @@
+package com.datastax.stargate.perf.insertmany.agent;
+
+import com.datastax.astra.client.exceptions.DataAPIException;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * Helper methods shared by agents of all operation types.
+ */
+final class AgentUtil
+{
+    /**
+     * Time to sleep between checks when agent has nothing to do (nothing to read
+     * or mutate yet; not active in adaptive mode)
+     */
+    final static long IDLE_MSECS = 20L;
+
+    private AgentUtil() { }
+
+    /**
+     * Method for sleeping a bit when agent has nothing to do: callers check for
+     * end of phase after returning.
+     */
+    static void idle() {
+        try {
+            Thread.sleep(IDLE_MSECS);
+        } catch (InterruptedException e) {
+            // fine, caller checks end of phase
+        }
+    }
+
+    /**
+     * Method for printing a warning for failed call of given agent: with error code
+     * for {@link DataAPIException}s, exception type for others (like CQL driver
+     * exceptions).
+     */
+    static void warnError(Object agent, Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof DataAPIException dataApiEx) {
+            System.err.printf("WARN: exception for %s: (%s) %s\n",
+                    agent, dataApiEx.getErrorCode(), dataApiEx.getMessage());
+        } else {
+            System.err.printf("WARN: exception for %s: (%s) %s\n",
+                    agent, error.getClass().getName(), error.getMessage());
+        }
+    }
+}
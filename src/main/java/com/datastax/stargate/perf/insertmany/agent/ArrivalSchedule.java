@@ -0,0 +1,170 @@
+package com.datastax.stargate.perf.insertmany.agent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link Pacer} for open-loop load model: calls are scheduled to start at fixed
+ * intervals from the start of the phase, independent of how many agents are busy.
+ * Agents claim the next slot of the schedule and latency is measured from the
+ * intended start of that slot, so that delays caused by agents being busy
+ * (i.e. server being slow) are not omitted.
+ *<p>
+ * Rate may also be ramped linearly from start to end rate over the phase: slot
+ * start times are then spaced according to the rate at that point of the phase.
+ */
+public class ArrivalSchedule implements Pacer {
+    /**
+     * Delay beyond which a start is considered late (smaller delays are due to
+     * timer granularity)
+     */
+    private final static long LATE_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    private final long durationNanos;
+
+    /**
+     * Rate at the start of the phase, as arrivals per nanosecond
+     */
+    private final double startRate;
+
+    /**
+     * Half of rate increase per nanosecond (negative for decreasing rate): number of
+     * arrivals by offset {@code t} is {@code startRate * t + rateChange * t * t}
+     */
+    private final double rateChange;
+
+    // Set when schedule is started; visible to agents since they are released
+    // (via latch) after starting
+    private long startNanos;
+
+    private long endNanos;
+
+    /**
+     * Index of the next slot to claim
+     */
+    private final AtomicLong nextSlot = new AtomicLong();
+
+    /**
+     * Number of slots claimed (clearly) after their intended start time
+     */
+    private final AtomicLong lateStarts = new AtomicLong();
+
+    /**
+     * Maximum delay between intended and actual start of a slot
+     */
+    private final AtomicLong maxLagNanos = new AtomicLong();
+
+    private ArrivalSchedule(long durationNanos, double startRate, double endRate) {
+        this.durationNanos = durationNanos;
+        this.startRate = startRate;
+        rateChange = (endRate - startRate) / (2.0 * Math.max(1L, durationNanos));
+        start();
+    }
+
+    public static ArrivalSchedule create(int ratePerSecond, long durationMsecs) {
+        return create(ratePerSecond, ratePerSecond, durationMsecs);
+    }
+
+    /**
+     * Factory method for schedule with rate ramping linearly from
+     * {@code startRatePerSecond} to {@code endRatePerSecond} over given duration.
+     */
+    public static ArrivalSchedule create(int startRatePerSecond, int endRatePerSecond,
+                                         long durationMsecs) {
+        final double nanosPerSec = TimeUnit.SECONDS.toNanos(1);
+        return new ArrivalSchedule(TimeUnit.MILLISECONDS.toNanos(durationMsecs),
+                Math.max(1, startRatePerSecond) / nanosPerSec,
+                Math.max(1, endRatePerSecond) / nanosPerSec);
+    }
+
+    @Override
+    public void start() {
+        startNanos = System.nanoTime();
+        endNanos = startNanos + durationNanos;
+    }
+
+    @Override
+    public long awaitTurn() {
+        final long offset = slotOffsetNanos(nextSlot.getAndIncrement());
+        // Past end of the phase? Just wait for the phase to end
+        if (offset >= durationNanos) {
+            parkUntil(endNanos);
+            return NOT_READY;
+        }
+        final long intended = startNanos + offset;
+        long now = parkUntil(intended);
+        final long lag = now - intended;
+        if (lag > 0L) {
+            maxLagNanos.accumulateAndGet(lag, Math::max);
+            if (lag > LATE_THRESHOLD_NANOS) {
+                lateStarts.incrementAndGet();
+            }
+        }
+        return intended;
+    }
+
+    /**
+     * Offset from the start of the phase at which slot with given index is to
+     * start; {@code Long.MAX_VALUE} if never (rate decreasing to 0).
+     */
+    private long slotOffsetNanos(long slot) {
+        if (slot == 0L) {
+            return 0L;
+        }
+        // Solution of "startRate * t + rateChange * t^2 = slot", in numerically
+        // stable form (also works for constant rate)
+        final double disc = startRate * startRate + 4.0 * rateChange * slot;
+        if (disc < 0.0) {
+            return Long.MAX_VALUE;
+        }
+        final double t = 2.0 * slot / (startRate + Math.sqrt(disc));
+        return (t >= Long.MAX_VALUE) ? Long.MAX_VALUE : (long) t;
+    }
+
+    private static long parkUntil(long targetNanos) {
+        long now;
+        while ((now = System.nanoTime()) < targetNanos) {
+            LockSupport.parkNanos(targetNanos - now);
+        }
+        return now;
+    }
+
+    /**
+     * @return How far behind schedule we are now: that is, how long ago should
+     *    the next unclaimed slot have been started (0 if not behind)
+     */
+    public long currentLagNanos() {
+        final long offset = slotOffsetNanos(nextSlot.get());
+        if (offset == Long.MAX_VALUE) {
+            return 0L;
+        }
+        final long nextIntended = startNanos + offset;
+        final long now = Math.min(System.nanoTime(), endNanos);
+        return Math.max(0L, now - nextIntended);
+    }
+
+    /**
+     * @return Number of slots that should have been started by now
+     */
+    public long slotsDue() {
+        final long now = Math.min(System.nanoTime(), endNanos);
+        final double t = Math.max(0L, now - startNanos);
+        return (long) (startRate * t + rateChange * t * t) + 1;
+    }
+
+    /**
+     * @return Number of slots that have been started by now
+     */
+    public long slotsStarted() {
+        return Math.min(nextSlot.get(), slotsDue());
+    }
+
+    @Override
+    public String statusDesc() {
+        return String.format("[Schedule: started %d/%d, behind %.1f ms (max lag %.1f ms, late: %d)]",
+                slotsStarted(), slotsDue(),
+                currentLagNanos() / 1_000_000.0, maxLagNanos.get() / 1_000_000.0,
+                lateStarts.get());
+    }
+}
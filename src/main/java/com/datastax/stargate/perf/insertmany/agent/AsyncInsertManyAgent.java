@@ -0,0 +1,137 @@
+package com.datastax.stargate.perf.insertmany.agent;
+
+import com.datastax.stargate.perf.insertmany.entity.BatchSource;
+import com.datastax.stargate.perf.insertmany.entity.ItemContainer;
+import com.datastax.stargate.perf.insertmany.trace.BatchTrace;
+import com.datastax.stargate.perf.insertmany.trace.BatchTracer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Variant of {@link InsertManyAgent} that uses asynchronous inserts, keeping up to
+ * configured number of calls in flight at any given time; completions are
+ * reported to {@link MetricsCollector} from completion callbacks. Blocking calls
+ * (Data API) are run on given executor, which needs to be sized for calls in
+ * flight of all agents, so calls do not queue.
+ */
+public class AsyncInsertManyAgent extends InsertManyAgent
+{
+    /**
+     * Maximum time to wait for in-flight calls to complete at the end of a phase:
+     * phase runner waits (at least) this long for agents to complete
+     */
+    public final static long DRAIN_TIMEOUT_SECS = 10L;
+
+    private final int maxInFlight;
+
+    private final Executor callExecutor;
+
+    public AsyncInsertManyAgent(int id, ItemContainer items, BatchSource batches,
+                                BatchTracer tracer, AdaptiveController controller,
+                                DocumentOutcomes outcomes, int maxInFlight,
+                                Executor callExecutor) {
+        super(id, items, batches, tracer, controller, outcomes);
+        this.maxInFlight = maxInFlight;
+        this.callExecutor = callExecutor;
+    }
+
+    @Override
+    public void runPhase(final String phaseName, final long endTime,
+                         Pacer pacer, MetricsCollector metrics)
+    {
+        final Semaphore inFlight = new Semaphore(maxInFlight);
+        Batch batch = null;
+        BatchTrace trace = null;
+        while ((System.currentTimeMillis()) < endTime) {
+            if (!active()) {
+                continue;
+            }
+            if (batch == null) {
+                trace = startTrace();
+                batch = nextBatch();
+                if (trace != null) {
+                    trace.mark(BatchTrace.STAGE_GENERATE);
+                }
+            }
+            // Nothing to send (no items generated)
+            if (batch.items().isEmpty()) {
+                batch = null;
+                continue;
+            }
+            // Window full? Wait a bit for a call to complete, then re-check end of phase
+            if (!tryAcquire(inFlight, 1, 10L)) {
+                continue;
+            }
+            final long startTime = pacer.awaitTurn();
+            if (startTime == Pacer.NOT_READY) {
+                inFlight.release();
+                continue;
+            }
+            final CompletableFuture<Boolean> result;
+            final BatchTrace callTrace = trace;
+            final Batch callBatch = batch;
+            batchStarted(callBatch);
+            metrics.callStarted();
+            try {
+                if (callTrace == null) {
+                    result = items.insertItemsAsync(callBatch.items(), callExecutor);
+                } else {
+                    callTrace.mark(BatchTrace.STAGE_QUEUE);
+                    result = items.insertItemsAsync(callBatch.items(), callTrace, callExecutor);
+                }
+            } catch (RuntimeException ex) {
+                inFlight.release();
+                if (callTrace != null) {
+                    tracer.discard(callTrace);
+                }
+                batchFailed(callBatch, ex);
+                reportError(metrics, startTime, ex);
+                continue;
+            } finally {
+                batch = null;
+                trace = null;
+            }
+            result.whenComplete((ok, error) -> {
+                inFlight.release();
+                if (error == null) {
+                    if (callTrace != null) {
+                        tracer.complete(callTrace);
+                    }
+                    metrics.reportOkCall(this, System.nanoTime() - startTime,
+                            callBatch.items().size());
+                    batchCompleted(callBatch, ok);
+                    if (!ok) {
+                        System.err.printf("WARN: insertItemsAsync returned `false` for %s\n", this);
+                    }
+                } else {
+                    if (callTrace != null) {
+                        tracer.discard(callTrace);
+                    }
+                    batchFailed(callBatch, error);
+                    reportError(metrics, startTime, error);
+                }
+            });
+        }
+        // Wait for in-flight calls to complete so they are included in metrics
+        if (!tryAcquire(inFlight, maxInFlight, TimeUnit.SECONDS.toMillis(DRAIN_TIMEOUT_SECS))) {
+            System.err.printf("WARN: %s had %d calls still in flight at end of phase '%s'\n",
+                    this, maxInFlight - inFlight.availablePermits(), phaseName);
+        }
+    }
+
+    private static boolean tryAcquire(Semaphore inFlight, int permits, long timeoutMsecs) {
+        try {
+            return inFlight.tryAcquire(permits, timeoutMsecs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "[AsyncAgent #"+id+"]";
+    }
+}
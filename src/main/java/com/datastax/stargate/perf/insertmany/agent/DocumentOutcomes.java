@@ -0,0 +1,191 @@
+package com.datastax.stargate.perf.insertmany.agent;
+
+import com.datastax.stargate.perf.insertmany.entity.ContainerItem;
+import com.datastax.stargate.perf.insertmany.entity.DuplicateIdInjector;
+import com.datastax.stargate.perf.insertmany.entity.InsertOutcome;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-document accounting of inserts of a test phase with duplicate-key conflicts
+ * injected (by {@link DuplicateIdInjector}): documents inserted, failed (by error
+ * code) and skipped, and resubmissions of documents not inserted, if enabled.
+ * Shared by all insert agents of the phase.
+ */
+public class DocumentOutcomes
+{
+    /**
+     * Maximum number of times documents are resubmitted after failures where no
+     * documents were inserted (or found to be duplicates)
+     */
+    private final static int MAX_FRUITLESS_RESUBMITS = 3;
+
+    private final DuplicateIdInjector duplicates;
+
+    private final boolean resubmitFailed;
+
+    private final LongAdder injected = new LongAdder();
+    private final LongAdder inserted = new LongAdder();
+    private final LongAdder overwritten = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder resubmitCalls = new LongAdder();
+    private final LongAdder resubmittedDocs = new LongAdder();
+    private final Map<String, LongAdder> failedByCode = new ConcurrentHashMap<>();
+
+    private DocumentOutcomes(DuplicateIdInjector duplicates, boolean resubmitFailed) {
+        this.duplicates = duplicates;
+        this.resubmitFailed = resubmitFailed;
+    }
+
+    public static DocumentOutcomes create(DuplicateIdInjector duplicates, boolean resubmitFailed) {
+        return new DocumentOutcomes(duplicates, resubmitFailed);
+    }
+
+    /**
+     * Method called by agents for newly generated batches, to replace some of
+     * items with duplicates.
+     *
+     * @return Ids of duplicate items of the batch
+     */
+    public Set<String> injectDuplicates(List<ContainerItem> batch) {
+        final Set<String> ids = duplicates.inject(batch);
+        injected.add(ids.size());
+        return ids;
+    }
+
+    /**
+     * Method called by agents right before sending a batch being resubmitted.
+     */
+    public void resubmitting(Resubmission resubmission) {
+        resubmitCalls.increment();
+        resubmittedDocs.add(resubmission.items().size());
+    }
+
+    /**
+     * Method called by agents for successful calls (all documents reported inserted).
+     */
+    public void recordInserted(List<ContainerItem> batch, Set<String> duplicateIds) {
+        inserted.add(batch.size());
+        // Tables (and CQL) overwrite rows with same key instead of failing
+        if (!duplicateIds.isEmpty()) {
+            for (ContainerItem item : batch) {
+                if (duplicateIds.contains(item.idAsString)) {
+                    overwritten.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Method called by agents for calls that completed without error, but did not
+     * report all documents as inserted.
+     */
+    public void recordNotConfirmed(List<ContainerItem> batch) {
+        record(InsertOutcome.notConfirmed(batch));
+    }
+
+    /**
+     * Method called by agents for failed calls, to record outcomes of documents
+     * of the batch.
+     *
+     * @param previous Resubmission the batch was, if it was one; null if not
+     *
+     * @return Documents to resubmit, if any (and resubmission enabled); null if none
+     */
+    public Resubmission recordFailed(List<ContainerItem> batch, Set<String> duplicateIds,
+                                     boolean ordered, Throwable error, Resubmission previous) {
+        final InsertOutcome outcome = InsertOutcome.failed(batch, ordered, error);
+        record(outcome);
+        duplicates.recordInserted(outcome.inserted());
+        if (!resubmitFailed) {
+            return null;
+        }
+        final List<ContainerItem> items = outcome.toResubmit();
+        if (items.isEmpty()) {
+            return null;
+        }
+        // Only limit resubmits that do not make progress
+        int fruitless = (previous == null) ? 0 : previous.fruitlessAttempts();
+        if (!outcome.resolvedAny() && ++fruitless > MAX_FRUITLESS_RESUBMITS) {
+            return null;
+        }
+        return new Resubmission(items, duplicateIds, fruitless);
+    }
+
+    private void record(InsertOutcome outcome) {
+        inserted.add(outcome.inserted().size());
+        skipped.add(outcome.skipped().size());
+        outcome.failed().forEach((code, items) ->
+                failedByCode.computeIfAbsent(code, c -> new LongAdder()).add(items.size()));
+    }
+
+    public boolean isDuplicateKeyFailure(Throwable error) {
+        return InsertOutcome.DUPLICATE_KEY_ERROR.equals(InsertOutcome.errorCode(error));
+    }
+
+    public long insertedDocs() {
+        return inserted.sum();
+    }
+
+    public long failedDocs() {
+        return failedByCode.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    public String desc(long phaseMsecs) {
+        final long insertedDocs = insertedDocs();
+        StringBuilder sb = new StringBuilder(120)
+                .append(String.format("[Docs inserted: %d (%.1f/sec)", insertedDocs,
+                        insertedDocs * 1000.0 / Math.max(1L, phaseMsecs)))
+                .append(", failed: ").append(failedDocs());
+        if (!failedByCode.isEmpty()) {
+            sb.append(' ').append(failedByCode());
+        }
+        sb.append(", skipped: ").append(skipped.sum())
+                .append(", duplicates injected: ").append(injected.sum())
+                .append(" (overwritten: ").append(overwritten.sum()).append(')');
+        if (resubmitFailed) {
+            sb.append(", resubmitted: ").append(resubmittedDocs.sum())
+                    .append(" in ").append(resubmitCalls.sum()).append(" calls");
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Method for getting counts for results summary.
+     */
+    public Map<String, Object> summary(long phaseMsecs) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("duplicateFraction", duplicates.fraction());
+        summary.put("insertedDocs", insertedDocs());
+        summary.put("insertedDocsPerSec", insertedDocs() * 1000.0 / Math.max(1L, phaseMsecs));
+        summary.put("failedDocs", failedByCode());
+        summary.put("skippedDocs", skipped.sum());
+        summary.put("injectedDuplicates", injected.sum());
+        summary.put("overwrittenDuplicates", overwritten.sum());
+        summary.put("resubmittedDocs", resubmittedDocs.sum());
+        summary.put("resubmitCalls", resubmitCalls.sum());
+        return summary;
+    }
+
+    private Map<String, Long> failedByCode() {
+        Map<String, Long> result = new TreeMap<>();
+        failedByCode.forEach((code, count) -> result.put(code, count.sum()));
+        return result;
+    }
+
+    /**
+     * Documents of a failed batch to resubmit.
+     *
+     * @param duplicateIds Ids of items known to already exist (some of which may
+     *    be included)
+     * @param fruitlessAttempts Number of resubmits so far that inserted nothing
+     */
+    public record Resubmission(List<ContainerItem> items, Set<String> duplicateIds,
+                               int fruitlessAttempts) { }
+}
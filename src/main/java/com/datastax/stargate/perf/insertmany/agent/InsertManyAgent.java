@@ -1,12 +1,15 @@
 package com.datastax.stargate.perf.insertmany.agent;
 
-import com.datastax.astra.client.exceptions.DataAPIException;
+import com.datastax.stargate.perf.insertmany.entity.BatchSource;
 import com.datastax.stargate.perf.insertmany.entity.ContainerItem;
-import com.datastax.stargate.perf.insertmany.entity.ContainerItemGenerator;
 import com.datastax.stargate.perf.insertmany.entity.ItemContainer;
-import io.github.bucket4j.Bucket;
+import com.datastax.stargate.perf.insertmany.trace.BatchTrace;
+import com.datastax.stargate.perf.insertmany.trace.BatchTracer;
 
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Object that represents a single concurrent agent that will insert data into the database;
@@ -16,56 +19,162 @@ public class InsertManyAgent
 {
     public final int id;
 
-    private final ItemContainer items;
+    protected final ItemContainer items;
 
-    private final ContainerItemGenerator itemGenerator;
+    protected final BatchSource batches;
 
-    private final int batchSize;
+    // Tracer for sampled batches, if tracing enabled; null if not
+    protected final BatchTracer tracer;
 
-    public InsertManyAgent(int id, ItemContainer items, ContainerItemGenerator itemGenerator,
-                           int batchSize) {
+    // Controller of active agents, in adaptive mode; null if not
+    protected final AdaptiveController controller;
+
+    // Accounting of documents, if duplicate-key conflicts injected; null if not
+    protected final DocumentOutcomes outcomes;
+
+    // Documents of failed calls to send again before new batches
+    protected final Queue<DocumentOutcomes.Resubmission> resubmissions = new ConcurrentLinkedQueue<>();
+
+    public InsertManyAgent(int id, ItemContainer items, BatchSource batches,
+                           BatchTracer tracer, AdaptiveController controller,
+                           DocumentOutcomes outcomes) {
         this.id = id;
         this.items = items;
-        this.itemGenerator = itemGenerator;
-        this.batchSize = batchSize;
+        this.batches = batches;
+        this.tracer = tracer;
+        this.controller = controller;
+        this.outcomes = outcomes;
     }
 
     public void runPhase(final String phaseName, final long endTime,
-                         Bucket rateLimiter, MetricsCollector metrics)
+                         Pacer pacer, MetricsCollector metrics)
     {
+        Batch batch = null;
+        BatchTrace trace = null;
         while ((System.currentTimeMillis()) < endTime) {
-            // First: check throttling of the current phase
-            if (!rateLimiter.tryConsume(1)) {
-                // Throttled, wait a bit, retry
-                waitMsecs(10L);
+            if (!active()) {
+                continue;
+            }
+            // Generate batch first, so it is ready to send as soon as pacer allows
+            if (batch == null) {
+                trace = startTrace();
+                batch = nextBatch();
+                if (trace != null) {
+                    trace.mark(BatchTrace.STAGE_GENERATE);
+                }
+            }
+            // Then check pacing of the current phase: may need to wait, retry
+            final long startTime = pacer.awaitTurn();
+            if (startTime == Pacer.NOT_READY) {
                 continue;
             }
-            List<ContainerItem> batch = itemGenerator.generate(batchSize);
-            final long startTime = System.currentTimeMillis();
+            batchStarted(batch);
+            metrics.callStarted();
             try {
-                boolean ok = items.insertItems(batch);
-                metrics.reportOkCall(this, System.currentTimeMillis() - startTime);
+                final boolean ok;
+                if (trace == null) {
+                    ok = items.insertItems(batch.items());
+                } else {
+                    trace.mark(BatchTrace.STAGE_QUEUE);
+                    ok = items.insertItems(batch.items(), trace);
+                    tracer.complete(trace);
+                }
+                metrics.reportOkCall(this, System.nanoTime() - startTime, batch.items().size());
+                batchCompleted(batch, ok);
                 if (!ok) {
                     System.err.printf("WARN: insertItems returned `false` for %s\n", this);
 
                 }
-            } catch (DataAPIException ex) {
-                metrics.reportErrorCall(this, System.currentTimeMillis() - startTime);
-                System.err.printf("WARN: exception for %s: (%s) %s\n",
-                        this, ex.getErrorCode(), ex.getMessage());
+            } catch (RuntimeException ex) { // DataAPIException, or CQL driver exception
+                if (trace != null) {
+                    tracer.discard(trace);
+                }
+                batchFailed(batch, ex);
+                reportError(metrics, startTime, ex);
             }
+            batch = null;
+        }
+    }
+
+    /**
+     * Method for getting the next batch to send: documents to resubmit, if any; if not,
+     * a new batch (with duplicates injected, if enabled).
+     */
+    protected Batch nextBatch() {
+        final DocumentOutcomes.Resubmission resubmission = resubmissions.poll();
+        if (resubmission != null) {
+            return new Batch(resubmission.items(), resubmission.duplicateIds(), resubmission);
         }
+        final List<ContainerItem> items = batches.nextBatch();
+        return new Batch(items,
+                (outcomes == null) ? Set.of() : outcomes.injectDuplicates(items), null);
     }
 
-    private void waitMsecs(long msecs) {
-        try {
-            Thread.sleep(msecs);
-        } catch (InterruptedException e) {
+    protected void batchStarted(Batch batch) {
+        if (batch.resubmission() != null) {
+            outcomes.resubmitting(batch.resubmission());
         }
     }
 
+    /**
+     * @param ok Whether all documents were reported as inserted
+     */
+    protected void batchCompleted(Batch batch, boolean ok) {
+        if (outcomes != null) {
+            if (ok) {
+                outcomes.recordInserted(batch.items(), batch.duplicateIds());
+            } else {
+                outcomes.recordNotConfirmed(batch.items());
+            }
+        }
+    }
+
+    protected void batchFailed(Batch batch, Throwable error) {
+        if (outcomes != null) {
+            DocumentOutcomes.Resubmission resubmission = outcomes.recordFailed(batch.items(),
+                    batch.duplicateIds(), items.orderedInserts(), error, batch.resubmission());
+            if (resubmission != null) {
+                resubmissions.add(resubmission);
+            }
+        }
+    }
+
+    /**
+     * Method for checking whether agent should be sending calls: if not (in adaptive mode),
+     * idles a bit before returning.
+     */
+    protected boolean active() {
+        if (controller == null || controller.admits(id)) {
+            return true;
+        }
+        AgentUtil.idle();
+        return false;
+    }
+
+    protected BatchTrace startTrace() {
+        return (tracer == null) ? null : tracer.sample(id);
+    }
+
+    protected void reportError(MetricsCollector metrics, long startTime, Throwable error) {
+        metrics.reportErrorCall(this, System.nanoTime() - startTime);
+        // Failures caused by injected duplicates are expected: only counted
+        if (outcomes != null && outcomes.isDuplicateKeyFailure(error)) {
+            return;
+        }
+        AgentUtil.warnError(this, error);
+    }
+
     @Override
     public String toString() {
         return "[Agent #"+id+"]";
     }
+
+    /**
+     * Batch of items to insert.
+     *
+     * @param duplicateIds Ids of items known to already exist
+     * @param resubmission Resubmission batch is for, if any; null for new batches
+     */
+    protected record Batch(List<ContainerItem> items, Set<String> duplicateIds,
+                           DocumentOutcomes.Resubmission resubmission) { }
 }
@@ -0,0 +1,55 @@
+package com.datastax.stargate.perf.insertmany.agent;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Immutable snapshot of latencies (in nanoseconds) recorded during one interval
+ * of a test phase, separately for successful and failed calls.
+ *
+ * @param okDocs Number of documents inserted (or read) by successful calls of the interval
+ */
+public record IntervalMetrics(long startMsecs, long endMsecs,
+                              Histogram okLatencies, Histogram errorLatencies,
+                              long okDocs)
+{
+    public long okCalls() {
+        return okLatencies.getTotalCount();
+    }
+
+    public long errorCalls() {
+        return errorLatencies.getTotalCount();
+    }
+
+    public double durationSecs() {
+        return Math.max(1L, endMsecs - startMsecs) / 1000.0;
+    }
+
+    public double callRate() {
+        return (okCalls() + errorCalls()) / durationSecs();
+    }
+
+    /**
+     * Rate of documents of successful calls: failed calls do not count.
+     */
+    public double okDocRate() {
+        return okDocs / durationSecs();
+    }
+
+    /**
+     * Method for combining this interval with the one immediately following it.
+     */
+    public IntervalMetrics combine(IntervalMetrics next) {
+        Histogram ok = okLatencies.copy();
+        ok.add(next.okLatencies);
+        Histogram error = errorLatencies.copy();
+        error.add(next.errorLatencies);
+        return new IntervalMetrics(startMsecs, next.endMsecs, ok, error, okDocs + next.okDocs);
+    }
+
+    public String desc() {
+        return String.format("[Last %.1f secs: OK %d, Error %d; %s ms; %.1f calls (%.1f docs)/sec]",
+                durationSecs(), okCalls(), errorCalls(),
+                MetricsCollector.percentilesDesc(okLatencies),
+                callRate(), okDocRate());
+    }
+}
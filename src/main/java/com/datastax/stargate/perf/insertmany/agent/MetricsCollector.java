@@ -1,73 +1,317 @@
 package com.datastax.stargate.perf.insertmany.agent;
 
-import io.micrometer.core.instrument.Timer;
-import io.micrometer.core.instrument.distribution.HistogramSnapshot;
-import io.micrometer.core.instrument.distribution.ValueAtPercentile;
-import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.datastax.stargate.perf.metrics.PhaseMeters;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
 
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Collector of call counts and latencies for a test phase. Each agent records into
+ * its own {@link Recorder} (wait-free, no contention between agents) at nanosecond
+ * resolution; recorders are merged when taking interval snapshots, and intervals
+ * accumulated into totals for the whole phase.
+ *<p>
+ * Since recorders are relatively big and merging them is not free, number of recorders
+ * is capped at a multiple of available CPUs (at least 16): with more agents than that
+ * (as with virtual thread agents) agents share recorders by agent id, modulo recorder
+ * count. This is safe because {@link Recorder} supports concurrent writers;
+ * sharing only adds some contention between agents using the same recorder.
+ *<p>
+ * If live metrics are enabled, calls are also recorded into {@link PhaseMeters}.
+ *<p>
+ * Collector may also be fed whole intervals recorded elsewhere (by distributed
+ * workers): these are merged in with the next snapshot.
+ */
 public class MetricsCollector {
+    /**
+     * Percentiles to include in latency descriptions
+     */
+    private final static double[] PERCENTILES = { 50.0, 90.0, 95.0, 99.0, 99.9, 99.99 };
+
+    private final static int SIGNIFICANT_DIGITS = 3;
+
+    private final static int MAX_RECORDERS = Math.max(16,
+            4 * Runtime.getRuntime().availableProcessors());
+
     private final long startTime;
 
-    private final int batchSize;
+    private volatile long endTime;
+
+    private final LongAdder okCalls = new LongAdder();
+    private final LongAdder okDocs = new LongAdder();
+    private final LongAdder errorCalls = new LongAdder();
+    private final LongAdder inFlight = new LongAdder();
+
+    private final Recorder[] okRecorders;
+    private final Recorder[] errorRecorders;
+
+    // Interval histograms to recycle when draining recorders; only accessed
+    // while holding lock on "this"
+    private final Histogram[] okSpares;
+    private final Histogram[] errorSpares;
 
-    private final AtomicInteger okCalls = new AtomicInteger();
-    private final AtomicInteger errorCalls = new AtomicInteger();
+    // Latencies of intervals recorded elsewhere, not yet included in a snapshot;
+    // only accessed while holding lock on "this"
+    private final Histogram okPending = new Histogram(SIGNIFICANT_DIGITS);
+    private final Histogram errorPending = new Histogram(SIGNIFICANT_DIGITS);
 
-    private final Timer okCallTimer;
+    private final Histogram okTotal = new Histogram(SIGNIFICANT_DIGITS);
+    private final Histogram errorTotal = new Histogram(SIGNIFICANT_DIGITS);
 
-    private MetricsCollector(SimpleMeterRegistry registry, int batchSize) {
-        this.batchSize = batchSize;
-        okCallTimer = Timer.builder("okCallTimer")
-                .publishPercentiles(0.5, 0.95)
-                .register(registry);
+    private long lastSnapshotTime;
+
+    // Documents of successful calls at the time of the previous snapshot; only
+    // accessed while holding lock on "this"
+    private long lastSnapshotDocs;
+
+    private volatile double lastIntervalRate;
+
+    // Live metrics for the phase, if enabled; null if not
+    private final PhaseMeters meters;
+
+    private MetricsCollector(int agentCount, PhaseMeters meters) {
+        this.meters = meters;
+        final int recorderCount = Math.max(1, Math.min(agentCount, MAX_RECORDERS));
+        okRecorders = new Recorder[recorderCount];
+        errorRecorders = new Recorder[recorderCount];
+        for (int i = 0; i < recorderCount; ++i) {
+            okRecorders[i] = new Recorder(SIGNIFICANT_DIGITS);
+            errorRecorders[i] = new Recorder(SIGNIFICANT_DIGITS);
+        }
+        okSpares = new Histogram[recorderCount];
+        errorSpares = new Histogram[recorderCount];
         startTime = System.currentTimeMillis();
+        lastSnapshotTime = startTime;
+    }
+
+    public static MetricsCollector create(int agentCount) {
+        return new MetricsCollector(agentCount, null);
     }
 
-    public static MetricsCollector create(int batchSize) {
-        SimpleMeterRegistry registry = new SimpleMeterRegistry();
-        return new MetricsCollector(registry, batchSize);
+    public static MetricsCollector create(int agentCount, PhaseMeters meters) {
+        return new MetricsCollector(agentCount, meters);
     }
 
-    public int okCalls() {
-        return okCalls.get();
+    public long okCalls() {
+        return okCalls.sum();
     }
-    public int errorCalls() {
-        return errorCalls.get();
+    public long errorCalls() {
+        return errorCalls.sum();
     }
 
-    public int totalCalls() {
+    /**
+     * Number of documents inserted by successful calls.
+     */
+    public long okDocs() {
+        return okDocs.sum();
+    }
+
+    public long totalCalls() {
         return okCalls() + errorCalls();
     }
 
+    /**
+     * Number of calls started (see {@link #callStarted}) but not yet reported as
+     * completed.
+     */
+    public long inFlight() {
+        return inFlight.sum();
+    }
+
+    /**
+     * Call rate over the latest interval snapshot taken.
+     */
+    public double lastIntervalRate() {
+        return lastIntervalRate;
+    }
+
+    /**
+     * Method for draining latencies recorded since the previous call (or start of
+     * the phase) by all agents, returning them as a snapshot, and adding them to
+     * totals for the phase.
+     */
+    public synchronized IntervalMetrics takeIntervalSnapshot() {
+        final long now = System.currentTimeMillis();
+        Histogram okInterval = new Histogram(SIGNIFICANT_DIGITS);
+        Histogram errorInterval = new Histogram(SIGNIFICANT_DIGITS);
+        for (int i = 0; i < okRecorders.length; ++i) {
+            okSpares[i] = okRecorders[i].getIntervalHistogram(okSpares[i]);
+            okInterval.add(okSpares[i]);
+            errorSpares[i] = errorRecorders[i].getIntervalHistogram(errorSpares[i]);
+            errorInterval.add(errorSpares[i]);
+        }
+        okInterval.add(okPending);
+        okPending.reset();
+        errorInterval.add(errorPending);
+        errorPending.reset();
+        okTotal.add(okInterval);
+        errorTotal.add(errorInterval);
+        final long docs = okDocs();
+        IntervalMetrics result = new IntervalMetrics(lastSnapshotTime, now,
+                okInterval, errorInterval, docs - lastSnapshotDocs);
+        lastSnapshotTime = now;
+        lastSnapshotDocs = docs;
+        lastIntervalRate = result.callRate();
+        return result;
+    }
+
+    /**
+     * Accessor for a copy of latencies of successful calls over the whole phase;
+     * only includes latencies up to the latest snapshot.
+     */
+    public synchronized Histogram okLatencies() {
+        return okTotal.copy();
+    }
+
+    /**
+     * Accessor for a copy of latencies of failed calls over the whole phase;
+     * only includes latencies up to the latest snapshot.
+     */
+    public synchronized Histogram errorLatencies() {
+        return errorTotal.copy();
+    }
+
     public String callCountsDesc() {
-        HistogramSnapshot okSnapshot = okCallTimer.takeSnapshot();
-        ValueAtPercentile[] pvalues = okSnapshot.percentileValues();
-        pvalues[0].toString();
-        return String.format("[Counts OK: %d (p50/p95: %.1f/%.1f ms) Error: %d]",
-                okCalls(),
-                pvalues[0].value(TimeUnit.MILLISECONDS), pvalues[1].value(TimeUnit.MILLISECONDS),
-                errorCalls());
+        final Histogram okLatencies = okLatencies();
+        final Histogram errorLatencies = errorLatencies();
+        if (errorLatencies.getTotalCount() == 0L) {
+            return String.format("[Counts OK: %d (%s ms) Error: %d]",
+                    okCalls(), percentilesDesc(okLatencies), errorCalls());
+        }
+        return String.format("[Counts OK: %d (%s ms) Error: %d (%s ms)]",
+                okCalls(), percentilesDesc(okLatencies),
+                errorCalls(), percentilesDesc(errorLatencies));
+    }
+
+    public long startTime() {
+        return startTime;
+    }
+
+    /**
+     * Call rate over the whole phase: until end of phase if marked ended, or
+     * until now if not.
+     */
+    public double callRate() {
+        return totalCalls() * 1000.0 / durationMsecs();
+    }
+
+    /**
+     * Rate of documents of successful calls over the whole phase (same duration
+     * as {@link #callRate}): failed calls do not count.
+     */
+    public double okDocRate() {
+        return okDocs() * 1000.0 / durationMsecs();
+    }
+
+    private long durationMsecs() {
+        final long end = (endTime > 0L) ? endTime : System.currentTimeMillis();
+        return Math.max(1L, end - startTime);
+    }
+
+    /**
+     * Method called at the end of the phase, to freeze the phase duration used
+     * for calculating rates.
+     */
+    public void markEnded() {
+        if (endTime == 0L) {
+            endTime = System.currentTimeMillis();
+        }
     }
 
     public String rateDesc() {
-        double callRate = totalCalls() * 1000.0 / (System.currentTimeMillis() - startTime);
         return String.format("[Rate: %.1f calls (%.1f docs)/sec]",
-                callRate, callRate * batchSize);
+                callRate(), okDocRate());
     }
 
+    /**
+     * Description of totals for the phase so far: latencies are only included up to
+     * the latest snapshot, so callers take the last snapshot (and write it out) first.
+     */
     public String allStatsDesc() {
         return callCountsDesc() + rateDesc();
     }
 
-    public void reportOkCall(InsertManyAgent agent, long timeMsecs) {
-        okCalls.incrementAndGet();
-        okCallTimer.record(timeMsecs, TimeUnit.MILLISECONDS);
+    /**
+     * Method called by agents right before sending a call, to keep track of calls
+     * in flight; completion is reported using {@link #reportOkCall} or
+     * {@link #reportErrorCall}.
+     */
+    public void callStarted() {
+        inFlight.increment();
+    }
+
+    public void reportOkCall(InsertManyAgent agent, long timeNanos, int docs) {
+        reportOkCall(agent.id, timeNanos, docs);
+    }
+
+    /**
+     * Method for reporting successful call by agent with given id; agents other
+     * than {@link InsertManyAgent}s (like {@link ReadAgent}s) report calls this way.
+     *
+     * @param docs Number of documents inserted (or read) by the call
+     */
+    public void reportOkCall(int agentId, long timeNanos, int docs) {
+        inFlight.decrement();
+        okCalls.increment();
+        okDocs.add(docs);
+        okRecorders[agentId % okRecorders.length].recordValue(timeNanos);
+        if (meters != null) {
+            meters.recordOk(timeNanos, docs);
+        }
+    }
+
+    public void reportErrorCall(InsertManyAgent agent, long timeNanos) {
+        reportErrorCall(agent.id, timeNanos);
+    }
+
+    public void reportErrorCall(int agentId, long timeNanos) {
+        inFlight.decrement();
+        errorCalls.increment();
+        errorRecorders[agentId % errorRecorders.length].recordValue(timeNanos);
+        if (meters != null) {
+            meters.recordError(timeNanos);
+        }
+    }
+
+    /**
+     * Method for adding calls of an interval recorded by another collector (usually
+     * in another process); included in the next interval snapshot.
+     */
+    public synchronized void recordInterval(IntervalMetrics interval) {
+        okCalls.add(interval.okCalls());
+        okDocs.add(interval.okDocs());
+        errorCalls.add(interval.errorCalls());
+        okPending.add(interval.okLatencies());
+        errorPending.add(interval.errorLatencies());
+    }
+
+    static String percentilesDesc(Histogram h) {
+        StringBuilder sb = new StringBuilder(80).append("p50/p90/p95/p99/p99.9/p99.99/max: ");
+        for (double p : PERCENTILES) {
+            sb.append(_msecs(h.getValueAtPercentile(p))).append('/');
+        }
+        return sb.append(_msecs(h.getMaxValue())).toString();
+    }
+
+    /**
+     * Method for getting percentile values (and max) of given histogram in
+     * milliseconds, for results output.
+     */
+    public static Map<String, Double> percentilesMsecs(Histogram h) {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (double p : PERCENTILES) {
+            result.put("p" + BigDecimal.valueOf(p).stripTrailingZeros().toPlainString(),
+                    h.getValueAtPercentile(p) / 1_000_000.0);
+        }
+        result.put("max", h.getMaxValue() / 1_000_000.0);
+        return result;
     }
 
-    public void reportErrorCall(InsertManyAgent agent, long timeMsecs) {
-        errorCalls.incrementAndGet();
+    private static String _msecs(long nanos) {
+        return String.format("%.1f", nanos / 1_000_000.0);
     }
 }
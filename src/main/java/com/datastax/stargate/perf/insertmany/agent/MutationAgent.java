@@ -0,0 +1,121 @@
+package com.datastax.stargate.perf.insertmany.agent;
+
+import com.datastax.stargate.perf.insertmany.entity.ContainerItem;
+import com.datastax.stargate.perf.insertmany.entity.ContainerItemGenerator;
+import com.datastax.stargate.perf.insertmany.entity.ContainerItemId;
+import com.datastax.stargate.perf.insertmany.entity.ItemContainer;
+import com.datastax.stargate.perf.insertmany.entity.SkewedIdSelector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Agent that mutates items inserted by {@link InsertManyAgent}s (of the same phase
+ * or earlier ones, if container not truncated), chosen by {@link SkewedIdSelector}:
+ * either overwrites (upserts) new version of an item, or deletes one or more items.
+ * Paced separately from inserts; reported with number of items written or deleted
+ * as "documents".
+ */
+public class MutationAgent
+{
+    public enum Operation {
+        UPSERT("upserts"),
+        DELETE("deletes");
+
+        private final String desc;
+
+        Operation(String desc) {
+            this.desc = desc;
+        }
+
+        public String desc() {
+            return desc;
+        }
+    }
+
+    public final int id;
+
+    private final Operation operation;
+
+    private final ItemContainer items;
+
+    // For regenerating items to overwrite
+    private final ContainerItemGenerator itemGenerator;
+
+    private final SkewedIdSelector keys;
+
+    private final int deleteBatch;
+
+    public MutationAgent(int id, Operation operation, ItemContainer items,
+                         ContainerItemGenerator itemGenerator,
+                         SkewedIdSelector keys, int deleteBatch) {
+        this.id = id;
+        this.operation = operation;
+        this.items = items;
+        this.itemGenerator = itemGenerator;
+        this.keys = keys;
+        this.deleteBatch = Math.max(1, deleteBatch);
+    }
+
+    public Operation operation() {
+        return operation;
+    }
+
+    public void runPhase(final String phaseName, final long endTime, Pacer pacer,
+                         MetricsCollector metrics)
+    {
+        while ((System.currentTimeMillis()) < endTime) {
+            // Choose (and generate) what to mutate first, so it is ready as soon as pacer allows
+            final List<String> ids = chooseIds();
+            if (ids.isEmpty()) {
+                AgentUtil.idle();
+                continue;
+            }
+            final ContainerItem item = (operation == Operation.UPSERT) ? newVersion(ids.get(0)) : null;
+            final long startTime = pacer.awaitTurn();
+            if (startTime == Pacer.NOT_READY) {
+                continue;
+            }
+            metrics.callStarted();
+            try {
+                final int docs;
+                if (item != null) {
+                    items.replaceItem(item);
+                    docs = 1;
+                } else {
+                    final long deleted = items.deleteItems(ids);
+                    docs = (deleted < 0L) ? ids.size() : (int) deleted;
+                }
+                metrics.reportOkCall(id, System.nanoTime() - startTime, docs);
+            } catch (RuntimeException ex) { // DataAPIException, or CQL driver exception
+                metrics.reportErrorCall(id, System.nanoTime() - startTime);
+                AgentUtil.warnError(this, ex);
+            }
+        }
+    }
+
+    private List<String> chooseIds() {
+        final int count = (operation == Operation.DELETE) ? deleteBatch : 1;
+        final List<String> ids = new ArrayList<>(count);
+        // With skew same ids are likely chosen repeatedly: only use distinct ones
+        for (int attempts = 2 * count; attempts > 0 && ids.size() < count; --attempts) {
+            final String itemId = keys.nextId();
+            if (itemId != null && !ids.contains(itemId)) {
+                ids.add(itemId);
+            }
+        }
+        return ids;
+    }
+
+    // Same id, vector, description (and other fields) as originally inserted, different value
+    private ContainerItem newVersion(String itemId) {
+        final ContainerItem orig = itemGenerator.generate(ContainerItemId.fromString(itemId));
+        return orig.withValue(orig.value + 1 + ThreadLocalRandom.current().nextInt(1000));
+    }
+
+    @Override
+    public String toString() {
+        return "[Mutation agent #"+id+" ("+operation.desc()+")]";
+    }
+}
@@ -0,0 +1,32 @@
+package com.datastax.stargate.perf.insertmany.agent;
+
+/**
+ * Abstraction for deciding when agents may send their next call; implemented
+ * differently for closed-loop (rate-limited) and open-loop (scheduled) load models.
+ */
+public interface Pacer {
+    /**
+     * Marker returned by {@link #awaitTurn()} when agent should not send a call
+     * but re-check whether phase has ended and then retry.
+     */
+    long NOT_READY = Long.MIN_VALUE;
+
+    /**
+     * Method called by the test runner right before agents are released to start
+     * the phase.
+     */
+    default void start() { }
+
+    /**
+     * Method called by an agent before each call: will block as necessary and
+     * return the time (as per {@link System#nanoTime()}) from which latency of
+     * the call is to be measured; or {@link #NOT_READY} if call is not to be sent.
+     */
+    long awaitTurn();
+
+    /**
+     * Description of pacing state to include in periodic output, if any;
+     * empty String if none.
+     */
+    String statusDesc();
+}
@@ -0,0 +1,184 @@
+package com.datastax.stargate.perf.insertmany.agent;
+
+import com.datastax.stargate.perf.base.RunConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writer of machine-readable results of a single test phase, as 3 files in the
+ * results directory (named "{runId}-{phase}.*"):
+ *<ul>
+ * <li>{@code .csv}: per-interval (per-second) call counts, rates and main latency
+ *   percentiles; written as phase progresses. Document rates only count documents
+ *   of successful calls
+ *  </li>
+ * <li>{@code .hlog}: per-interval latency histograms in HdrHistogram log format
+ *   (tagged "ok" and "error"); written as phase progresses
+ *  </li>
+ * <li>{@code .json}: run configuration, per-interval series and the summary of the
+ *   whole phase; written at the end of the phase
+ *  </li>
+ *</ul>
+ */
+public class PhaseResultsWriter implements AutoCloseable
+{
+    private final static ObjectMapper MAPPER = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final static double NANOS_PER_MSEC = 1_000_000.0;
+
+    private final RunConfig runConfig;
+
+    private final String phaseName;
+
+    private final long phaseStartMsecs;
+
+    private final File jsonFile;
+
+    private final PrintStream csvOut;
+
+    private final PrintStream hlogOut;
+    private final HistogramLogWriter hlogWriter;
+
+    private final List<Map<String, Object>> intervals = new ArrayList<>();
+
+    private PhaseResultsWriter(RunConfig runConfig, String phaseName,
+                               long phaseStartMsecs, File baseName)
+        throws FileNotFoundException
+    {
+        this.runConfig = runConfig;
+        this.phaseName = phaseName;
+        this.phaseStartMsecs = phaseStartMsecs;
+        jsonFile = new File(baseName.getPath() + ".json");
+        csvOut = new PrintStream(baseName.getPath() + ".csv");
+        csvOut.println("elapsedSecs,okCalls,errorCalls,callsPerSec,docsPerSec,p50Ms,p90Ms,p99Ms,p999Ms,maxMs");
+        hlogOut = new PrintStream(baseName.getPath() + ".hlog");
+        hlogWriter = new HistogramLogWriter(hlogOut);
+        hlogWriter.outputComment("Latencies (msecs) of phase '"+phaseName+"' of run "+runConfig.runId());
+        hlogWriter.outputLogFormatVersion();
+        hlogWriter.outputBaseTime(phaseStartMsecs);
+        hlogWriter.outputStartTime(phaseStartMsecs);
+        hlogWriter.outputLegend();
+    }
+
+    /**
+     * Factory method for creating writer for given phase, if results are to be
+     * written for the run; if not, returns {@code null}.
+     */
+    public static PhaseResultsWriter create(RunConfig runConfig, String phaseName,
+                                            long phaseStartMsecs)
+        throws IOException
+    {
+        if (runConfig == null || !runConfig.exportResults()) {
+            return null;
+        }
+        File dir = new File(runConfig.resultsDir());
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Failed to create results directory '"+dir.getAbsolutePath()+"'");
+        }
+        return new PhaseResultsWriter(runConfig, phaseName, phaseStartMsecs,
+                new File(dir, fileBaseName(runConfig, phaseName)));
+    }
+
+    /**
+     * Base name (without extension) of results files of given phase of the run.
+     */
+    public static String fileBaseName(RunConfig runConfig, String phaseName) {
+        return runConfig.runId() + "-" + phaseName.toLowerCase().replaceAll("[^a-z0-9]+", "-");
+    }
+
+    public void writeInterval(IntervalMetrics interval) {
+        final double elapsedSecs = (interval.endMsecs() - phaseStartMsecs) / 1000.0;
+        final Histogram ok = interval.okLatencies();
+        csvOut.printf("%.3f,%d,%d,%.2f,%.2f,%.3f,%.3f,%.3f,%.3f,%.3f\n",
+                elapsedSecs, interval.okCalls(), interval.errorCalls(),
+                interval.callRate(), interval.okDocRate(),
+                ok.getValueAtPercentile(50.0) / NANOS_PER_MSEC,
+                ok.getValueAtPercentile(90.0) / NANOS_PER_MSEC,
+                ok.getValueAtPercentile(99.0) / NANOS_PER_MSEC,
+                ok.getValueAtPercentile(99.9) / NANOS_PER_MSEC,
+                ok.getMaxValue() / NANOS_PER_MSEC);
+        csvOut.flush();
+
+        writeHistogram(interval, ok, "ok");
+        if (interval.errorCalls() > 0L) {
+            writeHistogram(interval, interval.errorLatencies(), "error");
+        }
+        hlogOut.flush();
+
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("elapsedSecs", elapsedSecs);
+        entry.put("durationSecs", interval.durationSecs());
+        entry.put("okCalls", interval.okCalls());
+        entry.put("errorCalls", interval.errorCalls());
+        entry.put("callsPerSec", interval.callRate());
+        entry.put("docsPerSec", interval.okDocRate());
+        entry.put("okLatencyMsecs", MetricsCollector.percentilesMsecs(ok));
+        intervals.add(entry);
+    }
+
+    private void writeHistogram(IntervalMetrics interval, Histogram h, String tag) {
+        Histogram copy = h.copy();
+        copy.setTag(tag);
+        copy.setStartTimeStamp(interval.startMsecs());
+        copy.setEndTimeStamp(interval.endMsecs());
+        hlogWriter.outputIntervalHistogram(
+                (interval.startMsecs() - phaseStartMsecs) / 1000.0,
+                (interval.endMsecs() - phaseStartMsecs) / 1000.0,
+                copy, NANOS_PER_MSEC);
+    }
+
+    /**
+     * Method called at the end of the phase to write JSON results file with
+     * summary of the phase from given metrics (which should be fully drained).
+     */
+    public void writeSummary(MetricsCollector metrics, int maxRPS) throws IOException {
+        writeSummary(metrics, maxRPS, Map.of());
+    }
+
+    /**
+     * @param extra Additional phase-specific entries (like search recall) to include
+     *    in summary
+     */
+    public void writeSummary(MetricsCollector metrics, int maxRPS, Map<String, Object> extra)
+        throws IOException
+    {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("okCalls", metrics.okCalls());
+        summary.put("errorCalls", metrics.errorCalls());
+        summary.put("callsPerSec", metrics.callRate());
+        summary.put("docsPerSec", metrics.okDocRate());
+        summary.put("okLatencyMsecs", MetricsCollector.percentilesMsecs(metrics.okLatencies()));
+        summary.put("errorLatencyMsecs", MetricsCollector.percentilesMsecs(metrics.errorLatencies()));
+        summary.putAll(extra);
+
+        Map<String, Object> phase = new LinkedHashMap<>();
+        phase.put("name", phaseName);
+        phase.put("startTime", phaseStartMsecs);
+        phase.put("maxRPS", maxRPS);
+
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("config", runConfig);
+        root.put("phase", phase);
+        root.put("intervals", intervals);
+        root.put("summary", summary);
+        MAPPER.writeValue(jsonFile, root);
+    }
+
+    @Override
+    public void close() {
+        csvOut.close();
+        hlogOut.close();
+    }
+}
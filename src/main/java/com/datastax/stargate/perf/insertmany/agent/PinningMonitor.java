@@ -0,0 +1,84 @@
+package com.datastax.stargate.perf.insertmany.agent;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Helper for tracking events where a virtual thread blocks while pinned to its
+ * carrier thread (for example, within {@code synchronized} block); uses JFR event
+ * streaming of {@code jdk.VirtualThreadPinned} events (Java 21+).
+ */
+public class PinningMonitor implements AutoCloseable {
+    private final static String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final static int TOP_SITES_TO_REPORT = 5;
+
+    private final RecordingStream stream;
+
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong pinnedNanos = new AtomicLong();
+
+    // Pinned events by top-most application (non-JDK) frame
+    private final Map<String, LongAdder> eventsBySite = new ConcurrentHashMap<>();
+
+    private PinningMonitor(RecordingStream stream) {
+        this.stream = stream;
+    }
+
+    public static PinningMonitor start() {
+        RecordingStream rs = new RecordingStream();
+        PinningMonitor monitor = new PinningMonitor(rs);
+        rs.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+        rs.onEvent(PINNED_EVENT, monitor::onPinned);
+        rs.startAsync();
+        return monitor;
+    }
+
+    private void onPinned(RecordedEvent event) {
+        events.incrementAndGet();
+        pinnedNanos.addAndGet(event.getDuration().toNanos());
+        eventsBySite.computeIfAbsent(siteOf(event.getStackTrace()), k -> new LongAdder())
+                .increment();
+    }
+
+    private static String siteOf(RecordedStackTrace trace) {
+        if (trace != null) {
+            for (RecordedFrame frame : trace.getFrames()) {
+                if (!frame.isJavaFrame()) {
+                    continue;
+                }
+                String type = frame.getMethod().getType().getName();
+                if (!type.startsWith("java.") && !type.startsWith("jdk.")
+                        && !type.startsWith("sun.")) {
+                    return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+                }
+            }
+        }
+        return "(unknown)";
+    }
+
+    public String desc() {
+        String sites = eventsBySite.entrySet().stream()
+                .sorted((e1, e2) -> Long.compare(e2.getValue().sum(), e1.getValue().sum()))
+                .limit(TOP_SITES_TO_REPORT)
+                .map(e -> e.getKey() + " (" + e.getValue().sum() + ")")
+                .collect(Collectors.joining(", "));
+        return String.format("[Virtual thread pinning: %d events, %.1f ms total; top sites: %s]",
+                events.get(), pinnedNanos.get() / 1_000_000.0,
+                sites.isEmpty() ? "none" : sites);
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+}
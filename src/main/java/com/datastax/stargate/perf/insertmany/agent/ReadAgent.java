@@ -0,0 +1,74 @@
+package com.datastax.stargate.perf.insertmany.agent;
+
+import com.datastax.stargate.perf.base.ReadOptions;
+import com.datastax.stargate.perf.insertmany.entity.InsertedItems;
+import com.datastax.stargate.perf.insertmany.entity.ItemContainer;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Agent that reads items inserted by {@link InsertManyAgent}s of the same phase
+ * (or earlier phases, if container not truncated): either point lookups by id,
+ * or range reads of items with {@code value} close to that of an inserted item.
+ * Paced separately from inserts; point and range reads are reported to separate
+ * {@link MetricsCollector}s, with number of items found as "documents".
+ */
+public class ReadAgent
+{
+    public final int id;
+
+    private final ItemContainer items;
+
+    private final InsertedItems inserted;
+
+    private final ReadOptions options;
+
+    public ReadAgent(int id, ItemContainer items, InsertedItems inserted,
+                     ReadOptions options) {
+        this.id = id;
+        this.items = items;
+        this.inserted = inserted;
+        this.options = options;
+    }
+
+    public void runPhase(final String phaseName, final long endTime, Pacer pacer,
+                         MetricsCollector pointMetrics, MetricsCollector rangeMetrics)
+    {
+        final ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        while ((System.currentTimeMillis()) < endTime) {
+            // Choose what to read first, so it is ready as soon as pacer allows
+            final boolean point = rnd.nextInt(100) < options.pointReadPct();
+            final String itemId = point ? inserted.randomId() : null;
+            if (inserted.isEmpty() || (point && itemId == null)) {
+                AgentUtil.idle();
+                continue;
+            }
+            final long startTime = pacer.awaitTurn();
+            if (startTime == Pacer.NOT_READY) {
+                continue;
+            }
+            final MetricsCollector metrics = point ? pointMetrics : rangeMetrics;
+            metrics.callStarted();
+            try {
+                final int found;
+                if (point) {
+                    found = (items.findItem(itemId) == null) ? 0 : 1;
+                } else {
+                    // Range of values within 1/8 above that of an inserted item
+                    final long min = inserted.randomValue();
+                    found = items.findItemsInRange(min, min + (Math.abs(min) >> 3) + 1L,
+                            options.rangeReadLimit());
+                }
+                metrics.reportOkCall(id, System.nanoTime() - startTime, found);
+            } catch (RuntimeException ex) { // DataAPIException, or CQL driver exception
+                metrics.reportErrorCall(id, System.nanoTime() - startTime);
+                AgentUtil.warnError(this, ex);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "[Read agent #"+id+"]";
+    }
+}
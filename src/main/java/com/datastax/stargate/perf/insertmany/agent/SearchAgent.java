@@ -0,0 +1,55 @@
+package com.datastax.stargate.perf.insertmany.agent;
+
+import com.datastax.stargate.perf.insertmany.ann.AnnQuerySet;
+import com.datastax.stargate.perf.insertmany.entity.ItemContainer;
+
+import java.util.List;
+
+/**
+ * Agent that runs vector (ANN) searches for queries of {@link AnnQuerySet},
+ * fetching {@code k} most similar items, and records results for recall calculation.
+ * Reported to {@link MetricsCollector} with number of items returned as "documents".
+ */
+public class SearchAgent
+{
+    public final int id;
+
+    private final ItemContainer items;
+
+    private final AnnQuerySet queries;
+
+    public SearchAgent(int id, ItemContainer items, AnnQuerySet queries) {
+        this.id = id;
+        this.items = items;
+        this.queries = queries;
+    }
+
+    public void runPhase(final String phaseName, final long endTime, Pacer pacer,
+                         MetricsCollector metrics)
+    {
+        while ((System.currentTimeMillis()) < endTime) {
+            final int query = queries.nextQuery();
+            final long startTime = pacer.awaitTurn();
+            if (startTime == Pacer.NOT_READY) {
+                continue;
+            }
+            metrics.callStarted();
+            final List<String> found;
+            try {
+                found = items.findNearest(queries.query(query), queries.k());
+                metrics.reportOkCall(id, System.nanoTime() - startTime, found.size());
+            } catch (RuntimeException ex) { // DataAPIException, or CQL driver exception
+                metrics.reportErrorCall(id, System.nanoTime() - startTime);
+                AgentUtil.warnError(this, ex);
+                continue;
+            }
+            // Outside of timing: not part of search latency
+            queries.recordResult(query, found);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "[Search agent #"+id+"]";
+    }
+}
@@ -0,0 +1,126 @@
+package com.datastax.stargate.perf.insertmany.agent;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BlockingStrategy;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.TokensInheritanceStrategy;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link Pacer} for closed-loop load model: agents are throttled by a shared
+ * rate limiter and latency is measured from the actual start of the call.
+ * Rate may also be ramped linearly from start to end rate over the phase, in
+ * which case limit is adjusted 10 times per second.
+ *<p>
+ * Agents do not poll the rate limiter: each one reserves its slot and parks until
+ * it, so limiter state is only updated once per call. With constant rate, slots
+ * may be reserved up to the end of the phase (agents that get none park until the
+ * end); when ramping, only until the next rate adjustment, and agents that get
+ * none park for about one adjustment interval before retrying (checking without
+ * updating limiter state).
+ */
+public class ThrottlingPacer implements Pacer {
+    private final static long ADJUST_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100L);
+
+    private final static long MIN_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10L);
+
+    private final Bucket rateLimiter;
+
+    private final int startRPS, endRPS;
+
+    private final long durationNanos;
+
+    // Set when pacer is started; visible to agents since they are released
+    // (via latch) after starting
+    private long startNanos;
+
+    private final AtomicLong nextAdjustNanos = new AtomicLong(Long.MAX_VALUE);
+
+    private volatile int currentRPS;
+
+    private ThrottlingPacer(int startRPS, int endRPS, long durationNanos) {
+        this.startRPS = startRPS;
+        this.endRPS = endRPS;
+        this.durationNanos = durationNanos;
+        currentRPS = startRPS;
+        rateLimiter = Bucket.builder().addLimit(limit(startRPS)).build();
+    }
+
+    public static ThrottlingPacer create(int maxRPS) {
+        return new ThrottlingPacer(maxRPS, maxRPS, 0L);
+    }
+
+    /**
+     * Factory method for pacer that ramps rate linearly from {@code startRPS} to
+     * {@code endRPS} over given duration.
+     */
+    public static ThrottlingPacer create(int startRPS, int endRPS, long durationMsecs) {
+        return new ThrottlingPacer(startRPS, endRPS, TimeUnit.MILLISECONDS.toNanos(durationMsecs));
+    }
+
+    private static Bandwidth limit(int rps) {
+        rps = Math.max(1, rps);
+        // Allow +10% burst beyond MaxRPS
+        return Bandwidth.builder().capacity(rps + (int) (rps * 0.1))
+                .refillGreedy(rps, Duration.ofSeconds(1))
+                .build();
+    }
+
+    @Override
+    public void start() {
+        startNanos = System.nanoTime();
+        if (startRPS != endRPS) {
+            nextAdjustNanos.set(startNanos + ADJUST_INTERVAL_NANOS);
+        }
+    }
+
+    @Override
+    public long awaitTurn() {
+        final long adjustAt = nextAdjustNanos.get();
+        if (System.nanoTime() >= adjustAt
+                && nextAdjustNanos.compareAndSet(adjustAt, adjustAt + ADJUST_INTERVAL_NANOS)) {
+            adjustRate();
+        }
+        final boolean untilEnd = (startRPS == endRPS) && (durationNanos > 0L);
+        final long maxWaitNanos = untilEnd
+                ? (startNanos + durationNanos - System.nanoTime()) : ADJUST_INTERVAL_NANOS;
+        try {
+            if (maxWaitNanos > 0L
+                    && rateLimiter.asBlocking().tryConsume(1, maxWaitNanos, BlockingStrategy.PARKING)) {
+                return System.nanoTime();
+            }
+        } catch (InterruptedException e) {
+            return NOT_READY;
+        }
+        // No slot within reach: park (spread randomly when ramping, to avoid waking
+        // all waiting agents at once), let caller re-check end of phase and retry
+        LockSupport.parkNanos(untilEnd ? (Math.max(0L, maxWaitNanos) + MIN_PARK_NANOS)
+                : (MIN_PARK_NANOS + ThreadLocalRandom.current().nextLong(2L * ADJUST_INTERVAL_NANOS)));
+        return NOT_READY;
+    }
+
+    private void adjustRate() {
+        final double progress = Math.min(1.0,
+                (double) (System.nanoTime() - startNanos) / Math.max(1L, durationNanos));
+        final int rps = (int) Math.round(startRPS + (endRPS - startRPS) * progress);
+        if (rps != currentRPS) {
+            currentRPS = rps;
+            rateLimiter.replaceConfiguration(BucketConfiguration.builder().addLimit(limit(rps)).build(),
+                    TokensInheritanceStrategy.AS_IS);
+        }
+    }
+
+    @Override
+    public String statusDesc() {
+        if (startRPS == endRPS) {
+            return "";
+        }
+        return String.format("[Rate limit: %d RPS (ramp %d->%d)]", currentRPS, startRPS, endRPS);
+    }
+}
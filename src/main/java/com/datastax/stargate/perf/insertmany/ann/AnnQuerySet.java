@@ -0,0 +1,117 @@
+package com.datastax.stargate.perf.insertmany.ann;
+
+import com.datastax.stargate.perf.insertmany.entity.ContainerItemId;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Set of query vectors for vector searches, with exact nearest neighbors of each
+ * ("ground truth"), and accumulated recall of search results. Thread-safe.
+ *<p>
+ * Query vectors are generated same way as vectors of items, but using ids of a cycle
+ * (-1) never used for items.
+ */
+public class AnnQuerySet
+{
+    private final static int QUERY_CYCLE = -1;
+
+    private final int k;
+    private final float[][] queries;
+    private final List<Set<String>> expected;
+
+    private final AtomicInteger nextQuery = new AtomicInteger();
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder perfectSearches = new LongAdder();
+    private final LongAdder expectedHits = new LongAdder();
+    private final LongAdder actualHits = new LongAdder();
+
+    private AnnQuerySet(int k, float[][] queries, List<Set<String>> expected) {
+        this.k = k;
+        this.queries = queries;
+        this.expected = expected;
+    }
+
+    /**
+     * Factory method for generating {@code count} (normalized) query vectors of given
+     * dimension and finding their {@code k} nearest neighbors with given exact search.
+     */
+    public static AnnQuerySet create(ExactKnn knn, int k, int count, int dimension)
+        throws InterruptedException
+    {
+        final float[][] queries = new float[count][];
+        for (int i = 0; i < count; ++i) {
+            queries[i] = ExactKnn.normalize(new ContainerItemId(QUERY_CYCLE, i)
+                    .generateVector(dimension));
+        }
+        return new AnnQuerySet(k, queries, knn.nearest(queries, k).stream()
+                .map(ids -> (Set<String>) new HashSet<>(ids))
+                .toList());
+    }
+
+    public int k() {
+        return k;
+    }
+
+    public int size() {
+        return queries.length;
+    }
+
+    /**
+     * Method for choosing the next query to run: queries are used round-robin.
+     */
+    public int nextQuery() {
+        return Math.floorMod(nextQuery.getAndIncrement(), queries.length);
+    }
+
+    public float[] query(int index) {
+        return queries[index];
+    }
+
+    /**
+     * Method called with ids of items search with given query returned, to update
+     * recall.
+     */
+    public void recordResult(int query, List<String> ids) {
+        final Set<String> exp = expected.get(query);
+        int hits = 0;
+        for (String id : ids) {
+            if (exp.contains(id)) {
+                ++hits;
+            }
+        }
+        searches.increment();
+        expectedHits.add(exp.size());
+        actualHits.add(hits);
+        if (hits == exp.size()) {
+            perfectSearches.increment();
+        }
+    }
+
+    public long searches() {
+        return searches.sum();
+    }
+
+    /**
+     * Accessor for recall over all searches so far: fraction of exact nearest neighbors
+     * included in search results.
+     */
+    public double recall() {
+        final long exp = expectedHits.sum();
+        return (exp == 0L) ? 0.0 : (double) actualHits.sum() / exp;
+    }
+
+    public double perfectPct() {
+        final long count = searches.sum();
+        return (count == 0L) ? 0.0 : 100.0 * perfectSearches.sum() / count;
+    }
+
+    public String desc() {
+        return String.format("[Recall@%d: %.3f (%d searches, %d queries; %.1f%% perfect)]",
+                k, recall(), searches(), queries.length, perfectPct());
+    }
+}
@@ -0,0 +1,271 @@
+package com.datastax.stargate.perf.insertmany.ann;
+
+import com.datastax.stargate.perf.insertmany.entity.ContainerItemId;
+import com.datastax.stargate.perf.insertmany.entity.ContentSynthesizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exact (brute-force) k nearest neighbor search by cosine similarity, over vectors of
+ * items inserted: vectors are regenerated from {@link ContainerItemId} seeds (same
+ * as when inserted), normalized and kept in {@link VectorStore}.
+ *<p>
+ * Searches are done for a whole set of queries at once, scanning the store once:
+ * threads take blocks of rows, score them against all queries and keep per-query
+ * top-k candidates, which are merged at the end.
+ */
+public class ExactKnn
+{
+    private final long[] seeds;
+    private final VectorStore store;
+    private final SimilarityKernel kernel;
+    private final int threads;
+
+    private ExactKnn(long[] seeds, VectorStore store, SimilarityKernel kernel, int threads) {
+        this.seeds = seeds;
+        this.store = store;
+        this.kernel = kernel;
+        this.threads = threads;
+    }
+
+    /**
+     * Factory method for regenerating vectors of items with given seeds into a new
+     * store (using all available CPUs). Duplicate seeds are dropped, so that each
+     * item is included once and nearest neighbors are always distinct items.
+     */
+    public static ExactKnn build(long[] itemSeeds, int dimension, SimilarityKernel kernel)
+        throws InterruptedException
+    {
+        final long[] seeds = distinct(itemSeeds);
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final VectorStore store = VectorStore.create(dimension, seeds.length);
+        final AtomicInteger nextBlock = new AtomicInteger();
+        runWorkers(threads, () -> {
+            int b;
+            while ((b = nextBlock.getAndIncrement()) < store.blockCount()) {
+                final int end = Math.min(seeds.length, (b + 1) * VectorStore.BLOCK_ROWS);
+                for (int row = b * VectorStore.BLOCK_ROWS; row < end; ++row) {
+                    store.set(row, normalize(ContentSynthesizer.vector(seeds[row], dimension)));
+                }
+            }
+            return null;
+        });
+        return new ExactKnn(seeds, store, kernel, threads);
+    }
+
+    public int size() {
+        return seeds.length;
+    }
+
+    public long[] seeds() {
+        return seeds;
+    }
+
+    public VectorStore store() {
+        return store;
+    }
+
+    public SimilarityKernel kernel() {
+        return kernel;
+    }
+
+    /**
+     * Method for finding ids of {@code k} items most similar to each of given
+     * (normalized) query vectors.
+     *
+     * @return For each query, ids of nearest items (distinct; fewer than {@code k}
+     *    only if there are fewer items), most similar first
+     */
+    public List<List<String>> nearest(float[][] queries, int k) throws InterruptedException
+    {
+        final int dim = store.dimension();
+        final AtomicInteger nextBlock = new AtomicInteger();
+        // Each worker keeps its own candidates over blocks it scans
+        final List<TopK[]> partials = runWorkers(threads, () -> {
+            final TopK[] top = new TopK[queries.length];
+            for (int q = 0; q < top.length; ++q) {
+                top[q] = new TopK(k);
+            }
+            final float[] block = new float[VectorStore.BLOCK_ROWS * dim];
+            final float[] scores = new float[VectorStore.BLOCK_ROWS];
+            int b;
+            while ((b = nextBlock.getAndIncrement()) < store.blockCount()) {
+                final int rows = store.readBlock(b, block);
+                final int firstRow = b * VectorStore.BLOCK_ROWS;
+                for (int q = 0; q < queries.length; ++q) {
+                    kernel.dotProducts(queries[q], block, rows, scores);
+                    for (int i = 0; i < rows; ++i) {
+                        top[q].offer(scores[i], firstRow + i);
+                    }
+                }
+            }
+            return top;
+        });
+        List<List<String>> result = new ArrayList<>(queries.length);
+        for (int q = 0; q < queries.length; ++q) {
+            TopK merged = new TopK(k);
+            for (TopK[] partial : partials) {
+                merged.addAll(partial[q]);
+            }
+            List<String> ids = new ArrayList<>(k);
+            for (int row : merged.rowsDescending()) {
+                ids.add(ContainerItemId.fromSeed(seeds[row]).toString());
+            }
+            result.add(ids);
+        }
+        return result;
+    }
+
+    /**
+     * @return Given seeds if already sorted and distinct; otherwise sorted copy
+     *    without duplicates
+     */
+    static long[] distinct(long[] seeds) {
+        int i = 1;
+        while (i < seeds.length && seeds[i - 1] < seeds[i]) {
+            ++i;
+        }
+        if (i >= seeds.length) {
+            return seeds;
+        }
+        final long[] sorted = seeds.clone();
+        Arrays.sort(sorted);
+        int count = 0;
+        for (long seed : sorted) {
+            if (count == 0 || sorted[count - 1] != seed) {
+                sorted[count++] = seed;
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    public static float[] normalize(float[] vector) {
+        double sum = 0.0;
+        for (float f : vector) {
+            sum += f * f;
+        }
+        if (sum > 0.0) {
+            final float scale = (float) (1.0 / Math.sqrt(sum));
+            for (int i = 0; i < vector.length; ++i) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    /**
+     * Helper for running given worker on given number of threads, returning results
+     * of all workers.
+     */
+    private static <T> List<T> runWorkers(int threads, Callable<T> worker)
+        throws InterruptedException
+    {
+        final ExecutorService exec = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; ++t) {
+                futures.add(exec.submit(worker));
+            }
+            List<T> results = new ArrayList<>(threads);
+            for (Future<T> f : futures) {
+                results.add(f.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Exact kNN task failed: "+e.getCause(), e.getCause());
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+    /**
+     * Bounded min-heap of highest scoring rows.
+     */
+    static class TopK {
+        private final float[] scores;
+        private final int[] rows;
+        private int size;
+
+        TopK(int k) {
+            scores = new float[k];
+            rows = new int[k];
+        }
+
+        void offer(float score, int row) {
+            if (size < scores.length) {
+                scores[size] = score;
+                rows[size] = row;
+                siftUp(size++);
+            } else if (score > scores[0]) {
+                scores[0] = score;
+                rows[0] = row;
+                siftDown(0);
+            }
+        }
+
+        void addAll(TopK other) {
+            for (int i = 0; i < other.size; ++i) {
+                offer(other.scores[i], other.rows[i]);
+            }
+        }
+
+        int[] rowsDescending() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; ++i) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Float.compare(scores[b], scores[a]));
+            int[] result = new int[size];
+            for (int i = 0; i < size; ++i) {
+                result[i] = rows[order[i]];
+            }
+            return result;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                final int parent = (i - 1) >> 1;
+                if (scores[parent] <= scores[i]) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                final int left = 2 * i + 1;
+                if (left >= size) {
+                    break;
+                }
+                int min = left;
+                if (left + 1 < size && scores[left + 1] < scores[left]) {
+                    min = left + 1;
+                }
+                if (scores[i] <= scores[min]) {
+                    break;
+                }
+                swap(i, min);
+                i = min;
+            }
+        }
+
+        private void swap(int a, int b) {
+            final float s = scores[a];
+            scores[a] = scores[b];
+            scores[b] = s;
+            final int r = rows[a];
+            rows[a] = rows[b];
+            rows[b] = r;
+        }
+    }
+}
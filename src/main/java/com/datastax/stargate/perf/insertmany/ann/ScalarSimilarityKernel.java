@@ -0,0 +1,32 @@
+package com.datastax.stargate.perf.insertmany.ann;
+
+/**
+ * Plain Java {@link SimilarityKernel}, used if SIMD kernel is not available: uses
+ * multiple accumulators since JIT does not vectorize floating-point reductions.
+ */
+public class ScalarSimilarityKernel implements SimilarityKernel {
+    @Override
+    public void dotProducts(float[] query, float[] block, int count, float[] scores) {
+        final int dim = query.length;
+        final int bound = dim & ~3;
+        for (int row = 0, base = 0; row < count; ++row, base += dim) {
+            float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+            int i = 0;
+            for (; i < bound; i += 4) {
+                s0 += query[i] * block[base + i];
+                s1 += query[i + 1] * block[base + i + 1];
+                s2 += query[i + 2] * block[base + i + 2];
+                s3 += query[i + 3] * block[base + i + 3];
+            }
+            for (; i < dim; ++i) {
+                s0 += query[i] * block[base + i];
+            }
+            scores[row] = (s0 + s1) + (s2 + s3);
+        }
+    }
+
+    @Override
+    public String desc() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,35 @@
+package com.datastax.stargate.perf.insertmany.ann;
+
+/**
+ * Compute kernel for exact nearest neighbor search: dot products of a query vector
+ * with blocks of stored vectors. Default implementation is scalar; SIMD implementation
+ * (using {@code jdk.incubator.vector}) is used if available.
+ */
+public interface SimilarityKernel {
+    /**
+     * Name of SIMD implementation: only included when built with "vector" profile
+     * (from "src/main/vector"), and only usable if run with
+     * {@code --add-modules jdk.incubator.vector}.
+     */
+    String SIMD_KERNEL_CLASS = "com.datastax.stargate.perf.insertmany.ann.SimdSimilarityKernel";
+
+    /**
+     * Method for calculating dot products of query with {@code count} vectors (of same
+     * dimension as query) stored consecutively in {@code block}.
+     */
+    void dotProducts(float[] query, float[] block, int count, float[] scores);
+
+    String desc();
+
+    /**
+     * Factory method for SIMD kernel, if available; scalar kernel if not.
+     */
+    static SimilarityKernel create() {
+        try {
+            return (SimilarityKernel) Class.forName(SIMD_KERNEL_CLASS)
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarSimilarityKernel();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.datastax.stargate.perf.insertmany.ann;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Fixed-size off-heap store of float vectors (rows) of same dimension, so that
+ * millions of vectors can be kept without heap (and GC) overhead. Stored in direct
+ * buffers of at most 1 GB each ("chunks"); rows are accessed in blocks of
+ * {@link #BLOCK_ROWS} rows, copied to caller-provided (on-heap) arrays for computation.
+ *<p>
+ * Rows may be written concurrently as long as different threads write different rows;
+ * reads must only start after all writes are done.
+ */
+public class VectorStore
+{
+    /**
+     * Number of rows in a block: chunks are always a multiple of this, so blocks never
+     * span chunks.
+     */
+    public final static int BLOCK_ROWS = 256;
+
+    private final static long MAX_CHUNK_BYTES = 1L << 30;
+
+    private final int dimension;
+    private final int rowCount;
+    private final int rowsPerChunk;
+
+    private final FloatBuffer[] chunks;
+
+    private VectorStore(int dimension, int rowCount) {
+        this.dimension = dimension;
+        this.rowCount = rowCount;
+        final long blockBytes = 4L * dimension * BLOCK_ROWS;
+        rowsPerChunk = (int) Math.max(1L, MAX_CHUNK_BYTES / blockBytes) * BLOCK_ROWS;
+        chunks = new FloatBuffer[(rowCount + rowsPerChunk - 1) / rowsPerChunk];
+        for (int i = 0; i < chunks.length; ++i) {
+            final int rows = Math.min(rowsPerChunk, rowCount - i * rowsPerChunk);
+            chunks[i] = ByteBuffer.allocateDirect(4 * rows * dimension)
+                    .order(ByteOrder.nativeOrder())
+                    .asFloatBuffer();
+        }
+    }
+
+    public static VectorStore create(int dimension, int rowCount) {
+        return new VectorStore(dimension, rowCount);
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public int blockCount() {
+        return (rowCount + BLOCK_ROWS - 1) / BLOCK_ROWS;
+    }
+
+    public long sizeInBytes() {
+        return 4L * rowCount * dimension;
+    }
+
+    public void set(int row, float[] vector) {
+        chunks[row / rowsPerChunk].put((row % rowsPerChunk) * dimension, vector, 0, dimension);
+    }
+
+    /**
+     * Method for copying rows of given block into given array (of at least
+     * {@code BLOCK_ROWS * dimension} floats).
+     *
+     * @return Number of rows in the block (less than {@link #BLOCK_ROWS} for the last block)
+     */
+    public int readBlock(int block, float[] dest) {
+        final int firstRow = block * BLOCK_ROWS;
+        final int rows = Math.min(BLOCK_ROWS, rowCount - firstRow);
+        chunks[firstRow / rowsPerChunk].get((firstRow % rowsPerChunk) * dimension,
+                dest, 0, rows * dimension);
+        return rows;
+    }
+}
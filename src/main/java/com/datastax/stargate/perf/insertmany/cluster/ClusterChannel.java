@@ -0,0 +1,134 @@
+package com.datastax.stargate.perf.insertmany.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+
+/**
+ * Connection between coordinator and a worker: messages are JSON Objects, one per
+ * line, with message type in property "type". Latency histograms are sent in
+ * compressed HdrHistogram encoding, as Base64 Strings.
+ */
+public class ClusterChannel implements Closeable
+{
+    final static ObjectMapper MAPPER = new ObjectMapper();
+
+    private final static long CONNECT_RETRY_MSECS = 500L;
+
+    private final Socket socket;
+
+    private final BufferedReader in;
+
+    private final Writer out;
+
+    ClusterChannel(Socket socket) throws IOException {
+        this.socket = socket;
+        socket.setTcpNoDelay(true);
+        in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                StandardCharsets.UTF_8));
+        out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+                StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Method for connecting to coordinator at given address ("host:port"); retries
+     * until connection succeeds or timeout expires, since workers may be started
+     * before coordinator is ready.
+     */
+    public static ClusterChannel connect(String address, long timeoutMsecs)
+        throws IOException, InterruptedException
+    {
+        final int ix = address.lastIndexOf(':');
+        if (ix < 1) {
+            throw new IllegalArgumentException("Invalid coordinator address '"+address
+                    +"': expected 'host:port'");
+        }
+        final String host = address.substring(0, ix);
+        final int port = Integer.parseInt(address.substring(ix+1));
+        final long giveUpTime = System.currentTimeMillis() + timeoutMsecs;
+        while (true) {
+            try {
+                return new ClusterChannel(new Socket(host, port));
+            } catch (ConnectException e) {
+                if (System.currentTimeMillis() > giveUpTime) {
+                    throw e;
+                }
+                Thread.sleep(CONNECT_RETRY_MSECS);
+            }
+        }
+    }
+
+    public String remoteDesc() {
+        InetSocketAddress addr = (InetSocketAddress) socket.getRemoteSocketAddress();
+        return addr.getHostString() + ":" + addr.getPort();
+    }
+
+    public static ObjectNode message(String type) {
+        return MAPPER.createObjectNode().put("type", type);
+    }
+
+    public synchronized void send(ObjectNode msg) throws IOException {
+        out.write(MAPPER.writeValueAsString(msg));
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Method for reading the next message; returns {@code null} if the other end
+     * closed connection.
+     */
+    public JsonNode receive() throws IOException {
+        final String line = in.readLine();
+        return (line == null) ? null : MAPPER.readTree(line);
+    }
+
+    /**
+     * Method for reading the next message, verifying it is of expected type.
+     */
+    public JsonNode receive(String expType) throws IOException {
+        JsonNode msg = receive();
+        if (msg == null) {
+            throw new IOException("Connection to "+remoteDesc()+" closed while waiting for '"
+                    +expType+"'");
+        }
+        final String type = msg.path("type").asText();
+        if (!expType.equals(type)) {
+            throw new IOException("Expected message '"+expType+"' from "+remoteDesc()
+                    +", got '"+type+"'");
+        }
+        return msg;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    static String encode(Histogram h) {
+        ByteBuffer buffer = ByteBuffer.allocate(h.getNeededByteBufferCapacity());
+        final int length = h.encodeIntoCompressedByteBuffer(buffer);
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+    }
+
+    static Histogram decode(String encoded) throws DataFormatException {
+        return Histogram.decodeFromCompressedByteBuffer(
+                ByteBuffer.wrap(Base64.getDecoder().decode(encoded)), 0L);
+    }
+}
@@ -0,0 +1,334 @@
+package com.datastax.stargate.perf.insertmany.cluster;
+
+import com.datastax.stargate.perf.base.RunConfig;
+import com.datastax.stargate.perf.insertmany.agent.IntervalMetrics;
+import com.datastax.stargate.perf.insertmany.agent.MetricsCollector;
+import com.datastax.stargate.perf.insertmany.agent.PhaseResultsWriter;
+import com.datastax.stargate.perf.insertmany.entity.ItemContainer;
+import com.datastax.stargate.perf.insertmany.scenario.PhaseSpec;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Coordinator side of a distributed test run: waits for configured number of
+ * {@link PhaseWorker}s to connect, then runs each phase on all of them, splitting
+ * agents and RPS budget evenly between workers. Workers are started together
+ * (once all are ready) and send back interval latency histograms, which are merged
+ * into a single {@link MetricsCollector} for cluster-wide stats and results.
+ */
+public class PhaseCoordinator implements AutoCloseable
+{
+    /**
+     * How long to wait for all workers to connect
+     */
+    private final static long ACCEPT_TIMEOUT_MSECS = 180_000L;
+
+    /**
+     * How long to wait for workers to get ready for a phase (includes pre-generation
+     * of batches, if any)
+     */
+    private final static long READY_TIMEOUT_MSECS = 120_000L;
+
+    /**
+     * How long to wait past end of the phase for workers to finish (and drain
+     * async calls in flight)
+     */
+    private final static long DONE_TIMEOUT_MSECS = 15_000L;
+
+    private final static long SNAPSHOT_INTERVAL_MSECS = 1000L;
+
+    private final List<WorkerConnection> workers;
+
+    private final AtomicInteger lostWorkers = new AtomicInteger();
+
+    // State of the phase currently running; null between phases
+    private volatile PhaseState currentPhase;
+
+    // Set when workers are told to shut down, to not report them as lost
+    private volatile boolean closing;
+
+    private PhaseCoordinator(List<WorkerConnection> workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * Factory method that will listen on given port for workers to connect,
+     * and return coordinator once all have.
+     */
+    public static PhaseCoordinator start(int port, int workerCount) throws IOException {
+        System.out.printf("Waiting for %d workers to connect to port %d...\n", workerCount, port);
+        List<WorkerConnection> workers = new ArrayList<>(workerCount);
+        PhaseCoordinator coordinator = new PhaseCoordinator(workers);
+        try (ServerSocket serverSocket = new ServerSocket(port)) {
+            final long giveUpTime = System.currentTimeMillis() + ACCEPT_TIMEOUT_MSECS;
+            while (workers.size() < workerCount) {
+                final long waitMsecs = giveUpTime - System.currentTimeMillis();
+                if (waitMsecs <= 0L) {
+                    throw new SocketTimeoutException();
+                }
+                serverSocket.setSoTimeout((int) waitMsecs);
+                ClusterChannel channel = new ClusterChannel(serverSocket.accept());
+                channel.receive("hello");
+                channel.send(ClusterChannel.message("welcome")
+                        .put("workerIndex", workers.size())
+                        .put("workerCount", workerCount));
+                System.out.printf("  worker %d/%d connected from %s\n",
+                        workers.size() + 1, workerCount, channel.remoteDesc());
+                workers.add(coordinator.new WorkerConnection(workers.size(), channel));
+            }
+        } catch (IOException e) {
+            coordinator.close();
+            if (e instanceof SocketTimeoutException) {
+                throw new IOException("Only "+workers.size()+" of "+workerCount
+                        +" workers connected within "+(ACCEPT_TIMEOUT_MSECS / 1000)+" seconds");
+            }
+            throw e;
+        }
+        for (WorkerConnection worker : workers) {
+            worker.start();
+        }
+        return coordinator;
+    }
+
+    /**
+     * Method for running given phase on all workers: agent count and batch size of
+     * the spec need to be resolved by caller.
+     */
+    public MetricsCollector runPhase(final PhaseSpec spec,
+                                     ItemContainer items, RunConfig runConfig)
+        throws InterruptedException, IOException
+    {
+        final String phaseName = spec.name();
+        final int agentCount = spec.agentCount();
+        final int batchSize = spec.batchSize();
+        if (lostWorkers.get() > 0) {
+            throw new IllegalStateException("Lost connection to "+lostWorkers.get()
+                    +" worker(s): cannot run phase '"+phaseName+"'");
+        }
+        final int workerCount = workers.size();
+        System.out.printf("runPhase('%s') on %d workers for %.1f seconds (%d agents, batch: %d, %s RPS: %s)\n",
+                phaseName, workerCount, spec.durationMsecs() / 1000.0, agentCount, batchSize,
+                spec.workload(), spec.rpsDesc());
+        if (spec.truncate()) {
+            System.out.printf(" first, truncate container: ");
+            // Let things settle a bit before, after truncation
+            Thread.sleep(1000L);
+            items.deleteAll();
+            System.out.printf("ok.\n");
+            Thread.sleep(1000L);
+        }
+
+        final PhaseState phase = new PhaseState(workerCount);
+        currentPhase = phase;
+        for (WorkerConnection worker : workers) {
+            worker.channel.send(ClusterChannel.message("phase")
+                    .put("name", phaseName)
+                    .put("durationMsecs", spec.durationMsecs())
+                    .put("startRPS", shareRate(spec.startRPS(), workerCount, worker.index))
+                    .put("endRPS", shareRate(spec.endRPS(), workerCount, worker.index))
+                    .put("agentCount", Math.max(1, share(agentCount, workerCount, worker.index)))
+                    .put("batchSize", batchSize)
+                    .put("workload", spec.workload().name()));
+        }
+        if (!phase.ready.await(READY_TIMEOUT_MSECS, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Only "+(workerCount - phase.ready.getCount())
+                    +" of "+workerCount+" workers ready for phase '"+phaseName+"'");
+        }
+
+        final long phaseStartMsecs = System.currentTimeMillis();
+        final MetricsCollector metrics = MetricsCollector.create(1);
+        final PhaseResultsWriter resultsWriter = PhaseResultsWriter.create(runConfig, phaseName,
+                phaseStartMsecs);
+        phase.metrics = metrics;
+        for (WorkerConnection worker : workers) {
+            worker.channel.send(ClusterChannel.message("start"));
+        }
+
+        // Output same as with local agents, but no need for more than 30 updates
+        final long endTime = phaseStartMsecs + spec.durationMsecs();
+        final long waitBetweenOutputSecs = Math.max(1L, Math.min(10L,
+                (spec.durationMsecs() / 1000L) / 30));
+        System.out.printf("  (output state every %d seconds)\n", waitBetweenOutputSecs);
+        final long waitBetweenOutputMsecs = waitBetweenOutputSecs * 1000L;
+
+        long currTime;
+        long nextOutputTime = phaseStartMsecs + waitBetweenOutputMsecs;
+        IntervalMetrics sinceOutput = null;
+        while ((phase.done.getCount() > 0) && (currTime = System.currentTimeMillis()) < endTime) {
+            Thread.sleep(Math.min(endTime - currTime, SNAPSHOT_INTERVAL_MSECS));
+
+            final IntervalMetrics interval = metrics.takeIntervalSnapshot();
+            if (resultsWriter != null) {
+                resultsWriter.writeInterval(interval);
+            }
+            sinceOutput = (sinceOutput == null) ? interval : sinceOutput.combine(interval);
+            currTime = System.currentTimeMillis();
+            if (currTime < nextOutputTime && currTime < endTime) {
+                continue;
+            }
+            nextOutputTime += waitBetweenOutputMsecs;
+            System.out.printf(" %s: %.2f secs -> %s%s\n    %s\n", phaseName,
+                    (currTime - phaseStartMsecs) / 1000.0,
+                    metrics.callCountsDesc(), metrics.rateDesc(),
+                    sinceOutput.desc());
+            sinceOutput = null;
+        }
+
+        if (!phase.done.await(endTime - System.currentTimeMillis() + DONE_TIMEOUT_MSECS,
+                TimeUnit.MILLISECONDS)) {
+            System.err.printf("WARN: %d workers did not complete phase '%s' in time\n",
+                    phase.done.getCount(), phaseName);
+        }
+        currentPhase = null;
+        metrics.markEnded();
+
+        final IntervalMetrics lastInterval = metrics.takeIntervalSnapshot();
+        if (resultsWriter != null) {
+            resultsWriter.writeInterval(lastInterval);
+        }
+
+        final long phaseMsecs = System.currentTimeMillis() - phaseStartMsecs;
+        System.out.printf("\nCompleted phase ('%s') on %d workers with %d agents in %.2f seconds\n -> %s\n",
+                phaseName, workerCount, agentCount, (phaseMsecs / 1000.0), metrics.allStatsDesc());
+        if (lostWorkers.get() > 0) {
+            System.out.printf(" -> NOTE: lost connection to %d worker(s) during phase\n",
+                    lostWorkers.get());
+        }
+        if (resultsWriter != null) {
+            try (resultsWriter) {
+                resultsWriter.writeSummary(metrics, spec.maxRPS());
+            }
+            System.out.printf(" -> results written in '%s'\n", runConfig.resultsDir());
+        }
+        return metrics;
+    }
+
+    /**
+     * Share of given total for worker with given index, when split evenly between
+     * workers (with remainder going to first workers).
+     */
+    static int share(int total, int workerCount, int workerIndex) {
+        return total / workerCount + ((workerIndex < (total % workerCount)) ? 1 : 0);
+    }
+
+    /**
+     * Share of given rate for worker with given index: same as {@link #share} except
+     * that every worker gets at least 1 RPS (pacers cannot run at 0 RPS), so total
+     * rate may exceed given one if it is below number of workers.
+     */
+    static int shareRate(int rps, int workerCount, int workerIndex) {
+        return Math.max(1, share(rps, workerCount, workerIndex));
+    }
+
+    /**
+     * Method that will tell workers to shut down, and close connections.
+     */
+    @Override
+    public void close() {
+        closing = true;
+        for (WorkerConnection worker : workers) {
+            try {
+                worker.channel.send(ClusterChannel.message("shutdown"));
+            } catch (IOException e) { } // fine, worker may be gone already
+            try {
+                worker.channel.close();
+            } catch (IOException e) { }
+        }
+    }
+
+    private static class PhaseState {
+        final CountDownLatch ready;
+        final CountDownLatch done;
+
+        // Per-worker flags to only count each worker once: 1 = ready, 2 = done
+        final AtomicIntegerArray workerStates;
+
+        // Assigned once all workers are ready, before they are started
+        volatile MetricsCollector metrics;
+
+        PhaseState(int workerCount) {
+            ready = new CountDownLatch(workerCount);
+            done = new CountDownLatch(workerCount);
+            workerStates = new AtomicIntegerArray(workerCount);
+        }
+
+        void markReady(int workerIndex) {
+            if (workerStates.compareAndSet(workerIndex, 0, 1)) {
+                ready.countDown();
+            }
+        }
+
+        void markDone(int workerIndex) {
+            markReady(workerIndex);
+            if (workerStates.compareAndSet(workerIndex, 1, 2)) {
+                done.countDown();
+            }
+        }
+    }
+
+    /**
+     * Connection to a single worker, with a thread for reading messages from it.
+     */
+    private class WorkerConnection extends Thread {
+        final int index;
+        final ClusterChannel channel;
+
+        WorkerConnection(int index, ClusterChannel channel) {
+            super("worker-connection-"+index);
+            setDaemon(true);
+            this.index = index;
+            this.channel = channel;
+        }
+
+        @Override
+        public void run() {
+            try {
+                JsonNode msg;
+                while ((msg = channel.receive()) != null) {
+                    handle(msg);
+                }
+            } catch (Exception e) {
+                if (!closing) {
+                    System.err.printf("ERROR: failed to read from worker %d (%s): (%s) %s\n",
+                            index + 1, channel.remoteDesc(), e.getClass().getName(), e.getMessage());
+                }
+            }
+            if (closing) {
+                return;
+            }
+            System.err.printf("ERROR: lost connection to worker %d\n", index + 1);
+            lostWorkers.incrementAndGet();
+            // Make sure coordinator is not left waiting for the lost worker
+            PhaseState phase = currentPhase;
+            if (phase != null) {
+                phase.markDone(index);
+            }
+        }
+
+        private void handle(JsonNode msg) throws Exception {
+            final String type = msg.path("type").asText();
+            final PhaseState phase = currentPhase;
+            if (phase == null) {
+                throw new IOException("Unexpected message '"+type+"' between phases");
+            }
+            switch (type) {
+                case "ready" -> phase.markReady(index);
+                case "interval" -> phase.metrics.recordInterval(new IntervalMetrics(0L, 0L,
+                        ClusterChannel.decode(msg.path("ok").asText()),
+                        ClusterChannel.decode(msg.path("error").asText()),
+                        msg.path("okDocs").asLong()));
+                case "done" -> phase.markDone(index);
+                default -> throw new IOException("Unexpected message '"+type+"'");
+            }
+        }
+    }
+}
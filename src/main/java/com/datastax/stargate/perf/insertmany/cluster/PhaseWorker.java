@@ -0,0 +1,116 @@
+package com.datastax.stargate.perf.insertmany.cluster;
+
+import com.datastax.stargate.perf.base.AgentOptions;
+import com.datastax.stargate.perf.base.RunConfig;
+import com.datastax.stargate.perf.insertmany.PhaseListener;
+import com.datastax.stargate.perf.insertmany.TestPhaseRunner;
+import com.datastax.stargate.perf.insertmany.agent.IntervalMetrics;
+import com.datastax.stargate.perf.insertmany.entity.ContainerItemGenerator;
+import com.datastax.stargate.perf.insertmany.entity.ContainerItemIdGenerator;
+import com.datastax.stargate.perf.insertmany.entity.DocumentShape;
+import com.datastax.stargate.perf.insertmany.entity.ItemContainer;
+import com.datastax.stargate.perf.insertmany.scenario.PhaseSpec;
+import com.datastax.stargate.perf.insertmany.scenario.Workload;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+
+/**
+ * Worker side of a distributed test run: connects to {@link PhaseCoordinator},
+ * then runs phases as instructed (with its share of agents and RPS), sending
+ * interval metrics back to the coordinator.
+ */
+public class PhaseWorker
+{
+    /**
+     * How long to keep trying to connect to coordinator
+     */
+    private final static long CONNECT_TIMEOUT_MSECS = 120_000L;
+
+    private final ClusterChannel channel;
+
+    private final int workerIndex;
+
+    private final int workerCount;
+
+    private PhaseWorker(ClusterChannel channel, int workerIndex, int workerCount) {
+        this.channel = channel;
+        this.workerIndex = workerIndex;
+        this.workerCount = workerCount;
+    }
+
+    public static PhaseWorker connect(String coordinatorAddress)
+        throws IOException, InterruptedException
+    {
+        System.out.printf("Connecting to coordinator at '%s'...", coordinatorAddress);
+        ClusterChannel channel = ClusterChannel.connect(coordinatorAddress, CONNECT_TIMEOUT_MSECS);
+        channel.send(ClusterChannel.message("hello"));
+        JsonNode welcome = channel.receive("welcome");
+        PhaseWorker worker = new PhaseWorker(channel,
+                welcome.path("workerIndex").asInt(), welcome.path("workerCount").asInt());
+        System.out.printf(" connected as worker %d/%d\n", worker.workerIndex + 1,
+                worker.workerCount);
+        return worker;
+    }
+
+    /**
+     * Method for running phases as instructed by coordinator, until coordinator
+     * tells worker to shut down (or closes connection).
+     */
+    public void run(ItemContainer items, int batchSize, AgentOptions agentOptions,
+                    RunConfig runConfig, DocumentShape docShape)
+        throws IOException, InterruptedException
+    {
+        // Each worker must generate distinct ids, so interleave cycles
+        final ContainerItemGenerator itemGenerator = new ContainerItemGenerator(
+                ContainerItemIdGenerator.interleavedCycleGenerator(workerIndex, workerCount),
+                items.vectorSize(), docShape);
+        // Read and mutation rates split between workers same as insert rate
+        runConfig = runConfig.forWorker(workerCount);
+        try (channel) {
+            JsonNode msg;
+            while ((msg = channel.receive()) != null) {
+                final String type = msg.path("type").asText();
+                if ("shutdown".equals(type)) {
+                    System.out.println("Coordinator requested shutdown.");
+                    return;
+                }
+                if (!"phase".equals(type)) {
+                    throw new IOException("Unexpected message '"+type+"' from coordinator");
+                }
+                // Container truncated by coordinator, if necessary
+                PhaseSpec spec = new PhaseSpec(msg.path("name").asText(),
+                        msg.path("durationMsecs").asLong(),
+                        msg.path("startRPS").asInt(), msg.path("endRPS").asInt(),
+                        msg.path("agentCount").asInt(), msg.path("batchSize").asInt(),
+                        Workload.valueOf(msg.path("workload").asText()), false);
+                TestPhaseRunner runner = new TestPhaseRunner(spec.agentCount(),
+                        items, itemGenerator, batchSize, agentOptions, runConfig);
+                runner.runPhase(spec, new Listener());
+                channel.send(ClusterChannel.message("done"));
+            }
+            System.out.println("Coordinator closed connection.");
+        }
+    }
+
+    private class Listener implements PhaseListener {
+        @Override
+        public boolean truncateContainer() {
+            return false;
+        }
+
+        @Override
+        public void awaitStart() throws IOException {
+            channel.send(ClusterChannel.message("ready"));
+            channel.receive("start");
+        }
+
+        @Override
+        public void intervalCompleted(IntervalMetrics interval) throws IOException {
+            channel.send(ClusterChannel.message("interval")
+                    .put("ok", ClusterChannel.encode(interval.okLatencies()))
+                    .put("error", ClusterChannel.encode(interval.errorLatencies()))
+                    .put("okDocs", interval.okDocs()));
+        }
+    }
+}
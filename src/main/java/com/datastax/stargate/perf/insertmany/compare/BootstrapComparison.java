@@ -0,0 +1,144 @@
+package com.datastax.stargate.perf.insertmany.compare;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Comparison of a single metric between baseline and candidate samples, using
+ * moving block bootstrap: intervals of both runs are resampled (with replacement)
+ * in blocks of consecutive intervals repeatedly, and the relative change of the
+ * metric calculated for each round, giving the confidence interval for the
+ * relative change. Resampling blocks (instead of single intervals) retains
+ * autocorrelation of adjacent intervals, which would otherwise give too narrow
+ * confidence intervals.
+ *
+ * @param baselineValue Value of metric over all baseline intervals
+ * @param candidateValue Value of metric over all candidate intervals
+ * @param change Relative change of values (0.1 for 10% increase); or, for
+ *    {@link #compareDifference}, difference of values
+ * @param ciLow Lower bound of confidence interval for change
+ * @param ciHigh Upper bound of confidence interval for change
+ */
+public record BootstrapComparison(double baselineValue, double candidateValue,
+                                  double change, double ciLow, double ciHigh)
+{
+    /**
+     * Metric calculated over given intervals (indexes of which may repeat).
+     */
+    @FunctionalInterface
+    public interface Statistic {
+        double of(int[] intervals);
+    }
+
+    /**
+     * Method for comparing means of per-interval samples.
+     */
+    public static BootstrapComparison compareMeans(double[] baseline, double[] candidate,
+                                                   int iterations, double confidence,
+                                                   int blockLength, SplittableRandom rnd) {
+        return compare(baseline.length, ix -> mean(baseline, ix),
+                candidate.length, ix -> mean(candidate, ix),
+                iterations, confidence, blockLength, rnd);
+    }
+
+    /**
+     * @param blockLength Number of consecutive intervals resampled together; 0 for
+     *    square root of number of intervals
+     */
+    public static BootstrapComparison compare(int baselineCount, Statistic baseline,
+                                              int candidateCount, Statistic candidate,
+                                              int iterations, double confidence,
+                                              int blockLength, SplittableRandom rnd) {
+        return compare(baselineCount, baseline, candidateCount, candidate,
+                iterations, confidence, blockLength, rnd, BootstrapComparison::relativeChange);
+    }
+
+    /**
+     * Variant of {@link #compare} that compares (absolute) difference of values instead
+     * of relative change: for metrics like error rates, where baseline may be 0.
+     */
+    public static BootstrapComparison compareDifference(int baselineCount, Statistic baseline,
+                                                        int candidateCount, Statistic candidate,
+                                                        int iterations, double confidence,
+                                                        int blockLength, SplittableRandom rnd) {
+        return compare(baselineCount, baseline, candidateCount, candidate,
+                iterations, confidence, blockLength, rnd, (base, cand) -> cand - base);
+    }
+
+    private static BootstrapComparison compare(int baselineCount, Statistic baseline,
+                                               int candidateCount, Statistic candidate,
+                                               int iterations, double confidence,
+                                               int blockLength, SplittableRandom rnd,
+                                               DoubleBinaryOperator changeFunction) {
+        final double baseValue = baseline.of(all(baselineCount));
+        final double candValue = candidate.of(all(candidateCount));
+        final int[] baseIx = new int[baselineCount];
+        final int[] candIx = new int[candidateCount];
+        final double[] changes = new double[iterations];
+        for (int i = 0; i < iterations; ++i) {
+            resample(baseIx, blockLength, rnd);
+            resample(candIx, blockLength, rnd);
+            changes[i] = changeFunction.applyAsDouble(baseline.of(baseIx), candidate.of(candIx));
+        }
+        Arrays.sort(changes);
+        final double tail = (1.0 - confidence) / 2.0;
+        return new BootstrapComparison(baseValue, candValue,
+                changeFunction.applyAsDouble(baseValue, candValue),
+                changes[(int) Math.floor(tail * (iterations - 1))],
+                changes[(int) Math.ceil((1.0 - tail) * (iterations - 1))]);
+    }
+
+    /**
+     * @return True if the whole confidence interval is above zero (change is a
+     *    statistically significant increase)
+     */
+    public boolean significantIncrease() {
+        return ciLow > 0.0;
+    }
+
+    /**
+     * @return True if the whole confidence interval is below zero (change is a
+     *    statistically significant decrease)
+     */
+    public boolean significantDecrease() {
+        return ciHigh < 0.0;
+    }
+
+    public static int defaultBlockLength(int intervalCount) {
+        return Math.max(1, (int) Math.round(Math.sqrt(intervalCount)));
+    }
+
+    // Fills given array with indexes of randomly chosen blocks of consecutive intervals
+    private static void resample(int[] intervals, int blockLength, SplittableRandom rnd) {
+        final int count = intervals.length;
+        final int block = Math.min(count,
+                (blockLength > 0) ? blockLength : defaultBlockLength(count));
+        for (int i = 0; i < count; ) {
+            final int start = rnd.nextInt(count - block + 1);
+            for (int j = 0; j < block && i < count; ++j) {
+                intervals[i++] = start + j;
+            }
+        }
+    }
+
+    private static int[] all(int count) {
+        final int[] intervals = new int[count];
+        for (int i = 0; i < count; ++i) {
+            intervals[i] = i;
+        }
+        return intervals;
+    }
+
+    private static double mean(double[] samples, int[] intervals) {
+        double sum = 0.0;
+        for (int ix : intervals) {
+            sum += samples[ix];
+        }
+        return sum / Math.max(1, intervals.length);
+    }
+
+    private static double relativeChange(double base, double cand) {
+        return (base == 0.0) ? 0.0 : (cand - base) / base;
+    }
+}
@@ -0,0 +1,108 @@
+package com.datastax.stargate.perf.insertmany.compare;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+
+import java.util.Arrays;
+
+/**
+ * Per-interval latency histograms of a phase in compact form, for calculating
+ * percentiles of merged histograms of (resampled) intervals: percentiles of the
+ * whole phase, not averages of per-interval percentiles.
+ *<p>
+ * Recorded values of all intervals are mapped to a shared, sorted array of distinct
+ * values, and each interval only keeps counts of values it has, so merging is
+ * cheap enough to do for every bootstrap round.
+ */
+public class IntervalHistograms
+{
+    // Distinct (highest equivalent) values recorded in any interval, ascending
+    private final long[] values;
+
+    // For each interval, indexes (into "values") and counts of values recorded
+    private final int[][] valueIndexes;
+    private final long[][] valueCounts;
+
+    // Buffer for merged counts; not thread-safe
+    private final long[] merged;
+
+    private IntervalHistograms(long[] values, int[][] valueIndexes, long[][] valueCounts) {
+        this.values = values;
+        this.valueIndexes = valueIndexes;
+        this.valueCounts = valueCounts;
+        merged = new long[values.length];
+    }
+
+    public static IntervalHistograms create(Histogram[] intervals) {
+        final Histogram all = new Histogram(3);
+        for (Histogram h : intervals) {
+            all.add(h);
+        }
+        long[] values = new long[64];
+        int count = 0;
+        for (HistogramIterationValue v : all.recordedValues()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = v.getValueIteratedTo();
+        }
+        final long[] distinct = Arrays.copyOf(values, count);
+        final int[][] indexes = new int[intervals.length][];
+        final long[][] counts = new long[intervals.length][];
+        for (int i = 0; i < intervals.length; ++i) {
+            int[] ix = new int[16];
+            long[] c = new long[16];
+            int n = 0;
+            for (HistogramIterationValue v : intervals[i].recordedValues()) {
+                if (n == ix.length) {
+                    ix = Arrays.copyOf(ix, n * 2);
+                    c = Arrays.copyOf(c, n * 2);
+                }
+                // Should always be found, but if precision differs, use closest value above
+                final int found = Arrays.binarySearch(distinct,
+                        all.highestEquivalentValue(v.getValueIteratedTo()));
+                ix[n] = (found >= 0) ? found : Math.min(distinct.length - 1, -found - 1);
+                c[n++] = v.getCountAddedInThisIterationStep();
+            }
+            indexes[i] = Arrays.copyOf(ix, n);
+            counts[i] = Arrays.copyOf(c, n);
+        }
+        return new IntervalHistograms(distinct, indexes, counts);
+    }
+
+    public int intervalCount() {
+        return valueIndexes.length;
+    }
+
+    /**
+     * Method for calculating given percentile (100.0 for max) of latencies of given
+     * intervals merged, in milliseconds.
+     */
+    public double percentileMsecs(int[] intervals, double percentile) {
+        Arrays.fill(merged, 0L);
+        long total = 0L;
+        for (int interval : intervals) {
+            final int[] ix = valueIndexes[interval];
+            final long[] c = valueCounts[interval];
+            for (int i = 0; i < ix.length; ++i) {
+                merged[ix[i]] += c[i];
+            }
+            for (long count : c) {
+                total += count;
+            }
+        }
+        if (total == 0L) {
+            return 0.0;
+        }
+        // Same rounding as Histogram.getValueAtPercentile()
+        final long target = Math.max(1L, (long) ((Math.min(percentile, 100.0) / 100.0) * total + 0.5));
+        long seen = 0L;
+        for (int i = 0; i < merged.length; ++i) {
+            seen += merged[i];
+            if (seen >= target) {
+                return values[i] / 1_000_000.0;
+            }
+        }
+        return values[values.length - 1] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,114 @@
+package com.datastax.stargate.perf.insertmany.compare;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.EncodableHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-interval samples of a single test phase, read from results files written by
+ * {@link com.datastax.stargate.perf.insertmany.agent.PhaseResultsWriter}: docs/sec
+ * and call counts from JSON file, latency histograms (of successful calls) from
+ * HdrHistogram log file with the same base name.
+ *
+ * @param docsPerSec Rate of documents of successful calls, per interval
+ * @param okLatencies Latencies of successful calls, per interval
+ * @param okCalls Number of successful calls, per interval
+ * @param errorCalls Number of failed calls, per interval
+ */
+public record PhaseSamples(String source, String phaseName, JsonNode config,
+                           double[] docsPerSec, IntervalHistograms okLatencies,
+                           long[] okCalls, long[] errorCalls)
+{
+    /**
+     * Intervals shorter than this (like the final drain interval) are not
+     * representative and skipped
+     */
+    private final static double MIN_INTERVAL_SECS = 0.5;
+
+    private final static ObjectMapper MAPPER = new ObjectMapper();
+
+    public static PhaseSamples read(File file, int skipIntervals) throws IOException {
+        JsonNode root = MAPPER.readTree(file);
+        JsonNode intervals = root.path("intervals");
+        if (!intervals.isArray()) {
+            throw new IOException("Not a phase results file (no 'intervals'): "+file);
+        }
+        final List<Histogram> histograms = readOkHistograms(file);
+        if (histograms.size() < intervals.size()) {
+            throw new IOException("Histogram log has "+histograms.size()+" intervals, JSON file "
+                    +intervals.size()+": "+file);
+        }
+        List<Double> docRates = new ArrayList<>();
+        List<Histogram> included = new ArrayList<>();
+        List<Long> okCalls = new ArrayList<>();
+        List<Long> errorCalls = new ArrayList<>();
+        for (int i = 0; i < intervals.size(); ++i) {
+            final JsonNode interval = intervals.get(i);
+            if (i < skipIntervals
+                    || interval.path("durationSecs").asDouble() < MIN_INTERVAL_SECS) {
+                continue;
+            }
+            docRates.add(interval.path("docsPerSec").asDouble());
+            included.add(histograms.get(i));
+            okCalls.add(interval.path("okCalls").asLong());
+            errorCalls.add(interval.path("errorCalls").asLong());
+        }
+        if (included.size() < 2) {
+            throw new IOException("Need at least 2 intervals to compare, got "+included.size()+" from: "+file);
+        }
+        return new PhaseSamples(file.getPath(), root.path("phase").path("name").asText(),
+                root.path("config"),
+                docRates.stream().mapToDouble(Double::doubleValue).toArray(),
+                IntervalHistograms.create(included.toArray(new Histogram[0])),
+                okCalls.stream().mapToLong(Long::longValue).toArray(),
+                errorCalls.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    // Histograms of successful calls ("ok" tag), one per interval of JSON file
+    private static List<Histogram> readOkHistograms(File jsonFile) throws IOException {
+        final String path = jsonFile.getPath();
+        final File hlogFile = new File(path.endsWith(".json")
+                ? path.substring(0, path.length() - 5) + ".hlog" : path + ".hlog");
+        if (!hlogFile.isFile()) {
+            throw new IOException("No histogram log file '"+hlogFile+"' for: "+jsonFile);
+        }
+        List<Histogram> result = new ArrayList<>();
+        HistogramLogReader reader = new HistogramLogReader(hlogFile);
+        try {
+            EncodableHistogram h;
+            while ((h = reader.nextIntervalHistogram()) != null) {
+                if ("ok".equals(h.getTag())) {
+                    result.add((Histogram) h);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return result;
+    }
+
+    public int intervalCount() {
+        return docsPerSec.length;
+    }
+
+    /**
+     * Percentage of calls that failed, over given intervals (indexes of which
+     * may repeat).
+     */
+    public double errorPct(int[] intervals) {
+        long ok = 0L, errors = 0L;
+        for (int ix : intervals) {
+            ok += okCalls[ix];
+            errors += errorCalls[ix];
+        }
+        final long total = ok + errors;
+        return (total == 0L) ? 0.0 : 100.0 * errors / total;
+    }
+}
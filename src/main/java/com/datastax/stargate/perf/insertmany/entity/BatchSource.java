@@ -0,0 +1,45 @@
+package com.datastax.stargate.perf.insertmany.entity;
+
+import java.util.List;
+import java.util.function.IntSupplier;
+
+/**
+ * Source of batches of {@link ContainerItem}s for agents to insert.
+ */
+public interface BatchSource extends AutoCloseable {
+    List<ContainerItem> nextBatch();
+
+    /**
+     * Description of state of the source to include in periodic output, if any;
+     * empty String if none.
+     */
+    default String statusDesc() {
+        return "";
+    }
+
+    /**
+     * Number of batches generated ahead of time, waiting for agents to take them;
+     * 0 if batches are generated on demand.
+     */
+    default int bufferedBatches() {
+        return 0;
+    }
+
+    @Override
+    default void close() { }
+
+    /**
+     * Factory method for source that generates batches on calling thread when requested.
+     */
+    static BatchSource direct(ContainerItemGenerator generator, int batchSize) {
+        return () -> generator.generate(batchSize);
+    }
+
+    /**
+     * Factory method for source that generates batches on calling thread when requested,
+     * of size current at the time of request.
+     */
+    static BatchSource direct(ContainerItemGenerator generator, IntSupplier batchSize) {
+        return () -> generator.generate(batchSize.getAsInt());
+    }
+}
@@ -1,11 +1,13 @@
 package com.datastax.stargate.perf.insertmany.entity;
 
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
 import com.datastax.astra.client.collections.definition.documents.Document;
 import com.datastax.astra.client.core.vector.DataAPIVector;
 import com.datastax.astra.client.tables.definition.rows.Row;
+import com.datastax.oss.driver.api.core.data.CqlVector;
 
 /**
  * Lightweight wrapper for information needed to create a Document or Row to insert
@@ -21,18 +23,60 @@ public class ContainerItem
 
     public final float[] vector;
 
+    /**
+     * Additional fields of Documents, as per {@link DocumentShape}; null if none
+     * (not used for Tables)
+     */
+    public final Map<String, Object> extraFields;
+
+    // Id item was generated from, if any (null for items read back)
+    private final ContainerItemId id;
+
     private ContainerItem(String idAsString,
                           long value, String description, float[] vector) {
+        this(null, idAsString, value, description, vector, null);
+    }
+
+    private ContainerItem(ContainerItemId id, String idAsString,
+                          long value, String description, float[] vector,
+                          Map<String, Object> extraFields) {
+        this.id = id;
         this.idAsString = idAsString;
         this.vector = vector;
         this.value = value;
         this.description = description;
+        this.extraFields = extraFields;
     }
 
     public static ContainerItem create(ContainerItemId id, int vectorLength) {
-        return new ContainerItem(Objects.requireNonNull(id).toString(),
+        return create(id, vectorLength, null);
+    }
+
+    /**
+     * @param shape Shape of additional fields to generate; null for none
+     */
+    public static ContainerItem create(ContainerItemId id, int vectorLength, DocumentShape shape) {
+        return new ContainerItem(id, Objects.requireNonNull(id).toString(),
                 id.generateTestInt(), id.generateString(100),
-                (vectorLength < 1) ? null : id.generateVector(vectorLength));
+                (vectorLength < 1) ? null : id.generateVector(vectorLength),
+                (shape == null) ? null : shape.generate(id.seedForRandom()));
+    }
+
+    /**
+     * Method for constructing a new version of this item, to overwrite it with:
+     * same id, vector, description and additional fields; different value.
+     */
+    public ContainerItem withValue(long newValue) {
+        return new ContainerItem(id, idAsString, newValue, description, vector, extraFields);
+    }
+
+    /**
+     * @return Seed of the id of this item (see {@link ContainerItemId#seedForRandom()});
+     *    parsed from id only for items not generated locally
+     */
+    public long seedForRandom() {
+        return (id != null) ? id.seedForRandom()
+                : ContainerItemId.fromString(idAsString).seedForRandom();
     }
 
     public static ContainerItem fromDocument(Optional<Document> maybeDoc) {
@@ -55,6 +99,11 @@ public class ContainerItem
         }
         doc.put("value", value);
         doc.put("description", description);
+        if (extraFields != null) {
+            for (Map.Entry<String, Object> entry : extraFields.entrySet()) {
+                doc.put(entry.getKey(), entry.getValue());
+            }
+        }
         return doc;
     }
 
@@ -90,6 +139,34 @@ public class ContainerItem
         return row;
     }
 
+    public static ContainerItem fromCqlRow(com.datastax.oss.driver.api.core.cql.Row row) {
+        CqlVector<Float> cqlVector = row.getColumnDefinitions().contains("vector")
+                ? row.getVector("vector", Float.class) : null;
+        float[] rawVector;
+        if (cqlVector == null) {
+            rawVector = null;
+        } else {
+            rawVector = new float[cqlVector.size()];
+            for (int i = 0; i < rawVector.length; ++i) {
+                rawVector[i] = cqlVector.get(i);
+            }
+        }
+        return new ContainerItem(row.getString("id"), row.getLong("value"),
+                row.getString("description"), rawVector);
+    }
+
+    public CqlVector<Float> cqlVector() {
+        return (vector == null) ? null : cqlVector(vector);
+    }
+
+    public static CqlVector<Float> cqlVector(float[] vector) {
+        Float[] boxed = new Float[vector.length];
+        for (int i = 0; i < boxed.length; ++i) {
+            boxed[i] = vector[i];
+        }
+        return CqlVector.newInstance(boxed);
+    }
+
     public String idAsString() {
         return idAsString;
     }
@@ -8,20 +8,36 @@ public class ContainerItemGenerator {
 
     private final int vectorLength;
 
+    // Shape of additional fields of Documents; null for none
+    private final DocumentShape shape;
+
     public ContainerItemGenerator(ContainerItemIdGenerator idGenerator, int vectorLength) {
+        this(idGenerator, vectorLength, null);
+    }
+
+    public ContainerItemGenerator(ContainerItemIdGenerator idGenerator, int vectorLength,
+                                  DocumentShape shape) {
         this.idGenerator = idGenerator;
         this.vectorLength = vectorLength;
+        this.shape = shape;
     }
 
     public ContainerItem generateSingle() {
-        return ContainerItem.create(idGenerator.nextId(), vectorLength);
+        return generate(idGenerator.nextId());
+    }
+
+    /**
+     * Method for (re)generating item with given id: same as when generated originally.
+     */
+    public ContainerItem generate(ContainerItemId id) {
+        return ContainerItem.create(id, vectorLength, shape);
     }
 
     public List<ContainerItem> generate(int count) {
-        ContainerItemId[] ids = idGenerator.nextIds(count);
+        final int cycle = idGenerator.nextCycle();
         List<ContainerItem> result = new ArrayList<>(count);
         for (int i = 0; i < count; ++i) {
-            result.add(ContainerItem.create(ids[i], vectorLength));
+            result.add(generate(new ContainerItemId(cycle, i)));
         }
         return result;
     }
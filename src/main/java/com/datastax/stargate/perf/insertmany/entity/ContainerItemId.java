@@ -1,12 +1,29 @@
 package com.datastax.stargate.perf.insertmany.entity;
 
-import java.util.Random;
-
 /**
  * Immutable id for a collection item; used both as generating Document key and
  * for generating Document content in a reproducible manner.
  */
 public record ContainerItemId(int cycle, int step) {
+    /**
+     * Method for parsing id from its String representation (see {@link #toString()}).
+     */
+    public static ContainerItemId fromString(String idAsString) {
+        final int sep = idAsString.indexOf('_');
+        if (!idAsString.startsWith("id#") || sep < 0) {
+            throw new IllegalArgumentException("Invalid item id '"+idAsString+"'");
+        }
+        return new ContainerItemId(Integer.parseInt(idAsString, 3, sep, 10),
+                Integer.parseInt(idAsString, sep + 1, idAsString.length(), 10));
+    }
+
+    /**
+     * Method for reconstructing id from its seed (see {@link #seedForRandom()}).
+     */
+    public static ContainerItemId fromSeed(long seed) {
+        return new ContainerItemId((int) (seed >>> 32), (int) seed);
+    }
+
     public long seedForRandom() {
         return ((long) cycle << 32) | step;
     }
@@ -16,29 +33,11 @@ public record ContainerItemId(int cycle, int step) {
     }
 
     public String generateString(int length) {
-        final StringBuilder sb = new StringBuilder(length);
-        final Random rnd = new Random(seedForRandom());
-
-        for (int i = 0; i < length; ++i) {
-            if ((i & 7) == 7) {
-                sb.append(' ');
-            } else {
-                sb.append((char) ('a' + rnd.nextInt(25)));
-            }
-        }
-        return sb.toString();
+        return ContentSynthesizer.text(seedForRandom(), length);
     }
 
     public float[] generateVector(int vectorLength) {
-        Random rnd = new Random(seedForRandom());
-        float[] result = new float[vectorLength];
-        // TODO: pre-generate chunks/blocks, compose
-        for (int i = 0; i < vectorLength; ++i) {
-            // Scale from [0.0, 1.0) to [-1.0, 1.0)
-            result[i] = rnd.nextFloat() * 2 - 1;
-        }
-        return result;
-
+        return ContentSynthesizer.vector(seedForRandom(), vectorLength);
     }
 
     @Override
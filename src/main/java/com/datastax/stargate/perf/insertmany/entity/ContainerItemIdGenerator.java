@@ -1,53 +1,62 @@
 package com.datastax.stargate.perf.insertmany.entity;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Generator for {@link ContainerItemId} which is based on concept of two-level
  * sequences: first, a cycle that is monotonically increasing or decreasing;
  * and then a step within that cycle (monotonically increasing).
  * Cycle starting value is configurable; steps start from 0.
+ *<p>
+ * Generator is shared by all agents of a test phase so cycles are allocated using
+ * atomic fetch-and-add (no locking): each caller gets a distinct cycle, and
+ * ids within that cycle are then formed by caller without further coordination.
  */
 public class ContainerItemIdGenerator {
     /**
-     * Whether {@link #cycle} value will be increasing or decreasing.
+     * Amount {@link #cycle} value changes by for each allocation: positive for
+     * increasing, negative for decreasing cycles.
      */
-    private final boolean increasing;
+    private final int delta;
 
-    private int cycle;
+    /**
+     * Last allocated cycle
+     */
+    private final AtomicInteger cycle;
 
-    private ContainerItemIdGenerator(boolean increasing, int cycle) {
-        this.increasing = increasing;
-        this.cycle = cycle;
+    private ContainerItemIdGenerator(int delta, int cycle) {
+        this.delta = delta;
+        this.cycle = new AtomicInteger(cycle);
     }
 
     public static ContainerItemIdGenerator increasingCycleGenerator(int startCycle) {
-        return new ContainerItemIdGenerator(true, startCycle);
+        return new ContainerItemIdGenerator(1, startCycle);
     }
 
     public static ContainerItemIdGenerator decreasingCycleGenerator(int startCycle) {
-        return new ContainerItemIdGenerator(false, startCycle);
+        return new ContainerItemIdGenerator(-1, startCycle);
     }
 
-    public synchronized ContainerItemId nextId()
-    {
-        nextCycle();
-        return new ContainerItemId(cycle, 0);
+    /**
+     * Generator for one of {@code generatorCount} generators (like distributed workers)
+     * that need to produce distinct ids: generator with index {@code i} allocates
+     * increasing cycles {@code i + N, i + 2N, ...}.
+     */
+    public static ContainerItemIdGenerator interleavedCycleGenerator(int generatorIndex,
+                                                                     int generatorCount) {
+        return new ContainerItemIdGenerator(generatorCount, generatorIndex);
     }
 
-    public synchronized ContainerItemId[] nextIds(int count)
+    public ContainerItemId nextId()
     {
-        nextCycle();
-        ContainerItemId[] ids = new ContainerItemId[count];
-        for (int i = 0; i < count; ++i) {
-            ids[i] = new ContainerItemId(cycle, i);
-        }
-        return ids;
+        return new ContainerItemId(nextCycle(), 0);
     }
 
-    private void nextCycle() {
-        if (increasing) {
-            ++cycle;
-        } else {
-            --cycle;
-        }
+    /**
+     * Method for allocating a new cycle: caller may then create ids for steps
+     * {@code 0 - (N-1)} of the cycle.
+     */
+    public int nextCycle() {
+        return cycle.addAndGet(delta);
     }
 }
@@ -0,0 +1,100 @@
+package com.datastax.stargate.perf.insertmany.entity;
+
+import java.util.SplittableRandom;
+
+/**
+ * Helper for fast, reproducible generation of item content (vectors, descriptions)
+ * as a pure function of a seed. Instead of generating every float/character
+ * separately, content is composed from blocks pre-generated (once, from fixed seed)
+ * at startup: per-item seed only determines which blocks (and at which offset)
+ * are used.
+ */
+public final class ContentSynthesizer {
+    /**
+     * Seed used for pre-generating blocks: must never change, as otherwise
+     * contents generated for a given item would change as well
+     */
+    private final static long BLOCK_SEED = 0x5EED_B10C_CAFE_F00DL;
+
+    /**
+     * Salt to mix in to get different sequences for text than vectors
+     */
+    private final static long TEXT_SALT = 0x7E47_7E47_7E47_7E47L;
+
+    // Vectors are composed from blocks of floats: choice of block and starting offset
+    // within block determined per-item, per-position
+
+    private final static int VECTOR_BLOCK_BITS = 6;
+    private final static int VECTOR_BLOCK_LEN = 1 << VECTOR_BLOCK_BITS;
+    private final static int VECTOR_BLOCK_COUNT = 1024;
+
+    /**
+     * Vector blocks stored as twice the block length (block repeated) so that
+     * rotated block can be copied with a single call
+     */
+    private final static float[] VECTOR_BLOCKS = new float[VECTOR_BLOCK_COUNT * VECTOR_BLOCK_LEN * 2];
+
+    // Text is composed from "words" of 7 letters, followed by a space
+
+    private final static int WORD_LEN = 8;
+    private final static int WORD_COUNT = 4096;
+
+    private final static char[] WORDS = new char[WORD_COUNT * WORD_LEN];
+
+    static {
+        SplittableRandom rnd = new SplittableRandom(BLOCK_SEED);
+        for (int block = 0; block < VECTOR_BLOCK_COUNT; ++block) {
+            final int base = block * VECTOR_BLOCK_LEN * 2;
+            for (int i = 0; i < VECTOR_BLOCK_LEN; ++i) {
+                // Scale from [0.0, 1.0) to [-1.0, 1.0)
+                final float f = (float) (rnd.nextDouble() * 2.0 - 1.0);
+                VECTOR_BLOCKS[base + i] = f;
+                VECTOR_BLOCKS[base + VECTOR_BLOCK_LEN + i] = f;
+            }
+        }
+        for (int i = 0; i < WORDS.length; ++i) {
+            if ((i & 7) == 7) {
+                WORDS[i] = ' ';
+            } else {
+                WORDS[i] = (char) ('a' + rnd.nextInt(25));
+            }
+        }
+    }
+
+    private ContentSynthesizer() { }
+
+    public static float[] vector(long seed, int length) {
+        final SplittableRandom rnd = new SplittableRandom(seed);
+        final float[] result = new float[length];
+        for (int offset = 0; offset < length; offset += VECTOR_BLOCK_LEN) {
+            final int r = rnd.nextInt();
+            final int block = r & (VECTOR_BLOCK_COUNT - 1);
+            final int rotation = (r >>> 16) & (VECTOR_BLOCK_LEN - 1);
+            System.arraycopy(VECTOR_BLOCKS, block * VECTOR_BLOCK_LEN * 2 + rotation,
+                    result, offset, Math.min(VECTOR_BLOCK_LEN, length - offset));
+        }
+        return result;
+    }
+
+    /**
+     * Method for generating text consisting of 7-letter words separated by spaces
+     * (every 8th character being a space).
+     */
+    public static String text(long seed, int length) {
+        return text(new SplittableRandom(seed ^ TEXT_SALT), length);
+    }
+
+    /**
+     * Variant of {@link #text(long, int)} that uses given random generator, for
+     * generating multiple texts for an item.
+     */
+    public static String text(SplittableRandom rnd, int length) {
+        final char[] result = new char[length];
+        for (int offset = 0; offset < length; offset += WORD_LEN) {
+            final int word = rnd.nextInt(WORD_COUNT);
+            System.arraycopy(WORDS, word * WORD_LEN,
+                    result, offset, Math.min(WORD_LEN, length - offset));
+        }
+        return new String(result);
+    }
+}
@@ -0,0 +1,380 @@
+package com.datastax.stargate.perf.insertmany.entity;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Declarative shape of additional fields of generated Documents (for Collections),
+ * defined as comma-separated options:
+ *<pre>
+ *   fields=N            number of (leaf) fields (default: 10)
+ *   depth=N             nesting depth: 1 for flat, more for sub-documents (default: 1)
+ *   arrays=PCT          percentage of fields that are arrays (default: 0)
+ *   arrayLen=MIN-MAX    array lengths, uniformly distributed (default: 1-5)
+ *   strLen=LEN          string lengths: fixed ({@code N}), uniformly distributed
+ *                       ({@code MIN-MAX}) or exponentially distributed with given
+ *                       mean ({@code expMEAN}) (default: 16-64)
+ *   numbers=PCT         percentage of fields that are numbers (default: 0)
+ *   dates=PCT           percentage of fields that are dates (default: 0)
+ *   uuids=PCT           percentage of fields that are UUIDs (default: 0)
+ *   indexAllow=PATH     path to index (if any given, only these are indexed)
+ *   indexDeny=PATH      path not to index
+ *</pre>
+ * Fields not of other types are strings. {@code indexAllow} and {@code indexDeny}
+ * may be repeated, but not both used. For example:
+ *<pre>
+ *   fields=40, depth=3, arrays=10, strLen=exp32, numbers=30, dates=10, uuids=10, indexDeny=o0
+ *</pre>
+ * Options may also be separated by semicolons or line feeds; in files, lines starting
+ * with '#' are comments.
+ *<p>
+ * Shape is compiled into a template (tree of fields, with names and types fixed
+ * using a constant seed) so that a field always has the same path and type; per
+ * Document only values (and lengths of arrays and strings) are generated, as a pure
+ * function of the item seed. With nesting, each level has same number of entries
+ * (enough to hold all fields): sub-documents are named {@code o0}, {@code o1}
+ * and so on; fields {@code f0}, {@code f1} and so on (numbered over the whole Document),
+ * so paths are like {@code o1.o0.f5}.
+ */
+public class DocumentShape
+{
+    /**
+     * Seed used for choosing types of fields: must never change, as otherwise
+     * types of fields of a shape would change as well
+     */
+    private final static long TEMPLATE_SEED = 0x5AA9_E5EE_D0C5_0001L;
+
+    /**
+     * Salt to mix in to get different sequences than other content
+     */
+    private final static long VALUE_SALT = 0x0D0C_0D0C_0D0C_0D0CL;
+
+    // Dates are spread over 10 years since 2015-01-01
+    private final static long DATE_BASE_MSECS = 1420070400000L;
+    private final static long DATE_RANGE_MSECS = 10L * 365 * 24 * 3600 * 1000;
+
+    private enum FieldType { STRING, NUMBER, DATE, UUID }
+
+    private final String spec;
+
+    private final int fieldCount;
+    private final int depth;
+    private final int arrayPct;
+    private final int minArrayLen, maxArrayLen;
+    private final int minStrLen, maxStrLen;
+    // Mean of exponentially distributed string lengths; 0 if uniform
+    private final int meanStrLen;
+    private final int numberPct, datePct, uuidPct;
+    private final List<String> indexAllow;
+    private final List<String> indexDeny;
+
+    // Compiled template: entries of the root object
+    private final Node[] root;
+
+    private DocumentShape(String spec, int fieldCount, int depth,
+                          int arrayPct, int minArrayLen, int maxArrayLen,
+                          int minStrLen, int maxStrLen, int meanStrLen,
+                          int numberPct, int datePct, int uuidPct,
+                          List<String> indexAllow, List<String> indexDeny) {
+        this.spec = spec;
+        this.fieldCount = fieldCount;
+        this.depth = depth;
+        this.arrayPct = arrayPct;
+        this.minArrayLen = minArrayLen;
+        this.maxArrayLen = maxArrayLen;
+        this.minStrLen = minStrLen;
+        this.maxStrLen = maxStrLen;
+        this.meanStrLen = meanStrLen;
+        this.numberPct = numberPct;
+        this.datePct = datePct;
+        this.uuidPct = uuidPct;
+        this.indexAllow = indexAllow;
+        this.indexDeny = indexDeny;
+        root = compile();
+    }
+
+    /**
+     * Method for parsing shape from given specification: either options themselves,
+     * or, if starting with '@', name of the file that contains them.
+     *
+     * @return Shape parsed; null if specification empty
+     */
+    public static DocumentShape parse(String spec) throws IOException {
+        spec = spec.trim();
+        if (spec.isEmpty()) {
+            return null;
+        }
+        String defs = spec;
+        if (defs.startsWith("@")) {
+            defs = Files.readString(Path.of(defs.substring(1)));
+        }
+        int fieldCount = 10, depth = 1, arrayPct = 0;
+        int[] arrayLen = { 1, 5 };
+        int[] strLen = { 16, 64 };
+        int meanStrLen = 0;
+        int numberPct = 0, datePct = 0, uuidPct = 0;
+        List<String> indexAllow = new ArrayList<>();
+        List<String> indexDeny = new ArrayList<>();
+
+        for (String line : defs.split("\\n")) {
+            line = line.trim();
+            if (line.startsWith("#")) {
+                continue;
+            }
+            for (String option : line.split("[,;]")) {
+                option = option.trim();
+                if (option.isEmpty()) {
+                    continue;
+                }
+                final int ix = option.indexOf('=');
+                if (ix < 0) {
+                    throw new IllegalArgumentException("Invalid document shape option '"+option
+                            +"': expected 'NAME=VALUE'");
+                }
+                final String key = option.substring(0, ix).trim();
+                final String value = option.substring(ix+1).trim();
+                switch (key) {
+                    case "fields" -> fieldCount = positive(key, Integer.parseInt(value));
+                    case "depth" -> depth = positive(key, Integer.parseInt(value));
+                    case "arrays" -> arrayPct = percentage(key, value);
+                    case "arrayLen" -> arrayLen = range(key, value);
+                    case "strLen" -> {
+                        if (value.startsWith("exp")) {
+                            meanStrLen = positive(key, Integer.parseInt(value.substring(3)));
+                        } else {
+                            strLen = range(key, value);
+                            meanStrLen = 0;
+                        }
+                    }
+                    case "numbers" -> numberPct = percentage(key, value);
+                    case "dates" -> datePct = percentage(key, value);
+                    case "uuids" -> uuidPct = percentage(key, value);
+                    case "indexAllow" -> indexAllow.add(value);
+                    case "indexDeny" -> indexDeny.add(value);
+                    default -> throw new IllegalArgumentException("Unknown document shape option '"+key+"'");
+                }
+            }
+        }
+        if (numberPct + datePct + uuidPct > 100) {
+            throw new IllegalArgumentException("Percentages of numbers, dates and UUIDs exceed 100");
+        }
+        if (!indexAllow.isEmpty() && !indexDeny.isEmpty()) {
+            throw new IllegalArgumentException("Cannot use both 'indexAllow' and 'indexDeny'");
+        }
+        return new DocumentShape(spec, fieldCount, depth, arrayPct, arrayLen[0], arrayLen[1],
+                strLen[0], strLen[1], meanStrLen, numberPct, datePct, uuidPct,
+                indexAllow, indexDeny);
+    }
+
+    public String spec() {
+        return spec;
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @return Paths to index, if only some are to be; empty if not limited
+     */
+    public List<String> indexAllow() {
+        return indexAllow;
+    }
+
+    /**
+     * @return Paths not to index; empty if none
+     */
+    public List<String> indexDeny() {
+        return indexDeny;
+    }
+
+    /**
+     * Method for generating additional fields of Document for item with given seed.
+     */
+    public Map<String, Object> generate(long seed) {
+        return generate(root, new SplittableRandom(seed ^ VALUE_SALT));
+    }
+
+    private Map<String, Object> generate(Node[] nodes, SplittableRandom rnd) {
+        Map<String, Object> result = new LinkedHashMap<>(nodes.length * 2);
+        for (Node node : nodes) {
+            final Object value;
+            if (node.children != null) {
+                value = generate(node.children, rnd);
+            } else if (node.array) {
+                final int len = minArrayLen + rnd.nextInt(maxArrayLen - minArrayLen + 1);
+                final Object[] values = new Object[len];
+                for (int i = 0; i < len; ++i) {
+                    values[i] = value(node.type, rnd);
+                }
+                value = Arrays.asList(values);
+            } else {
+                value = value(node.type, rnd);
+            }
+            result.put(node.name, value);
+        }
+        return result;
+    }
+
+    private Object value(FieldType type, SplittableRandom rnd) {
+        return switch (type) {
+            case STRING -> ContentSynthesizer.text(rnd, stringLength(rnd));
+            case NUMBER -> (long) rnd.nextInt(1_000_000);
+            case DATE -> new Date(DATE_BASE_MSECS + rnd.nextLong(DATE_RANGE_MSECS));
+            // Random (version 4) UUID
+            case UUID -> new UUID((rnd.nextLong() & ~0xF000L) | 0x4000L,
+                    (rnd.nextLong() & 0x3FFF_FFFF_FFFF_FFFFL) | 0x8000_0000_0000_0000L);
+        };
+    }
+
+    private int stringLength(SplittableRandom rnd) {
+        if (meanStrLen > 0) {
+            // Exponential, capped to avoid rare huge values
+            final double len = -meanStrLen * Math.log(1.0 - rnd.nextDouble());
+            return 1 + (int) Math.min(len, 16.0 * meanStrLen);
+        }
+        return minStrLen + rnd.nextInt(maxStrLen - minStrLen + 1);
+    }
+
+    /**
+     * Method for building template: fields distributed over tree of sub-documents
+     * with same number of entries on each level.
+     */
+    private Node[] compile() {
+        int perLevel = 1;
+        while (Math.pow(perLevel, depth) < fieldCount) {
+            ++perLevel;
+        }
+        final SplittableRandom rnd = new SplittableRandom(TEMPLATE_SEED);
+        final List<Node> leaves = new ArrayList<>(fieldCount);
+        final Node[] rootNodes = compile(0, fieldCount, 1, perLevel, rnd, leaves);
+        // Types assigned to fields in random order, in given proportions
+        final int[] typeCounts = { 0,
+                fieldCount * numberPct / 100, fieldCount * datePct / 100, fieldCount * uuidPct / 100 };
+        typeCounts[0] = fieldCount - typeCounts[1] - typeCounts[2] - typeCounts[3];
+        for (int i = leaves.size(); i > 1; --i) {
+            final int j = rnd.nextInt(i);
+            final Node tmp = leaves.get(i - 1);
+            leaves.set(i - 1, leaves.get(j));
+            leaves.set(j, tmp);
+        }
+        int ix = 0;
+        for (FieldType type : FieldType.values()) {
+            for (int n = 0; n < typeCounts[type.ordinal()]; ++n) {
+                leaves.get(ix++).type = type;
+            }
+        }
+        return rootNodes;
+    }
+
+    // Builds entries for fields [first, first + count) at given level (1 for root)
+    private Node[] compile(int first, int count, int level, int perLevel,
+                           SplittableRandom rnd, List<Node> leaves) {
+        if (level == depth) {
+            final Node[] nodes = new Node[count];
+            for (int i = 0; i < count; ++i) {
+                nodes[i] = new Node("f" + (first + i), null, rnd.nextInt(100) < arrayPct);
+                leaves.add(nodes[i]);
+            }
+            return nodes;
+        }
+        // Number of fields each sub-document of this level can hold
+        final int capacity = (int) Math.pow(perLevel, depth - level);
+        final Node[] nodes = new Node[(count + capacity - 1) / capacity];
+        for (int i = 0; i < nodes.length; ++i) {
+            final int offset = i * capacity;
+            nodes[i] = new Node("o" + i, compile(first + offset, Math.min(capacity, count - offset),
+                    level + 1, perLevel, rnd, leaves), false);
+        }
+        return nodes;
+    }
+
+    public String desc() {
+        final int arrays = countArrays(root);
+        StringBuilder sb = new StringBuilder()
+                .append(fieldCount).append(" fields (depth ").append(depth)
+                .append(", ").append(arrays).append(" arrays");
+        if (arrays > 0) {
+            sb.append(" of ").append(minArrayLen).append('-').append(maxArrayLen);
+        }
+        sb.append("; strings of ");
+        if (meanStrLen > 0) {
+            sb.append("exp(mean ").append(meanStrLen).append(')');
+        } else {
+            sb.append(minStrLen).append('-').append(maxStrLen);
+        }
+        sb.append(", numbers ").append(numberPct).append("%, dates ").append(datePct)
+                .append("%, UUIDs ").append(uuidPct).append("%)");
+        if (!indexAllow.isEmpty()) {
+            sb.append(", index allow: ").append(indexAllow);
+        }
+        if (!indexDeny.isEmpty()) {
+            sb.append(", index deny: ").append(indexDeny);
+        }
+        return sb.toString();
+    }
+
+    private static int countArrays(Node[] nodes) {
+        int count = 0;
+        for (Node node : nodes) {
+            if (node.children != null) {
+                count += countArrays(node.children);
+            } else if (node.array) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    private static int positive(String key, int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException("Document shape option '"+key+"' must be positive, was "+value);
+        }
+        return value;
+    }
+
+    private static int percentage(String key, String value) {
+        final int pct = Integer.parseInt(value);
+        if (pct < 0 || pct > 100) {
+            throw new IllegalArgumentException("Document shape option '"+key
+                    +"' must be between 0 and 100, was "+pct);
+        }
+        return pct;
+    }
+
+    private static int[] range(String key, String value) {
+        final int ix = value.indexOf('-');
+        final int min = Integer.parseInt((ix < 0) ? value : value.substring(0, ix).trim());
+        final int max = (ix < 0) ? min : Integer.parseInt(value.substring(ix+1).trim());
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Invalid range for document shape option '"+key+"': '"+value+"'");
+        }
+        return new int[] { min, max };
+    }
+
+    /**
+     * Node of template: either a field (with type) or a sub-document (with children).
+     */
+    private static class Node {
+        final String name;
+        final Node[] children;
+        final boolean array;
+        // Assigned once all fields are known
+        FieldType type = FieldType.STRING;
+
+        Node(String name, Node[] children, boolean array) {
+            this.name = name;
+            this.children = children;
+            this.array = array;
+        }
+    }
+}
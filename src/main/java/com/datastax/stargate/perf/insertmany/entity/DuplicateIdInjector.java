@@ -0,0 +1,80 @@
+package com.datastax.stargate.perf.insertmany.entity;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Helper for injecting duplicate-key conflicts into insert batches: replaces
+ * randomly chosen items of batches with items that have ids of items inserted
+ * earlier and not deleted since (as recorded by {@link InsertedItems}). Replacement items have the
+ * same content as the original items (regenerated by {@link ContainerItemGenerator}),
+ * same as when retrying an insert that already succeeded.
+ */
+public class DuplicateIdInjector
+{
+    private final InsertedItems inserted;
+
+    private final ContainerItemGenerator itemGenerator;
+
+    private final double fraction;
+
+    private DuplicateIdInjector(InsertedItems inserted, ContainerItemGenerator itemGenerator,
+                                double fraction) {
+        this.inserted = inserted;
+        this.itemGenerator = itemGenerator;
+        this.fraction = fraction;
+    }
+
+    /**
+     * @param fraction Probability of each item being replaced (0.0 - 1.0)
+     */
+    public static DuplicateIdInjector create(InsertedItems inserted,
+                                             ContainerItemGenerator itemGenerator, double fraction) {
+        if (fraction < 0.0 || fraction > 1.0) {
+            throw new IllegalArgumentException("Duplicate fraction must be between 0.0 and 1.0, was "+fraction);
+        }
+        return new DuplicateIdInjector(inserted, itemGenerator, fraction);
+    }
+
+    public double fraction() {
+        return fraction;
+    }
+
+    /**
+     * Method for replacing items of given batch in place (batches are not shared):
+     * no items are replaced until some have been inserted.
+     *
+     * @return Ids of items replaced; empty Set if none
+     */
+    public Set<String> inject(List<ContainerItem> batch) {
+        final ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        Set<String> duplicateIds = Set.of();
+        for (int i = 0, len = batch.size(); i < len; ++i) {
+            if (rnd.nextDouble() >= fraction) {
+                continue;
+            }
+            final String id = inserted.randomExistingId();
+            if (id == null) {
+                break;
+            }
+            if (duplicateIds.isEmpty()) {
+                duplicateIds = new HashSet<>();
+            }
+            batch.set(i, itemGenerator.generate(ContainerItemId.fromString(id)));
+            duplicateIds.add(id);
+        }
+        return duplicateIds;
+    }
+
+    /**
+     * Method for recording items inserted by calls that failed (partially), which
+     * are not recorded by {@link TrackingItemContainer}.
+     */
+    public void recordInserted(List<ContainerItem> items) {
+        if (!items.isEmpty()) {
+            inserted.add(items);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.datastax.stargate.perf.insertmany.entity;
+
+import com.datastax.astra.client.exceptions.DataAPIErrorDescriptor;
+import com.datastax.astra.client.exceptions.DataAPIException;
+import com.datastax.astra.client.exceptions.DataAPIResponseException;
+import com.datastax.astra.internal.api.DataAPIResponse;
+import com.datastax.astra.internal.command.ExecutionInfos;
+import com.datastax.stargate.perf.metrics.CallTimings;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Outcome of inserting a batch, per document: inserted, failed (by error code) or
+ * skipped (not attempted: with ordered inserts, documents after the failed one).
+ *<p>
+ * Outcomes of failed calls are resolved from the response(s) included in the
+ * {@link DataAPIResponseException} thrown by Data API client: documents with ids
+ * in {@code insertedIds} were inserted; others failed, with code of the error
+ * that mentions their id (or of the first error if none does) -- or, with ordered
+ * inserts, were skipped after the first failure. For failures without response
+ * (timeouts, CQL driver exceptions) all documents are considered failed.
+ *
+ * @param failed Documents that failed, by error code; empty if none failed
+ */
+public record InsertOutcome(List<ContainerItem> inserted,
+                            Map<String, List<ContainerItem>> failed,
+                            List<ContainerItem> skipped)
+{
+    /**
+     * Error code Data API uses for documents with id (key) already in Collection.
+     */
+    public final static String DUPLICATE_KEY_ERROR = "DOCUMENT_ALREADY_EXISTS";
+
+    /**
+     * Error code used for documents of calls that completed without error but did
+     * not report all documents as inserted.
+     */
+    public final static String NOT_CONFIRMED_ERROR = "INSERT_NOT_CONFIRMED";
+
+    public static InsertOutcome ok(List<ContainerItem> batch) {
+        return new InsertOutcome(batch, Map.of(), List.of());
+    }
+
+    /**
+     * Factory method for outcome of a call that completed without error, but for
+     * which not all documents were reported as inserted: which ones were is not
+     * known, so none are considered inserted.
+     */
+    public static InsertOutcome notConfirmed(List<ContainerItem> batch) {
+        return new InsertOutcome(List.of(), Map.of(NOT_CONFIRMED_ERROR, batch), List.of());
+    }
+
+    /**
+     * Factory method for resolving outcome of a call that failed with given error.
+     *
+     * @param ordered Whether inserts are ordered (stop at the first failure)
+     */
+    public static InsertOutcome failed(List<ContainerItem> batch, boolean ordered,
+                                       Throwable error) {
+        error = unwrap(error);
+        final String defaultCode = errorCode(error);
+        if (!(error instanceof DataAPIResponseException responseEx)) {
+            return new InsertOutcome(List.of(), Map.of(defaultCode, batch), List.of());
+        }
+        final Set<String> insertedIds = insertedIds(responseEx);
+        final List<DataAPIErrorDescriptor> errors = (responseEx.getApiErrors() == null)
+                ? List.of() : responseEx.getApiErrors();
+        List<ContainerItem> inserted = new ArrayList<>(batch.size());
+        Map<String, List<ContainerItem>> failed = new LinkedHashMap<>();
+        List<ContainerItem> skipped = new ArrayList<>();
+        for (ContainerItem item : batch) {
+            if (insertedIds.contains(item.idAsString)) {
+                inserted.add(item);
+            } else if (ordered && !failed.isEmpty()) {
+                skipped.add(item);
+            } else {
+                failed.computeIfAbsent(errorCodeFor(item, errors, defaultCode),
+                        code -> new ArrayList<>()).add(item);
+            }
+        }
+        return new InsertOutcome(inserted, failed, skipped);
+    }
+
+    /**
+     * @return Whether some documents were inserted or found to be duplicates, that is,
+     *    resubmitting documents not inserted makes progress
+     */
+    public boolean resolvedAny() {
+        return !inserted.isEmpty() || failed.containsKey(DUPLICATE_KEY_ERROR);
+    }
+
+    /**
+     * Accessor for documents to resubmit: ones skipped, and ones failed for reasons
+     * other than duplicate key (which would just fail again) -- except ones of calls
+     * that completed without confirming inserts (which were probably inserted).
+     */
+    public List<ContainerItem> toResubmit() {
+        List<ContainerItem> result = new ArrayList<>();
+        failed.forEach((code, items) -> {
+            if (!DUPLICATE_KEY_ERROR.equals(code) && !NOT_CONFIRMED_ERROR.equals(code)) {
+                result.addAll(items);
+            }
+        });
+        result.addAll(skipped);
+        return result;
+    }
+
+    /**
+     * Helper method for getting error code of given failure: Data API error code for
+     * {@link DataAPIException}s, exception type for others.
+     */
+    public static String errorCode(Throwable error) {
+        error = unwrap(error);
+        if (error instanceof DataAPIException dataApiEx && dataApiEx.getErrorCode() != null) {
+            return dataApiEx.getErrorCode();
+        }
+        return error.getClass().getSimpleName();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            return error.getCause();
+        }
+        return error;
+    }
+
+    // Ids reported as inserted by responses of the call (one per chunk)
+    private static Set<String> insertedIds(DataAPIResponseException error) {
+        final List<ExecutionInfos> commands = error.getCommandsList();
+        if (commands == null) {
+            return Set.of();
+        }
+        Set<String> ids = new HashSet<>();
+        for (ExecutionInfos command : commands) {
+            final DataAPIResponse response = command.getResponse();
+            final List<Object> chunkIds = (response == null) ? null
+                    : response.getStatusKeyAsList("insertedIds", Object.class);
+            if (chunkIds != null) {
+                for (Object id : chunkIds) {
+                    final String idStr = CallTimings.idAsString(id);
+                    if (idStr != null) {
+                        ids.add(idStr);
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    // Data API errors do not have a document index, but per-document ones mention the id
+    private static String errorCodeFor(ContainerItem item, List<DataAPIErrorDescriptor> errors,
+                                       String defaultCode) {
+        for (DataAPIErrorDescriptor error : errors) {
+            final String message = error.getMessage();
+            if (error.getErrorCode() != null && message != null
+                    && message.contains(item.idAsString)) {
+                return error.getErrorCode();
+            }
+        }
+        return defaultCode;
+    }
+}
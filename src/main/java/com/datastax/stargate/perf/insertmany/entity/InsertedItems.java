@@ -0,0 +1,251 @@
+package com.datastax.stargate.perf.insertmany.entity;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded record of ids and values of items recently inserted, for read agents to
+ * choose items to read: ring buffer overwriting the oldest entries once full.
+ * Lock-free: inserting agents claim slots with a shared counter.
+ *<p>
+ * Id and value of a slot are written separately, so a reader may get value of
+ * another (also inserted) item than the id read: fine since they are used for
+ * different reads.
+ *<p>
+ * Optionally also keeps a complete log of ids (as {@link ContainerItemId} seeds) of
+ * all items inserted since the container was last truncated, from which their
+ * vectors can be regenerated (for exact nearest neighbor search), excluding ones
+ * deleted since. Seeds are logged into per-thread chunks (no locking while inserting),
+ * merged when log is read.
+ */
+public class InsertedItems
+{
+    private final static int DEFAULT_CAPACITY = 64 * 1024;
+
+    // Number of slots to try for an item not deleted, before giving up
+    private final static int MAX_RANDOM_TRIES = 8;
+
+    private final AtomicReferenceArray<String> ids;
+    private final AtomicLongArray values;
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final boolean logAll;
+
+    // Per-thread chunks of seeds of all items inserted, if logged
+    private final ThreadLocal<SeedChunk> localSeeds;
+    private final Queue<SeedChunk> seedChunks = new ConcurrentLinkedQueue<>();
+
+    // Incremented on clear, to discard chunks logged before
+    private volatile int logGeneration;
+
+    // Seeds of items deleted (and not written again) since
+    private final Set<Long> deletedSeeds = ConcurrentHashMap.newKeySet();
+
+    private InsertedItems(int capacity, boolean logAll) {
+        ids = new AtomicReferenceArray<>(capacity);
+        values = new AtomicLongArray(capacity);
+        this.logAll = logAll;
+        localSeeds = ThreadLocal.withInitial(SeedChunk::new);
+    }
+
+    /**
+     * @param logAll Whether to keep log of all items inserted (see {@link #loggedSeeds})
+     */
+    public static InsertedItems create(boolean logAll) {
+        return new InsertedItems(DEFAULT_CAPACITY, logAll);
+    }
+
+    public void add(List<ContainerItem> items) {
+        final int capacity = ids.length();
+        long index = count.getAndAdd(items.size());
+        for (ContainerItem item : items) {
+            final int slot = (int) (index++ % capacity);
+            values.set(slot, item.value);
+            ids.set(slot, item.idAsString);
+        }
+        if (!deletedSeeds.isEmpty()) {
+            for (ContainerItem item : items) {
+                deletedSeeds.remove(item.seedForRandom());
+            }
+        }
+        if (logAll) {
+            log(items);
+        }
+    }
+
+    private void log(List<ContainerItem> items) {
+        localSeeds.get().add(items, logGeneration, seedChunks);
+    }
+
+    /**
+     * Accessor for seeds of all items inserted since creation or last {@link #clear},
+     * sorted and without duplicates (items inserted more than once, like injected
+     * duplicates and resubmitted ones); empty if log not kept. Should only be called
+     * when no inserts are in progress (between phases).
+     */
+    public long[] loggedSeeds() {
+        final int generation = logGeneration;
+        long[] all = new long[0];
+        int count = 0;
+        for (SeedChunk chunk : seedChunks) {
+            // Read count first (volatile), then fields written before it
+            final int n = chunk.count;
+            if (chunk.generation != generation) {
+                continue;
+            }
+            if (count + n > all.length) {
+                all = Arrays.copyOf(all, Math.max(count + n, 2 * all.length));
+            }
+            System.arraycopy(chunk.seeds, 0, all, count, n);
+            count += n;
+        }
+        Arrays.sort(all, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; ++i) {
+            final long seed = all[i];
+            if ((distinct > 0 && all[distinct - 1] == seed) || deletedSeeds.contains(seed)) {
+                continue;
+            }
+            all[distinct++] = seed;
+        }
+        return Arrays.copyOf(all, distinct);
+    }
+
+    /**
+     * Method called when items with given ids have been deleted, to exclude them
+     * from log of seeds and from ids chosen by {@link #randomExistingId}; items remain
+     * as candidates to choose for reads, overwrites and deletes, same as with actual
+     * usage.
+     */
+    public void markDeleted(List<String> deletedIds) {
+        for (String id : deletedIds) {
+            deletedSeeds.add(ContainerItemId.fromString(id).seedForRandom());
+        }
+    }
+
+    /**
+     * Method called when item with given id has been overwritten (upserted), so it
+     * exists even if deleted earlier.
+     */
+    public void markWritten(String id) {
+        if (!deletedSeeds.isEmpty()) {
+            deletedSeeds.remove(ContainerItemId.fromString(id).seedForRandom());
+        }
+    }
+
+    public boolean isEmpty() {
+        return count.get() == 0L;
+    }
+
+    /**
+     * @return Id of a randomly chosen recorded item; null if none recorded (or
+     *    slot chosen not yet written)
+     */
+    public String randomId() {
+        final int slot = randomSlot();
+        return (slot < 0) ? null : ids.get(slot);
+    }
+
+    /**
+     * @return Id of a randomly chosen recorded item that has not been deleted since;
+     *    null if none recorded (or none found with a few tries)
+     */
+    public String randomExistingId() {
+        for (int i = 0; i < MAX_RANDOM_TRIES; ++i) {
+            final String id = randomId();
+            if (id == null || deletedSeeds.isEmpty()
+                    || !deletedSeeds.contains(ContainerItemId.fromString(id).seedForRandom())) {
+                return id;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Value of a randomly chosen recorded item (0 if none recorded)
+     */
+    public long randomValue() {
+        final int slot = randomSlot();
+        return (slot < 0) ? 0L : values.get(slot);
+    }
+
+    /**
+     * @return Number of items recorded (at most capacity)
+     */
+    public int size() {
+        return (int) Math.min(count.get(), ids.length());
+    }
+
+    /**
+     * @param rank Recency rank of item: 0 for the most recently inserted one
+     *
+     * @return Id of the recorded item with given rank; null if not recorded (or slot
+     *    not yet written)
+     */
+    public String recentId(int rank) {
+        final long total = count.get();
+        if (rank < 0 || rank >= Math.min(total, ids.length())) {
+            return null;
+        }
+        return ids.get((int) ((total - 1 - rank) % ids.length()));
+    }
+
+    private int randomSlot() {
+        final long n = Math.min(count.get(), ids.length());
+        return (n == 0L) ? -1 : ThreadLocalRandom.current().nextInt((int) n);
+    }
+
+    /**
+     * Method called when container is truncated: items recorded are no longer
+     * there to read.
+     */
+    public void clear() {
+        // Threads re-register their chunks on next insert
+        ++logGeneration;
+        seedChunks.clear();
+        deletedSeeds.clear();
+        count.set(0L);
+        for (int i = 0, len = ids.length(); i < len; ++i) {
+            ids.set(i, null);
+        }
+    }
+
+    /**
+     * Seeds logged by a single thread: only written by that thread, read (after
+     * inserts have completed) by others.
+     */
+    private static class SeedChunk {
+        long[] seeds = new long[256];
+
+        volatile int count;
+
+        // Generation of log seeds belong to; -1 if not yet registered
+        int generation = -1;
+
+        void add(List<ContainerItem> items, int currentGeneration, Queue<SeedChunk> chunks) {
+            int n = count;
+            if (generation != currentGeneration) { // new, or log cleared since last add
+                generation = currentGeneration;
+                n = 0;
+                count = 0;
+                chunks.add(this);
+            }
+            if (n + items.size() > seeds.length) {
+                seeds = Arrays.copyOf(seeds, Math.max(n + items.size(), 2 * seeds.length));
+            }
+            for (ContainerItem item : items) {
+                seeds[n++] = item.seedForRandom();
+            }
+            count = n;
+        }
+    }
+}
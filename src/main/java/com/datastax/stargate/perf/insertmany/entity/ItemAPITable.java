@@ -2,18 +2,28 @@ package com.datastax.stargate.perf.insertmany.entity;
 
 import com.datastax.astra.client.core.query.Filter;
 import com.datastax.astra.client.core.query.FilterOperator;
+import com.datastax.astra.client.core.query.Filters;
+import com.datastax.astra.client.core.query.Projection;
+import com.datastax.astra.client.core.query.Sort;
 import com.datastax.astra.client.core.vector.SimilarityMetric;
 import com.datastax.astra.client.exceptions.DataAPIException;
 import com.datastax.astra.client.tables.Table;
+import com.datastax.astra.client.tables.commands.options.TableFindOptions;
 import com.datastax.astra.client.tables.commands.options.TableInsertManyOptions;
 import com.datastax.astra.client.tables.commands.results.TableInsertManyResult;
 import com.datastax.astra.client.tables.commands.results.TableInsertOneResult;
 import com.datastax.astra.client.tables.definition.indexes.TableVectorIndexDefinition;
 import com.datastax.astra.client.tables.definition.indexes.TableVectorIndexDefinitionOptions;
 import com.datastax.astra.client.tables.definition.rows.Row;
+import com.datastax.astra.internal.serdes.DataAPISerializer;
+import com.datastax.astra.internal.serdes.tables.RowSerializer;
+import com.datastax.stargate.perf.insertmany.trace.BatchTrace;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Wrapper around an API Table (C* Table accessed via API Table API).
@@ -22,6 +32,8 @@ public record ItemAPITable(String name, Table<Row> table,
                            int vectorSize, boolean orderedInserts)
     implements ItemContainer
 {
+    private final static DataAPISerializer SERIALIZER = new RowSerializer();
+
     @Override
     public void validateIsEmpty() {
         // If "countDocuments()" was supported, we would do:
@@ -64,6 +76,9 @@ public record ItemAPITable(String name, Table<Row> table,
 
     @Override
     public boolean insertItems(List<ContainerItem> items) throws DataAPIException {
+        if (items.isEmpty()) {
+            return true;
+        }
         // Special case: 1 item, simply use "insertOne()" instead
         if (items.size() == 1) {
             insertItem(items.get(0));
@@ -72,19 +87,64 @@ public record ItemAPITable(String name, Table<Row> table,
         List<Row> rows = items.stream()
                 .map(item -> item.toTableRow())
                 .toList();
+        TableInsertManyResult result = table.insertMany(rows, insertManyOptions(items.size()));
+        return allInserted(result, items.size());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> insertItemsAsync(List<ContainerItem> items, Executor executor) {
+        if (items.isEmpty()) {
+            return CompletableFuture.completedFuture(true);
+        }
+        // Client's "insertManyAsync()" would block a thread of the common ForkJoinPool
+        return CompletableFuture.supplyAsync(() -> insertItems(items), executor);
+    }
+
+    // For traced batches, mapping is timed separately; encoding, HTTP exchange and
+    // response decoding are all within the client call, split later using timings
+    // reported by client and server (see BatchTrace#resolveCall)
+
+    @Override
+    public boolean insertItems(List<ContainerItem> items, BatchTrace trace) throws DataAPIException {
+        if (items.size() <= 1) {
+            return ItemContainer.super.insertItems(items, trace);
+        }
+        List<Row> rows = items.stream().map(ContainerItem::toTableRow).toList();
+        trace.mark(BatchTrace.STAGE_MAP);
+        trace.callStarting(items.get(0).idAsString());
+        final TableInsertManyResult result;
+        try {
+            result = table.insertMany(rows, insertManyOptions(items.size()));
+        } finally {
+            trace.callCompleted();
+        }
+        return allInserted(result, items.size());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> insertItemsAsync(List<ContainerItem> items, BatchTrace trace,
+                                                       Executor executor) {
+        return CompletableFuture.supplyAsync(() -> insertItems(items, trace), executor);
+    }
+
+    private TableInsertManyOptions insertManyOptions(int itemCount) {
         TableInsertManyOptions options = new TableInsertManyOptions()
                 .ordered(orderedInserts);
-        if (items.size() > options.chunkSize()) {
-            options = options.chunkSize(items.size());
+        if (itemCount > options.chunkSize()) {
+            options = options.chunkSize(itemCount);
         }
+        return options;
+    }
 
-        TableInsertManyResult result = table.insertMany(rows, options);
+    private static boolean allInserted(TableInsertManyResult result, int itemCount) {
         List<?> ids = result.getInsertedIds();
-        if (ids == null || ids.size() != items.size()) {
-            return false;
-        }
+        return (ids != null) && (ids.size() == itemCount);
+    }
 
-        return true;
+    @Override
+    public String insertManyPayload(List<ContainerItem> items) {
+        List<Row> entries = items.stream().map(ContainerItem::toTableRow).toList();
+        return SERIALIZER.marshall(ItemContainer.insertManyCommand(entries, orderedInserts));
     }
 
     @Override
@@ -95,6 +155,44 @@ public record ItemAPITable(String name, Table<Row> table,
         return ContainerItem.fromTableRow(row);
     }
 
+    @Override
+    public int findItemsInRange(long minValue, long maxValue, int limit) {
+        // No index on "value": filtered by server (with a warning)
+        Filter filter = Filters.and(Filters.gte("value", minValue), Filters.lt("value", maxValue));
+        int count = 0;
+        for (Row row : table.find(filter, new TableFindOptions()
+                .limit(limit).projection(Projection.include("id", "value")))) {
+            ++count;
+        }
+        return count;
+    }
+
+    @Override
+    public List<String> findNearest(float[] vector, int limit) {
+        List<String> ids = new ArrayList<>(limit);
+        for (Row row : table.find(new Filter(), new TableFindOptions()
+                .sort(Sort.vector("vector", vector)).limit(limit).projection(Projection.include("id")))) {
+            ids.add(row.getText("id"));
+        }
+        return ids;
+    }
+
+    @Override
+    public void replaceItem(ContainerItem item) {
+        // Tables always overwrite existing rows
+        table.insertOne(item.toTableRow());
+    }
+
+    @Override
+    public long deleteItems(List<String> ids) {
+        if (ids.size() == 1) {
+            table.deleteOne(Filters.eq("id", ids.get(0)));
+        } else {
+            table.deleteMany(Filters.in("id", ids.toArray()));
+        }
+        return -1L;
+    }
+
     @Override
     public long deleteAll() {
         table.deleteAll();
@@ -1,118 +1,268 @@
 package com.datastax.stargate.perf.insertmany.entity;
 
-import com.datastax.astra.client.core.query.Filter;
-import com.datastax.astra.client.core.query.FilterOperator;
-import com.datastax.astra.client.core.vector.SimilarityMetric;
-import com.datastax.astra.client.exceptions.DataAPIException;
-import com.datastax.astra.client.tables.Table;
-import com.datastax.astra.client.tables.commands.options.TableInsertManyOptions;
-import com.datastax.astra.client.tables.commands.results.TableInsertManyResult;
-import com.datastax.astra.client.tables.commands.results.TableInsertOneResult;
-import com.datastax.astra.client.tables.definition.indexes.TableVectorIndexDefinition;
-import com.datastax.astra.client.tables.definition.indexes.TableVectorIndexDefinitionOptions;
-import com.datastax.astra.client.tables.definition.rows.Row;
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.DefaultBatchType;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.api.querybuilder.QueryBuilder;
+import com.datastax.oss.driver.api.querybuilder.SchemaBuilder;
+import com.datastax.oss.driver.api.querybuilder.insert.RegularInsert;
+import com.datastax.oss.driver.api.querybuilder.schema.CreateTable;
+import com.datastax.stargate.perf.base.CqlWriteMode;
+import com.datastax.stargate.perf.insertmany.trace.BatchTrace;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * Wrapper around an "Raw" CQL Table (C* Table accessed using CQL Driver).
+ * Uses prepared statements and async execution; batches written either as
+ * concurrent single-row INSERTs or as single unlogged BATCH, as per
+ * {@link CqlWriteMode}.
  */
-public record ItemCQLTable(String name, Table<Row> table,
-                           int vectorSize, boolean orderedInserts)
+public record ItemCQLTable(String name, CqlSession session,
+                           int vectorSize, boolean orderedInserts,
+                           CqlWriteMode writeMode,
+                           PreparedStatement insertStatement,
+                           PreparedStatement selectStatement,
+                           PreparedStatement rangeStatement,
+                           PreparedStatement deleteStatement)
     implements ItemContainer
 {
+    public static ItemCQLTable create(String name, CqlSession session,
+                                      int vectorSize, boolean orderedInserts,
+                                      CqlWriteMode writeMode) {
+        RegularInsert insert = QueryBuilder.insertInto(name)
+                .value("id", QueryBuilder.bindMarker())
+                .value("value", QueryBuilder.bindMarker())
+                .value("description", QueryBuilder.bindMarker());
+        if (vectorSize > 0) {
+            insert = insert.value("vector", QueryBuilder.bindMarker());
+        }
+        PreparedStatement insertStmt = session.prepare(insert.build());
+        PreparedStatement selectStmt = session.prepare(QueryBuilder.selectFrom(name)
+                .all()
+                .whereColumn("id").isEqualTo(QueryBuilder.bindMarker())
+                .build());
+        // No index on "value", so range reads need filtering (full scan)
+        PreparedStatement rangeStmt = session.prepare(QueryBuilder.selectFrom(name)
+                .column("id")
+                .whereColumn("value").isGreaterThanOrEqualTo(QueryBuilder.bindMarker())
+                .whereColumn("value").isLessThan(QueryBuilder.bindMarker())
+                .limit(QueryBuilder.bindMarker())
+                .allowFiltering()
+                .build());
+        PreparedStatement deleteStmt = session.prepare(QueryBuilder.deleteFrom(name)
+                .whereColumn("id").in(QueryBuilder.bindMarker())
+                .build());
+        return new ItemCQLTable(name, session, vectorSize, orderedInserts, writeMode,
+                insertStmt, selectStmt, rangeStmt, deleteStmt);
+    }
+
+    /**
+     * Helper method for (re)creating the table itself; caller needs to ensure table
+     * does not exist.
+     */
+    public static void createTable(CqlSession session, String name, int vectorSize) {
+        CreateTable create = SchemaBuilder.createTable(name)
+                .withPartitionKey("id", DataTypes.TEXT)
+                .withColumn("value", DataTypes.BIGINT)
+                .withColumn("description", DataTypes.TEXT);
+        if (vectorSize > 0) {
+            create = create.withColumn("vector", DataTypes.vectorOf(DataTypes.FLOAT, vectorSize));
+        }
+        session.execute(create.build());
+    }
+
+    public static boolean tableExists(CqlSession session, String name) {
+        return session.getKeyspace()
+                .flatMap(ks -> session.getMetadata().getKeyspace(ks))
+                .flatMap(ks -> ks.getTable(CqlIdentifier.fromInternal(name)))
+                .isPresent();
+    }
+
+    public static void dropTable(CqlSession session, String name) {
+        session.execute(SchemaBuilder.dropTable(name).ifExists().build());
+    }
+
     @Override
     public void validateIsEmpty() {
-        // If "countDocuments()" was supported, we would do:
-        if (false) {
-            long count = countItems(100);
-            if (count > 0) {
-                throw new IllegalStateException("Table '" + name + "' not empty; has " + count + " rows");
-            }
-        }
-        // ... but since not, try to fetch a single item
-        Optional<Row> row = table.findOne(new Filter());
-        if (row.isPresent()) {
+        Row row = session.execute(QueryBuilder.selectFrom(name)
+                .column("id")
+                .limit(1)
+                .build()).one();
+        if (row != null) {
             throw new IllegalStateException("Table '" + name + "' not empty; has at least one row");
         }
     }
 
     @Override
     public long countItems(int maxCount) {
-        // Not efficiently implemented/-able via CQL for big tables so
-        //return table.countRows(maxCount);
+        // Not efficiently implemented/-able via CQL for big tables
         return -1L;
     }
 
     @Override
-    public void insertItem(ContainerItem item) throws DataAPIException {
-        TableInsertOneResult result = table.insertOne(item.toTableRow());
-        List<Object> primaryKeys = result.getInsertedId();
-        if (primaryKeys.size() != 1) {
-            throw new IllegalStateException(String.format(
-                    "Unexpected id response for inserted document: expected List<1>, got List<%d>",
-                    primaryKeys.size()));
-        }
-        Object resultId = primaryKeys.get(0);
-        if (!item.idAsString().equals(resultId)) {
-            throw new IllegalStateException(String.format(
-                    "Unexpected id for inserted document: expected %s, got %s",
-                    _str(item.idAsString()), _str(resultId)));
+    public void insertItem(ContainerItem item) {
+        session.execute(bindInsert(item));
+    }
+
+    @Override
+    public boolean insertItems(List<ContainerItem> items) {
+        return join(executeInserts(bindInserts(items)));
+    }
+
+    /**
+     * Driver is non-blocking, so no need for executor to run calls on.
+     */
+    @Override
+    public CompletableFuture<Boolean> insertItemsAsync(List<ContainerItem> items, Executor executor) {
+        return executeInserts(bindInserts(items));
+    }
+
+    // For traced batches, binding of statements is timed as mapping
+
+    @Override
+    public boolean insertItems(List<ContainerItem> items, BatchTrace trace) {
+        final List<BoundStatement> stmts = bindInserts(items);
+        trace.mark(BatchTrace.STAGE_MAP);
+        try {
+            return join(executeInserts(stmts));
+        } finally {
+            trace.mark(BatchTrace.STAGE_CALL);
         }
     }
 
     @Override
-    public boolean insertItems(List<ContainerItem> items) throws DataAPIException {
-        // Special case: 1 item, simply use "insertOne()" instead
-        if (items.size() == 1) {
-            insertItem(items.get(0));
-            return true;
+    public CompletableFuture<Boolean> insertItemsAsync(List<ContainerItem> items, BatchTrace trace,
+                                                       Executor executor) {
+        final List<BoundStatement> stmts = bindInserts(items);
+        trace.mark(BatchTrace.STAGE_MAP);
+        return executeInserts(stmts)
+                .whenComplete((ok, error) -> trace.mark(BatchTrace.STAGE_CALL));
+    }
+
+    private static boolean join(CompletableFuture<Boolean> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            // Rethrow the actual driver exception, same as synchronous call would
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
         }
-        List<Row> rows = items.stream()
-                .map(item -> item.toTableRow())
-                .toList();
-        TableInsertManyOptions options = new TableInsertManyOptions()
-                .ordered(orderedInserts);
-        if (items.size() > options.chunkSize()) {
-            options = options.chunkSize(items.size());
+    }
+
+    private List<BoundStatement> bindInserts(List<ContainerItem> items) {
+        List<BoundStatement> stmts = new ArrayList<>(items.size());
+        for (ContainerItem item : items) {
+            stmts.add(bindInsert(item));
         }
+        return stmts;
+    }
 
-        TableInsertManyResult result = table.insertMany(rows, options);
-        List<?> ids = result.getInsertedIds();
-        if (ids == null || ids.size() != items.size()) {
-            return false;
+    private CompletableFuture<Boolean> executeInserts(List<BoundStatement> stmts) {
+        if (stmts.isEmpty()) {
+            return CompletableFuture.completedFuture(true);
+        }
+        // Special case: 1 item, simply insert it
+        if (stmts.size() == 1) {
+            return execute(stmts.get(0));
         }
+        if (writeMode == CqlWriteMode.BATCH) {
+            return execute(BatchStatement.newInstance(DefaultBatchType.UNLOGGED)
+                    .addAll(stmts));
+        }
+        // Ordered: one row at a time, stopping at first failure (like ordered insertMany)
+        if (orderedInserts) {
+            CompletableFuture<Boolean> result = CompletableFuture.completedFuture(true);
+            for (BoundStatement stmt : stmts) {
+                result = result.thenCompose(ok -> execute(stmt));
+            }
+            return result;
+        }
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[stmts.size()];
+        for (int i = 0; i < futures.length; ++i) {
+            futures[i] = execute(stmts.get(i));
+        }
+        return CompletableFuture.allOf(futures).thenApply(v -> true);
+    }
 
-        return true;
+    private CompletableFuture<Boolean> execute(Statement<?> stmt) {
+        return session.executeAsync(stmt).toCompletableFuture()
+                .thenApply(AsyncResultSet::wasApplied);
+    }
+
+    private BoundStatement bindInsert(ContainerItem item) {
+        BoundStatement stmt = insertStatement.bind()
+                .setString("id", item.idAsString)
+                .setLong("value", item.value)
+                .setString("description", item.description);
+        if (vectorSize > 0) {
+            stmt = stmt.setVector("vector", item.cqlVector(), Float.class);
+        }
+        return stmt;
     }
 
     @Override
     public ContainerItem findItem(String idAsSring) {
-        throw new UnsupportedOperationException("Not yet implemented!");
+        Row row = session.execute(selectStatement.bind(idAsSring)).one();
+        return (row == null) ? null : ContainerItem.fromCqlRow(row);
     }
 
     @Override
-    public long deleteAll() {
-        table.deleteAll();
+    public int findItemsInRange(long minValue, long maxValue, int limit) {
+        return session.execute(rangeStatement.bind(minValue, maxValue, limit))
+                .all().size();
+    }
+
+    @Override
+    public List<String> findNearest(float[] vector, int limit) {
+        // Not prepared: cannot be before vector index exists (created after this object)
+        SimpleStatement stmt = SimpleStatement.newInstance(String.format(
+                "SELECT id FROM %s ORDER BY vector ANN OF ? LIMIT ?", name),
+                ContainerItem.cqlVector(vector), limit);
+        List<String> ids = new ArrayList<>(limit);
+        for (Row row : session.execute(stmt)) {
+            ids.add(row.getString("id"));
+        }
+        return ids;
+    }
+
+    @Override
+    public void replaceItem(ContainerItem item) {
+        // INSERT overwrites existing row
+        session.execute(bindInsert(item));
+    }
+
+    @Override
+    public long deleteItems(List<String> ids) {
+        session.execute(deleteStatement.bind(ids));
         return -1L;
     }
 
-    public void createVectorIndex(String idxName) {
-        TableVectorIndexDefinitionOptions options = new TableVectorIndexDefinitionOptions()
-                .metric(SimilarityMetric.COSINE);
-        table.createVectorIndex(idxName, new TableVectorIndexDefinition()
-                .column("vector")
-                .options(options));
+    @Override
+    public long deleteAll() {
+        session.execute(QueryBuilder.truncate(name).build());
+        return -1L;
     }
 
-    private static String _str(Object ob) {
-        if (ob == null) {
-            return "`null`";
-        }
-        if (ob instanceof String) {
-            return "'"+ob+"'";
-        }
-        return String.format("(%s)'%s'", ob.getClass().getName(), ob);
+    public void createVectorIndex(String idxName) {
+        // Query builder has no support for SAI index options, so use plain CQL
+        session.execute(String.format(
+                "CREATE CUSTOM INDEX %s ON %s (vector) USING 'StorageAttachedIndex'"
+                        + " WITH OPTIONS = {'similarity_function': 'COSINE'}",
+                idxName, name));
     }
 }
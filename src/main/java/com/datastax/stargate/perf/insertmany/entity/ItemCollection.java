@@ -1,9 +1,14 @@
 package com.datastax.stargate.perf.insertmany.entity;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import com.datastax.astra.client.collections.Collection;
+import com.datastax.astra.client.collections.commands.options.CollectionFindOneAndReplaceOptions;
+import com.datastax.astra.client.collections.commands.options.CollectionFindOptions;
 import com.datastax.astra.client.collections.commands.options.CollectionInsertManyOptions;
 import com.datastax.astra.client.collections.commands.results.CollectionDeleteResult;
 import com.datastax.astra.client.collections.commands.results.CollectionInsertManyResult;
@@ -11,7 +16,13 @@ import com.datastax.astra.client.collections.commands.results.CollectionInsertOn
 import com.datastax.astra.client.collections.definition.documents.Document;
 import com.datastax.astra.client.collections.exceptions.TooManyDocumentsToCountException;
 import com.datastax.astra.client.core.query.Filter;
+import com.datastax.astra.client.core.query.Filters;
+import com.datastax.astra.client.core.query.Projection;
+import com.datastax.astra.client.core.query.Sort;
 import com.datastax.astra.client.exceptions.DataAPIException;
+import com.datastax.astra.internal.serdes.DataAPISerializer;
+import com.datastax.astra.internal.serdes.collections.DocumentSerializer;
+import com.datastax.stargate.perf.insertmany.trace.BatchTrace;
 
 /**
  * Wrapper around a Collection of Documents.
@@ -20,6 +31,8 @@ public record ItemCollection(String name, Collection<Document> collection,
                              int vectorSize, boolean orderedInserts)
     implements ItemContainer
 {
+    private final static DataAPISerializer SERIALIZER = new DocumentSerializer();
+
     @Override
     public void validateIsEmpty() {
         long count = countItems(100);
@@ -49,24 +62,74 @@ public record ItemCollection(String name, Collection<Document> collection,
 
     @Override
     public boolean insertItems(List<ContainerItem> items) throws DataAPIException {
+        if (items.isEmpty()) {
+            return true;
+        }
         // Special case: 1 item, simply use "insertOne()" instead
         if (items.size() == 1) {
             insertItem(items.get(0));
             return true;
         }
         List<Document> itemList = items.stream().map(ContainerItem::toDocument).toList();
+        CollectionInsertManyResult result = collection.insertMany(itemList,
+                insertManyOptions(items.size()));
+        return allInserted(result, items.size());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> insertItemsAsync(List<ContainerItem> items, Executor executor) {
+        if (items.isEmpty()) {
+            return CompletableFuture.completedFuture(true);
+        }
+        // Client's "insertManyAsync()" would block a thread of the common ForkJoinPool
+        return CompletableFuture.supplyAsync(() -> insertItems(items), executor);
+    }
+
+    // For traced batches, mapping is timed separately; encoding, HTTP exchange and
+    // response decoding are all within the client call, split later using timings
+    // reported by client and server (see BatchTrace#resolveCall)
+
+    @Override
+    public boolean insertItems(List<ContainerItem> items, BatchTrace trace) throws DataAPIException {
+        if (items.size() <= 1) {
+            return ItemContainer.super.insertItems(items, trace);
+        }
+        List<Document> itemList = items.stream().map(ContainerItem::toDocument).toList();
+        trace.mark(BatchTrace.STAGE_MAP);
+        trace.callStarting(items.get(0).idAsString());
+        final CollectionInsertManyResult result;
+        try {
+            result = collection.insertMany(itemList, insertManyOptions(items.size()));
+        } finally {
+            trace.callCompleted();
+        }
+        return allInserted(result, items.size());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> insertItemsAsync(List<ContainerItem> items, BatchTrace trace,
+                                                       Executor executor) {
+        return CompletableFuture.supplyAsync(() -> insertItems(items, trace), executor);
+    }
+
+    private CollectionInsertManyOptions insertManyOptions(int itemCount) {
         CollectionInsertManyOptions options = new CollectionInsertManyOptions()
                 .ordered(orderedInserts);
-        if (items.size() > options.getChunkSize()) {
-            options = options.chunkSize(items.size());
+        if (itemCount > options.getChunkSize()) {
+            options = options.chunkSize(itemCount);
         }
+        return options;
+    }
 
-        CollectionInsertManyResult result = collection.insertMany(itemList, options);
+    private static boolean allInserted(CollectionInsertManyResult result, int itemCount) {
         List<?> ids = result.getInsertedIds();
-        if (ids == null || ids.size() != items.size()) {
-            return false;
-        }
-        return true;
+        return (ids != null) && (ids.size() == itemCount);
+    }
+
+    @Override
+    public String insertManyPayload(List<ContainerItem> items) {
+        List<Document> entries = items.stream().map(ContainerItem::toDocument).toList();
+        return SERIALIZER.marshall(ItemContainer.insertManyCommand(entries, orderedInserts));
     }
 
     @Override
@@ -75,6 +138,41 @@ public record ItemCollection(String name, Collection<Document> collection,
         return ContainerItem.fromDocument(doc);
     }
 
+    @Override
+    public int findItemsInRange(long minValue, long maxValue, int limit) {
+        Filter filter = Filters.and(Filters.gte("value", minValue), Filters.lt("value", maxValue));
+        int count = 0;
+        for (Document doc : collection.find(filter, new CollectionFindOptions()
+                .limit(limit).projection(Projection.include("value")))) {
+            ++count;
+        }
+        return count;
+    }
+
+    @Override
+    public List<String> findNearest(float[] vector, int limit) {
+        List<String> ids = new ArrayList<>(limit);
+        for (Document doc : collection.find(new Filter(), new CollectionFindOptions()
+                .sort(Sort.vector(vector)).limit(limit).projection(Projection.include("_id")))) {
+            ids.add(String.valueOf(doc.getId(Object.class)));
+        }
+        return ids;
+    }
+
+    @Override
+    public void replaceItem(ContainerItem item) {
+        collection.findOneAndReplace(Filter.findById(item.idAsString), item.toDocument(),
+                new CollectionFindOneAndReplaceOptions().upsert(true));
+    }
+
+    @Override
+    public long deleteItems(List<String> ids) {
+        CollectionDeleteResult dr = (ids.size() == 1)
+                ? collection.deleteOne(Filter.findById(ids.get(0)))
+                : collection.deleteMany(Filters.in("_id", ids.toArray()));
+        return dr.getDeletedCount();
+    }
+
     @Override
     public long deleteAll() {
         CollectionDeleteResult dr = collection.deleteAll();
@@ -1,8 +1,12 @@
 package com.datastax.stargate.perf.insertmany.entity;
 
 import com.datastax.astra.client.exceptions.DataAPIException;
+import com.datastax.stargate.perf.insertmany.trace.BatchTrace;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public interface ItemContainer {
     int vectorSize();
@@ -17,7 +21,100 @@ public interface ItemContainer {
 
     boolean insertItems(List<ContainerItem> items) throws DataAPIException;
 
+    /**
+     * Asynchronous variant of {@link #insertItems}: returned future completes
+     * with same result as {@code insertItems()} would return, or exceptionally
+     * with same exception it would throw.
+     *
+     * @param executor Executor to run blocking calls on, for containers without
+     *    non-blocking call path: async methods of Data API client run blocking calls
+     *    in the common {@code ForkJoinPool}, limiting concurrency to about CPU count
+     */
+    CompletableFuture<Boolean> insertItemsAsync(List<ContainerItem> items, Executor executor);
+
+    /**
+     * Variant of {@link #insertItems(List)} for traced batches: records stages of the
+     * call (mapping of items, if done separately; the call itself) into given trace,
+     * using the same request path as untraced calls. Default implementation only
+     * records the call.
+     */
+    default boolean insertItems(List<ContainerItem> items, BatchTrace trace) throws DataAPIException {
+        if (!items.isEmpty()) {
+            trace.callStarting(items.get(0).idAsString());
+        }
+        try {
+            return insertItems(items);
+        } finally {
+            trace.callCompleted();
+        }
+    }
+
+    /**
+     * Variant of {@link #insertItemsAsync(List, Executor)} for traced batches: see
+     * {@link #insertItems(List, BatchTrace)}.
+     */
+    default CompletableFuture<Boolean> insertItemsAsync(List<ContainerItem> items, BatchTrace trace,
+                                                        Executor executor) {
+        return insertItemsAsync(items, executor)
+                .whenComplete((ok, error) -> trace.mark(BatchTrace.STAGE_CALL));
+    }
+
+    /**
+     * Method for serializing given batch into JSON request body for insertMany
+     * command, same way Data API client does (including vector encoding), to
+     * measure payload size and client-side serialization cost.
+     *
+     * @return Serialized request body; or {@code null} if container is not accessed
+     *    using Data API
+     */
+    default String insertManyPayload(List<ContainerItem> items) {
+        return null;
+    }
+
     ContainerItem findItem(String idAsSring);
 
+    /**
+     * Method for finding items with {@code value} in given range, fetching at most
+     * given number of them.
+     *
+     * @param minValue Minimum value (inclusive)
+     * @param maxValue Maximum value (exclusive)
+     *
+     * @return Number of items found
+     */
+    int findItemsInRange(long minValue, long maxValue, int limit);
+
+    /**
+     * Method for finding items whose vectors are most similar to given one
+     * (approximate nearest neighbor search, using vector index of container).
+     *
+     * @return Ids of items found, most similar first
+     */
+    List<String> findNearest(float[] vector, int limit);
+
+    /**
+     * Method for overwriting item with the same id, inserting it if it does not
+     * exist (upsert): {@code findOneAndReplace} for Collections, row overwrite for Tables.
+     */
+    void replaceItem(ContainerItem item);
+
+    /**
+     * Method for deleting items with given ids: single item with {@code deleteOne},
+     * more with {@code deleteMany}.
+     *
+     * @return Number of items deleted; or -1 if not known (Tables do not report it)
+     */
+    long deleteItems(List<String> ids);
+
     long deleteAll();
+
+    /**
+     * Helper method for constructing insertMany command (as sent by Data API client)
+     * for given Documents or Rows, for serialization.
+     */
+    static Map<String, Object> insertManyCommand(List<?> entries, boolean ordered) {
+        return Map.of("insertMany", Map.of(
+                "documents", entries,
+                "options", Map.of("ordered", ordered)));
+    }
 }
@@ -0,0 +1,106 @@
+package com.datastax.stargate.perf.insertmany.entity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link BatchSource} decorator that serializes every Nth batch into insertMany
+ * request body (same as Data API client would), to measure payload size and
+ * client-side serialization time of batches sent.
+ * Serialization is done by a separate sampler thread (from a copy of the batch
+ * list, as agents may replace items), so it does not take time from agents;
+ * batches to sample are dropped if sampler is still busy with the previous one.
+ */
+public class PayloadSampling implements BatchSource {
+    private final static int DEFAULT_SAMPLE_EVERY = 20;
+
+    private final BatchSource delegate;
+
+    private final ItemContainer container;
+
+    private final int sampleEvery;
+
+    private final AtomicLong batchCounter = new AtomicLong();
+
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder sampledBytes = new LongAdder();
+    private final LongAdder sampledNanos = new LongAdder();
+
+    private final ThreadPoolExecutor sampler;
+
+    private PayloadSampling(BatchSource delegate, ItemContainer container, int sampleEvery) {
+        this.delegate = delegate;
+        this.container = container;
+        this.sampleEvery = sampleEvery;
+        sampler = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1),
+                r -> {
+                    Thread t = new Thread(r, "payload-sampler");
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * Factory method for wrapping given source to sample payloads, if container supports
+     * payload serialization: if not, returns source as is.
+     */
+    public static BatchSource wrap(BatchSource delegate, ItemContainer container) {
+        if (container.insertManyPayload(List.of()) == null) {
+            return delegate;
+        }
+        return new PayloadSampling(delegate, container, DEFAULT_SAMPLE_EVERY);
+    }
+
+    @Override
+    public List<ContainerItem> nextBatch() {
+        List<ContainerItem> batch = delegate.nextBatch();
+        if ((batchCounter.getAndIncrement() % sampleEvery) == 0) {
+            final List<ContainerItem> copy = List.copyOf(batch);
+            sampler.execute(() -> sample(copy));
+        }
+        return batch;
+    }
+
+    private void sample(List<ContainerItem> batch) {
+        final long start = System.nanoTime();
+        final String payload = container.insertManyPayload(batch);
+        sampledNanos.add(System.nanoTime() - start);
+        sampledBytes.add(payload.getBytes(StandardCharsets.UTF_8).length);
+        sampled.increment();
+    }
+
+    public double avgBytesPerBatch() {
+        final long count = sampled.sum();
+        return (count == 0) ? 0.0 : (double) sampledBytes.sum() / count;
+    }
+
+    public double avgSerializationMsecs() {
+        final long count = sampled.sum();
+        return (count == 0) ? 0.0 : (sampledNanos.sum() / 1_000_000.0) / count;
+    }
+
+    @Override
+    public String statusDesc() {
+        return String.format("%s[Payload: %.1f kB/batch, serialize %.3f ms/batch (sampled %d)]",
+                delegate.statusDesc(), avgBytesPerBatch() / 1024.0, avgSerializationMsecs(),
+                sampled.sum());
+    }
+
+    @Override
+    public int bufferedBatches() {
+        return delegate.bufferedBatches();
+    }
+
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+        delegate.close();
+    }
+}
@@ -0,0 +1,135 @@
+package com.datastax.stargate.perf.insertmany.entity;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link BatchSource} that generates batches ahead of time using dedicated producer
+ * threads, into a bounded buffer from which agents only need to dequeue them.
+ * Keeps track of how often agents have to wait for a batch, and how close to empty
+ * the buffer gets, to verify generation is not a bottleneck.
+ */
+public class PreGeneratedBatches implements BatchSource {
+    private final ContainerItemGenerator generator;
+
+    private final int batchSize;
+
+    private final BlockingQueue<List<ContainerItem>> buffer;
+
+    private final Thread[] producers;
+
+    private volatile boolean closed;
+
+    private final LongAdder produced = new LongAdder();
+    private final LongAdder generationNanos = new LongAdder();
+
+    private final LongAdder agentWaits = new LongAdder();
+    private final LongAdder agentWaitNanos = new LongAdder();
+
+    /**
+     * Lowest number of buffered batches seen by agents since the previous status
+     * description
+     */
+    private final AtomicInteger minBuffered;
+
+    private final AtomicLong lastProduced = new AtomicLong();
+
+    private PreGeneratedBatches(ContainerItemGenerator generator, int batchSize,
+                                int bufferSize, int producerCount) {
+        this.generator = generator;
+        this.batchSize = batchSize;
+        buffer = new ArrayBlockingQueue<>(bufferSize);
+        minBuffered = new AtomicInteger(bufferSize);
+        producers = new Thread[producerCount];
+        for (int i = 0; i < producerCount; ++i) {
+            producers[i] = new Thread(this::produce, "batch-producer-" + i);
+            producers[i].setDaemon(true);
+        }
+    }
+
+    /**
+     * Factory method for constructing source and starting its producer threads; will
+     * wait for the buffer to be filled (up to a few seconds) before returning.
+     */
+    public static PreGeneratedBatches start(ContainerItemGenerator generator, int batchSize,
+                                            int bufferSize, int producerCount)
+        throws InterruptedException
+    {
+        PreGeneratedBatches batches = new PreGeneratedBatches(generator, batchSize,
+                bufferSize, producerCount);
+        for (Thread t : batches.producers) {
+            t.start();
+        }
+        final long waitUntil = System.currentTimeMillis() + 5000L;
+        while (batches.buffer.remainingCapacity() > 0 && System.currentTimeMillis() < waitUntil) {
+            Thread.sleep(10L);
+        }
+        return batches;
+    }
+
+    private void produce() {
+        try {
+            while (!closed) {
+                final long start = System.nanoTime();
+                List<ContainerItem> batch = generator.generate(batchSize);
+                generationNanos.add(System.nanoTime() - start);
+                produced.increment();
+                buffer.put(batch);
+            }
+        } catch (InterruptedException e) {
+            // closed; fine
+        }
+    }
+
+    @Override
+    public List<ContainerItem> nextBatch() {
+        List<ContainerItem> batch = buffer.poll();
+        if (batch == null) {
+            // Generation not keeping up: need to wait
+            final long start = System.nanoTime();
+            agentWaits.increment();
+            try {
+                while (batch == null && !closed) {
+                    batch = buffer.poll(100L, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) { }
+            agentWaitNanos.add(System.nanoTime() - start);
+            if (batch == null) { // only if closed/interrupted
+                return generator.generate(batchSize);
+            }
+        }
+        minBuffered.accumulateAndGet(buffer.size(), Math::min);
+        return batch;
+    }
+
+    @Override
+    public int bufferedBatches() {
+        return buffer.size();
+    }
+
+    @Override
+    public String statusDesc() {
+        final long producedCount = produced.sum();
+        final long waits = agentWaits.sum();
+        final int minSeen = minBuffered.getAndSet(buffer.size() + buffer.remainingCapacity());
+        final long producedSinceLast = producedCount - lastProduced.getAndSet(producedCount);
+        return String.format("[Pre-gen: buffer %d/%d (min %d), produced %d (+%d; %.2f ms/batch), agent waits %d (%.1f ms avg)]",
+                buffer.size(), buffer.size() + buffer.remainingCapacity(), minSeen,
+                producedCount, producedSinceLast,
+                (producedCount == 0) ? 0.0 : generationNanos.sum() / (producedCount * 1_000_000.0),
+                waits, (waits == 0) ? 0.0 : agentWaitNanos.sum() / (waits * 1_000_000.0));
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread t : producers) {
+            t.interrupt();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.datastax.stargate.perf.insertmany.entity;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Selector of ids of recorded inserted items ({@link InsertedItems}) with skewed
+ * ("hot key") access: items are ranked by recency (most recently inserted first)
+ * and rank is chosen from Zipfian distribution with given exponent, so that recent
+ * items are chosen most often. Exponent of 0 gives uniform distribution.
+ *<p>
+ * Ranks are sampled using rejection-inversion (Hoermann and Derflinger), which needs
+ * no precomputation for the number of items: so it can change as items are inserted.
+ * Thread-safe.
+ */
+public class SkewedIdSelector
+{
+    private final InsertedItems inserted;
+
+    private final double exponent;
+
+    // Constants of rejection-inversion that only depend on exponent
+    private final double hIntegralX1;
+    private final double s;
+
+    private SkewedIdSelector(InsertedItems inserted, double exponent) {
+        this.inserted = inserted;
+        this.exponent = exponent;
+        hIntegralX1 = hIntegral(1.5) - 1.0;
+        s = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+    }
+
+    /**
+     * @param exponent Zipfian exponent: 0 for uniform; higher for more skew (0.99
+     *    is commonly used)
+     */
+    public static SkewedIdSelector create(InsertedItems inserted, double exponent) {
+        if (exponent < 0.0) {
+            throw new IllegalArgumentException("Key skew exponent must be 0 or higher, was "+exponent);
+        }
+        return new SkewedIdSelector(inserted, exponent);
+    }
+
+    public double exponent() {
+        return exponent;
+    }
+
+    /**
+     * @return Id of chosen item; null if none recorded (or slot chosen not yet written)
+     */
+    public String nextId() {
+        final int n = inserted.size();
+        if (n == 0) {
+            return null;
+        }
+        return inserted.recentId(nextRank(n) - 1);
+    }
+
+    /**
+     * Method for choosing rank from {@code [1, n]}.
+     */
+    int nextRank(int n) {
+        final ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        if (exponent == 0.0 || n == 1) {
+            return 1 + rnd.nextInt(n);
+        }
+        final double hIntegralN = hIntegral(n + 0.5);
+        while (true) {
+            final double u = hIntegralN + rnd.nextDouble() * (hIntegralX1 - hIntegralN);
+            final double x = hIntegralInverse(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > n) {
+                k = n;
+            }
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    // Integral of h(x) = x^-exponent (up to a constant)
+    private double hIntegral(double x) {
+        final double logX = Math.log(x);
+        return helper2((1.0 - exponent) * logX) * logX;
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = x * (1.0 - exponent);
+        if (t < -1.0) {
+            t = -1.0;
+        }
+        return Math.exp(helper1(t) * x);
+    }
+
+    // log(1+x)/x, accurate also near 0
+    private static double helper1(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.log1p(x) / x;
+        }
+        return 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+    }
+
+    // (exp(x)-1)/x, accurate also near 0
+    private static double helper2(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.expm1(x) / x;
+        }
+        return 1.0 + x * 0.5 * (1.0 + x * 1.0 / 3.0 * (1.0 + 0.25 * x));
+    }
+}
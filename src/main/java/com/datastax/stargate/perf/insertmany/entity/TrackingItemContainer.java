@@ -0,0 +1,122 @@
+package com.datastax.stargate.perf.insertmany.entity;
+
+import com.datastax.astra.client.exceptions.DataAPIException;
+import com.datastax.stargate.perf.insertmany.trace.BatchTrace;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link ItemContainer} decorator that records items of successful inserts into
+ * {@link InsertedItems}, for read (and other) agents to choose items from; and clears
+ * them when container is truncated. Batches that fail (or for which insert returns
+ * {@code false}) are not recorded even if some items were inserted.
+ */
+public record TrackingItemContainer(ItemContainer delegate, InsertedItems inserted)
+    implements ItemContainer
+{
+    @Override
+    public int vectorSize() {
+        return delegate.vectorSize();
+    }
+
+    @Override
+    public boolean orderedInserts() {
+        return delegate.orderedInserts();
+    }
+
+    @Override
+    public void validateIsEmpty() {
+        delegate.validateIsEmpty();
+    }
+
+    @Override
+    public long countItems(int maxCount) {
+        return delegate.countItems(maxCount);
+    }
+
+    @Override
+    public void insertItem(ContainerItem item) throws DataAPIException {
+        delegate.insertItem(item);
+        inserted.add(List.of(item));
+    }
+
+    @Override
+    public boolean insertItems(List<ContainerItem> items) throws DataAPIException {
+        final boolean ok = delegate.insertItems(items);
+        if (ok) {
+            inserted.add(items);
+        }
+        return ok;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> insertItemsAsync(List<ContainerItem> items, Executor executor) {
+        return delegate.insertItemsAsync(items, executor)
+                .whenComplete((ok, error) -> {
+                    if (error == null && ok) {
+                        inserted.add(items);
+                    }
+                });
+    }
+
+    @Override
+    public boolean insertItems(List<ContainerItem> items, BatchTrace trace) throws DataAPIException {
+        final boolean ok = delegate.insertItems(items, trace);
+        if (ok) {
+            inserted.add(items);
+        }
+        return ok;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> insertItemsAsync(List<ContainerItem> items, BatchTrace trace,
+                                                       Executor executor) {
+        return delegate.insertItemsAsync(items, trace, executor)
+                .whenComplete((ok, error) -> {
+                    if (error == null && ok) {
+                        inserted.add(items);
+                    }
+                });
+    }
+
+    @Override
+    public String insertManyPayload(List<ContainerItem> items) {
+        return delegate.insertManyPayload(items);
+    }
+
+    @Override
+    public ContainerItem findItem(String idAsSring) {
+        return delegate.findItem(idAsSring);
+    }
+
+    @Override
+    public int findItemsInRange(long minValue, long maxValue, int limit) {
+        return delegate.findItemsInRange(minValue, maxValue, limit);
+    }
+
+    @Override
+    public List<String> findNearest(float[] vector, int limit) {
+        return delegate.findNearest(vector, limit);
+    }
+
+    @Override
+    public void replaceItem(ContainerItem item) {
+        delegate.replaceItem(item);
+        inserted.markWritten(item.idAsString);
+    }
+
+    @Override
+    public long deleteItems(List<String> ids) {
+        final long deleted = delegate.deleteItems(ids);
+        inserted.markDeleted(ids);
+        return deleted;
+    }
+
+    @Override
+    public long deleteAll() {
+        inserted.clear();
+        return delegate.deleteAll();
+    }
+}
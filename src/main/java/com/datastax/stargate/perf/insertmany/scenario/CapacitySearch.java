@@ -0,0 +1,209 @@
+package com.datastax.stargate.perf.insertmany.scenario;
+
+import com.datastax.stargate.perf.base.RunConfig;
+import com.datastax.stargate.perf.base.SearchOptions;
+import com.datastax.stargate.perf.insertmany.agent.MetricsCollector;
+import com.datastax.stargate.perf.insertmany.agent.PhaseResultsWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search for the highest rate container sustains while p99 latency of successful
+ * calls and error rate stay within targets. Runs short probe phases: first doubling
+ * the rate until a probe fails (or halving it, if the starting rate fails), then
+ * bisecting between highest passing and lowest failing rates until they are within
+ * requested precision.
+ *<p>
+ * A probe also fails if achieved rate falls clearly short of the target rate, as
+ * happens with closed-loop load and too few agents: otherwise such probe would
+ * "pass" at a lower rate than it claims.
+ */
+public class CapacitySearch
+{
+    private final static ObjectMapper MAPPER = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    /**
+     * Minimum ratio of achieved to target rate for probe to pass
+     */
+    private final static double MIN_ACHIEVED_RATIO = 0.9;
+
+    /**
+     * Result of a single probe phase.
+     *
+     * @param targetRPS Rate (calls/sec) probe was run at
+     * @param callRate Achieved rate of all calls (calls/sec)
+     * @param docRate Achieved rate of successfully inserted documents (docs/sec)
+     * @param failure Reason probe failed; null if passed
+     */
+    public record Sample(int targetRPS, double callRate, double docRate,
+                         double p50Msecs, double p99Msecs, double errorPct,
+                         String failure)
+    {
+        public boolean passed() {
+            return failure == null;
+        }
+    }
+
+    private final SearchOptions options;
+    private final PhaseExecutor executor;
+
+    private final List<Sample> samples = new ArrayList<>();
+
+    private CapacitySearch(SearchOptions options, PhaseExecutor executor) {
+        this.options = options;
+        this.executor = executor;
+    }
+
+    public static CapacitySearch create(SearchOptions options, PhaseExecutor executor) {
+        return new CapacitySearch(options, executor);
+    }
+
+    /**
+     * Method for running the search, starting at given rate.
+     *
+     * @return Highest passing sample; null if no probed rate passed
+     */
+    public Sample run(int startRPS) throws InterruptedException, IOException
+    {
+        System.out.printf("Capacity search: p99 target %.1f ms, max errors %.1f%%, %d second probes, rates %d..%d RPS\n",
+                options.p99TargetMsecs(), options.maxErrorRatePct(), options.phaseSecs(),
+                startRPS, options.maxRPS());
+        int rps = Math.max(1, Math.min(startRPS, options.maxRPS()));
+        Sample best = null;
+        int lowestFailing = 0;
+
+        // First: exponential probe up (or down, if starting rate already fails)
+        while (true) {
+            Sample sample = probe(rps);
+            if (sample.passed()) {
+                best = sample;
+                if (lowestFailing > 0 || rps >= options.maxRPS()) {
+                    break;
+                }
+                rps = (int) Math.min(2L * rps, options.maxRPS());
+            } else {
+                lowestFailing = rps;
+                if (best != null || rps == 1) {
+                    break;
+                }
+                rps /= 2;
+            }
+        }
+
+        // Then refine by bisection, if there is a range to refine
+        while (best != null && lowestFailing > 0) {
+            final int gap = lowestFailing - best.targetRPS();
+            if (gap <= 1 || gap <= best.targetRPS() * options.precisionPct() / 100.0) {
+                break;
+            }
+            rps = best.targetRPS() + gap / 2;
+            Sample sample = probe(rps);
+            if (sample.passed()) {
+                best = sample;
+            } else {
+                lowestFailing = rps;
+            }
+        }
+        return best;
+    }
+
+    private Sample probe(int rps) throws InterruptedException, IOException
+    {
+        // Do not truncate between probes: would add pauses, and ids never collide
+        PhaseSpec spec = new PhaseSpec("Probe " + rps,
+                TimeUnit.SECONDS.toMillis(options.phaseSecs()), rps, rps,
+                0, 0, Workload.INSERT, false);
+        MetricsCollector metrics = executor.runPhase(spec);
+
+        final long totalCalls = metrics.totalCalls();
+        final double callRate = metrics.callRate();
+        final double errorPct = (totalCalls == 0L) ? 0.0
+                : 100.0 * metrics.errorCalls() / totalCalls;
+        final Histogram ok = metrics.okLatencies();
+        final double p99Msecs = ok.getValueAtPercentile(99.0) / 1_000_000.0;
+
+        String failure = null;
+        if (metrics.okCalls() == 0L) {
+            failure = "no successful calls";
+        } else if (errorPct > options.maxErrorRatePct()) {
+            failure = String.format("errors %.2f%%", errorPct);
+        } else if (p99Msecs > options.p99TargetMsecs()) {
+            failure = String.format("p99 %.1f ms", p99Msecs);
+        } else if (callRate < rps * MIN_ACHIEVED_RATIO) {
+            failure = String.format("rate %.1f/sec (more agents?)", callRate);
+        }
+        Sample sample = new Sample(rps, callRate, metrics.okDocRate(),
+                ok.getValueAtPercentile(50.0) / 1_000_000.0, p99Msecs, errorPct,
+                failure);
+        samples.add(sample);
+        System.out.printf("Capacity search: probe at %d RPS %s\n", rps,
+                sample.passed() ? "PASSED" : ("FAILED: " + failure));
+        return sample;
+    }
+
+    /**
+     * Samples of all probes run, ordered by target rate: the throughput/latency
+     * curve sampled.
+     */
+    public List<Sample> curve() {
+        List<Sample> curve = new ArrayList<>(samples);
+        curve.sort(Comparator.comparingInt(Sample::targetRPS));
+        return curve;
+    }
+
+    public void printResults(Sample best) {
+        System.out.printf("\nCapacity search completed with %d probes (p99 target: %.1f ms, max errors: %.1f%%):\n",
+                samples.size(), options.p99TargetMsecs(), options.maxErrorRatePct());
+        System.out.println("  target RPS   calls/sec    docs/sec   p50 ms   p99 ms  errors %  result");
+        for (Sample s : curve()) {
+            System.out.printf("  %10d  %10.1f  %10.1f  %7.1f  %7.1f  %8.2f  %s\n",
+                    s.targetRPS(), s.callRate(), s.docRate(), s.p50Msecs(), s.p99Msecs(),
+                    s.errorPct(), s.passed() ? "PASS" : ("FAIL (" + s.failure() + ")"));
+        }
+        if (best == null) {
+            System.out.println(" -> no probed rate met targets");
+        } else {
+            System.out.printf(" -> max sustainable rate: %d RPS (%.1f calls, %.1f docs/sec; p99 %.1f ms)\n",
+                    best.targetRPS(), best.callRate(), best.docRate(), best.p99Msecs());
+        }
+    }
+
+    /**
+     * Method for writing sampled curve and result as CSV and JSON files in the
+     * results directory, if results are written for the run.
+     */
+    public void writeResults(RunConfig runConfig, Sample best) throws IOException
+    {
+        if (!runConfig.exportResults()) {
+            return;
+        }
+        final String baseName = PhaseResultsWriter.fileBaseName(runConfig, "capacity search");
+        File dir = new File(runConfig.resultsDir());
+        try (PrintStream csvOut = new PrintStream(new File(dir, baseName + ".csv"))) {
+            csvOut.println("targetRPS,callsPerSec,docsPerSec,p50Ms,p99Ms,errorPct,passed");
+            for (Sample s : curve()) {
+                csvOut.printf("%d,%.2f,%.2f,%.3f,%.3f,%.3f,%s\n",
+                        s.targetRPS(), s.callRate(), s.docRate(), s.p50Msecs(), s.p99Msecs(),
+                        s.errorPct(), s.passed());
+            }
+        }
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("runConfig", runConfig);
+        root.put("curve", curve());
+        root.put("result", best);
+        MAPPER.writeValue(new File(dir, baseName + ".json"), root);
+        System.out.printf(" -> capacity search results written in '%s'\n", runConfig.resultsDir());
+    }
+}
@@ -0,0 +1,16 @@
+package com.datastax.stargate.perf.insertmany.scenario;
+
+import com.datastax.stargate.perf.insertmany.agent.MetricsCollector;
+
+import java.io.IOException;
+
+/**
+ * Abstraction for running a test phase, either locally or on distributed workers.
+ */
+@FunctionalInterface
+public interface PhaseExecutor {
+    /**
+     * @return Metrics of the completed phase (fully drained)
+     */
+    MetricsCollector runPhase(PhaseSpec spec) throws InterruptedException, IOException;
+}
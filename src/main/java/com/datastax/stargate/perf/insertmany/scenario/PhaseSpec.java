@@ -0,0 +1,60 @@
+package com.datastax.stargate.perf.insertmany.scenario;
+
+/**
+ * Definition of a single test phase: how long it runs, target rate (constant, or
+ * linear ramp from start to end rate), agents and batch size to use, what agents do,
+ * and whether container is to be truncated before the phase.
+ *
+ * @param agentCount Number of agents; 0 to use default (from command line)
+ * @param batchSize Items per batch; 0 to use default (from command line)
+ */
+public record PhaseSpec(String name, long durationMsecs,
+                        int startRPS, int endRPS,
+                        int agentCount, int batchSize,
+                        Workload workload, boolean truncate)
+{
+    /**
+     * Factory method for simple phase with constant rate, default agent count and
+     * batch size, that truncates container before starting.
+     */
+    public static PhaseSpec constant(String name, long durationMsecs, int rps) {
+        return new PhaseSpec(name, durationMsecs, rps, rps, 0, 0, Workload.INSERT, true);
+    }
+
+    public boolean ramp() {
+        return startRPS != endRPS;
+    }
+
+    public int maxRPS() {
+        return Math.max(startRPS, endRPS);
+    }
+
+    /**
+     * Method for resolving defaults of agent count and batch size.
+     */
+    public PhaseSpec withDefaults(int defaultAgentCount, int defaultBatchSize) {
+        return new PhaseSpec(name, durationMsecs, startRPS, endRPS,
+                (agentCount > 0) ? agentCount : defaultAgentCount,
+                (batchSize > 0) ? batchSize : defaultBatchSize,
+                workload, truncate);
+    }
+
+    public PhaseSpec withRPS(int startRPS, int endRPS) {
+        return new PhaseSpec(name, durationMsecs, startRPS, endRPS,
+                agentCount, batchSize, workload, truncate);
+    }
+
+    public PhaseSpec withAgentCount(int agentCount) {
+        return new PhaseSpec(name, durationMsecs, startRPS, endRPS,
+                agentCount, batchSize, workload, truncate);
+    }
+
+    public PhaseSpec withWorkload(Workload workload) {
+        return new PhaseSpec(name, durationMsecs, startRPS, endRPS,
+                agentCount, batchSize, workload, truncate);
+    }
+
+    public String rpsDesc() {
+        return ramp() ? (startRPS + "->" + endRPS) : String.valueOf(startRPS);
+    }
+}
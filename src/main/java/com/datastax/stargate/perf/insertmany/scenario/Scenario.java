@@ -0,0 +1,102 @@
+package com.datastax.stargate.perf.insertmany.scenario;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parser of test scenarios: sequences of phases, each defined as
+ *<pre>
+ *   NAME:DURATION@RPS[->RPS][,agents=N][,batch=N][,workload=TYPE][,truncate]
+ *</pre>
+ * where {@code DURATION} is a number with optional unit ({@code ms}, {@code s}
+ * [default], {@code m} or {@code h}) and {@code RPS->RPS} defines a linear ramp.
+ * For example:
+ *<pre>
+ *   warmup:30s@100; ramp:2m@100->2000; steady:2m@2000,agents=50; spike:10s@5000; cool:30s@2000->100
+ *</pre>
+ * Phases are separated by semicolons or line feeds; in files, lines starting
+ * with '#' are comments.
+ */
+public class Scenario
+{
+    private final static Pattern PHASE = Pattern.compile(
+            "([^:]+):\\s*(\\d+)\\s*(ms|s|m|h)?\\s*@\\s*(\\d+)(?:\\s*->\\s*(\\d+))?\\s*((?:,[^,]*)*)");
+
+    private Scenario() { }
+
+    /**
+     * Method for parsing scenario from given specification: either phase definitions
+     * themselves, or, if starting with '@', name of the file that contains them.
+     */
+    public static List<PhaseSpec> parse(String spec) throws IOException {
+        spec = spec.trim();
+        if (spec.startsWith("@")) {
+            spec = Files.readString(Path.of(spec.substring(1)));
+        }
+        List<PhaseSpec> phases = new ArrayList<>();
+        for (String line : spec.split("[;\\n]")) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            phases.add(parsePhase(line));
+        }
+        if (phases.isEmpty()) {
+            throw new IllegalArgumentException("No phases defined in scenario");
+        }
+        return phases;
+    }
+
+    static PhaseSpec parsePhase(String def) {
+        Matcher m = PHASE.matcher(def);
+        if (!m.matches()) {
+            throw new IllegalArgumentException("Invalid phase definition '"+def
+                    +"': expected 'NAME:DURATION@RPS[->RPS][,agents=N][,batch=N][,workload=TYPE][,truncate]'");
+        }
+        final String name = m.group(1).trim();
+        final long durationMsecs = durationMsecs(Long.parseLong(m.group(2)), m.group(3));
+        final int startRPS = Integer.parseInt(m.group(4));
+        final int endRPS = (m.group(5) == null) ? startRPS : Integer.parseInt(m.group(5));
+        int agentCount = 0;
+        int batchSize = 0;
+        Workload workload = Workload.INSERT;
+        boolean truncate = false;
+
+        for (String option : m.group(6).split(",")) {
+            option = option.trim();
+            if (option.isEmpty()) {
+                continue;
+            }
+            final int ix = option.indexOf('=');
+            final String key = (ix < 0) ? option : option.substring(0, ix).trim();
+            final String value = (ix < 0) ? "" : option.substring(ix+1).trim();
+            switch (key) {
+                case "agents" -> agentCount = Integer.parseInt(value);
+                case "batch" -> batchSize = Integer.parseInt(value);
+                case "workload" -> workload = Workload.valueOf(value.toUpperCase());
+                case "truncate" -> truncate = value.isEmpty() || Boolean.parseBoolean(value);
+                default -> throw new IllegalArgumentException("Unknown option '"+key
+                        +"' for phase '"+name+"'");
+            }
+        }
+        return new PhaseSpec(name, durationMsecs, startRPS, endRPS,
+                agentCount, batchSize, workload, truncate);
+    }
+
+    private static long durationMsecs(long amount, String unit) {
+        if (unit == null) {
+            unit = "s";
+        }
+        return switch (unit) {
+            case "ms" -> amount;
+            case "m" -> amount * 60_000L;
+            case "h" -> amount * 3_600_000L;
+            default -> amount * 1000L;
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package com.datastax.stargate.perf.insertmany.scenario;
+
+/**
+ * Type of operations agents of a test phase perform.
+ */
+public enum Workload {
+    /**
+     * Insert batches of new items (using insertMany)
+     */
+    INSERT,
+
+    /**
+     * Insert batches as with {@link #INSERT}, and concurrently read items inserted
+     * (point lookups by id, range reads on value) by separate read agents, at
+     * separate rate
+     */
+    MIXED,
+
+    /**
+     * Insert batches as with {@link #INSERT}, and concurrently overwrite (upsert) and/or
+     * delete items inserted earlier by separate mutation agents, at separate rates
+     * (and read items, if reads enabled)
+     */
+    MUTATE,
+
+    /**
+     * Vector (ANN) searches only, no inserts: results compared to exact nearest neighbors
+     * of items inserted so far, to measure recall
+     */
+    SEARCH
+    ;
+}
@@ -0,0 +1,161 @@
+package com.datastax.stargate.perf.insertmany.trace;
+
+import com.datastax.stargate.perf.metrics.CallTimings;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Timeline of a single traced batch: consecutive stages (generation, queueing,
+ * mapping, call) recorded by marking the end of each stage; stage starts
+ * where the previous one ended. Once timings of call are available from
+ * {@link CallTimings}, call is split into client-side request handling, command
+ * (as timed by Data API client) and client-side response handling; against
+ * embedded Data API server, command is further split into sending request, server
+ * processing and receiving response.
+ *<p>
+ * Not thread-safe, but may be handed over between threads (like from agent to
+ * async completion callback) as long as only one thread marks stages at a time.
+ */
+public class BatchTrace
+{
+    public final static String STAGE_GENERATE = "generate";
+    public final static String STAGE_QUEUE = "queue";
+    public final static String STAGE_MAP = "map";
+    public final static String STAGE_CALL = "call";
+    public final static String STAGE_REQUEST = "request";
+    public final static String STAGE_COMMAND = "command";
+    public final static String STAGE_SEND = "send";
+    public final static String STAGE_SERVER = "server";
+    public final static String STAGE_RECEIVE = "receive";
+    public final static String STAGE_RESPONSE = "response";
+
+    public record Span(String stage, long startNanos, long endNanos) {
+        public long durationNanos() {
+            return endNanos - startNanos;
+        }
+    }
+
+    private final int agentId;
+
+    private final long batchNumber;
+
+    private final long startNanos;
+
+    private long lastMarkNanos;
+
+    private final List<Span> spans = new ArrayList<>(8);
+
+    // Key of call being timed, if any
+    private String callKey;
+
+    // Index of span of call being timed, if completed
+    private int callSpanIndex = -1;
+
+    BatchTrace(int agentId, long batchNumber) {
+        this.agentId = agentId;
+        this.batchNumber = batchNumber;
+        startNanos = System.nanoTime();
+        lastMarkNanos = startNanos;
+    }
+
+    /**
+     * Method for marking the end of given stage (which started at the end of
+     * the previous stage, or start of trace).
+     */
+    public void mark(String stage) {
+        final long now = System.nanoTime();
+        spans.add(new Span(stage, lastMarkNanos, now));
+        lastMarkNanos = now;
+    }
+
+    /**
+     * Method called right before making call with given key (key of the first
+     * item), to have it timed (unless another call with same key is).
+     */
+    public void callStarting(String requestKey) {
+        callKey = CallTimings.instance().expect(requestKey) ? requestKey : null;
+    }
+
+    /**
+     * Method for marking the end of call started with {@link #callStarting}, as
+     * {@link #STAGE_CALL}: split once timings are available (see {@link #resolveCall}).
+     */
+    public void callCompleted() {
+        mark(STAGE_CALL);
+        if (callKey != null) {
+            callSpanIndex = spans.size() - 1;
+        }
+    }
+
+    /**
+     * @return True if call is not timed, or client has reported its timing
+     */
+    boolean callTimingAvailable() {
+        return (callKey == null) || (CallTimings.instance().commandTiming(callKey) != null);
+    }
+
+    /**
+     * Method for splitting span of timed call using timings available: into
+     * {@link #STAGE_REQUEST}, {@link #STAGE_COMMAND} and {@link #STAGE_RESPONSE}
+     * if client reported command; command (or call, if not reported) further into
+     * {@link #STAGE_SEND}, {@link #STAGE_SERVER} and {@link #STAGE_RECEIVE} if
+     * embedded server reported timing.
+     */
+    void resolveCall() {
+        if (callKey == null) {
+            return;
+        }
+        final CallTimings timings = CallTimings.instance();
+        final CallTimings.Timing command = timings.commandTiming(callKey);
+        final CallTimings.Timing server = timings.serverTiming(callKey);
+        timings.release(callKey);
+        callKey = null;
+        if (callSpanIndex < 0) { // call not completed
+            return;
+        }
+        final Span call = spans.get(callSpanIndex);
+        List<Span> parts = new ArrayList<>(5);
+        long innerStart = call.startNanos(), innerEnd = call.endNanos();
+        String innerStage = STAGE_CALL;
+        // Client timing has msec precision (and wall-clock start): keep within call
+        if (command != null) {
+            innerStart = Math.max(call.startNanos(), Math.min(call.endNanos(), command.startNanos()));
+            innerEnd = Math.max(innerStart, Math.min(call.endNanos(), command.endNanos()));
+            innerStage = STAGE_COMMAND;
+            parts.add(new Span(STAGE_REQUEST, call.startNanos(), innerStart));
+        }
+        if (server != null && server.startNanos() >= innerStart && server.endNanos() <= innerEnd) {
+            parts.add(new Span(STAGE_SEND, innerStart, server.startNanos()));
+            parts.add(new Span(STAGE_SERVER, server.startNanos(), server.endNanos()));
+            parts.add(new Span(STAGE_RECEIVE, server.endNanos(), innerEnd));
+        } else {
+            parts.add(new Span(innerStage, innerStart, innerEnd));
+        }
+        if (command != null) {
+            parts.add(new Span(STAGE_RESPONSE, innerEnd, call.endNanos()));
+        }
+        spans.remove(callSpanIndex);
+        spans.addAll(callSpanIndex, parts);
+    }
+
+    public int agentId() {
+        return agentId;
+    }
+
+    public long batchNumber() {
+        return batchNumber;
+    }
+
+    public long startNanos() {
+        return startNanos;
+    }
+
+    public long endNanos() {
+        return lastMarkNanos;
+    }
+
+    public List<Span> spans() {
+        return spans;
+    }
+}
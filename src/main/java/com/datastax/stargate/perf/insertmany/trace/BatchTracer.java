@@ -0,0 +1,207 @@
+package com.datastax.stargate.perf.insertmany.trace;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collector of {@link BatchTrace}s of a test phase: every Nth batch taken by agents
+ * is traced, and completed traces are kept (up to a limit) for writing into a trace
+ * file in Chrome trace event format (viewable with {@code chrome://tracing} or
+ * Perfetto UI); average time per stage is tracked for all completed traces.
+ */
+public class BatchTracer
+{
+    /**
+     * Maximum number of traces to keep for writing in trace file; averages
+     * include all traces
+     */
+    private final static int MAX_TRACES_KEPT = 20_000;
+
+    /**
+     * Maximum time to wait for timings of a traced call (reported asynchronously
+     * by client) before accounting the trace without them
+     */
+    private final static long CALL_TIMING_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(200L);
+
+    private final static ObjectMapper MAPPER = new ObjectMapper();
+
+    private final int traceEvery;
+
+    private final long phaseStartNanos;
+
+    private final AtomicLong batchCounter = new AtomicLong();
+
+    // Completed traces waiting for call timings
+    private final ConcurrentLinkedQueue<BatchTrace> pending = new ConcurrentLinkedQueue<>();
+
+    private final ConcurrentLinkedQueue<BatchTrace> traces = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger tracesKept = new AtomicInteger();
+
+    private final LongAdder completed = new LongAdder();
+    private final Map<String, LongAdder> stageNanos = new LinkedHashMap<>();
+
+    private BatchTracer(int traceEvery) {
+        this.traceEvery = traceEvery;
+        phaseStartNanos = System.nanoTime();
+        // Pre-populate stages to have stable ordering, no need to sync
+        for (String stage : List.of(BatchTrace.STAGE_GENERATE, BatchTrace.STAGE_QUEUE,
+                BatchTrace.STAGE_MAP, BatchTrace.STAGE_CALL, BatchTrace.STAGE_REQUEST,
+                BatchTrace.STAGE_COMMAND, BatchTrace.STAGE_SEND, BatchTrace.STAGE_SERVER,
+                BatchTrace.STAGE_RECEIVE, BatchTrace.STAGE_RESPONSE)) {
+            stageNanos.put(stage, new LongAdder());
+        }
+    }
+
+    /**
+     * Factory method for tracer that traces every {@code traceEvery}th batch;
+     * or, if {@code traceEvery} is 0, returns {@code null} (no tracing).
+     */
+    public static BatchTracer create(int traceEvery) {
+        return (traceEvery <= 0) ? null : new BatchTracer(traceEvery);
+    }
+
+    /**
+     * Method called by an agent before getting the next batch: returns trace to
+     * record stages into if batch is to be traced, otherwise {@code null}.
+     */
+    public BatchTrace sample(int agentId) {
+        final long batchNumber = batchCounter.getAndIncrement();
+        if ((batchNumber % traceEvery) != 0) {
+            return null;
+        }
+        return new BatchTrace(agentId, batchNumber);
+    }
+
+    /**
+     * Method called once all stages of a successfully sent batch have been marked:
+     * trace is accounted for once timings of its call are available (or not
+     * expected to become available any more).
+     */
+    public void complete(BatchTrace trace) {
+        pending.add(trace);
+        resolvePending(false);
+    }
+
+    /**
+     * Method for accounting pending traces, in order of completion, as long as
+     * their call timings are available (or waited long enough for); or, if
+     * {@code all} is true, all of them.
+     */
+    /**
+     * Method called instead of {@link #complete} for traces of batches that failed:
+     * these are not accounted, but timings of their calls are no longer needed.
+     */
+    public void discard(BatchTrace trace) {
+        trace.resolveCall();
+    }
+
+    private void resolvePending(boolean all) {
+        BatchTrace trace;
+        while ((trace = pending.peek()) != null) {
+            if (!all && !trace.callTimingAvailable()
+                    && (System.nanoTime() - trace.endNanos()) < CALL_TIMING_WAIT_NANOS) {
+                return;
+            }
+            if ((trace = pending.poll()) == null) {
+                return;
+            }
+            trace.resolveCall();
+            account(trace);
+        }
+    }
+
+    private void account(BatchTrace trace) {
+        for (BatchTrace.Span span : trace.spans()) {
+            LongAdder total = stageNanos.get(span.stage());
+            if (total != null) {
+                total.add(span.durationNanos());
+            }
+        }
+        completed.increment();
+        if (tracesKept.incrementAndGet() <= MAX_TRACES_KEPT) {
+            traces.add(trace);
+        }
+    }
+
+    public long tracedBatches() {
+        resolvePending(true);
+        return completed.sum();
+    }
+
+    /**
+     * Average milliseconds per stage over all completed traces; stages never
+     * recorded (like call parts without embedded server) are left out.
+     */
+    public Map<String, Double> avgStageMsecs() {
+        resolvePending(true);
+        final long count = Math.max(1L, completed.sum());
+        Map<String, Double> result = new LinkedHashMap<>();
+        stageNanos.forEach((stage, nanos) -> {
+            final long total = nanos.sum();
+            if (total > 0L) {
+                result.put(stage, total / 1_000_000.0 / count);
+            }
+        });
+        return result;
+    }
+
+    public String breakdownDesc() {
+        resolvePending(true);
+        StringBuilder sb = new StringBuilder("[Trace breakdown (")
+                .append(completed.sum()).append(" batches), avg ms/batch:");
+        avgStageMsecs().forEach((stage, msecs) ->
+                sb.append(' ').append(stage).append(' ').append(String.format("%.3f", msecs)));
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Method for writing kept traces as a trace file in Chrome trace event format:
+     * each batch as a complete ("X") event on the timeline of its agent, with
+     * stages as nested events.
+     */
+    public void writeChromeTrace(File file) throws IOException {
+        resolvePending(true);
+        try (JsonGenerator g = MAPPER.getFactory().createGenerator(file, JsonEncoding.UTF8)) {
+            g.writeStartObject();
+            g.writeStringField("displayTimeUnit", "ms");
+            g.writeArrayFieldStart("traceEvents");
+            for (BatchTrace trace : traces) {
+                writeEvent(g, "batch", trace, trace.startNanos(), trace.endNanos());
+                for (BatchTrace.Span span : trace.spans()) {
+                    writeEvent(g, span.stage(), trace, span.startNanos(), span.endNanos());
+                }
+            }
+            g.writeEndArray();
+            g.writeEndObject();
+        }
+    }
+
+    private void writeEvent(JsonGenerator g, String name, BatchTrace trace,
+                            long startNanos, long endNanos) throws IOException {
+        g.writeStartObject();
+        g.writeStringField("name", name);
+        g.writeStringField("cat", "insertMany");
+        g.writeStringField("ph", "X");
+        // Timestamps, durations in microseconds
+        g.writeNumberField("ts", (startNanos - phaseStartNanos) / 1000.0);
+        g.writeNumberField("dur", (endNanos - startNanos) / 1000.0);
+        g.writeNumberField("pid", 1);
+        g.writeNumberField("tid", trace.agentId());
+        g.writeObjectFieldStart("args");
+        g.writeNumberField("batch", trace.batchNumber());
+        g.writeEndObject();
+        g.writeEndObject();
+    }
+}
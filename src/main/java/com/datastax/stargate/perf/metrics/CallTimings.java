@@ -0,0 +1,149 @@
+package com.datastax.stargate.perf.metrics;
+
+import com.datastax.astra.internal.api.DataAPIResponse;
+import com.datastax.astra.internal.command.CommandObserver;
+import com.datastax.astra.internal.command.ExecutionInfos;
+import com.datastax.stargate.perf.embedded.RequestTimingListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of timings of traced insert calls, for splitting calls into client-side
+ * and server-side parts. Timings come from two sources, both registered for the
+ * whole JVM:
+ *<ul>
+ * <li>Data API client, as {@link CommandObserver}: start and duration of each
+ *   command ({@link ExecutionInfos}), with any server
+ *  </li>
+ * <li>Embedded Data API server, as {@link RequestTimingListener}: when server
+ *   received request and started writing response
+ *  </li>
+ *</ul>
+ * Calls are identified by the key of their first document: from request by server,
+ * from {@code insertedIds} of response by client. A key can only be expected
+ * by one call at a time: others with the same key (like injected duplicates and
+ * resubmissions) are not timed.
+ *<p>
+ * Client notifies observers asynchronously, so timings may become available
+ * only after the call has returned.
+ */
+public class CallTimings
+    implements CommandObserver, RequestTimingListener
+{
+    /**
+     * Name used for registering client observer
+     */
+    public final static String OBSERVER_NAME = "callTimings";
+
+    /**
+     * Part of a call, with {@code System.nanoTime()} timestamps.
+     */
+    public record Timing(long startNanos, long endNanos) { }
+
+    private final static CallTimings instance = new CallTimings();
+
+    private final Map<String, Entry> expected = new ConcurrentHashMap<>();
+
+    private CallTimings() { }
+
+    public static CallTimings instance() {
+        return instance;
+    }
+
+    /**
+     * Method called before sending request with given key, to have it timed.
+     *
+     * @return True if call will be timed; false if another call with the same key
+     *    already is
+     */
+    public boolean expect(String requestKey) {
+        return expected.putIfAbsent(requestKey, new Entry()) == null;
+    }
+
+    /**
+     * @return Command execution of expected call with given key as reported by
+     *    client, if available yet; null if not
+     */
+    public Timing commandTiming(String requestKey) {
+        final Entry entry = expected.get(requestKey);
+        return (entry == null) ? null : entry.command;
+    }
+
+    /**
+     * @return Server processing of expected call with given key as reported by
+     *    embedded server, if any; null if not
+     */
+    public Timing serverTiming(String requestKey) {
+        final Entry entry = expected.get(requestKey);
+        return (entry == null) ? null : entry.server;
+    }
+
+    /**
+     * Method called once timings of call with given key are no longer needed.
+     */
+    public void release(String requestKey) {
+        expected.remove(requestKey);
+    }
+
+    // // // CommandObserver (Data API client)
+
+    @Override
+    public void onCommand(ExecutionInfos infos) {
+        if (expected.isEmpty() || infos.getExecutionDate() == null) {
+            return;
+        }
+        final DataAPIResponse response = infos.getResponse();
+        final List<Object> ids = (response == null) ? null
+                : response.getStatusKeyAsList("insertedIds", Object.class);
+        final String key = (ids == null || ids.isEmpty()) ? null : idAsString(ids.get(0));
+        final Entry entry = (key == null) ? null : expected.get(key);
+        if (entry != null && entry.command == null) {
+            // Execution date is wall-clock time: convert to nanoTime clock
+            final long agoNanos = Duration.between(infos.getExecutionDate(), Instant.now()).toNanos();
+            final long startNanos = System.nanoTime() - agoNanos;
+            entry.command = new Timing(startNanos,
+                    startNanos + Duration.ofMillis(infos.getExecutionTime()).toNanos());
+        }
+    }
+
+    /**
+     * Helper method for getting String value of an id of {@code insertedIds}:
+     * Strings for Collections, single-value primary key Lists for Tables.
+     */
+    public static String idAsString(Object id) {
+        if (id instanceof List<?> key) {
+            id = key.isEmpty() ? null : key.get(0);
+        }
+        return (id == null) ? null : id.toString();
+    }
+
+    // // // RequestTimingListener (embedded server)
+
+    @Override
+    public boolean expectingRequests() {
+        return !expected.isEmpty();
+    }
+
+    @Override
+    public boolean isExpected(String requestKey) {
+        final Entry entry = expected.get(requestKey);
+        return (entry != null) && (entry.server == null);
+    }
+
+    @Override
+    public void requestTimed(String requestKey, long receivedNanos, long respondedNanos) {
+        final Entry entry = expected.get(requestKey);
+        if (entry != null && entry.server == null) {
+            entry.server = new Timing(receivedNanos, respondedNanos);
+        }
+    }
+
+    private static class Entry {
+        volatile Timing command;
+        volatile Timing server;
+    }
+}
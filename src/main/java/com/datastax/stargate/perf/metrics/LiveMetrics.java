@@ -0,0 +1,96 @@
+package com.datastax.stargate.perf.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.binder.jvm.ClassLoaderMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Optional HTTP endpoint ("/metrics") exposing metrics of the running test in
+ * Prometheus text format, for scraping while test runs: per-phase call counters and
+ * latency histograms (see {@link PhaseMeters}), as well as JVM memory, GC, thread
+ * and CPU meters. All meters are tagged with container type.
+ *<p>
+ * Only one instance per JVM, accessed by test phases using {@link #instance()}.
+ */
+public class LiveMetrics
+{
+    private final static String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static volatile LiveMetrics instance;
+
+    private final PrometheusMeterRegistry registry;
+
+    private final HttpServer server;
+
+    private LiveMetrics(PrometheusMeterRegistry registry, HttpServer server) {
+        this.registry = registry;
+        this.server = server;
+    }
+
+    /**
+     * Method for starting metrics endpoint at given port, to be accessed via
+     * {@link #instance()} afterwards.
+     */
+    public static synchronized LiveMetrics start(int port, String containerType) throws IOException {
+        if (instance != null) {
+            throw new IllegalStateException("Metrics endpoint already started");
+        }
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        registry.config().commonTags("container_type", containerType);
+        new ClassLoaderMetrics().bindTo(registry);
+        new JvmMemoryMetrics().bindTo(registry);
+        // Runs until JVM exits, no need to close
+        new JvmGcMetrics().bindTo(registry);
+        new JvmThreadMetrics().bindTo(registry);
+        new ProcessorMetrics().bindTo(registry);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 16);
+        server.createContext("/metrics", exchange -> scrape(registry, exchange));
+        server.start();
+        instance = new LiveMetrics(registry, server);
+        return instance;
+    }
+
+    /**
+     * Accessor for metrics endpoint, if started; {@code null} if not.
+     */
+    public static LiveMetrics instance() {
+        return instance;
+    }
+
+    public String endpoint() {
+        return "http://localhost:" + server.getAddress().getPort() + "/metrics";
+    }
+
+    /**
+     * Method for creating meters for a test phase; should be closed at the end of
+     * the phase.
+     */
+    public PhaseMeters phaseMeters(String phaseName) {
+        return new PhaseMeters(registry, phaseName);
+    }
+
+    private static void scrape(PrometheusMeterRegistry registry, HttpExchange exchange)
+        throws IOException
+    {
+        try (exchange) {
+            final byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
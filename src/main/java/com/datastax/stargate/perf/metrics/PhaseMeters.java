@@ -0,0 +1,94 @@
+package com.datastax.stargate.perf.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters of a single test phase (tagged with phase name): counters
+ * and latency timers (with histogram buckets) for successful and failed calls,
+ * plus gauges for current state while phase runs (removed at the end of phase).
+ */
+public class PhaseMeters implements AutoCloseable
+{
+    private final MeterRegistry registry;
+
+    private final String phaseName;
+
+    private final Counter okDocs;
+
+    private final Timer okTimer;
+    private final Timer errorTimer;
+
+    private final List<Meter> gauges = new ArrayList<>();
+
+    PhaseMeters(MeterRegistry registry, String phaseName) {
+        this.registry = registry;
+        this.phaseName = phaseName;
+        okDocs = Counter.builder("insertmany.documents")
+                .description("Documents/rows inserted by successful calls")
+                .tag("phase", phaseName)
+                .register(registry);
+        okTimer = callTimer(registry, phaseName, "ok");
+        errorTimer = callTimer(registry, phaseName, "error");
+    }
+
+    private static Timer callTimer(MeterRegistry registry, String phaseName, String outcome) {
+        return Timer.builder("insertmany.calls")
+                .description("Latency of insert calls")
+                .tag("phase", phaseName)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1L))
+                .maximumExpectedValue(Duration.ofSeconds(30L))
+                .register(registry);
+    }
+
+    public void recordOk(long timeNanos, int docs) {
+        okTimer.record(timeNanos, TimeUnit.NANOSECONDS);
+        okDocs.increment(docs);
+    }
+
+    public void recordError(long timeNanos) {
+        errorTimer.record(timeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Method for registering gauges for state of the running phase.
+     *
+     * @param callRate Call rate (calls per second) over the latest interval
+     * @param inFlight Number of calls currently in flight
+     * @param bufferedBatches Number of pre-generated batches buffered (generator backlog)
+     */
+    public void registerGauges(Supplier<Number> callRate, Supplier<Number> inFlight,
+                               Supplier<Number> bufferedBatches) {
+        gauges.add(gauge("insertmany.call.rate", "Calls per second over the latest interval", callRate));
+        gauges.add(gauge("insertmany.calls.inflight", "Calls currently in flight", inFlight));
+        gauges.add(gauge("insertmany.generator.buffered", "Pre-generated batches buffered", bufferedBatches));
+    }
+
+    private Gauge gauge(String name, String desc, Supplier<Number> value) {
+        return Gauge.builder(name, value)
+                .description(desc)
+                .tag("phase", phaseName)
+                .register(registry);
+    }
+
+    /**
+     * Method called at the end of phase: removes gauges (counters and timers are
+     * kept, as totals)
+     */
+    @Override
+    public void close() {
+        gauges.forEach(registry::remove);
+        gauges.clear();
+    }
+}
@@ -0,0 +1,17 @@
+package com.datastax.stargate.perf.insertmany;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * {@link AgentExecutorFactory} that runs each agent in its own virtual thread;
+ * only compiled with "java21" build profile.
+ */
+public class VirtualThreadExecutorFactory implements AgentExecutorFactory {
+    @Override
+    public ExecutorService createExecutor(int agentCount) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+                .name("agent-", 0)
+                .factory());
+    }
+}
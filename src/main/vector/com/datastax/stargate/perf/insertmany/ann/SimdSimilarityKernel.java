@@ -0,0 +1,40 @@
+package com.datastax.stargate.perf.insertmany.ann;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link SimilarityKernel} using SIMD instructions via Vector API (incubator module
+ * in Java 17+), with preferred (widest) vector size of the platform.
+ * Loaded dynamically (see {@link SimilarityKernel#create()}).
+ */
+public class SimdSimilarityKernel implements SimilarityKernel {
+    private final static VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public void dotProducts(float[] query, float[] block, int count, float[] scores) {
+        final int dim = query.length;
+        final int bound = SPECIES.loopBound(dim);
+        final int step = SPECIES.length();
+        for (int row = 0, base = 0; row < count; ++row, base += dim) {
+            FloatVector acc = FloatVector.zero(SPECIES);
+            int i = 0;
+            for (; i < bound; i += step) {
+                FloatVector q = FloatVector.fromArray(SPECIES, query, i);
+                FloatVector v = FloatVector.fromArray(SPECIES, block, base + i);
+                acc = q.fma(v, acc);
+            }
+            float sum = acc.reduceLanes(VectorOperators.ADD);
+            for (; i < dim; ++i) {
+                sum += query[i] * block[base + i];
+            }
+            scores[row] = sum;
+        }
+    }
+
+    @Override
+    public String desc() {
+        return "SIMD (" + SPECIES.vectorBitSize() + "-bit)";
+    }
+}